@@ -0,0 +1,79 @@
+package com.github.dynamobee;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.utils.ChangeSetContext;
+import com.github.dynamobee.utils.ChangeSetParameterResolver;
+import com.github.dynamobee.utils.ChangeSetParameterResolver.ArgumentSupplier;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.util.List;
+
+
+/**
+ * Calls a changeset method through a method handle, with argument suppliers resolved once when the invoker is built
+ */
+final class ChangeSetInvoker {
+  private static final MethodType INVOKER_TYPE = MethodType.methodType(void.class, Object.class, Object[].class);
+
+  private final MethodHandle handle;
+  private final ArgumentSupplier[] arguments;
+
+  private ChangeSetInvoker(MethodHandle handle, ArgumentSupplier[] arguments) {
+    this.handle = handle;
+    this.arguments = arguments;
+  }
+
+  /**
+   * @param changeSetMethod changeset method
+   * @param resolvers       parameter resolvers, asked in order
+   * @return invoker of the method
+   * @throws DynamobeeChangeSetException if a parameter cannot be resolved
+   * @throws IllegalAccessException      if the method is not accessible
+   */
+  static ChangeSetInvoker of(Method changeSetMethod, List<ChangeSetParameterResolver> resolvers)
+      throws DynamobeeChangeSetException, IllegalAccessException {
+    Parameter[] parameters = changeSetMethod.getParameters();
+    ArgumentSupplier[] arguments = new ArgumentSupplier[parameters.length];
+    for (int i = 0; i < parameters.length; i++) {
+      for (ChangeSetParameterResolver resolver : resolvers) {
+        arguments[i] = resolver.resolve(parameters[i]);
+        if (arguments[i] != null) {
+          break;
+        }
+      }
+      if (arguments[i] == null) {
+        throw new DynamobeeChangeSetException("ChangeSet method " + changeSetMethod.getName() +
+            " has wrong arguments list. Please see docs for more info!");
+      }
+    }
+
+    MethodHandle handle = MethodHandles.lookup().unreflect(changeSetMethod);
+    if (Modifier.isStatic(changeSetMethod.getModifiers())) {
+      handle = MethodHandles.dropArguments(handle, 0, Object.class);
+    }
+    handle = handle.asSpreader(Object[].class, parameters.length).asType(INVOKER_TYPE);
+    return new ChangeSetInvoker(handle, arguments);
+  }
+
+  /**
+   * @param changeLogInstance instance of the changelog class
+   * @param context           execution the arguments are supplied for
+   * @throws InvocationTargetException wrapping anything thrown by the changeset
+   */
+  void invoke(Object changeLogInstance, ChangeSetContext context) throws InvocationTargetException {
+    Object[] values = new Object[arguments.length];
+    for (int i = 0; i < arguments.length; i++) {
+      values[i] = arguments[i].get(context);
+    }
+    try {
+      handle.invokeExact(changeLogInstance, values);
+    } catch (Throwable e) {
+      throw new InvocationTargetException(e);
+    }
+  }
+}
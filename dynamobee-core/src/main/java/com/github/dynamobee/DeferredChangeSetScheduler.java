@@ -0,0 +1,324 @@
+package com.github.dynamobee;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.dao.DeferredLeaseDao;
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.jfr.ChangeSetExecutionEvent;
+import com.github.dynamobee.jfr.FlightRecorderEvents;
+import com.github.dynamobee.migration.MigrationExecutors;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Runs deferred changesets ({@code @ChangeSet(deferred = true)}) on a background thread, highest priority first,
+ * once the blocking changesets are done.
+ * <p>
+ * The instance holding the migration lock records deferred changesets as pending and sets the pending marker;
+ * every instance seeing the marker then starts a scheduler, but only the one holding the deferred lease runs
+ * them, one at a time, marking each in progress and then applied. A changeset left in progress by an instance
+ * which stopped is run again by the next lease holder, so deferred changesets must be safe to rerun.
+ * <p>
+ * The running changeset is interrupted when the lease is lost or a migration starts, and left in progress;
+ * the migration waits until it stopped. The scheduler exits once no pending changeset is left, clearing the
+ * pending marker of {@link DeferredLeaseDao} unless one failed.
+ */
+public class DeferredChangeSetScheduler {
+  private static final Logger logger = LoggerFactory.getLogger(DeferredChangeSetScheduler.class);
+
+  private static final long STOP_TIMEOUT_MILLIS = 30_000L;
+
+  interface ChangeSetRunner {
+    void run(Method changesetMethod, ChangeEntry changeEntry) throws Exception;
+  }
+
+  private static final class DeferredChangeSet {
+    private final Method changesetMethod;
+    private final ChangeEntry changeEntry;
+    private final int priority;
+
+    private DeferredChangeSet(Method changesetMethod, ChangeEntry changeEntry) {
+      this.changesetMethod = changesetMethod;
+      this.changeEntry = changeEntry;
+      this.priority = changesetMethod.getAnnotation(ChangeSet.class).priority();
+    }
+  }
+
+  private final DynamobeeDao dao;
+  private final DeferredLeaseDao leaseDao;
+  private final ChangeSetRunner runner;
+  private final String owner;
+  private final long leaseMillis;
+  private final long pollMillis;
+  private long pendingSince;
+  private final List<DeferredChangeSet> changeSets = new ArrayList<>();
+  private final CountDownLatch finished = new CountDownLatch(1);
+
+  private volatile boolean stopped;
+  private volatile String interruption;
+  private Thread thread;
+  private Thread runningThread;
+
+  DeferredChangeSetScheduler(DynamobeeDao dao, ChangeSetRunner runner, long leaseMillis, long pollMillis) {
+    this.dao = dao;
+    this.leaseDao = dao.getDeferredLeaseDao();
+    this.runner = runner;
+    this.owner = getHostName() + "/" + UUID.randomUUID();
+    this.leaseMillis = leaseMillis;
+    this.pollMillis = pollMillis;
+  }
+
+  /**
+   * Adds a deferred changeset; changesets of equal priority run in the order they were added
+   */
+  void add(Method changesetMethod, ChangeEntry changeEntry) {
+    changeSets.add(new DeferredChangeSet(changesetMethod, changeEntry));
+  }
+
+  /**
+   * Sets the pending marker cleared once all changesets ran; to be called before {@link #start}
+   */
+  void setPendingSince(long pendingSince) {
+    this.pendingSince = pendingSince;
+  }
+
+  boolean isEmpty() {
+    return changeSets.isEmpty();
+  }
+
+  synchronized void start() {
+    if (thread != null) {
+      return;
+    }
+    changeSets.sort(Comparator.comparingInt((DeferredChangeSet changeSet) -> changeSet.priority).reversed());
+    thread = MigrationExecutors.threadFactory("dynamobee-deferred", Thread.MIN_PRIORITY).newThread(this::run);
+    thread.start();
+    logger.info("Started scheduler of {} deferred changesets", changeSets.size());
+  }
+
+  private void run() {
+    ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+        MigrationExecutors.threadFactory("dynamobee-lease", Thread.NORM_PRIORITY));
+    Set<String> failed = new HashSet<>();
+    try {
+      while (!stopped) {
+        // deferred changesets never overlap a migration, which may register new ones: a starting migration
+        // interrupts the running changeset and waits for it to stop
+        if (!dao.isProccessLockHeld()) {
+          DeferredChangeSet next = nextChangeSet(failed);
+          if (next == null) {
+            logger.info("No deferred changesets left to run{}", failed.isEmpty() ? "" : ", failed: " + failed);
+            if (failed.isEmpty()) {
+              leaseDao.clearPending(pendingSince);
+            }
+            return;
+          }
+          DeferredLeaseDao.Lease lease = leaseDao.acquire(owner, leaseMillis);
+          if (lease == DeferredLeaseDao.Lease.HELD) {
+            runChangeSet(next, failed, heartbeat);
+            continue;
+          }
+          logger.debug("Deferred changesets are {}", lease == DeferredLeaseDao.Lease.PAUSED
+              ? "paused" : "run by another instance");
+        }
+        Thread.sleep(pollMillis);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      logger.error("Scheduler of deferred changesets failed", e);
+    } finally {
+      heartbeat.shutdownNow();
+      leaseDao.release(owner);
+      finished.countDown();
+    }
+  }
+
+  /**
+   * @return the pending or in-progress changeset of highest priority, or null if none is left
+   */
+  private DeferredChangeSet nextChangeSet(Set<String> failed) {
+    for (DeferredChangeSet changeSet : changeSets) {
+      if (failed.contains(changeSet.changeEntry.getChangeId())) {
+        continue;
+      }
+      ChangeEntry stored = dao.findChangeEntry(changeSet.changeEntry);
+      if (stored != null && !stored.hasState(ChangeEntry.State.APPLIED)) {
+        return changeSet;
+      }
+    }
+    return null;
+  }
+
+  private void runChangeSet(DeferredChangeSet changeSet, Set<String> failed, ScheduledExecutorService heartbeat) {
+    ChangeEntry changeEntry = changeSet.changeEntry;
+    if (!leaseDao.markRunning(owner, changeEntry.getChangeId())) {
+      return;
+    }
+    // the migration checks for a running changeset once it holds the lock: one of both sees the other
+    if (dao.isProccessLockHeld()) {
+      leaseDao.clearRunning(owner);
+      return;
+    }
+    dao.save(changeEntry.withState(ChangeEntry.State.IN_PROGRESS));
+    logger.info("{} running in the background", changeEntry);
+
+    synchronized (this) {
+      runningThread = Thread.currentThread();
+      interruption = null;
+    }
+    long renewEvery = Math.max(1, leaseMillis / 3);
+    long[] renewedAt = {System.currentTimeMillis()};
+    ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> {
+      try {
+        if (leaseDao.acquire(owner, leaseMillis) == DeferredLeaseDao.Lease.NOT_HELD) {
+          interruptChangeSet("the lease of deferred changesets was lost");
+          return;
+        }
+        renewedAt[0] = System.currentTimeMillis();
+        if (dao.isProccessLockHeld()) {
+          interruptChangeSet("a migration started");
+        }
+      } catch (RuntimeException e) {
+        if (System.currentTimeMillis() - renewedAt[0] >= leaseMillis) {
+          interruptChangeSet("the lease of deferred changesets expired");
+        } else {
+          logger.warn("Could not renew the lease of deferred changesets, retrying", e);
+        }
+      }
+    }, renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+
+    ChangeSetExecutionEvent event = FlightRecorderEvents.isInitialized() ? new ChangeSetExecutionEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    String outcome = ChangeSetExecutionEvent.FAILED;
+    try {
+      runner.run(changeSet.changesetMethod, changeEntry);
+      dao.save(changeEntry.withState(ChangeEntry.State.APPLIED));
+      outcome = ChangeSetExecutionEvent.APPLIED;
+      logger.info("{} applied", changeEntry);
+    } catch (Exception e) {
+      Throwable cause = e instanceof InvocationTargetException ? ((InvocationTargetException) e).getTargetException() : e;
+      if (stopped) {
+        logger.warn("{} interrupted by shutdown, it is resumed by the next scheduler", changeEntry, cause);
+        return;
+      }
+      String reason = interruption;
+      if (reason != null) {
+        logger.warn("{} interrupted as {}, it is resumed later", changeEntry, reason, cause);
+        return;
+      }
+      logger.error("{} failed, it is retried by the next scheduler", changeEntry, cause);
+      failed.add(changeEntry.getChangeId());
+      dao.save(changeEntry.withState(ChangeEntry.State.PENDING));
+    } finally {
+      renewal.cancel(false);
+      synchronized (this) {
+        runningThread = null;
+      }
+      if (!stopped) {
+        // an interruption racing with the end of the changeset must not end the scheduler
+        Thread.interrupted();
+        leaseDao.clearRunning(owner);
+      }
+      if (event != null) {
+        event.end(changeEntry, outcome);
+      }
+    }
+  }
+
+  /**
+   * Interrupts the running changeset, which is left in progress to be resumed by the next lease holder
+   */
+  private synchronized void interruptChangeSet(String reason) {
+    if (runningThread != null && interruption == null) {
+      interruption = reason;
+      logger.warn("Interrupting deferred changeset as {}", reason);
+      runningThread.interrupt();
+    }
+  }
+
+  /**
+   * Pauses deferred changesets on all instances; a running changeset completes first
+   */
+  public void pause() {
+    leaseDao.setPaused(true);
+    logger.info("Deferred changesets paused");
+  }
+
+  /**
+   * Resumes deferred changesets paused on any instance
+   */
+  public void resume() {
+    leaseDao.setPaused(false);
+    logger.info("Deferred changesets resumed");
+  }
+
+  public boolean isPaused() {
+    return leaseDao.isPaused();
+  }
+
+  /**
+   * @return true until all deferred changesets ran or the scheduler was stopped
+   */
+  public boolean isRunning() {
+    return finished.getCount() > 0;
+  }
+
+  /**
+   * Waits until all deferred changesets ran or the scheduler was stopped
+   *
+   * @param timeout maximum time to wait
+   * @param unit    unit of the timeout
+   * @return true if the scheduler finished, false if the timeout elapsed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+    return finished.await(timeout, unit);
+  }
+
+  /**
+   * Stops the scheduler: the running changeset is interrupted and left in progress, to be resumed
+   * by the next lease holder. Waits up to 30 seconds for the scheduler thread to release the lease.
+   */
+  public synchronized void stop() {
+    stopped = true;
+    if (thread == null) {
+      finished.countDown();
+      return;
+    }
+    thread.interrupt();
+    try {
+      if (!finished.await(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        logger.warn("Deferred changeset scheduler did not stop within {} ms, its lease expires instead", STOP_TIMEOUT_MILLIS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "UnknownHost";
+    }
+  }
+}
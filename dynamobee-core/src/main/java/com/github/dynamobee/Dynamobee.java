@@ -0,0 +1,823 @@
+package com.github.dynamobee;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import com.github.dynamobee.changeset.ChangeSet;
+import com.github.dynamobee.dao.DynamobeeDao;
+import com.github.dynamobee.dao.SegmentPlan;
+import com.github.dynamobee.dao.SegmentPlanDao;
+import com.github.dynamobee.dao.SegmentPlanStatus;
+import com.github.dynamobee.utils.ChangeLogComparator;
+import com.github.dynamobee.utils.ChangeLogDiscovery;
+import com.github.dynamobee.utils.ChangeService;
+import com.github.dynamobee.utils.ChangeSetContext;
+import com.github.dynamobee.utils.ChangeSetParameterResolver;
+import com.github.dynamobee.utils.ChangeSetParameterResolver.ArgumentSupplier;
+import com.github.dynamobee.utils.ClasspathChangeLogDiscovery;
+import com.github.dynamobee.utils.ProfileResolver;
+import com.github.dynamobee.utils.TableSchemaRegistry;
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.exception.DynamobeeConfigurationException;
+import com.github.dynamobee.exception.DynamobeeConnectionException;
+import com.github.dynamobee.exception.DynamobeeException;
+import com.github.dynamobee.jfr.ChangeSetExecutionEvent;
+import com.github.dynamobee.jfr.FlightRecorderDynamoDbClient;
+import com.github.dynamobee.jfr.FlightRecorderEvents;
+import com.github.dynamobee.migration.KeyFanOut;
+import com.github.dynamobee.migration.ScanSegment;
+import com.github.dynamobee.migration.snapshot.TableSnapshot;
+import com.github.dynamobee.partiql.PartiqlScript;
+import com.github.dynamobee.partiql.PartiqlScriptResult;
+import com.github.dynamobee.partiql.PartiqlScriptRunner;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+
+/**
+ * Dynamobee runner
+ * <p>
+ * The core runner has no Spring dependency; Spring users should use {@code SpringDynamobee}
+ * from the dynamobee-spring module.
+ */
+public class Dynamobee {
+  private static final Logger logger = LoggerFactory.getLogger(Dynamobee.class);
+
+  private static final String DEFAULT_CHANGELOG_TABLE_NAME = "dynamobee";
+  private static final boolean DEFAULT_WAIT_FOR_LOCK = false;
+  private static final long DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME = 5L;
+  private static final long DEFAULT_CHANGE_LOG_LOCK_POLL_RATE = 10L;
+  private static final boolean DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK = false;
+  private static final int DEFAULT_PARTIQL_THREADS = 4;
+  private static final boolean DEFAULT_JOIN_DISTRIBUTED_CHANGE_SETS = false;
+  private static final long DEFAULT_SEGMENT_LEASE_TIME = 60L;
+  private static final int SEGMENT_MAX_ATTEMPTS = 3;
+  private static final int DEFAULT_SNAPSHOT_SEGMENTS = 8;
+  private static final boolean DEFAULT_DEFER_CHANGE_SETS = true;
+  private static final long DEFAULT_DEFERRED_LEASE_TIME = 60L;
+  private static final boolean DEFAULT_FLIGHT_RECORDER_EVENTS = true;
+
+  private DynamobeeDao dao;
+
+  private boolean enabled = true;
+  private String changeLogsScanPackage;
+  private DynamoDbClient dynamoDbClient;
+  private ChangeLogDiscovery changeLogDiscovery;
+  private ProfileResolver profileResolver = ProfileResolver.DEFAULT_PROFILE_ACTIVE;
+  private int partiqlThreads = DEFAULT_PARTIQL_THREADS;
+  private boolean joinDistributedChangeSets = DEFAULT_JOIN_DISTRIBUTED_CHANGE_SETS;
+  private long segmentLeaseTime = DEFAULT_SEGMENT_LEASE_TIME;
+  private Path snapshotDirectory;
+  private int snapshotSegments = DEFAULT_SNAPSHOT_SEGMENTS;
+  private boolean deferChangeSets = DEFAULT_DEFER_CHANGE_SETS;
+  private long deferredLeaseTime = DEFAULT_DEFERRED_LEASE_TIME;
+  private boolean flightRecorderEvents = DEFAULT_FLIGHT_RECORDER_EVENTS;
+  private final List<ChangeSetParameterResolver> parameterResolvers = new ArrayList<>();
+  private final Map<Method, ChangeSetInvoker> changeSetInvokers = new ConcurrentHashMap<>();
+  private volatile DeferredChangeSetScheduler deferredChangeSetScheduler;
+
+
+  /**
+   * <p>
+   * Constructor takes software.amazon.awssdk.services.dynamodb.DynamoDbClient as a parameter.
+   * </p>
+   *
+   * @param dynamoDbClient database connection client
+   */
+  public Dynamobee(DynamoDbClient dynamoDbClient) {
+    this.dynamoDbClient = dynamoDbClient;
+
+    this.dao = new DynamobeeDao(DEFAULT_CHANGELOG_TABLE_NAME, DEFAULT_WAIT_FOR_LOCK,
+        DEFAULT_CHANGE_LOG_LOCK_WAIT_TIME, DEFAULT_CHANGE_LOG_LOCK_POLL_RATE, DEFAULT_THROW_EXCEPTION_IF_CANNOT_OBTAIN_LOCK);
+
+    this.setChangelogTableName(DEFAULT_CHANGELOG_TABLE_NAME);
+  }
+
+  /**
+   * Executing migration
+   *
+   * @throws DynamobeeException exception
+   */
+  public void execute() throws DynamobeeException {
+    if (!isEnabled()) {
+      logger.info("Dynamobee is disabled. Exiting.");
+      return;
+    }
+
+    validateConfig();
+
+    if (flightRecorderEvents) {
+      this.dynamoDbClient = FlightRecorderDynamoDbClient.wrap(this.dynamoDbClient);
+    }
+    dao.connectDynamoDB(this.dynamoDbClient);
+
+    if (!dao.acquireProcessLock()) {
+      if (joinDistributedChangeSets) {
+        joinDistributedChangeSets();
+      }
+      startPendingChangeSets();
+      logger.info("Dynamobee did not acquire process lock. Exiting.");
+      return;
+    }
+
+    logger.info("Dynamobee acquired process lock, starting the data migration sequence..");
+
+    DeferredChangeSetScheduler deferred = createDeferredChangeSetScheduler();
+    try {
+      awaitDeferredChangeSet();
+      executeMigration(deferred);
+    } catch (Exception e) {
+      logger.error("Dynamobee migration failed", e);
+      throw e;
+    } finally {
+      logger.info("Dynamobee is releasing process lock.");
+      dao.releaseProcessLock();
+    }
+
+    startDeferredChangeSets(deferred);
+    logger.info("Dynamobee has finished his job.");
+  }
+
+  /**
+   * Waits until the deferred changeset running on any instance stopped; its scheduler interrupts it once it
+   * sees the migration lock, so it does not overlap the migration
+   */
+  private void awaitDeferredChangeSet() throws DynamobeeException {
+    String running;
+    while ((running = dao.getDeferredLeaseDao().findRunning()) != null) {
+      logger.info("Waiting for deferred changeset {} to stop", running);
+      if (!sleepPollRate()) {
+        throw new DynamobeeException("Interrupted while waiting for deferred changeset " + running);
+      }
+    }
+  }
+
+  /**
+   * @param deferred scheduler collecting the deferred changesets, null if they run inline
+   */
+  private void executeMigration(DeferredChangeSetScheduler deferred) throws DynamobeeException {
+
+    ChangeService service = createChangeService();
+
+    List<PartiqlScript> partiqlScripts = service.fetchPartiqlScripts();
+    int nextScript = 0;
+
+    for (Class<?> changelogClass : service.fetchChangeLogs()) {
+      String changelogOrder = ChangeLogComparator.orderOf(changelogClass);
+      while (nextScript < partiqlScripts.size()
+          && partiqlScripts.get(nextScript).getOrder().compareTo(changelogOrder) < 0) {
+        executePartiqlScript(service, partiqlScripts.get(nextScript++));
+      }
+      executeChangeLog(service, changelogClass, deferred);
+    }
+
+    while (nextScript < partiqlScripts.size()) {
+      executePartiqlScript(service, partiqlScripts.get(nextScript++));
+    }
+  }
+
+  private void executeChangeLog(ChangeService service, Class<?> changelogClass, DeferredChangeSetScheduler deferred)
+      throws DynamobeeException {
+    Object changelogInstance = null;
+    try {
+      changelogInstance = changelogClass.getConstructor().newInstance();
+      List<Method> changesetMethods = service.fetchChangeSets(changelogInstance.getClass());
+
+      for (Method changesetMethod : changesetMethods) {
+        ChangeEntry changeEntry = service.createChangeEntry(changesetMethod);
+        ChangeSetExecutionEvent event = FlightRecorderEvents.isInitialized() ? new ChangeSetExecutionEvent() : null;
+        if (event != null) {
+          event.begin();
+        }
+        String outcome = ChangeSetExecutionEvent.FAILED;
+
+        try {
+          if (deferred != null && service.isDeferredChangeSet(changesetMethod)) {
+            outcome = registerDeferredChangeSet(service, changesetMethod, changeEntry);
+            if (ChangeSetExecutionEvent.DEFERRED.equals(outcome)) {
+              deferred.add(changesetMethod, changeEntry);
+            }
+          } else if (dao.isNewChange(changeEntry)) {
+            executeChangeSet(changesetMethod, changelogInstance, changeEntry, false);
+            dao.save(changeEntry.withState(ChangeEntry.State.APPLIED));
+            finishChangeSet(changesetMethod, changeEntry);
+            outcome = ChangeSetExecutionEvent.APPLIED;
+            logger.info(changeEntry + " applied");
+          } else if (service.isRunAlwaysChangeSet(changesetMethod)) {
+            executeChangeSet(changesetMethod, changelogInstance, changeEntry, true);
+            finishChangeSet(changesetMethod, changeEntry);
+            outcome = ChangeSetExecutionEvent.REAPPLIED;
+            logger.info(changeEntry + " reapplied");
+          } else {
+            outcome = ChangeSetExecutionEvent.PASSED_OVER;
+            logger.info(changeEntry + " passed over");
+          }
+        } catch (DynamobeeChangeSetException e) {
+          logger.error(e.getMessage());
+        } finally {
+          if (event != null) {
+            event.end(changeEntry, outcome);
+          }
+        }
+      }
+    } catch (NoSuchMethodException | IllegalAccessException | InstantiationException e) {
+      throw new DynamobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new DynamobeeException(targetException.getMessage(), e);
+    }
+  }
+
+  /**
+   * Records a deferred changeset as pending, for the scheduler started once the lock is released
+   *
+   * @return outcome of the changeset for its execution event
+   */
+  private String registerDeferredChangeSet(ChangeService service, Method changesetMethod, ChangeEntry changeEntry) {
+    ChangeEntry stored = dao.findChangeEntry(changeEntry);
+    if (stored == null
+        || (stored.hasState(ChangeEntry.State.APPLIED) && service.isRunAlwaysChangeSet(changesetMethod))) {
+      dao.save(changeEntry.withState(ChangeEntry.State.PENDING));
+      logger.info(changeEntry + " deferred");
+    } else if (stored.hasState(ChangeEntry.State.APPLIED)) {
+      logger.info(changeEntry + " passed over");
+      return ChangeSetExecutionEvent.PASSED_OVER;
+    } else {
+      logger.info(changeEntry + " still deferred");
+    }
+    return ChangeSetExecutionEvent.DEFERRED;
+  }
+
+  /**
+   * Starts the background scheduler of the deferred changesets registered by the migration, unless none is pending
+   */
+  private void startDeferredChangeSets(DeferredChangeSetScheduler deferred) {
+    if (deferred == null || deferred.isEmpty()) {
+      return;
+    }
+    startDeferredChangeSets(deferred, dao.getDeferredLeaseDao().markPending());
+  }
+
+  /**
+   * Starts the background scheduler on an instance which did not run the migration. Only the pending marker
+   * is read unless deferred changesets are left, in which case the changelogs are scanned to find them.
+   */
+  private void startPendingChangeSets() throws DynamobeeException {
+    if (!deferChangeSets || deferredChangeSetScheduler != null) {
+      return;
+    }
+    Long pendingSince = dao.getDeferredLeaseDao().findPending();
+    if (pendingSince == null) {
+      return;
+    }
+    DeferredChangeSetScheduler deferred = createDeferredChangeSetScheduler();
+    ChangeService service = createChangeService();
+    for (Class<?> changelogClass : service.fetchChangeLogs()) {
+      for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+        if (service.isDeferredChangeSet(changesetMethod)) {
+          deferred.add(changesetMethod, service.createChangeEntry(changesetMethod));
+        }
+      }
+    }
+    if (!deferred.isEmpty()) {
+      startDeferredChangeSets(deferred, pendingSince);
+    }
+  }
+
+  private void startDeferredChangeSets(DeferredChangeSetScheduler deferred, long pendingSince) {
+    deferred.setPendingSince(pendingSince);
+    deferredChangeSetScheduler = deferred;
+    deferred.start();
+  }
+
+  /**
+   * @return a scheduler for the deferred changesets, or null if they run inline or a scheduler already started
+   */
+  private DeferredChangeSetScheduler createDeferredChangeSetScheduler() {
+    if (!deferChangeSets || deferredChangeSetScheduler != null) {
+      return null;
+    }
+    Map<Class<?>, Object> changelogInstances = new HashMap<>();
+    return new DeferredChangeSetScheduler(dao, (changesetMethod, changeEntry) -> {
+      Object changelogInstance = changelogInstances.get(changesetMethod.getDeclaringClass());
+      if (changelogInstance == null) {
+        changelogInstance = newChangeLogInstance(changesetMethod.getDeclaringClass());
+        changelogInstances.put(changesetMethod.getDeclaringClass(), changelogInstance);
+      }
+      // a pending entry does not tell whether the changeset was applied before: treat it as a first run
+      executeChangeSet(changesetMethod, changelogInstance, changeEntry, false);
+      finishChangeSet(changesetMethod, changeEntry);
+    }, deferredLeaseTime * 1000, dao.getChangeLogLockPollRate() * 1000);
+  }
+
+  private void executeChangeSet(Method changesetMethod, Object changelogInstance, ChangeEntry changeEntry,
+                                boolean reapply)
+      throws DynamobeeException, IllegalAccessException, InvocationTargetException {
+    snapshotTables(changesetMethod, changeEntry, reapply);
+    if (segmentsOf(changesetMethod) == 0) {
+      executeChangeSetMethod(changesetMethod, changelogInstance, changeEntry.getChangeId(), null);
+      return;
+    }
+    if (!Arrays.asList(changesetMethod.getParameterTypes()).contains(ScanSegment.class)) {
+      throw new DynamobeeChangeSetException("ChangeSet method " + changesetMethod.getName() +
+          " has segments but no ScanSegment argument. Please see docs for more info!");
+    }
+
+    // the leader publishes the plan and works on it like every other instance,
+    // then waits for segments still leased by others
+    SegmentPlan plan = planOf(changesetMethod, changeEntry);
+    SegmentPlanDao segmentPlanDao = dao.getSegmentPlanDao();
+    segmentPlanDao.publishPlan(plan);
+    segmentPlanDao.activatePlan(plan);
+    SegmentWorker worker = createSegmentWorker();
+    while (true) {
+      worker.work(plan,
+          segment -> executeChangeSetMethod(changesetMethod, changelogInstance, changeEntry.getChangeId(), segment));
+      SegmentPlanStatus status = segmentPlanDao.getStatus(plan);
+      if (status.isComplete()) {
+        return;
+      }
+      if (status.getFailed() > 0) {
+        throw new DynamobeeException("Distributed " + changeEntry + " failed: " + status
+            + ". The plan is kept, completed segments are skipped when it is run again.");
+      }
+      logger.info("Waiting for segments of {} processed by other instances: {}", changeEntry.getChangeId(), status);
+      if (!sleepPollRate()) {
+        throw new DynamobeeException("Interrupted while waiting for segments of " + changeEntry);
+      }
+    }
+  }
+
+  private void snapshotTables(Method changesetMethod, ChangeEntry changeEntry, boolean reapply)
+      throws DynamobeeException {
+    ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+    if (annotation == null || annotation.snapshotTables().length == 0) {
+      return;
+    }
+    if (reapply && !annotation.snapshotOnReapply()) {
+      logger.info("Skipping the snapshot of {} before reapplying {}", Arrays.toString(annotation.snapshotTables()),
+          changeEntry.getChangeId());
+      return;
+    }
+    if (snapshotDirectory == null) {
+      throw new DynamobeeConfigurationException(changeEntry + " snapshots tables, but no snapshot directory is set: "
+          + "use setSnapshotDirectory");
+    }
+    Path changeSetDirectory = snapshotDirectory.resolve(changeEntry.getChangeId().replaceAll("[^A-Za-z0-9._-]", "_"));
+    for (String tableName : annotation.snapshotTables()) {
+      try {
+        new TableSnapshot(this.dynamoDbClient, tableName, changeSetDirectory.resolve(tableName))
+            .setTotalSegments(snapshotSegments)
+            .create();
+      } catch (RuntimeException e) {
+        throw new DynamobeeException("Snapshot of " + tableName + " before " + changeEntry + " failed: "
+            + e.getMessage(), e);
+      }
+    }
+  }
+
+  private void finishChangeSet(Method changesetMethod, ChangeEntry changeEntry) {
+    if (segmentsOf(changesetMethod) > 0) {
+      dao.getSegmentPlanDao().deletePlan(planOf(changesetMethod, changeEntry));
+    }
+  }
+
+  /**
+   * Works on the segments of the distributed changeset the instance holding the lock is running, until it releases it.
+   * Plans left by earlier runs are only worked on once the lock holder reaches their changeset again,
+   * so segments never run ahead of the changesets ordered before them.
+   */
+  private void joinDistributedChangeSets() throws DynamobeeException {
+    logger.info("Dynamobee did not acquire process lock, joining distributed changesets while it is held");
+    SegmentPlanDao segmentPlanDao = dao.getSegmentPlanDao();
+    SegmentWorker worker = createSegmentWorker();
+    Map<String, Method> changeSets = null;
+    Map<Class<?>, Object> changelogInstances = new HashMap<>();
+
+    while (dao.isProccessLockHeld()) {
+      SegmentPlan plan = segmentPlanDao.findActivePlan();
+      if (plan != null) {
+        if (changeSets == null) {
+          changeSets = findDistributedChangeSets(createChangeService());
+        }
+        Method changesetMethod = changeSets.get(plan.getChangeId());
+        if (changesetMethod == null || !changesetMethod.getDeclaringClass().getName().equals(plan.getChangeLogClass())) {
+          logger.warn("{} is not a distributed changeset of this instance, skipping it", plan);
+        } else {
+          workOn(worker, plan, changesetMethod, changelogInstances);
+        }
+      }
+      if (!sleepPollRate()) {
+        return;
+      }
+    }
+  }
+
+  private void workOn(SegmentWorker worker, SegmentPlan plan, Method changesetMethod,
+                      Map<Class<?>, Object> changelogInstances) throws DynamobeeException {
+    Object changelogInstance = changelogInstances.get(changesetMethod.getDeclaringClass());
+    if (changelogInstance == null) {
+      changelogInstance = newChangeLogInstance(changesetMethod.getDeclaringClass());
+      changelogInstances.put(changesetMethod.getDeclaringClass(), changelogInstance);
+    }
+    Object instance = changelogInstance;
+    int completed = worker.work(plan,
+        segment -> executeChangeSetMethod(changesetMethod, instance, plan.getChangeId(), segment));
+    if (completed > 0) {
+      logger.info("Completed {} segments of {}", completed, plan.getChangeId());
+    }
+  }
+
+  private Map<String, Method> findDistributedChangeSets(ChangeService service) throws DynamobeeException {
+    Map<String, Method> changeSets = new HashMap<>();
+    for (Class<?> changelogClass : service.fetchChangeLogs()) {
+      for (Method changesetMethod : service.fetchChangeSets(changelogClass)) {
+        if (segmentsOf(changesetMethod) > 0) {
+          changeSets.put(changesetMethod.getAnnotation(ChangeSet.class).id(), changesetMethod);
+        }
+      }
+    }
+    return changeSets;
+  }
+
+  private Object newChangeLogInstance(Class<?> changelogClass) throws DynamobeeException {
+    try {
+      return changelogClass.getConstructor().newInstance();
+    } catch (NoSuchMethodException | IllegalAccessException | InstantiationException e) {
+      throw new DynamobeeException(e.getMessage(), e);
+    } catch (InvocationTargetException e) {
+      Throwable targetException = e.getTargetException();
+      throw new DynamobeeException(targetException.getMessage(), e);
+    }
+  }
+
+  private SegmentPlan planOf(Method changesetMethod, ChangeEntry changeEntry) {
+    return new SegmentPlan(changeEntry.getChangeId(), segmentsOf(changesetMethod),
+        changeEntry.getChangeLogClass(), changeEntry.getChangeSetMethodName());
+  }
+
+  private static int segmentsOf(Method changesetMethod) {
+    ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
+    return annotation == null ? 0 : annotation.segments();
+  }
+
+  private SegmentWorker createSegmentWorker() {
+    return new SegmentWorker(dao.getSegmentPlanDao(), segmentLeaseTime * 1000, SEGMENT_MAX_ATTEMPTS);
+  }
+
+  /**
+   * @return false if interrupted
+   */
+  private boolean sleepPollRate() {
+    try {
+      Thread.sleep(dao.getChangeLogLockPollRate() * 1000);
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private ChangeService createChangeService() {
+    return new ChangeService(changeLogsScanPackage,
+        changeLogDiscovery != null ? changeLogDiscovery : new ClasspathChangeLogDiscovery(), profileResolver);
+  }
+
+  private void executePartiqlScript(ChangeService service, PartiqlScript script) throws DynamobeeException {
+    ChangeEntry changeEntry = service.createChangeEntry(script);
+    ChangeSetExecutionEvent event = FlightRecorderEvents.isInitialized() ? new ChangeSetExecutionEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    String outcome = ChangeSetExecutionEvent.FAILED;
+
+    try {
+      if (dao.isNewChange(changeEntry)) {
+        runPartiqlScript(script);
+        dao.save(changeEntry.withState(ChangeEntry.State.APPLIED));
+        outcome = ChangeSetExecutionEvent.APPLIED;
+        logger.info(changeEntry + " applied");
+      } else if (script.isRunAlways()) {
+        runPartiqlScript(script);
+        outcome = ChangeSetExecutionEvent.REAPPLIED;
+        logger.info(changeEntry + " reapplied");
+      } else {
+        outcome = ChangeSetExecutionEvent.PASSED_OVER;
+        logger.info(changeEntry + " passed over");
+      }
+    } finally {
+      if (event != null) {
+        event.end(changeEntry, outcome);
+      }
+    }
+  }
+
+  private void runPartiqlScript(PartiqlScript script) throws DynamobeeException {
+    PartiqlScriptResult result = new PartiqlScriptRunner(this.dynamoDbClient, partiqlThreads).execute(script);
+    if (!result.isSuccessful()) {
+      throw new DynamobeeException("PartiQL script " + script.getResourceName() + " failed: " + result.getFailures());
+    }
+  }
+
+  /**
+   * Invokes the changeset through its invoker, which is built on first use from the added parameter resolvers
+   * and the built-in ones
+   */
+  private void executeChangeSetMethod(Method changeSetMethod, Object changeLogInstance, String changeId,
+                                      ScanSegment segment)
+      throws IllegalAccessException, InvocationTargetException, DynamobeeChangeSetException {
+    ChangeSetInvoker invoker = changeSetInvokers.get(changeSetMethod);
+    if (invoker == null) {
+      List<ChangeSetParameterResolver> resolvers = new ArrayList<>(parameterResolvers);
+      resolvers.add(this::resolveBuiltInParameter);
+      invoker = ChangeSetInvoker.of(changeSetMethod, resolvers);
+      changeSetInvokers.put(changeSetMethod, invoker);
+    }
+    invoker.invoke(changeLogInstance, new ChangeSetContext(changeId, segment));
+  }
+
+  /**
+   * Resolves parameters by type: the DynamoDbClient, the shared DynamoDbEnhancedClient and TableSchemaRegistry,
+   * a new KeyFanOut, an IncrementalQuery bound to the changeset and, for distributed changesets, the ScanSegment
+   */
+  private ArgumentSupplier resolveBuiltInParameter(Parameter parameter) {
+    Class<?> type = parameter.getType();
+    if (type.equals(DynamoDbClient.class)) {
+      return context -> this.dynamoDbClient;
+    } else if (type.equals(DynamoDbEnhancedClient.class)) {
+      return context -> dao.getDynamoDbEnhancedClient();
+    } else if (type.equals(TableSchemaRegistry.class)) {
+      return context -> TableSchemaRegistry.shared();
+    } else if (type.equals(KeyFanOut.class)) {
+      return context -> new KeyFanOut(this.dynamoDbClient);
+    } else if (type.equals(IncrementalQuery.class)) {
+      return context -> new IncrementalQuery(this.dynamoDbClient, dao.getWatermarkDao(), context.getChangeId());
+    } else if (type.equals(ScanSegment.class) && segmentsOf((Method) parameter.getDeclaringExecutable()) > 0) {
+      return ChangeSetContext::getSegment;
+    }
+    return null;
+  }
+
+  private void validateConfig() throws DynamobeeConfigurationException {
+    if (changeLogDiscovery == null
+        && (changeLogsScanPackage == null || changeLogsScanPackage.trim().length() == 0)) {
+      throw new DynamobeeConfigurationException("Scan package for changelogs is not set: use appropriate setter");
+    }
+  }
+
+  /**
+   * @return the scheduler running the deferred changesets of this instance, or null if none was started
+   */
+  public DeferredChangeSetScheduler getDeferredChangeSetScheduler() {
+    return deferredChangeSetScheduler;
+  }
+
+  /**
+   * Stops the deferred changesets running on this instance; a changeset left in progress is resumed
+   * by another instance or after the next start
+   */
+  public void shutdown() {
+    DeferredChangeSetScheduler scheduler = deferredChangeSetScheduler;
+    if (scheduler != null) {
+      scheduler.stop();
+    }
+  }
+
+  /**
+   * @return true if an execution is in progress, in any process.
+   * @throws DynamobeeConnectionException exception
+   */
+  public boolean isExecutionInProgress() throws DynamobeeConnectionException {
+    return dao.isProccessLockHeld();
+  }
+
+  /**
+   * Package name where @ChangeLog-annotated classes are kept.
+   *
+   * @param changeLogsScanPackage package where your changelogs are
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setChangeLogsScanPackage(String changeLogsScanPackage) {
+    this.changeLogsScanPackage = changeLogsScanPackage;
+    return this;
+  }
+
+  /**
+   * @return true if Dynamobee runner is enabled and able to run, otherwise false
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Feature which enables/disables Dynamobee runner execution
+   *
+   * @param enabled Dynamobee will run only if this option is set to true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setEnabled(boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  /**
+   * Feature which enables/disables waiting for lock if it's already obtained
+   *
+   * @param waitForLock Dynamobee will be waiting for lock if it's already obtained if this option is set to true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setWaitForLock(boolean waitForLock) {
+    this.dao.setWaitForLock(waitForLock);
+    return this;
+  }
+
+  /**
+   * Waiting time for acquiring lock if waitForLock is true
+   *
+   * @param changeLogLockWaitTime Waiting time in minutes for acquiring lock
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setChangeLogLockWaitTime(long changeLogLockWaitTime) {
+    this.dao.setChangeLogLockWaitTime(changeLogLockWaitTime);
+    return this;
+  }
+
+  /**
+   * Poll rate for acquiring lock if waitForLock is true
+   *
+   * @param changeLogLockPollRate Poll rate in seconds for acquiring lock
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setChangeLogLockPollRate(long changeLogLockPollRate) {
+    this.dao.setChangeLogLockPollRate(changeLogLockPollRate);
+    return this;
+  }
+
+  /**
+   * Feature which enables/disables throwing DynamobeeLockException if Dynamobee can not obtain lock
+   *
+   * @param throwExceptionIfCannotObtainLock Dynamobee will throw DynamobeeLockException if lock can not be obtained
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setThrowExceptionIfCannotObtainLock(boolean throwExceptionIfCannotObtainLock) {
+    this.dao.setThrowExceptionIfCannotObtainLock(throwExceptionIfCannotObtainLock);
+    return this;
+  }
+
+  /**
+   * Replaces classpath scanning of {@link #setChangeLogsScanPackage(String)} with a custom lookup,
+   * e.g. {@code ChangeLogDiscovery.of(MyChangelog.class)} for the fastest possible cold start.
+   *
+   * @param changeLogDiscovery strategy finding the changelog classes
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setChangeLogDiscovery(ChangeLogDiscovery changeLogDiscovery) {
+    this.changeLogDiscovery = changeLogDiscovery;
+    return this;
+  }
+
+  /**
+   * Adds a resolver of changeset method parameters, asked before the resolvers added later and the built-in ones
+   *
+   * @param parameterResolver resolver supplying arguments, e.g. application services
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee addChangeSetParameterResolver(ChangeSetParameterResolver parameterResolver) {
+    this.parameterResolvers.add(parameterResolver);
+    this.changeSetInvokers.clear();
+    return this;
+  }
+
+  /**
+   * Set the strategy deciding which changelogs and changesets are active (by default
+   * {@link ProfileResolver#DEFAULT_PROFILE_ACTIVE}: only the {@code default} profile is active)
+   *
+   * @param profileResolver profile resolver to use
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setProfileResolver(ProfileResolver profileResolver) {
+    this.profileResolver = profileResolver;
+    return this;
+  }
+
+  /**
+   * Number of BatchExecuteStatement calls run in parallel for one statement group of a PartiQL script
+   *
+   * @param partiqlThreads parallel batches, default 4
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setPartiqlThreads(int partiqlThreads) {
+    this.partiqlThreads = partiqlThreads;
+    return this;
+  }
+
+  /**
+   * Feature which lets instances that did not acquire the lock work on distributed changesets
+   * ({@code @ChangeSet(segments = N)}) until the lock is released, instead of exiting right away
+   *
+   * @param joinDistributedChangeSets claim segments of distributed changesets published by the lock holder
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setJoinDistributedChangeSets(boolean joinDistributedChangeSets) {
+    this.joinDistributedChangeSets = joinDistributedChangeSets;
+    return this;
+  }
+
+  /**
+   * Lease time of a segment of a distributed changeset. Leases are renewed while the segment is processed;
+   * the segment of an instance which stops renewing is taken over by another one after this time.
+   *
+   * @param segmentLeaseTime lease time in seconds, default 60
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setSegmentLeaseTime(long segmentLeaseTime) {
+    this.segmentLeaseTime = segmentLeaseTime;
+    return this;
+  }
+
+  /**
+   * Directory receiving the snapshots of {@code @ChangeSet(snapshotTables = ...)}, one subdirectory per changeset
+   * and table. A previous snapshot of the same changeset is replaced when the changeset runs again.
+   * Required as soon as a changeset declares snapshot tables; the snapshots hold the full table data, so the
+   * directory should be private to the application and durable enough to restore from.
+   *
+   * @param snapshotDirectory snapshot directory, no default
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setSnapshotDirectory(Path snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+    return this;
+  }
+
+  /**
+   * Number of scan segments (and parallel threads) used to snapshot a table
+   *
+   * @param snapshotSegments segments per table, default 8
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setSnapshotSegments(int snapshotSegments) {
+    this.snapshotSegments = snapshotSegments;
+    return this;
+  }
+
+  /**
+   * Feature which runs changesets marked {@code @ChangeSet(deferred = true)} in the background once the
+   * other changesets are done, letting {@link #execute()} return early. When disabled they run inline like the others.
+   *
+   * @param deferChangeSets run deferred changesets in the background, default true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setDeferChangeSets(boolean deferChangeSets) {
+    this.deferChangeSets = deferChangeSets;
+    return this;
+  }
+
+  /**
+   * Lease time of the scheduler of deferred changesets. The lease is renewed while changesets run;
+   * another instance resumes them once the lease of a stopped instance expired.
+   *
+   * @param deferredLeaseTime lease time in seconds, default 60
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setDeferredLeaseTime(long deferredLeaseTime) {
+    this.deferredLeaseTime = deferredLeaseTime;
+    return this;
+  }
+
+  /**
+   * Feature which passes a DynamoDbClient recording a JFR event per DynamoDB call to Dynamobee and to the changesets.
+   * The changeset, lock and changelog scan events are recorded either way; all events cost next to nothing
+   * unless enabled in a recording.
+   *
+   * @param flightRecorderEvents record DynamoDB calls as JDK Flight Recorder events, default true
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setFlightRecorderEvents(boolean flightRecorderEvents) {
+    this.flightRecorderEvents = flightRecorderEvents;
+    return this;
+  }
+
+  /**
+   * Overwrites a default dynamobee changelog collection hardcoded in DEFAULT_CHANGELOG_TABLE_NAME.
+   * <p>
+   * CAUTION! Use this method carefully - when changing the name on a existing system,
+   * your changelogs will be executed again on your DynamoDB instance
+   *
+   * @param changelogTableName a new changelog collection name
+   * @return Dynamobee object for fluent interface
+   */
+  public Dynamobee setChangelogTableName(String changelogTableName) {
+    this.dao.setChangelogTableName(changelogTableName);
+    return this;
+  }
+}
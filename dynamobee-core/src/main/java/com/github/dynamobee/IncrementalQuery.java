@@ -0,0 +1,306 @@
+package com.github.dynamobee;
+
+import com.github.dynamobee.dao.WatermarkDao;
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.KeyFanOut;
+import com.github.dynamobee.migration.TableKeys;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+
+/**
+ * Hands a recurring changeset only the items added or changed since its previous run.
+ * <p>
+ * The items are queried from a partition of a table or secondary index in sort key order, e.g. a sparse GSI
+ * keyed by a constant and a last-updated timestamp, starting at the high-watermark of the changeset.
+ * The watermark, the sort key of the last item handled, is saved in the dynamobee table after every page,
+ * so a run which fails resumes from the last completed page.
+ * <pre>
+ *   &#64;ChangeSet(order = "040", id = "normalizeLegacyOrders", author = "testAuthor", runAlways = true)
+ *   public void normalizeLegacyOrders(DynamoDbClient db, IncrementalQuery changes) {
+ *     changes.query("orders", "byUpdatedAt", AttributeValue.builder().s("ORDER").build(),
+ *         items -&gt; items.forEach(item -&gt; normalize(db, item)));
+ *   }
+ * </pre>
+ * Items whose sort key equals the watermark are handed again on the next run, so items written with the same
+ * sort key after a run are not missed; the handler must tolerate seeing an item twice.
+ * <p>
+ * A timestamp sort key written by the application clock can land behind the watermark when clocks skew or a write
+ * is slow to reach the index. {@link #setLookback} therefore queries from the watermark minus a margin, handing the
+ * items of that margin again.
+ * Changeset methods receive an instance by declaring an IncrementalQuery parameter.
+ */
+public class IncrementalQuery {
+  private static final Logger logger = LoggerFactory.getLogger(IncrementalQuery.class);
+
+  private final DynamoDbClient dynamoDbClient;
+  private final WatermarkDao watermarkDao;
+  private final String changeId;
+
+  private boolean fetchItems;
+  private Integer pageSize;
+  private Duration lookback;
+  private TimeUnit epochUnit = TimeUnit.SECONDS;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  /**
+   * Callback receiving the new items, page by page in sort key order
+   */
+  @FunctionalInterface
+  public interface PageHandler {
+    void handle(List<Map<String, AttributeValue>> items);
+  }
+
+  IncrementalQuery(DynamoDbClient dynamoDbClient, WatermarkDao watermarkDao, String changeId) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.watermarkDao = watermarkDao;
+    this.changeId = changeId;
+  }
+
+  /**
+   * Queries the items of a partition from the watermark on and moves the watermark past them.
+   *
+   * @param tableName         table to read
+   * @param indexName         secondary index with a sort key, or null to query the table
+   * @param partitionKeyValue partition of the index (or table) to read
+   * @param handler           page callback
+   * @return number of items handed to the handler
+   */
+  public long query(String tableName, String indexName, AttributeValue partitionKeyValue, PageHandler handler) {
+    TableDescription table = dynamoDbClient.describeTable(request -> request.tableName(tableName)).table();
+    TableKeys tableKeys = TableKeys.of(table.keySchema());
+    TableKeys queryKeys = indexName == null ? tableKeys : TableKeys.ofIndex(table, indexName);
+    String sortKey = queryKeys.getSortKey().orElseThrow(() -> new IllegalArgumentException(
+        (indexName == null ? "Table " + tableName : "Index " + indexName) + " has no sort key"));
+
+    String stream = stream(tableName, indexName, partitionKeyValue);
+    AttributeValue watermark = watermarkDao.find(changeId, stream);
+    AttributeValue from = watermark == null || lookback == null ? watermark : lookBack(watermark);
+    logger.info("Querying {} of {} from {} (watermark {})", stream, changeId, from, watermark);
+
+    long items = 0;
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      capacityBudget.acquire();
+      QueryResponse response = dynamoDbClient.query(
+          buildQuery(tableName, indexName, queryKeys, partitionKeyValue, from, exclusiveStartKey));
+      capacityBudget.consume(response.consumedCapacity());
+      List<Map<String, AttributeValue>> page = response.hasItems() ? response.items() : List.of();
+      if (!page.isEmpty()) {
+        handle(tableName, tableKeys, page, handler);
+        items += page.size();
+        AttributeValue last = page.get(page.size() - 1).get(sortKey);
+        // pages of the lookback margin must not move the watermark backwards
+        if (watermark == null || !isBefore(last, watermark)) {
+          watermarkDao.save(changeId, stream, last);
+        }
+      }
+      exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+          ? response.lastEvaluatedKey()
+          : null;
+    } while (exclusiveStartKey != null);
+    logger.info("Handled {} items of {} for {}", items, stream, changeId);
+    return items;
+  }
+
+  /**
+   * Queries a partition of the table itself, same as {@code query(tableName, null, partitionKeyValue, handler)}
+   *
+   * @param tableName         table with a sort key
+   * @param partitionKeyValue partition to read
+   * @param handler           page callback
+   * @return number of items handed to the handler
+   */
+  public long query(String tableName, AttributeValue partitionKeyValue, PageHandler handler) {
+    return query(tableName, null, partitionKeyValue, handler);
+  }
+
+  /**
+   * @param tableName         table
+   * @param indexName         secondary index, or null for the table
+   * @param partitionKeyValue partition
+   * @return the sort key value of the last item handled, or null if none was
+   */
+  public AttributeValue getWatermark(String tableName, String indexName, AttributeValue partitionKeyValue) {
+    return watermarkDao.find(changeId, stream(tableName, indexName, partitionKeyValue));
+  }
+
+  /**
+   * Makes the next query of the partition start from its first item
+   *
+   * @param tableName         table
+   * @param indexName         secondary index, or null for the table
+   * @param partitionKeyValue partition
+   */
+  public void resetWatermark(String tableName, String indexName, AttributeValue partitionKeyValue) {
+    watermarkDao.delete(changeId, stream(tableName, indexName, partitionKeyValue));
+  }
+
+  private void handle(String tableName, TableKeys tableKeys, List<Map<String, AttributeValue>> page,
+                      PageHandler handler) {
+    if (!fetchItems) {
+      handler.handle(page);
+      return;
+    }
+    // kept in index order, the watermark moves past the last item of the page
+    Map<Map<String, AttributeValue>, Map<String, AttributeValue>> fetched = new HashMap<>();
+    new KeyFanOut(dynamoDbClient)
+        .setThreads(1)
+        .setConsistentRead(true)
+        .setCapacityBudget(capacityBudget)
+        .getItems(tableName, page.stream().map(tableKeys::keyOf), items -> items.forEach(item ->
+            fetched.put(tableKeys.keyOf(item), item)));
+    handler.handle(page.stream()
+        .map(indexItem -> fetched.get(tableKeys.keyOf(indexItem)))
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * @return the watermark minus the lookback; a string is rounded down to whole seconds and written without a zone,
+   *     so it sorts before every UTC instant of that second
+   */
+  private AttributeValue lookBack(AttributeValue watermark) {
+    if (watermark.n() != null) {
+      long margin = epochUnit.convert(lookback);
+      if (epochUnit.toNanos(margin) < lookback.toNanos()) {
+        margin++;
+      }
+      return AttributeValue.builder()
+          .n(new BigDecimal(watermark.n()).subtract(BigDecimal.valueOf(margin)).toPlainString())
+          .build();
+    } else if (watermark.s() != null) {
+      try {
+        String from = Instant.parse(watermark.s()).minus(lookback).truncatedTo(ChronoUnit.SECONDS).toString();
+        return AttributeValue.builder().s(from.substring(0, from.length() - 1)).build();
+      } catch (DateTimeParseException e) {
+        throw new IllegalArgumentException("A lookback needs ISO-8601 UTC instants as sort keys, not "
+            + watermark.s(), e);
+      }
+    }
+    throw new IllegalArgumentException("A lookback needs a numeric or ISO-8601 string sort key");
+  }
+
+  private static boolean isBefore(AttributeValue value, AttributeValue watermark) {
+    if (value == null) {
+      return false;
+    } else if (value.n() != null && watermark.n() != null) {
+      return new BigDecimal(value.n()).compareTo(new BigDecimal(watermark.n())) < 0;
+    } else if (value.s() != null && watermark.s() != null) {
+      return value.s().compareTo(watermark.s()) < 0;
+    }
+    return false;
+  }
+
+  private QueryRequest buildQuery(String tableName, String indexName, TableKeys queryKeys,
+                                  AttributeValue partitionKeyValue, AttributeValue watermark,
+                                  Map<String, AttributeValue> exclusiveStartKey) {
+    Map<String, String> names = new HashMap<>();
+    Map<String, AttributeValue> values = new HashMap<>();
+    names.put("#pk", queryKeys.getPartitionKey());
+    values.put(":pk", partitionKeyValue);
+    String keyCondition = "#pk = :pk";
+    if (watermark != null) {
+      names.put("#sk", queryKeys.getSortKey().get());
+      values.put(":wm", watermark);
+      keyCondition += " AND #sk >= :wm";
+    }
+    return QueryRequest.builder()
+        .tableName(tableName)
+        .indexName(indexName)
+        .keyConditionExpression(keyCondition)
+        .expressionAttributeNames(names)
+        .expressionAttributeValues(values)
+        .limit(pageSize)
+        .exclusiveStartKey(exclusiveStartKey)
+        .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL)
+        .build();
+  }
+
+  private static String stream(String tableName, String indexName, AttributeValue partitionKeyValue) {
+    String partition;
+    if (partitionKeyValue.s() != null) {
+      partition = partitionKeyValue.s();
+    } else if (partitionKeyValue.n() != null) {
+      partition = partitionKeyValue.n();
+    } else if (partitionKeyValue.b() != null) {
+      partition = Base64.getEncoder().encodeToString(partitionKeyValue.b().asByteArray());
+    } else {
+      throw new IllegalArgumentException("Partition key value must be a string, number or binary");
+    }
+    return tableName + "/" + (indexName == null ? "" : indexName) + "/" + partition;
+  }
+
+  /**
+   * Reads the full items from the table, for indexes which do not project the attributes the handler needs
+   *
+   * @param fetchItems true to hand table items instead of index items (default false)
+   * @return IncrementalQuery object for fluent interface
+   */
+  public IncrementalQuery setFetchItems(boolean fetchItems) {
+    this.fetchItems = fetchItems;
+    return this;
+  }
+
+  /**
+   * @param pageSize maximum number of items per Query call, i.e. between two watermark saves
+   * @return IncrementalQuery object for fluent interface
+   */
+  public IncrementalQuery setPageSize(Integer pageSize) {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  /**
+   * Starts every query that far before the watermark, so items whose timestamp sort key was written late, e.g. by a
+   * skewed clock, are not missed. The items of the margin are handed again on every run.
+   * Needs numeric sort keys in epoch {@link #setEpochUnit units} or ISO-8601 UTC instants such as
+   * {@code 2021-09-30T12:00:00.250Z}.
+   *
+   * @param lookback margin before the watermark, or null for none (default)
+   * @return IncrementalQuery object for fluent interface
+   */
+  public IncrementalQuery setLookback(Duration lookback) {
+    if (lookback != null && lookback.isNegative()) {
+      throw new IllegalArgumentException("lookback must not be negative");
+    }
+    this.lookback = lookback;
+    return this;
+  }
+
+  /**
+   * @param epochUnit unit of numeric timestamp sort keys, for {@link #setLookback} (default seconds)
+   * @return IncrementalQuery object for fluent interface
+   */
+  public IncrementalQuery setEpochUnit(TimeUnit epochUnit) {
+    this.epochUnit = epochUnit;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget of the queries and item reads
+   * @return IncrementalQuery object for fluent interface
+   */
+  public IncrementalQuery setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
@@ -0,0 +1,143 @@
+package com.github.dynamobee;
+
+import com.github.dynamobee.dao.SegmentPlan;
+import com.github.dynamobee.dao.SegmentPlanDao;
+import com.github.dynamobee.migration.MigrationExecutors;
+import com.github.dynamobee.migration.ScanSegment;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Claims segments of distributed changesets and processes them under a lease,
+ * renewed in the background until the segment is done. The processing thread is interrupted
+ * once the lease is lost, so a task scanning with {@link com.github.dynamobee.migration.ParallelScanner}
+ * stops with a CancellationException.
+ */
+class SegmentWorker {
+  private static final Logger logger = LoggerFactory.getLogger(SegmentWorker.class);
+
+  interface SegmentTask {
+    void run(ScanSegment segment) throws Exception;
+  }
+
+  private final SegmentPlanDao segmentPlanDao;
+  private final String owner;
+  private final long leaseMillis;
+  private final int maxAttempts;
+
+  SegmentWorker(SegmentPlanDao segmentPlanDao, long leaseMillis, int maxAttempts) {
+    this.segmentPlanDao = segmentPlanDao;
+    this.owner = getHostName() + "/" + UUID.randomUUID();
+    this.leaseMillis = leaseMillis;
+    this.maxAttempts = maxAttempts;
+  }
+
+  /**
+   * Processes segments of the plan until none is left to claim. A failing segment is released
+   * (and eventually marked failed) while the worker goes on with the others.
+   *
+   * @return number of segments completed by this worker
+   */
+  int work(SegmentPlan plan, SegmentTask task) {
+    ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(
+        MigrationExecutors.threadFactory("dynamobee-lease", Thread.NORM_PRIORITY));
+    int completed = 0;
+    try {
+      ScanSegment segment;
+      while ((segment = segmentPlanDao.claimSegment(plan, owner, leaseMillis)) != null) {
+        if (process(plan, segment, task, heartbeat)) {
+          completed++;
+        }
+      }
+    } finally {
+      heartbeat.shutdownNow();
+    }
+    return completed;
+  }
+
+  private boolean process(SegmentPlan plan, ScanSegment segment, SegmentTask task,
+                          ScheduledExecutorService heartbeat) {
+    logger.info("Processing {} of {}", segment, plan.getChangeId());
+    Thread processing = Thread.currentThread();
+    AtomicBoolean leaseLost = new AtomicBoolean();
+    long renewEvery = Math.max(1, leaseMillis / 3);
+    long[] renewedAt = {System.currentTimeMillis()};
+    ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> {
+      if (leaseLost.get()) {
+        return;
+      }
+      try {
+        if (segmentPlanDao.renewLease(plan, segment, owner, leaseMillis)) {
+          renewedAt[0] = System.currentTimeMillis();
+          return;
+        }
+      } catch (RuntimeException e) {
+        // throttling or a transient SDK error: the next beat retries, as long as the lease may still be held
+        if (System.currentTimeMillis() - renewedAt[0] < leaseMillis) {
+          logger.warn("Could not renew the lease of {} of {}, retrying", segment, plan.getChangeId(), e);
+          return;
+        }
+      }
+      logger.warn("Lease of {} of {} was lost, interrupting it", segment, plan.getChangeId());
+      synchronized (leaseLost) {
+        if (leaseLost.compareAndSet(false, true)) {
+          processing.interrupt();
+        }
+      }
+    }, renewEvery, renewEvery, TimeUnit.MILLISECONDS);
+
+    try {
+      task.run(segment);
+    } catch (Exception e) {
+      Throwable cause = e instanceof InvocationTargetException ? ((InvocationTargetException) e).getTargetException() : e;
+      if (stopRenewal(renewal, leaseLost)) {
+        logger.warn("{} of {} stopped, its lease was lost", segment, plan.getChangeId(), cause);
+        return false;
+      }
+      logger.error("{} of {} failed", segment, plan.getChangeId(), cause);
+      segmentPlanDao.releaseSegment(plan, segment, owner, String.valueOf(cause), maxAttempts);
+      return false;
+    }
+
+    stopRenewal(renewal, leaseLost);
+    if (!segmentPlanDao.completeSegment(plan, segment, owner)) {
+      logger.warn("{} of {} was taken over by another instance before it completed", segment, plan.getChangeId());
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Cancels the lease renewal and clears the interrupt it may have raised, so the worker goes on with other segments
+   *
+   * @return true if the lease was lost
+   */
+  private static boolean stopRenewal(ScheduledFuture<?> renewal, AtomicBoolean leaseLost) {
+    renewal.cancel(false);
+    synchronized (leaseLost) {
+      if (leaseLost.getAndSet(true)) {
+        Thread.interrupted();
+        return true;
+      }
+      return false;
+    }
+  }
+
+  private static String getHostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException e) {
+      return "UnknownHost";
+    }
+  }
+}
@@ -19,11 +19,18 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbParti
     DynamoDbEnhancedTableSchemaUtils.DynamoBeeConverterProvider.class,
     DefaultAttributeConverterProvider.class})
 public class ChangeEntry {
+
+  /**
+   * Values of {@link #getState()}; entries written before states were recorded have none and count as applied
+   */
+  public enum State { APPLIED, PENDING, IN_PROGRESS }
+
   private final String changeId;
   private final String author;
   private final Date timestamp;
   private final String changeLogClass;
   private final String changeSetMethodName;
+  private final String state;
 
   private ChangeEntry(Builder b) {
     this.changeId = b.changeId;
@@ -31,19 +38,44 @@ public class ChangeEntry {
     this.timestamp = b.timestamp;
     this.changeLogClass = b.changeLogClass;
     this.changeSetMethodName = b.changeSetMethodName;
+    this.state = b.state;
   }
 
   public static Builder builder() {
     return new Builder();
   }
 
+  /**
+   * @param newState state to record
+   * @return copy of this entry with the given state and the current timestamp
+   */
+  public ChangeEntry withState(State newState) {
+    return builder()
+        .setChangeId(changeId)
+        .setAuthor(author)
+        .setTimestamp(new Date())
+        .setChangeLogClass(changeLogClass)
+        .setChangeSetMethodName(changeSetMethodName)
+        .setState(newState.name())
+        .build();
+  }
+
+  /**
+   * @param expected state to compare with
+   * @return whether this entry is in the given state
+   */
+  public boolean hasState(State expected) {
+    return expected.name().equals(state == null ? State.APPLIED.name() : state);
+  }
+
   @Override
   public String toString() {
     return "[ChangeSet: id=" + this.changeId +
         ", author=" + this.author +
         ", timestamp=" + this.timestamp +
         ", changeLogClass=" + this.changeLogClass +
-        ", changeSetMethod=" + this.changeSetMethodName + "]";
+        ", changeSetMethod=" + this.changeSetMethodName +
+        (this.state == null ? "" : ", state=" + this.state) + "]";
   }
 
   @DynamoDbPartitionKey
@@ -72,12 +104,18 @@ public class ChangeEntry {
     return this.changeSetMethodName;
   }
 
+  @DynamoDbAttribute("state")
+  public String getState() {
+    return this.state;
+  }
+
   public static final class Builder {
     private String changeId;
     private String author;
     private Date timestamp;
     private String changeLogClass;
     private String changeSetMethodName;
+    private String state;
 
     private Builder() {
       // Only created via ChangeEntry.builder()
@@ -108,6 +146,11 @@ public class ChangeEntry {
       return this;
     }
 
+    public Builder setState(String state) {
+      this.state = state;
+      return this;
+    }
+
     public ChangeEntry build() {
       return new ChangeEntry(this);
     }
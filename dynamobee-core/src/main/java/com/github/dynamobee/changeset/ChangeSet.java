@@ -0,0 +1,100 @@
+package com.github.dynamobee.changeset;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * Set of changes to be added to the DB. Many changesets are included in one changelog.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ChangeSet {
+
+	/**
+	 * Author of the changeset.
+	 * Obligatory
+	 * 
+	 * @return author
+	 */
+	public String author(); // must be set
+
+	/**
+	 * Unique ID of the changeset.
+	 * Obligatory
+	 * 
+	 * @return unique id
+	 */
+	public String id(); // must be set
+
+	/**
+	 * Sequence that provide correct order for changesets. Sorted alphabetically, ascending.
+	 * Obligatory.
+	 * 
+	 * @return ordering
+	 */
+	public String order(); // must be set
+
+	/**
+	 * Executes the change set on every dynamobee's execution, even if it has been run before.
+	 * Optional (default is false)
+	 * 
+	 * @return should run always?
+	 */
+	public boolean runAlways() default false;
+
+	/**
+	 * Splits the changeset into that many scan segments, processed by every dynamobee instance
+	 * (see {@code Dynamobee#setJoinDistributedChangeSets}). The method is invoked once per segment
+	 * with a {@code ScanSegment} parameter and must be idempotent, since an expired lease is taken over.
+	 * Optional (default is 0, run once by the instance holding the lock)
+	 * 
+	 * @return number of segments
+	 */
+	public int segments() default 0;
+
+	/**
+	 * Tables to snapshot into local files before the changeset runs (see {@code Dynamobee#setSnapshotDirectory}),
+	 * so that their items can be put back with {@code TableSnapshot#restore()} if the changeset goes wrong.
+	 * A restore does not undo the changeset entirely: items the changeset created are not in the snapshot
+	 * and stay in the table.
+	 * Optional (default is none)
+	 * 
+	 * @return names of the tables to snapshot
+	 */
+	public String[] snapshotTables() default {};
+
+	/**
+	 * Takes the snapshots of {@link #snapshotTables()} also when a {@link #runAlways()} changeset is reapplied,
+	 * not only on its first run.
+	 * Optional (default is false)
+	 * 
+	 * @return snapshot on every run?
+	 */
+	public boolean snapshotOnReapply() default false;
+
+	/**
+	 * Runs the changeset in the background once the blocking changesets are done and startup went on,
+	 * instead of inline (see {@code Dynamobee#setDeferChangeSets}).
+	 * Optional (default is false)
+	 * 
+	 * @return should run in the background?
+	 */
+	public boolean deferred() default false;
+
+	/**
+	 * Priority of a deferred changeset: higher priorities run first, equal ones in changeset order.
+	 * Optional (default is 0)
+	 * 
+	 * @return priority
+	 */
+	public int priority() default 0;
+//
+//  /**
+//   * Executes the change the first time it is seen and each time the change set has been changed. <br/>
+//   * Optional (default is false)
+//   */
+//  public boolean runOnChange() default false;
+}
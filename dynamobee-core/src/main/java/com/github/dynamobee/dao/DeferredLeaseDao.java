@@ -0,0 +1,230 @@
+package com.github.dynamobee.dao;
+
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+
+
+/**
+ * Lease of the background scheduler of deferred changesets, stored as the {@code DEFERRED} item of the dynamobee table.
+ * <p>
+ * Only the instance holding the lease runs deferred changesets. The lease is renewed while it works; an instance
+ * which stops renewing loses it to another one once it expired. The item also carries the fleet-wide pause flag,
+ * which operators may set through {@link #setPaused} or directly on the item, the pending marker, which tells
+ * instances that did not run the migration whether deferred changesets are left without scanning the classpath,
+ * and the id of the running changeset, which a starting migration waits for.
+ */
+public class DeferredLeaseDao {
+  private static final Logger logger = LoggerFactory.getLogger("Dynamobee dao");
+
+  private static final String KEY = "changeId";
+  private static final String VALUE_DEFERRED = "DEFERRED";
+  private static final String OWNER = "leaseOwner";
+  private static final String LEASE_EXPIRES_AT = "leaseExpiresAt";
+  private static final String PAUSED = "paused";
+  private static final String PENDING_SINCE = "pendingSince";
+  private static final String RUNNING = "runningChangeId";
+
+  public enum Lease { HELD, PAUSED, NOT_HELD }
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  public DeferredLeaseDao(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * Acquires the lease, renews it if already held by the owner, or takes it over once expired
+   *
+   * @param owner       id of the instance
+   * @param leaseMillis lease duration
+   * @return HELD, PAUSED if held while the scheduler is paused, or NOT_HELD if another instance holds it
+   */
+  public Lease acquire(String owner, long leaseMillis) {
+    long now = System.currentTimeMillis();
+    try {
+      Map<String, AttributeValue> item = dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(key())
+          .updateExpression("SET #owner = :owner, #expires = :expires")
+          .conditionExpression("attribute_not_exists(#owner) OR #owner = :owner OR #expires < :now")
+          .expressionAttributeNames(Map.of("#owner", OWNER, "#expires", LEASE_EXPIRES_AT))
+          .expressionAttributeValues(Map.of(
+              ":owner", s(owner),
+              ":expires", n(now + leaseMillis),
+              ":now", n(now)))
+          .returnValues(ReturnValue.ALL_NEW)).attributes();
+      return isPaused(item) ? Lease.PAUSED : Lease.HELD;
+    } catch (ConditionalCheckFailedException e) {
+      return Lease.NOT_HELD;
+    }
+  }
+
+  /**
+   * Gives the lease up, keeping the pause flag
+   *
+   * @param owner id of the instance
+   */
+  public void release(String owner) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(key())
+          .updateExpression("REMOVE #owner, #expires")
+          .conditionExpression("#owner = :owner")
+          .expressionAttributeNames(Map.of("#owner", OWNER, "#expires", LEASE_EXPIRES_AT))
+          .expressionAttributeValues(Map.of(":owner", s(owner))));
+    } catch (ConditionalCheckFailedException e) {
+      logger.warn("Lease of deferred changesets was already taken over by another instance");
+    }
+  }
+
+  /**
+   * Records the changeset the owner starts running
+   *
+   * @param owner    id of the instance
+   * @param changeId id of the changeset
+   * @return false if the lease was taken over by another instance
+   */
+  public boolean markRunning(String owner, String changeId) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(key())
+          .updateExpression("SET #running = :running")
+          .conditionExpression("#owner = :owner")
+          .expressionAttributeNames(Map.of("#owner", OWNER, "#running", RUNNING))
+          .expressionAttributeValues(Map.of(":owner", s(owner), ":running", s(changeId))));
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Clears the running changeset, unless the lease was taken over meanwhile
+   *
+   * @param owner id of the instance
+   */
+  public void clearRunning(String owner) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(key())
+          .updateExpression("REMOVE #running")
+          .conditionExpression("#owner = :owner")
+          .expressionAttributeNames(Map.of("#owner", OWNER, "#running", RUNNING))
+          .expressionAttributeValues(Map.of(":owner", s(owner))));
+    } catch (ConditionalCheckFailedException e) {
+      logger.debug("Lease of deferred changesets was taken over, the running changeset is theirs");
+    }
+  }
+
+  /**
+   * @return id of the changeset running under an unexpired lease, or null if none is running
+   */
+  public String findRunning() {
+    Map<String, AttributeValue> item = dynamoDbClient.getItem(request -> request
+        .tableName(tableName)
+        .key(key())
+        .consistentRead(true)).item();
+    AttributeValue running = item == null ? null : item.get(RUNNING);
+    AttributeValue expiresAt = item == null ? null : item.get(LEASE_EXPIRES_AT);
+    if (running == null || expiresAt == null || Long.parseLong(expiresAt.n()) < System.currentTimeMillis()) {
+      return null;
+    }
+    return running.s();
+  }
+
+  /**
+   * Pauses or resumes deferred changesets on all instances. A running changeset completes;
+   * the next one waits until the scheduler is resumed.
+   *
+   * @param paused true to pause, false to resume
+   */
+  public void setPaused(boolean paused) {
+    dynamoDbClient.updateItem(request -> request
+        .tableName(tableName)
+        .key(key())
+        .updateExpression("SET #paused = :paused")
+        .expressionAttributeNames(Map.of("#paused", PAUSED))
+        .expressionAttributeValues(Map.of(":paused", AttributeValue.builder().bool(paused).build())));
+  }
+
+  public boolean isPaused() {
+    return isPaused(dynamoDbClient.getItem(request -> request
+        .tableName(tableName)
+        .key(key())
+        .consistentRead(true)).item());
+  }
+
+  /**
+   * Marks deferred changesets as pending, once the lock holder registered them
+   *
+   * @return the marker, to be passed to {@link #clearPending} once they all ran
+   */
+  public long markPending() {
+    long now = System.currentTimeMillis();
+    dynamoDbClient.updateItem(request -> request
+        .tableName(tableName)
+        .key(key())
+        .updateExpression("SET #pending = :pending")
+        .expressionAttributeNames(Map.of("#pending", PENDING_SINCE))
+        .expressionAttributeValues(Map.of(":pending", n(now))));
+    return now;
+  }
+
+  /**
+   * @return the pending marker, or null if no deferred changeset is left
+   */
+  public Long findPending() {
+    Map<String, AttributeValue> item = dynamoDbClient.getItem(request -> request
+        .tableName(tableName)
+        .key(key())
+        .consistentRead(true)).item();
+    AttributeValue pending = item == null ? null : item.get(PENDING_SINCE);
+    return pending == null ? null : Long.valueOf(pending.n());
+  }
+
+  /**
+   * Clears the pending marker, unless a later migration set it again meanwhile
+   *
+   * @param pendingSince marker seen by the scheduler which ran all deferred changesets
+   */
+  public void clearPending(long pendingSince) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(key())
+          .updateExpression("REMOVE #pending")
+          .conditionExpression("#pending = :pending")
+          .expressionAttributeNames(Map.of("#pending", PENDING_SINCE))
+          .expressionAttributeValues(Map.of(":pending", n(pendingSince))));
+    } catch (ConditionalCheckFailedException e) {
+      logger.debug("Deferred changesets were registered again, keeping them pending");
+    }
+  }
+
+  private static boolean isPaused(Map<String, AttributeValue> item) {
+    AttributeValue paused = item == null ? null : item.get(PAUSED);
+    return paused != null && Boolean.TRUE.equals(paused.bool());
+  }
+
+  private static Map<String, AttributeValue> key() {
+    return Map.of(KEY, s(VALUE_DEFERRED));
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+
+  private static AttributeValue n(long value) {
+    return AttributeValue.builder().n(Long.toString(value)).build();
+  }
+}
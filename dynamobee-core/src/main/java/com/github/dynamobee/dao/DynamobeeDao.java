@@ -2,16 +2,21 @@ package com.github.dynamobee.dao;
 
 import com.github.dynamobee.changeset.ChangeEntry;
 import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.jfr.FlightRecorderEvents;
+import com.github.dynamobee.jfr.LockAcquisitionEvent;
 import com.github.dynamobee.utils.DynamoDbEnhancedTableSchemaUtils;
+import com.github.dynamobee.utils.TableSchemaRegistry;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Date;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.dynamodb.model.TableStatus;
@@ -20,9 +25,10 @@ import software.amazon.awssdk.services.dynamodb.model.TableStatus;
 public class DynamobeeDao {
   private static final Logger logger = LoggerFactory.getLogger("Dynamobee dao");
 
-  static final TableSchema<ChangeEntry> CHANGE_ENTRY_TABLE_SCHEMA = TableSchema.fromImmutableClass(ChangeEntry.class);
+  static final TableSchema<ChangeEntry> CHANGE_ENTRY_TABLE_SCHEMA =
+      TableSchemaRegistry.shared().schemaFor(ChangeEntry.class);
 
-  private static final String VALUE_LOCK = "LOCK";
+  static final String VALUE_LOCK = "LOCK";
   private static final ChangeEntry LOCK_ITEM = ChangeEntry.builder()
       .setChangeId(VALUE_LOCK)
       .build();
@@ -31,6 +37,9 @@ public class DynamobeeDao {
   private DynamoDbEnhancedClient dynamoDbEnhancedClient;
   private String dynamobeeTableName;
   private DynamoDbTable<ChangeEntry> dynamobeeTable;
+  private SegmentPlanDao segmentPlanDao;
+  private DeferredLeaseDao deferredLeaseDao;
+  private WatermarkDao watermarkDao;
   private boolean waitForLock;
   private long changeLogLockWaitTime;
   private long changeLogLockPollRate;
@@ -52,6 +61,9 @@ public class DynamobeeDao {
         .build();
 
     dynamobeeTable = findOrCreateDynamoBeeTable();
+    segmentPlanDao = new SegmentPlanDao(dynamoDbClient, dynamobeeTableName);
+    deferredLeaseDao = new DeferredLeaseDao(dynamoDbClient, dynamobeeTableName);
+    watermarkDao = new WatermarkDao(dynamoDbClient, dynamobeeTableName);
   }
 
   private DynamoDbTable<ChangeEntry> findOrCreateDynamoBeeTable() {
@@ -87,12 +99,18 @@ public class DynamobeeDao {
    * @throws DynamobeeLockException exception
    */
   public boolean acquireProcessLock() throws DynamobeeLockException {
+    LockAcquisitionEvent event = FlightRecorderEvents.isInitialized() ? new LockAcquisitionEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
     boolean acquired = this.acquireLock();
+    int attempts = 1;
 
     if (!acquired && waitForLock) {
       long timeToGiveUp = new Date().getTime() + (changeLogLockWaitTime * 1000 * 60);
       while (!acquired && new Date().getTime() < timeToGiveUp) {
         acquired = this.acquireLock();
+        attempts++;
         if (!acquired) {
           logger.info("Waiting for changelog lock....");
           try {
@@ -104,6 +122,10 @@ public class DynamobeeDao {
       }
     }
 
+    if (event != null) {
+      event.end(dynamobeeTableName, attempts, acquired);
+    }
+
     if (!acquired && throwExceptionIfCannotObtainLock) {
       logger.info("Dynamobee did not acquire process lock. Throwing exception.");
       throw new DynamobeeLockException("Could not acquire process lock");
@@ -144,18 +166,64 @@ public class DynamobeeDao {
     this.dynamobeeTable.deleteItem(LOCK_ITEM);
   }
 
+  /**
+   * @return true if an instance holds the migration lock; read consistently, as deferred changesets rely on it
+   * to not overlap a migration
+   */
   public boolean isProccessLockHeld() {
-    return this.dynamobeeTable.getItem(LOCK_ITEM) != null;
+    return this.dynamoDbClient.getItem(request -> request
+        .tableName(dynamobeeTableName)
+        .key(Map.of("changeId", AttributeValue.builder().s(VALUE_LOCK).build()))
+        .consistentRead(true)).hasItem();
   }
 
+  /**
+   * @return true if the change was never applied; pending and in-progress deferred changes are not applied yet
+   */
   public boolean isNewChange(ChangeEntry changeEntry) {
-    return this.dynamobeeTable.getItem(changeEntry) == null;
+    ChangeEntry stored = this.dynamobeeTable.getItem(changeEntry);
+    return stored == null || !stored.hasState(ChangeEntry.State.APPLIED);
+  }
+
+  /**
+   * @return the stored entry of the change, or null if none was recorded
+   */
+  public ChangeEntry findChangeEntry(ChangeEntry changeEntry) {
+    return this.dynamobeeTable.getItem(changeEntry);
   }
 
   public void save(ChangeEntry changeEntry) {
     this.dynamobeeTable.putItem(changeEntry);
   }
 
+  /**
+   * @return the enhanced client on the connected DynamoDbClient, shared with changesets
+   */
+  public DynamoDbEnhancedClient getDynamoDbEnhancedClient() {
+    return dynamoDbEnhancedClient;
+  }
+
+  /**
+   * @return access to the segment plans of distributed changesets, available once connected
+   */
+  public SegmentPlanDao getSegmentPlanDao() {
+    return segmentPlanDao;
+  }
+
+  /**
+   * @return access to the lease of the deferred changeset scheduler, available once connected
+   */
+  public DeferredLeaseDao getDeferredLeaseDao() {
+    return deferredLeaseDao;
+  }
+
+  /**
+   * @return access to the watermarks of incremental changesets, available once connected
+   */
+  public WatermarkDao getWatermarkDao() {
+    return watermarkDao;
+  }
+
   public void setChangelogTableName(String changelogCollectionName) {
     this.dynamobeeTableName = changelogCollectionName;
   }
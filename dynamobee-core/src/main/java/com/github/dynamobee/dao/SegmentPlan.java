@@ -0,0 +1,41 @@
+package com.github.dynamobee.dao;
+
+
+/**
+ * Distributed changeset published in the dynamobee table: its id and how many segments it is split into
+ */
+public final class SegmentPlan {
+  private final String changeId;
+  private final int totalSegments;
+  private final String changeLogClass;
+  private final String changeSetMethodName;
+
+  public SegmentPlan(String changeId, int totalSegments, String changeLogClass, String changeSetMethodName) {
+    this.changeId = changeId;
+    this.totalSegments = totalSegments;
+    this.changeLogClass = changeLogClass;
+    this.changeSetMethodName = changeSetMethodName;
+  }
+
+  public String getChangeId() {
+    return changeId;
+  }
+
+  public int getTotalSegments() {
+    return totalSegments;
+  }
+
+  public String getChangeLogClass() {
+    return changeLogClass;
+  }
+
+  public String getChangeSetMethodName() {
+    return changeSetMethodName;
+  }
+
+  @Override
+  public String toString() {
+    return "[SegmentPlan: id=" + changeId + ", segments=" + totalSegments
+        + ", changeLogClass=" + changeLogClass + ", changeSetMethod=" + changeSetMethodName + "]";
+  }
+}
@@ -0,0 +1,410 @@
+package com.github.dynamobee.dao;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import com.github.dynamobee.exception.DynamobeeLockException;
+import com.github.dynamobee.migration.BatchWriter;
+import com.github.dynamobee.migration.ScanSegment;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+
+/**
+ * Work items of distributed changesets, stored next to the change entries in the dynamobee table.
+ * <p>
+ * A plan item ({@code PLAN#<changeId>}) announces the changeset; one item per segment
+ * ({@code SEGMENT#<changeId>#<n>}) is claimed through a conditional write which sets a lease owner
+ * and expiry. Leases are renewed while the segment is processed; an expired lease can be taken over
+ * by any instance.
+ * <p>
+ * The lock holder announces the plan it is running on its lock item ({@link #activatePlan});
+ * other instances only claim segments of that plan, never of plans left over by earlier runs.
+ */
+public class SegmentPlanDao {
+  private static final Logger logger = LoggerFactory.getLogger("Dynamobee dao");
+
+  private static final String KEY = "changeId";
+  private static final String PLAN_PREFIX = "PLAN#";
+  private static final String SEGMENT_PREFIX = "SEGMENT#";
+  private static final String PLAN_CHANGE_ID = "planChangeId";
+  private static final String TOTAL_SEGMENTS = "totalSegments";
+  private static final String CHANGE_LOG_CLASS = "changeLogClass";
+  private static final String CHANGE_SET_METHOD = "changeSetMethod";
+  private static final String STATE = "segmentState";
+  private static final String OWNER = "leaseOwner";
+  private static final String LEASE_EXPIRES_AT = "leaseExpiresAt";
+  private static final String ATTEMPTS = "attempts";
+  private static final String LAST_ERROR = "lastError";
+  private static final String ACTIVE_PLAN = "activePlan";
+  private static final int MAX_BATCH_GET_KEYS = 100;
+
+  private enum State { PENDING, IN_PROGRESS, DONE, FAILED }
+
+  private static final Map<String, String> LEASE_NAMES = Map.of(
+      "#state", STATE, "#owner", OWNER, "#expires", LEASE_EXPIRES_AT, "#attempts", ATTEMPTS);
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  public SegmentPlanDao(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * Publishes the plan and its pending segments. An existing plan of the same changeset is resumed:
+   * completed segments are kept and failed ones are made pending again.
+   *
+   * @param plan plan to publish
+   * @throws DynamobeeChangeSetException if the changeset was already planned with another number of segments
+   */
+  public void publishPlan(SegmentPlan plan) throws DynamobeeChangeSetException {
+    Map<String, AttributeValue> existing = getItem(planKey(plan.getChangeId()));
+    if (existing != null) {
+      int plannedSegments = Integer.parseInt(existing.get(TOTAL_SEGMENTS).n());
+      if (plannedSegments != plan.getTotalSegments()) {
+        throw new DynamobeeChangeSetException("ChangeSet " + plan.getChangeId() + " is already planned with "
+            + plannedSegments + " segments, not " + plan.getTotalSegments() + ". Finish it or delete its plan first.");
+      }
+      logger.info("Resuming {}", plan);
+      for (int segment = 0; segment < plan.getTotalSegments(); segment++) {
+        resetFailedSegment(plan, segment);
+      }
+      return;
+    }
+
+    List<Map<String, AttributeValue>> segments = new ArrayList<>(plan.getTotalSegments());
+    for (int segment = 0; segment < plan.getTotalSegments(); segment++) {
+      Map<String, AttributeValue> item = new HashMap<>();
+      item.put(KEY, s(segmentKey(plan.getChangeId(), segment)));
+      item.put(PLAN_CHANGE_ID, s(plan.getChangeId()));
+      item.put(STATE, s(State.PENDING.name()));
+      item.put(ATTEMPTS, n(0));
+      segments.add(item);
+    }
+    new BatchWriter(dynamoDbClient, tableName).put(segments);
+
+    // the plan item goes last: instances only look for segments of published plans
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put(KEY, s(planKey(plan.getChangeId())));
+    item.put(PLAN_CHANGE_ID, s(plan.getChangeId()));
+    item.put(TOTAL_SEGMENTS, n(plan.getTotalSegments()));
+    item.put(CHANGE_LOG_CLASS, s(plan.getChangeLogClass()));
+    item.put(CHANGE_SET_METHOD, s(plan.getChangeSetMethodName()));
+    dynamoDbClient.putItem(request -> request.tableName(tableName).item(item));
+    logger.info("Published {}", plan);
+  }
+
+  /**
+   * Announces the plan on the lock item, so instances joining distributed changesets work on it.
+   * The announcement disappears with the lock, or when the plan is deleted.
+   *
+   * @param plan published plan the lock holder is about to run
+   * @throws DynamobeeLockException if the process lock is no longer held
+   */
+  public void activatePlan(SegmentPlan plan) throws DynamobeeLockException {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(Map.of(KEY, s(DynamobeeDao.VALUE_LOCK)))
+          .updateExpression("SET #active = :changeId")
+          .conditionExpression("attribute_exists(#key)")
+          .expressionAttributeNames(Map.of("#key", KEY, "#active", ACTIVE_PLAN))
+          .expressionAttributeValues(Map.of(":changeId", s(plan.getChangeId()))));
+    } catch (ConditionalCheckFailedException e) {
+      throw new DynamobeeLockException("Process lock is no longer held, cannot run " + plan);
+    }
+  }
+
+  /**
+   * @return the plan announced by the current lock holder, or null if it is not running a distributed changeset
+   */
+  public SegmentPlan findActivePlan() {
+    Map<String, AttributeValue> lock = getItem(DynamobeeDao.VALUE_LOCK);
+    if (lock == null || !lock.containsKey(ACTIVE_PLAN)) {
+      return null;
+    }
+    Map<String, AttributeValue> item = getItem(planKey(lock.get(ACTIVE_PLAN).s()));
+    return item == null ? null : planOf(item);
+  }
+
+  /**
+   * @return all published plans, including plans of earlier runs which were not finished
+   */
+  public List<SegmentPlan> findPlans() {
+    List<SegmentPlan> plans = new ArrayList<>();
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      ScanRequest.Builder request = ScanRequest.builder()
+          .tableName(tableName)
+          .consistentRead(true)
+          .filterExpression("begins_with(#key, :prefix)")
+          .expressionAttributeNames(Map.of("#key", KEY))
+          .expressionAttributeValues(Map.of(":prefix", s(PLAN_PREFIX)));
+      if (exclusiveStartKey != null) {
+        request.exclusiveStartKey(exclusiveStartKey);
+      }
+      ScanResponse response = dynamoDbClient.scan(request.build());
+      for (Map<String, AttributeValue> item : response.items()) {
+        plans.add(planOf(item));
+      }
+      exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+          ? response.lastEvaluatedKey() : null;
+    } while (exclusiveStartKey != null);
+    return plans;
+  }
+
+  /**
+   * Claims a pending segment, or takes over one whose lease has expired.
+   * Segments are probed from a random offset so that instances rarely compete for the same one.
+   *
+   * @param plan         plan to take a segment from
+   * @param owner        id of the claiming instance
+   * @param leaseMillis  lease duration
+   * @return the claimed segment, or null if no segment is claimable right now
+   */
+  public ScanSegment claimSegment(SegmentPlan plan, String owner, long leaseMillis) {
+    int totalSegments = plan.getTotalSegments();
+    int offset = ThreadLocalRandom.current().nextInt(totalSegments);
+    for (int i = 0; i < totalSegments; i++) {
+      int segment = (offset + i) % totalSegments;
+      Map<String, AttributeValue> item = getItem(segmentKey(plan.getChangeId(), segment));
+      if (item == null) {
+        continue;
+      }
+      long now = System.currentTimeMillis();
+      State state = State.valueOf(item.get(STATE).s());
+      boolean expired = state == State.IN_PROGRESS && Long.parseLong(item.get(LEASE_EXPIRES_AT).n()) < now;
+      if (state != State.PENDING && !expired) {
+        continue;
+      }
+
+      try {
+        dynamoDbClient.updateItem(request -> request
+            .tableName(tableName)
+            .key(Map.of(KEY, s(segmentKey(plan.getChangeId(), segment))))
+            .updateExpression("SET #state = :inProgress, #owner = :owner, #expires = :expires ADD #attempts :one")
+            .conditionExpression("#state = :pending OR (#state = :inProgress AND #expires < :now)")
+            .expressionAttributeNames(LEASE_NAMES)
+            .expressionAttributeValues(Map.of(
+                ":inProgress", s(State.IN_PROGRESS.name()),
+                ":pending", s(State.PENDING.name()),
+                ":owner", s(owner),
+                ":expires", n(now + leaseMillis),
+                ":now", n(now),
+                ":one", n(1))));
+      } catch (ConditionalCheckFailedException e) {
+        continue;
+      }
+      if (expired) {
+        logger.info("Lease of {} segment {} held by {} expired, taking it over", plan.getChangeId(), segment,
+            item.get(OWNER).s());
+      }
+      return new ScanSegment(segment, totalSegments);
+    }
+    return null;
+  }
+
+  /**
+   * @return false if the lease is no longer held by the owner
+   */
+  public boolean renewLease(SegmentPlan plan, ScanSegment segment, String owner, long leaseMillis) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(Map.of(KEY, s(segmentKey(plan.getChangeId(), segment.getSegment()))))
+          .updateExpression("SET #expires = :expires")
+          .conditionExpression("#owner = :owner AND #state = :inProgress")
+          .expressionAttributeNames(Map.of("#state", STATE, "#owner", OWNER, "#expires", LEASE_EXPIRES_AT))
+          .expressionAttributeValues(Map.of(
+              ":inProgress", s(State.IN_PROGRESS.name()),
+              ":owner", s(owner),
+              ":expires", n(System.currentTimeMillis() + leaseMillis))));
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Marks a segment done
+   *
+   * @return false if the lease had been taken over in the meantime
+   */
+  public boolean completeSegment(SegmentPlan plan, ScanSegment segment, String owner) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(Map.of(KEY, s(segmentKey(plan.getChangeId(), segment.getSegment()))))
+          .updateExpression("SET #state = :done REMOVE #expires")
+          .conditionExpression("#owner = :owner AND #state = :inProgress")
+          .expressionAttributeNames(Map.of("#state", STATE, "#owner", OWNER, "#expires", LEASE_EXPIRES_AT))
+          .expressionAttributeValues(Map.of(
+              ":inProgress", s(State.IN_PROGRESS.name()),
+              ":done", s(State.DONE.name()),
+              ":owner", s(owner))));
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Gives a segment back after its processing failed. The segment becomes pending again,
+   * or failed once it has been attempted maxAttempts times.
+   */
+  public void releaseSegment(SegmentPlan plan, ScanSegment segment, String owner, String error, int maxAttempts) {
+    String key = segmentKey(plan.getChangeId(), segment.getSegment());
+    Map<String, AttributeValue> item = getItem(key);
+    if (item == null) {
+      return;
+    }
+    State state = Integer.parseInt(item.get(ATTEMPTS).n()) >= maxAttempts ? State.FAILED : State.PENDING;
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(Map.of(KEY, s(key)))
+          .updateExpression("SET #state = :state, #error = :error REMOVE #expires, #owner")
+          .conditionExpression("#owner = :owner AND #state = :inProgress")
+          .expressionAttributeNames(Map.of("#state", STATE, "#owner", OWNER, "#expires", LEASE_EXPIRES_AT,
+              "#error", LAST_ERROR))
+          .expressionAttributeValues(Map.of(
+              ":inProgress", s(State.IN_PROGRESS.name()),
+              ":state", s(state.name()),
+              ":error", s(error == null || error.isEmpty() ? "unknown error" : error),
+              ":owner", s(owner))));
+    } catch (ConditionalCheckFailedException e) {
+      logger.warn("Lease of {} segment {} was taken over before it could be released", plan.getChangeId(),
+          segment.getSegment());
+    }
+  }
+
+  /**
+   * @return how many segments of the plan are in each state
+   */
+  public SegmentPlanStatus getStatus(SegmentPlan plan) {
+    int pending = 0;
+    int inProgress = 0;
+    int done = 0;
+    int failed = 0;
+    for (Map<String, AttributeValue> item : getSegments(plan)) {
+      switch (State.valueOf(item.get(STATE).s())) {
+        case PENDING:
+          pending++;
+          break;
+        case IN_PROGRESS:
+          inProgress++;
+          break;
+        case DONE:
+          done++;
+          break;
+        default:
+          failed++;
+          break;
+      }
+    }
+    // segments not written yet count as pending
+    pending += plan.getTotalSegments() - (pending + inProgress + done + failed);
+    return new SegmentPlanStatus(pending, inProgress, done, failed);
+  }
+
+  /**
+   * Removes the plan item and its segments, and its announcement on the lock item
+   */
+  public void deletePlan(SegmentPlan plan) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(Map.of(KEY, s(DynamobeeDao.VALUE_LOCK)))
+          .updateExpression("REMOVE #active")
+          .conditionExpression("#active = :changeId")
+          .expressionAttributeNames(Map.of("#active", ACTIVE_PLAN))
+          .expressionAttributeValues(Map.of(":changeId", s(plan.getChangeId()))));
+    } catch (ConditionalCheckFailedException e) {
+      // not announced, or the lock was released
+    }
+
+    List<Map<String, AttributeValue>> keys = new ArrayList<>(plan.getTotalSegments() + 1);
+    keys.add(Map.of(KEY, s(planKey(plan.getChangeId()))));
+    for (int segment = 0; segment < plan.getTotalSegments(); segment++) {
+      keys.add(Map.of(KEY, s(segmentKey(plan.getChangeId(), segment))));
+    }
+    new BatchWriter(dynamoDbClient, tableName).delete(keys);
+  }
+
+  private void resetFailedSegment(SegmentPlan plan, int segment) {
+    try {
+      dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(Map.of(KEY, s(segmentKey(plan.getChangeId(), segment))))
+          .updateExpression("SET #state = :pending, #attempts = :zero")
+          .conditionExpression("#state = :failed")
+          .expressionAttributeNames(Map.of("#state", STATE, "#attempts", ATTEMPTS))
+          .expressionAttributeValues(Map.of(
+              ":pending", s(State.PENDING.name()),
+              ":failed", s(State.FAILED.name()),
+              ":zero", n(0))));
+    } catch (ConditionalCheckFailedException e) {
+      // not failed
+    }
+  }
+
+  private List<Map<String, AttributeValue>> getSegments(SegmentPlan plan) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>(plan.getTotalSegments());
+    for (int from = 0; from < plan.getTotalSegments(); from += MAX_BATCH_GET_KEYS) {
+      List<Map<String, AttributeValue>> keys = new ArrayList<>();
+      for (int segment = from; segment < Math.min(from + MAX_BATCH_GET_KEYS, plan.getTotalSegments()); segment++) {
+        keys.add(Map.of(KEY, s(segmentKey(plan.getChangeId(), segment))));
+      }
+      Map<String, KeysAndAttributes> requestItems = Map.of(tableName,
+          KeysAndAttributes.builder().keys(keys).consistentRead(true).build());
+      while (!requestItems.isEmpty()) {
+        Map<String, KeysAndAttributes> unprocessed = requestItems;
+        BatchGetItemResponse response = dynamoDbClient.batchGetItem(request -> request.requestItems(unprocessed));
+        items.addAll(response.responses().getOrDefault(tableName, List.of()));
+        requestItems = response.hasUnprocessedKeys() ? response.unprocessedKeys() : Map.of();
+      }
+    }
+    return items;
+  }
+
+  private static SegmentPlan planOf(Map<String, AttributeValue> item) {
+    return new SegmentPlan(item.get(PLAN_CHANGE_ID).s(), Integer.parseInt(item.get(TOTAL_SEGMENTS).n()),
+        item.get(CHANGE_LOG_CLASS).s(), item.get(CHANGE_SET_METHOD).s());
+  }
+
+  private Map<String, AttributeValue> getItem(String key) {
+    Map<String, AttributeValue> item = dynamoDbClient.getItem(request -> request
+        .tableName(tableName)
+        .key(Map.of(KEY, s(key)))
+        .consistentRead(true)).item();
+    return item == null || item.isEmpty() ? null : item;
+  }
+
+  private static String planKey(String changeId) {
+    return PLAN_PREFIX + changeId;
+  }
+
+  private static String segmentKey(String changeId, int segment) {
+    return SEGMENT_PREFIX + changeId + "#" + segment;
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+
+  private static AttributeValue n(long value) {
+    return AttributeValue.builder().n(Long.toString(value)).build();
+  }
+}
@@ -0,0 +1,45 @@
+package com.github.dynamobee.dao;
+
+
+/**
+ * Number of segments of a {@link SegmentPlan} in each state
+ */
+public final class SegmentPlanStatus {
+  private final int pending;
+  private final int inProgress;
+  private final int done;
+  private final int failed;
+
+  SegmentPlanStatus(int pending, int inProgress, int done, int failed) {
+    this.pending = pending;
+    this.inProgress = inProgress;
+    this.done = done;
+    this.failed = failed;
+  }
+
+  public int getPending() {
+    return pending;
+  }
+
+  public int getInProgress() {
+    return inProgress;
+  }
+
+  public int getDone() {
+    return done;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  public boolean isComplete() {
+    return pending == 0 && inProgress == 0 && failed == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "[SegmentPlanStatus: pending=" + pending + ", inProgress=" + inProgress
+        + ", done=" + done + ", failed=" + failed + "]";
+  }
+}
@@ -0,0 +1,78 @@
+package com.github.dynamobee.dao;
+
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * High-watermarks of incremental changesets, stored next to the change entries in the dynamobee table.
+ * <p>
+ * One item ({@code WATERMARK#<changeId>#<stream>}) per changeset and queried partition keeps the highest
+ * sort key value processed so far. Deleting the item makes the next run start from the beginning.
+ */
+public class WatermarkDao {
+  private static final String KEY = "changeId";
+  private static final String WATERMARK_PREFIX = "WATERMARK#";
+  private static final String WATERMARK = "watermark";
+  private static final String UPDATED_AT = "updatedAt";
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  public WatermarkDao(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * @param changeId changeset
+   * @param stream   queried table, index and partition
+   * @return the watermark, or null if nothing was processed yet
+   */
+  public AttributeValue find(String changeId, String stream) {
+    Map<String, AttributeValue> item = dynamoDbClient.getItem(request -> request
+        .tableName(tableName)
+        .key(key(changeId, stream))
+        .consistentRead(true)).item();
+    return item == null ? null : item.get(WATERMARK);
+  }
+
+  /**
+   * @param changeId  changeset
+   * @param stream    queried table, index and partition
+   * @param watermark sort key value of the last processed item
+   */
+  public void save(String changeId, String stream, AttributeValue watermark) {
+    dynamoDbClient.putItem(request -> request
+        .tableName(tableName)
+        .item(Map.of(
+            KEY, s(id(changeId, stream)),
+            WATERMARK, watermark,
+            UPDATED_AT, AttributeValue.builder().n(Long.toString(System.currentTimeMillis())).build())));
+  }
+
+  /**
+   * Makes the next run of the changeset process the stream from the beginning
+   *
+   * @param changeId changeset
+   * @param stream   queried table, index and partition
+   */
+  public void delete(String changeId, String stream) {
+    dynamoDbClient.deleteItem(request -> request
+        .tableName(tableName)
+        .key(key(changeId, stream)));
+  }
+
+  private static Map<String, AttributeValue> key(String changeId, String stream) {
+    return Map.of(KEY, s(id(changeId, stream)));
+  }
+
+  private static String id(String changeId, String stream) {
+    return WATERMARK_PREFIX + changeId + "#" + stream;
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+}
@@ -0,0 +1,41 @@
+package com.github.dynamobee.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Lookup of the changelog classes, usually a classpath scan
+ */
+@Name("com.github.dynamobee.ChangeLogScan")
+@Label("Changelog Scan")
+@Category("Dynamobee")
+@Description("Discovery of the changelog classes and filtering by active profiles")
+@StackTrace(false)
+public class ChangeLogScanEvent extends Event {
+
+  @Label("Scan Package")
+  String scanPackage;
+
+  @Label("Changelogs")
+  int changeLogs;
+
+  /**
+   * Ends the event and commits it if enabled and above the threshold
+   *
+   * @param scanPackage package scanned, may be null with a custom discovery
+   * @param changeLogs  active changelogs found
+   */
+  public void end(String scanPackage, int changeLogs) {
+    end();
+    if (shouldCommit()) {
+      this.scanPackage = scanPackage;
+      this.changeLogs = changeLogs;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,59 @@
+package com.github.dynamobee.jfr;
+
+import com.github.dynamobee.changeset.ChangeEntry;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Execution of a changeset or PartiQL script, from the change entry lookup until it is recorded
+ */
+@Name("com.github.dynamobee.ChangeSetExecution")
+@Label("Changeset Execution")
+@Category("Dynamobee")
+@Description("Execution of a changeset, including snapshots and distributed segments")
+@StackTrace(false)
+public class ChangeSetExecutionEvent extends Event {
+  public static final String APPLIED = "applied";
+  public static final String REAPPLIED = "reapplied";
+  public static final String PASSED_OVER = "passed over";
+  public static final String DEFERRED = "deferred";
+  public static final String FAILED = "failed";
+
+  @Label("Change Id")
+  String changeId;
+
+  @Label("Author")
+  String author;
+
+  @Label("Changelog Class")
+  String changeLogClass;
+
+  @Label("Changeset Method")
+  String changeSetMethod;
+
+  @Label("Outcome")
+  String outcome;
+
+  /**
+   * Ends the event and commits it if enabled and above the threshold
+   *
+   * @param changeEntry entry of the changeset
+   * @param outcome     one of the outcome constants
+   */
+  public void end(ChangeEntry changeEntry, String outcome) {
+    end();
+    if (shouldCommit()) {
+      this.changeId = changeEntry.getChangeId();
+      this.author = changeEntry.getAuthor();
+      this.changeLogClass = changeEntry.getChangeLogClass();
+      this.changeSetMethod = changeEntry.getChangeSetMethodName();
+      this.outcome = outcome;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.github.dynamobee.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbRequest;
+
+
+/**
+ * One DynamoDB operation made through a client wrapped by {@link FlightRecorderDynamoDbClient},
+ * including the retries of the SDK
+ */
+@Name("com.github.dynamobee.DynamoDbCall")
+@Label("DynamoDB Call")
+@Category("Dynamobee")
+@Description("DynamoDB operation made by Dynamobee, a changeset or a migration helper")
+public class DynamoDbCallEvent extends Event {
+
+  @Label("Operation")
+  String operation;
+
+  @Label("Table")
+  @Description("Table of the request, null for multi-table operations")
+  String table;
+
+  @Label("Error")
+  @Description("Exception class of a failed call, null on success")
+  String error;
+
+  /**
+   * Ends the event and commits it if enabled and above the threshold
+   *
+   * @param operation name of the client method, e.g. updateItem
+   * @param request   request of the call
+   * @param error     exception of a failed call, or null
+   */
+  public void end(String operation, DynamoDbRequest request, Throwable error) {
+    end();
+    if (shouldCommit()) {
+      this.operation = operation;
+      this.table = request.getValueForField("TableName", String.class).orElse(null);
+      this.error = error == null ? null : error.getClass().getSimpleName();
+      commit();
+    }
+  }
+}
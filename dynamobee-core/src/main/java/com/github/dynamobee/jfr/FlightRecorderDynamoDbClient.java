@@ -0,0 +1,95 @@
+package com.github.dynamobee.jfr;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.function.Consumer;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbRequest;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
+
+
+/**
+ * DynamoDbClient recording a {@link DynamoDbCallEvent} for every operation.
+ * <p>
+ * Consumer-builder overloads, paginators and waiters are routed through the wrapper as well, so each request
+ * page is recorded once. When the event is disabled, a call costs one reflective dispatch on top of the request;
+ * until Flight Recorder is in use no event is created at all.
+ */
+public final class FlightRecorderDynamoDbClient implements InvocationHandler {
+  private static final String PAGINATOR_SUFFIX = "Paginator";
+
+  private final DynamoDbClient delegate;
+
+  private FlightRecorderDynamoDbClient(DynamoDbClient delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @param dynamoDbClient client to wrap
+   * @return a client recording its calls, or the given client if it already does
+   */
+  public static DynamoDbClient wrap(DynamoDbClient dynamoDbClient) {
+    if (Proxy.isProxyClass(dynamoDbClient.getClass())
+        && Proxy.getInvocationHandler(dynamoDbClient) instanceof FlightRecorderDynamoDbClient) {
+      return dynamoDbClient;
+    }
+    return (DynamoDbClient) Proxy.newProxyInstance(DynamoDbClient.class.getClassLoader(),
+        new Class<?>[]{DynamoDbClient.class}, new FlightRecorderDynamoDbClient(dynamoDbClient));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (method.getDeclaringClass() == Object.class) {
+      return invokeObjectMethod(proxy, method, args);
+    }
+    if (args != null && args.length == 1 && args[0] instanceof Consumer && method.isDefault()) {
+      // builds the request and calls the request overload on the proxy
+      return InvocationHandler.invokeDefault(proxy, method, args);
+    }
+    if (method.getName().endsWith(PAGINATOR_SUFFIX) && args != null && args.length == 1) {
+      Constructor<?> iterable = method.getReturnType().getConstructor(DynamoDbClient.class, method.getParameterTypes()[0]);
+      return iterable.newInstance(proxy, args[0]);
+    }
+    if (method.getName().equals("waiter") && (args == null || args.length == 0)) {
+      return DynamoDbWaiter.builder().client((DynamoDbClient) proxy).build();
+    }
+    if (args == null || args.length != 1 || !(args[0] instanceof DynamoDbRequest)
+        || !FlightRecorderEvents.isInitialized()) {
+      return invokeDelegate(method, args);
+    }
+
+    DynamoDbCallEvent event = new DynamoDbCallEvent();
+    event.begin();
+    Throwable error = null;
+    try {
+      return invokeDelegate(method, args);
+    } catch (Throwable e) {
+      error = e;
+      throw e;
+    } finally {
+      event.end(method.getName(), (DynamoDbRequest) args[0], error);
+    }
+  }
+
+  private Object invokeDelegate(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(delegate, args);
+    } catch (InvocationTargetException e) {
+      throw e.getTargetException();
+    }
+  }
+
+  private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      default:
+        return "FlightRecorderDynamoDbClient[" + delegate + "]";
+    }
+  }
+}
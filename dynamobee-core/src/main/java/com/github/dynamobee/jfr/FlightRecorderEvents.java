@@ -0,0 +1,24 @@
+package com.github.dynamobee.jfr;
+
+import jdk.jfr.FlightRecorder;
+
+
+/**
+ * Tells whether the Dynamobee events are worth creating.
+ * <p>
+ * Loading the first {@link jdk.jfr.Event} subclass initializes the JFR runtime, a few hundred classes and about
+ * as much startup time as the whole changelog scan. Events are therefore only created once Flight Recorder is
+ * in use, i.e. a recording was started on the command line or through jcmd.
+ */
+public final class FlightRecorderEvents {
+
+  private FlightRecorderEvents() {
+  }
+
+  /**
+   * @return true if Flight Recorder has been initialized, so events may be recorded
+   */
+  public static boolean isInitialized() {
+    return FlightRecorder.isInitialized();
+  }
+}
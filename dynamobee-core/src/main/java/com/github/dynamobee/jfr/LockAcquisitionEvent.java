@@ -0,0 +1,46 @@
+package com.github.dynamobee.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Acquisition of the process lock; its duration is the time spent waiting for the lock
+ */
+@Name("com.github.dynamobee.LockAcquisition")
+@Label("Lock Acquisition")
+@Category("Dynamobee")
+@Description("Attempts to acquire the Dynamobee process lock, including the wait for another holder")
+@StackTrace(false)
+public class LockAcquisitionEvent extends Event {
+
+  @Label("Table")
+  String table;
+
+  @Label("Attempts")
+  int attempts;
+
+  @Label("Acquired")
+  boolean acquired;
+
+  /**
+   * Ends the event and commits it if enabled and above the threshold
+   *
+   * @param table    dynamobee table
+   * @param attempts conditional writes issued
+   * @param acquired whether the lock was acquired
+   */
+  public void end(String table, int attempts, boolean acquired) {
+    end();
+    if (shouldCommit()) {
+      this.table = table;
+      this.attempts = attempts;
+      this.acquired = acquired;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.github.dynamobee.migration;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Compact binary encoding of DynamoDB items.
+ * <p>
+ * Items written with {@link #writeItem} are read back with {@link #readItem}.
+ * <p>
+ * In canonical mode map keys and set members are sorted and numbers normalized,
+ * so equal items always encode to equal bytes, which makes the encoding suitable for hashing.
+ */
+public final class AttributeValueCodec {
+  static final byte TYPE_S = 1;
+  static final byte TYPE_N = 2;
+  static final byte TYPE_B = 3;
+  static final byte TYPE_BOOL = 4;
+  static final byte TYPE_NULL = 5;
+  static final byte TYPE_SS = 6;
+  static final byte TYPE_NS = 7;
+  static final byte TYPE_BS = 8;
+  static final byte TYPE_L = 9;
+  static final byte TYPE_M = 10;
+
+  private AttributeValueCodec() {
+  }
+
+  /**
+   * @param out       target
+   * @param item      item to encode
+   * @param canonical whether to sort keys and set members and normalize numbers
+   * @throws IOException if the target fails
+   */
+  public static void writeItem(DataOutput out, Map<String, AttributeValue> item, boolean canonical)
+      throws IOException {
+    Map<String, AttributeValue> entries = canonical ? new TreeMap<>(item) : item;
+    out.writeInt(entries.size());
+    for (Map.Entry<String, AttributeValue> entry : entries.entrySet()) {
+      writeString(out, entry.getKey());
+      writeValue(out, entry.getValue(), canonical);
+    }
+  }
+
+  public static void writeValue(DataOutput out, AttributeValue value, boolean canonical) throws IOException {
+    if (value.s() != null) {
+      out.writeByte(TYPE_S);
+      writeString(out, value.s());
+    } else if (value.n() != null) {
+      out.writeByte(TYPE_N);
+      writeString(out, canonical ? normalizeNumber(value.n()) : value.n());
+    } else if (value.b() != null) {
+      out.writeByte(TYPE_B);
+      writeBytes(out, value.b().asByteArrayUnsafe());
+    } else if (value.bool() != null) {
+      out.writeByte(TYPE_BOOL);
+      out.writeBoolean(value.bool());
+    } else if (Boolean.TRUE.equals(value.nul())) {
+      out.writeByte(TYPE_NULL);
+    } else if (value.hasSs()) {
+      out.writeByte(TYPE_SS);
+      writeStrings(out, canonical ? sorted(value.ss()) : value.ss());
+    } else if (value.hasNs()) {
+      out.writeByte(TYPE_NS);
+      List<String> numbers = value.ns();
+      if (canonical) {
+        List<String> normalized = new ArrayList<>(numbers.size());
+        numbers.forEach(number -> normalized.add(normalizeNumber(number)));
+        numbers = sorted(normalized);
+      }
+      writeStrings(out, numbers);
+    } else if (value.hasBs()) {
+      out.writeByte(TYPE_BS);
+      List<SdkBytes> bytes = value.bs();
+      if (canonical) {
+        bytes = new ArrayList<>(bytes);
+        bytes.sort((a, b) -> Arrays.compareUnsigned(a.asByteArrayUnsafe(), b.asByteArrayUnsafe()));
+      }
+      out.writeInt(bytes.size());
+      for (SdkBytes member : bytes) {
+        writeBytes(out, member.asByteArrayUnsafe());
+      }
+    } else if (value.hasL()) {
+      out.writeByte(TYPE_L);
+      out.writeInt(value.l().size());
+      for (AttributeValue element : value.l()) {
+        writeValue(out, element, canonical);
+      }
+    } else if (value.hasM()) {
+      out.writeByte(TYPE_M);
+      writeItem(out, value.m(), canonical);
+    } else {
+      throw new IllegalArgumentException("Unsupported attribute value " + value);
+    }
+  }
+
+  /**
+   * @param in source positioned at an item written by {@link #writeItem}
+   * @return the decoded item
+   * @throws IOException if the source fails or holds no valid item
+   */
+  public static Map<String, AttributeValue> readItem(DataInput in) throws IOException {
+    int size = readLength(in);
+    Map<String, AttributeValue> item = new LinkedHashMap<>(Math.max(16, size * 2));
+    for (int i = 0; i < size; i++) {
+      String name = readString(in);
+      item.put(name, readValue(in));
+    }
+    return item;
+  }
+
+  public static AttributeValue readValue(DataInput in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case TYPE_S:
+        return AttributeValue.builder().s(readString(in)).build();
+      case TYPE_N:
+        return AttributeValue.builder().n(readString(in)).build();
+      case TYPE_B:
+        return AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(readBytes(in))).build();
+      case TYPE_BOOL:
+        return AttributeValue.builder().bool(in.readBoolean()).build();
+      case TYPE_NULL:
+        return AttributeValue.builder().nul(true).build();
+      case TYPE_SS:
+        return AttributeValue.builder().ss(readStrings(in)).build();
+      case TYPE_NS:
+        return AttributeValue.builder().ns(readStrings(in)).build();
+      case TYPE_BS: {
+        int size = readLength(in);
+        List<SdkBytes> bytes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          bytes.add(SdkBytes.fromByteArrayUnsafe(readBytes(in)));
+        }
+        return AttributeValue.builder().bs(bytes).build();
+      }
+      case TYPE_L: {
+        int size = readLength(in);
+        List<AttributeValue> elements = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+          elements.add(readValue(in));
+        }
+        return AttributeValue.builder().l(elements).build();
+      }
+      case TYPE_M:
+        return AttributeValue.builder().m(readItem(in)).build();
+      default:
+        throw new IOException("Unknown attribute value type " + type);
+    }
+  }
+
+  private static List<String> readStrings(DataInput in) throws IOException {
+    int size = readLength(in);
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(readString(in));
+    }
+    return values;
+  }
+
+  private static String readString(DataInput in) throws IOException {
+    return new String(readBytes(in), StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(DataInput in) throws IOException {
+    byte[] bytes = new byte[readLength(in)];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static int readLength(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      throw new IOException("Negative length " + length);
+    }
+    return length;
+  }
+
+  private static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(out, value);
+    }
+  }
+
+  private static void writeString(DataOutput out, String value) throws IOException {
+    writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static List<String> sorted(List<String> values) {
+    List<String> sorted = new ArrayList<>(values);
+    sorted.sort(null);
+    return sorted;
+  }
+
+  private static String normalizeNumber(String number) {
+    BigDecimal decimal = new BigDecimal(number);
+    return decimal.signum() == 0 ? "0" : decimal.stripTrailingZeros().toPlainString();
+  }
+}
@@ -0,0 +1,140 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+
+/**
+ * Writes items with BatchWriteItem in chunks of {@value #MAX_BATCH_SIZE},
+ * retrying unprocessed items with exponential backoff.
+ * Instances are thread-safe; each caller thread writes its own batches.
+ */
+public class BatchWriter {
+  public static final int MAX_BATCH_SIZE = 25;
+
+  private static final int DEFAULT_MAX_RETRIES = 10;
+  private static final long BASE_BACKOFF_MILLIS = 50;
+  private static final long MAX_BACKOFF_MILLIS = 5000;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+  private int maxRetries = DEFAULT_MAX_RETRIES;
+
+  private final AtomicLong putCount = new AtomicLong();
+  private final AtomicLong deleteCount = new AtomicLong();
+
+  public BatchWriter(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * @param items items to put, any number
+   */
+  public void put(List<Map<String, AttributeValue>> items) {
+    write(items.stream()
+        .map(item -> WriteRequest.builder().putRequest(PutRequest.builder().item(item).build()).build())
+        .collect(Collectors.toList()));
+    putCount.addAndGet(items.size());
+  }
+
+  /**
+   * @param keys primary keys of the items to delete, any number
+   */
+  public void delete(List<Map<String, AttributeValue>> keys) {
+    write(keys.stream()
+        .map(key -> WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(key).build()).build())
+        .collect(Collectors.toList()));
+    deleteCount.addAndGet(keys.size());
+  }
+
+  /**
+   * @param requests put or delete requests, any number; a chunk must not contain the same key twice
+   */
+  public void write(List<WriteRequest> requests) {
+    for (int from = 0; from < requests.size(); from += MAX_BATCH_SIZE) {
+      writeBatch(requests.subList(from, Math.min(requests.size(), from + MAX_BATCH_SIZE)));
+    }
+  }
+
+  private void writeBatch(List<WriteRequest> batch) {
+    List<WriteRequest> pending = new ArrayList<>(batch);
+    for (int attempt = 0; !pending.isEmpty(); attempt++) {
+      if (attempt > maxRetries) {
+        throw new IllegalStateException(pending.size() + " items of " + tableName
+            + " still unprocessed after " + maxRetries + " retries");
+      }
+      if (attempt > 0) {
+        backoff(attempt);
+      }
+      final List<WriteRequest> requestItems = pending;
+      capacityBudget.acquire();
+      BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(request -> request
+          .requestItems(Map.of(tableName, requestItems))
+          .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL));
+      if (response.hasConsumedCapacity()) {
+        response.consumedCapacity().forEach(capacityBudget::consume);
+      }
+      pending = response.hasUnprocessedItems() && response.unprocessedItems().containsKey(tableName)
+          ? new ArrayList<>(response.unprocessedItems().get(tableName))
+          : List.of();
+    }
+  }
+
+  /**
+   * Sleeps before a retry: exponential backoff with jitter, shared by the helpers retrying throttled requests
+   *
+   * @param attempt retry attempt, starting at 1
+   */
+  public static void backoff(int attempt) {
+    long millis = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+    try {
+      Thread.sleep(millis / 2 + (long) (Math.random() * millis / 2));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while retrying unprocessed items", e);
+    }
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public long getPutCount() {
+    return putCount.get();
+  }
+
+  public long getDeleteCount() {
+    return deleteCount.get();
+  }
+
+  /**
+   * @param capacityBudget budget shared by all writing threads
+   * @return BatchWriter object for fluent interface
+   */
+  public BatchWriter setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+
+  /**
+   * @param maxRetries retries of unprocessed items before giving up (default 10)
+   * @return BatchWriter object for fluent interface
+   */
+  public BatchWriter setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+    return this;
+  }
+}
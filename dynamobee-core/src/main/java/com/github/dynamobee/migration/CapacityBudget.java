@@ -0,0 +1,90 @@
+package com.github.dynamobee.migration;
+
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+
+
+/**
+ * Token bucket limiting how many capacity units per second migration helpers may consume,
+ * so that bulk work does not compete with production traffic.
+ * <p>
+ * Callers {@link #acquire()} before a request and report the actual {@link ConsumedCapacity}
+ * afterwards; overdrafts are paid back by later callers waiting longer.
+ * Instances are thread-safe and are meant to be shared by all workers of one migration.
+ */
+public class CapacityBudget {
+  private static final CapacityBudget UNLIMITED = new CapacityBudget(Double.POSITIVE_INFINITY);
+
+  private final double unitsPerSecond;
+  private double available;
+  private long lastRefillNanos;
+
+  /**
+   * @param unitsPerSecond capacity units (read and write units summed) allowed per second
+   */
+  public CapacityBudget(double unitsPerSecond) {
+    if (!(unitsPerSecond > 0)) {
+      throw new IllegalArgumentException("unitsPerSecond must be positive");
+    }
+    this.unitsPerSecond = unitsPerSecond;
+    this.available = unitsPerSecond;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  /**
+   * @return budget which never blocks
+   */
+  public static CapacityBudget unlimited() {
+    return UNLIMITED;
+  }
+
+  public boolean isUnlimited() {
+    return Double.isInfinite(unitsPerSecond);
+  }
+
+  public double getUnitsPerSecond() {
+    return unitsPerSecond;
+  }
+
+  /**
+   * Blocks until the budget is no longer overdrawn.
+   */
+  public synchronized void acquire() {
+    if (isUnlimited()) {
+      return;
+    }
+    refill();
+    while (available <= 0) {
+      long waitMillis = Math.max(1L, (long) Math.ceil(-available / unitsPerSecond * 1000));
+      try {
+        wait(waitMillis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting for migration capacity", e);
+      }
+      refill();
+    }
+  }
+
+  /**
+   * @param consumedCapacity capacity reported by DynamoDB, may be null
+   */
+  public void consume(ConsumedCapacity consumedCapacity) {
+    if (consumedCapacity != null && consumedCapacity.capacityUnits() != null) {
+      consume(consumedCapacity.capacityUnits());
+    }
+  }
+
+  public synchronized void consume(double units) {
+    if (isUnlimited()) {
+      return;
+    }
+    refill();
+    available -= units;
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    available = Math.min(unitsPerSecond, available + (now - lastRefillNanos) / 1e9 * unitsPerSecond);
+    lastRefillNanos = now;
+  }
+}
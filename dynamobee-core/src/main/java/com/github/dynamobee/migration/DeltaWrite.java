@@ -0,0 +1,82 @@
+package com.github.dynamobee.migration;
+
+import java.util.HashMap;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+
+/**
+ * Write prepared by a {@link DeltaWriter}: an UpdateItem applying an {@link ItemDelta},
+ * or a PutItem of the whole item when that is smaller.
+ */
+public final class DeltaWrite {
+  private final ItemDelta delta;
+  private final UpdateItemRequest updateItemRequest;
+  private final PutItemRequest putItemRequest;
+
+  DeltaWrite(ItemDelta delta, UpdateItemRequest updateItemRequest, PutItemRequest putItemRequest) {
+    this.delta = delta;
+    this.updateItemRequest = updateItemRequest;
+    this.putItemRequest = putItemRequest;
+  }
+
+  /**
+   * Adds a condition to the write. Placeholders must not start with {@code #d} or {@code :d},
+   * which are those of the update expression.
+   *
+   * @param conditionExpression condition on the stored item
+   * @param names               expression attribute names used by the condition
+   * @param values              expression attribute values used by the condition, may be empty
+   * @return conditional copy of this write
+   */
+  public DeltaWrite withCondition(String conditionExpression, Map<String, String> names,
+                                  Map<String, AttributeValue> values) {
+    if (isPut()) {
+      PutItemRequest.Builder request = putItemRequest.toBuilder()
+          .conditionExpression(conditionExpression)
+          .expressionAttributeNames(names);
+      if (!values.isEmpty()) {
+        request.expressionAttributeValues(values);
+      }
+      return new DeltaWrite(delta, null, request.build());
+    }
+    Map<String, String> allNames = new HashMap<>(updateItemRequest.expressionAttributeNames());
+    allNames.putAll(names);
+    UpdateItemRequest.Builder request = updateItemRequest.toBuilder()
+        .conditionExpression(conditionExpression)
+        .expressionAttributeNames(allNames);
+    if (!values.isEmpty()) {
+      Map<String, AttributeValue> allValues = new HashMap<>(updateItemRequest.expressionAttributeValues());
+      allValues.putAll(values);
+      request.expressionAttributeValues(allValues);
+    }
+    return new DeltaWrite(delta, request.build(), null);
+  }
+
+  /**
+   * @return true if the whole item is put, false if it is updated
+   */
+  public boolean isPut() {
+    return putItemRequest != null;
+  }
+
+  public ItemDelta getDelta() {
+    return delta;
+  }
+
+  /**
+   * @return the update, or null if the item is put
+   */
+  public UpdateItemRequest getUpdateItemRequest() {
+    return updateItemRequest;
+  }
+
+  /**
+   * @return the put, or null if the item is updated
+   */
+  public PutItemRequest getPutItemRequest() {
+    return putItemRequest;
+  }
+}
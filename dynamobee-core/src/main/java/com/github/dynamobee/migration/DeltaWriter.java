@@ -0,0 +1,244 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+
+/**
+ * Writes the new version of an item as the minimal UpdateItem: only changed attributes are sent,
+ * instead of reading the full item and putting it back.
+ * <p>
+ * The update expression and attribute name placeholders depend only on which attributes change and how,
+ * so they are built once per {@link ItemDelta.Shape} and reused for all items of the same shape.
+ * When the delta would be larger than the item itself, the item is put instead (see {@link #setPutFallback}).
+ * <pre>
+ *   DeltaWriter writer = new DeltaWriter(db, "orders").setPutFallback(false);
+ *   new ParallelScanner(db, "orders").setProjection("id", "status").scan((segment, items) -&gt;
+ *       items.forEach(item -&gt; writer.write(item, withRenamedStatus(item))));
+ * </pre>
+ * Instances are thread-safe.
+ */
+public class DeltaWriter {
+  private static final int MAX_TEMPLATES = 1024;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+  private final Map<ItemDelta.Shape, Template> templates = new ConcurrentHashMap<>();
+
+  private boolean putFallback = true;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  private final AtomicLong updateCount = new AtomicLong();
+  private final AtomicLong putCount = new AtomicLong();
+  private final AtomicLong unchangedCount = new AtomicLong();
+
+  private volatile TableKeys keys;
+
+  public enum Outcome { UNCHANGED, UPDATED, PUT }
+
+  /**
+   * Update expression and names of one delta shape; values are bound per item to {@code :d<i>}
+   */
+  private static final class Template {
+    private final String updateExpression;
+    private final Map<String, String> names;
+
+    private Template(ItemDelta.Shape shape) {
+      List<String> set = new ArrayList<>();
+      List<String> remove = new ArrayList<>();
+      List<String> add = new ArrayList<>();
+      List<String> delete = new ArrayList<>();
+      Map<String, String> placeholders = new HashMap<>();
+      for (int i = 0; i < shape.getNames().size(); i++) {
+        String name = "#d" + i;
+        placeholders.put(name, shape.getNames().get(i));
+        switch (shape.getActions().get(i)) {
+          case SET:
+            set.add(name + " = :d" + i);
+            break;
+          case REMOVE:
+            remove.add(name);
+            break;
+          case ADD:
+            add.add(name + " :d" + i);
+            break;
+          default:
+            delete.add(name + " :d" + i);
+        }
+      }
+      StringBuilder expression = new StringBuilder();
+      appendClause(expression, "SET", set);
+      appendClause(expression, "REMOVE", remove);
+      appendClause(expression, "ADD", add);
+      appendClause(expression, "DELETE", delete);
+      this.updateExpression = expression.toString();
+      this.names = Map.copyOf(placeholders);
+    }
+
+    private static void appendClause(StringBuilder expression, String keyword, List<String> actions) {
+      if (!actions.isEmpty()) {
+        expression.append(expression.length() == 0 ? "" : " ").append(keyword).append(' ')
+            .append(String.join(", ", actions));
+      }
+    }
+  }
+
+  public DeltaWriter(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * Writes the changes between both versions of an item
+   *
+   * @param before stored version of the item, or its projected attributes
+   * @param after  new version of the item, with the same primary key
+   * @return how the item was written
+   */
+  public Outcome write(Map<String, AttributeValue> before, Map<String, AttributeValue> after) {
+    DeltaWrite write = prepare(before, after);
+    if (write == null) {
+      unchangedCount.incrementAndGet();
+      return Outcome.UNCHANGED;
+    }
+    return execute(write);
+  }
+
+  /**
+   * Builds the write without sending it, e.g. to add a condition with {@link DeltaWrite#withCondition}
+   *
+   * @param before stored version of the item, or its projected attributes
+   * @param after  new version of the item, with the same primary key
+   * @return the write, or null if both versions are equal
+   */
+  public DeltaWrite prepare(Map<String, AttributeValue> before, Map<String, AttributeValue> after) {
+    TableKeys tableKeys = getKeys();
+    ItemDelta delta = ItemDelta.between(before, after, tableKeys.names());
+    if (delta.isEmpty()) {
+      return null;
+    }
+    if (putFallback && delta.isLargerThanItem()) {
+      return new DeltaWrite(delta, null, PutItemRequest.builder()
+          .tableName(tableName)
+          .item(after)
+          .build());
+    }
+
+    Template template = templates.get(delta.getShape());
+    if (template == null) {
+      template = new Template(delta.getShape());
+      if (templates.size() < MAX_TEMPLATES) {
+        templates.putIfAbsent(delta.getShape(), template);
+      }
+    }
+    Map<String, AttributeValue> values = new HashMap<>();
+    List<AttributeValue> deltaValues = delta.getValues();
+    for (int i = 0; i < deltaValues.size(); i++) {
+      if (deltaValues.get(i) != null) {
+        values.put(":d" + i, deltaValues.get(i));
+      }
+    }
+    UpdateItemRequest.Builder request = UpdateItemRequest.builder()
+        .tableName(tableName)
+        .key(tableKeys.keyOf(after))
+        .updateExpression(template.updateExpression)
+        .expressionAttributeNames(template.names);
+    if (!values.isEmpty()) {
+      request.expressionAttributeValues(values);
+    }
+    return new DeltaWrite(delta, request.build(), null);
+  }
+
+  /**
+   * Sends a prepared write. A ConditionalCheckFailedException of a conditional write is passed on.
+   *
+   * @param write write to send
+   * @return UPDATED or PUT
+   */
+  public Outcome execute(DeltaWrite write) {
+    ReturnConsumedCapacity returnConsumedCapacity = capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL;
+    capacityBudget.acquire();
+    if (write.isPut()) {
+      PutItemResponse response = dynamoDbClient.putItem(write.getPutItemRequest().toBuilder()
+          .returnConsumedCapacity(returnConsumedCapacity)
+          .build());
+      capacityBudget.consume(response.consumedCapacity());
+      putCount.incrementAndGet();
+      return Outcome.PUT;
+    }
+    UpdateItemResponse response = dynamoDbClient.updateItem(write.getUpdateItemRequest().toBuilder()
+        .returnConsumedCapacity(returnConsumedCapacity)
+        .build());
+    capacityBudget.consume(response.consumedCapacity());
+    updateCount.incrementAndGet();
+    return Outcome.UPDATED;
+  }
+
+  /**
+   * @return primary key of the table, described on first use
+   */
+  public TableKeys getKeys() {
+    TableKeys tableKeys = keys;
+    if (tableKeys == null) {
+      synchronized (this) {
+        if (keys == null) {
+          keys = TableKeys.describe(dynamoDbClient, tableName);
+        }
+        tableKeys = keys;
+      }
+    }
+    return tableKeys;
+  }
+
+  /**
+   * @param keys primary key of the table, to skip describing it
+   * @return DeltaWriter object for fluent interface
+   */
+  public DeltaWriter setKeys(TableKeys keys) {
+    this.keys = keys;
+    return this;
+  }
+
+  /**
+   * Must be disabled when the items passed are projections, since a put replaces the whole item
+   *
+   * @param putFallback put the whole item when it is smaller than the update (default true)
+   * @return DeltaWriter object for fluent interface
+   */
+  public DeltaWriter setPutFallback(boolean putFallback) {
+    this.putFallback = putFallback;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget of the writes
+   * @return DeltaWriter object for fluent interface
+   */
+  public DeltaWriter setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+
+  public long getUpdateCount() {
+    return updateCount.get();
+  }
+
+  public long getPutCount() {
+    return putCount.get();
+  }
+
+  public long getUnchangedCount() {
+    return unchangedCount.get();
+  }
+}
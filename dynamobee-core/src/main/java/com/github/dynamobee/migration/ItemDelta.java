@@ -0,0 +1,283 @@
+package com.github.dynamobee.migration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Attribute-level difference between two versions of an item, as the actions of an UpdateItem expression:
+ * SET for new or changed attributes, REMOVE for missing ones, ADD and DELETE for sets which only gained
+ * or only lost members.
+ * <p>
+ * Attributes are ordered by name, so items differing in the same attributes in the same way share a {@link Shape}
+ * and therefore an expression template (see {@link DeltaWriter}).
+ */
+public final class ItemDelta {
+  /**
+   * Fixed request overhead per action: placeholders, operators and separators
+   */
+  private static final int ACTION_OVERHEAD = 12;
+
+  enum Action { SET, REMOVE, ADD, DELETE }
+
+  private final Map<String, AttributeValue> item;
+  private final Shape shape;
+  private final List<AttributeValue> values;
+  private final long itemSize;
+  private final long deltaSize;
+
+  private ItemDelta(Map<String, AttributeValue> item, Shape shape, List<AttributeValue> values, long deltaSize) {
+    this.item = item;
+    this.shape = shape;
+    this.values = values;
+    this.itemSize = sizeOf(item);
+    this.deltaSize = deltaSize;
+  }
+
+  /**
+   * @param before        stored version of the item
+   * @param after         new version of the item
+   * @param keyAttributes primary key attributes, which must be equal in both versions
+   * @return the difference, empty if both versions are equal
+   * @throws IllegalArgumentException if the primary key differs
+   */
+  public static ItemDelta between(Map<String, AttributeValue> before, Map<String, AttributeValue> after,
+                                  Collection<String> keyAttributes) {
+    for (String keyAttribute : keyAttributes) {
+      if (!Objects.equals(before.get(keyAttribute), after.get(keyAttribute))) {
+        throw new IllegalArgumentException("The primary key attribute " + keyAttribute + " must not change: "
+            + before.get(keyAttribute) + " -> " + after.get(keyAttribute));
+      }
+    }
+
+    Set<String> attributes = new TreeSet<>(before.keySet());
+    attributes.addAll(after.keySet());
+    attributes.removeAll(keyAttributes);
+
+    List<String> names = new ArrayList<>();
+    List<Action> actions = new ArrayList<>();
+    List<AttributeValue> values = new ArrayList<>();
+    long deltaSize = 0;
+    for (String attribute : attributes) {
+      AttributeValue from = before.get(attribute);
+      AttributeValue to = after.get(attribute);
+      if (Objects.equals(from, to)) {
+        continue;
+      }
+      AttributeValue added = from == null || to == null ? null : setDifference(to, from);
+      AttributeValue removed = added == null ? null : setDifference(from, to);
+      Action action;
+      AttributeValue value;
+      if (to == null) {
+        action = Action.REMOVE;
+        value = null;
+      } else if (added == null) {
+        action = Action.SET;
+        value = to;
+      } else if (isEmptySet(added) && isEmptySet(removed)) {
+        // same members in another order
+        continue;
+      } else if (isEmptySet(removed)) {
+        action = Action.ADD;
+        value = added;
+      } else if (isEmptySet(added)) {
+        action = Action.DELETE;
+        value = removed;
+      } else {
+        action = Action.SET;
+        value = to;
+      }
+      names.add(attribute);
+      actions.add(action);
+      values.add(value);
+      deltaSize += ACTION_OVERHEAD + utf8Length(attribute) + (value == null ? 0 : sizeOf(value));
+    }
+    return new ItemDelta(after, new Shape(names, actions), values, deltaSize);
+  }
+
+  /**
+   * @return true if both versions are equal
+   */
+  public boolean isEmpty() {
+    return shape.names.isEmpty();
+  }
+
+  /**
+   * @return names of the attributes set, removed or modified, ordered by name
+   */
+  public List<String> getChangedAttributes() {
+    return Collections.unmodifiableList(shape.names);
+  }
+
+  /**
+   * @return the new version of the item
+   */
+  public Map<String, AttributeValue> getItem() {
+    return item;
+  }
+
+  /**
+   * @return estimated size in bytes of the new version of the item, computed like DynamoDB item sizes
+   */
+  public long getItemSize() {
+    return itemSize;
+  }
+
+  /**
+   * @return estimated size in bytes of the update expression and its values
+   */
+  public long getDeltaSize() {
+    return deltaSize;
+  }
+
+  /**
+   * @return whether writing the whole item is smaller than the update
+   */
+  public boolean isLargerThanItem() {
+    return deltaSize > itemSize;
+  }
+
+  Shape getShape() {
+    return shape;
+  }
+
+  List<AttributeValue> getValues() {
+    return values;
+  }
+
+  /**
+   * Changed attributes and their actions: the part of a delta which determines its UpdateItem expression
+   */
+  static final class Shape {
+    private final List<String> names;
+    private final List<Action> actions;
+    private final int hash;
+
+    private Shape(List<String> names, List<Action> actions) {
+      this.names = names;
+      this.actions = actions;
+      this.hash = 31 * names.hashCode() + actions.hashCode();
+    }
+
+    List<String> getNames() {
+      return names;
+    }
+
+    List<Action> getActions() {
+      return actions;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Shape)) {
+        return false;
+      }
+      Shape shape = (Shape) other;
+      return hash == shape.hash && names.equals(shape.names) && actions.equals(shape.actions);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+
+  /**
+   * @return members of the set {@code a} missing from the set {@code b} of the same type, or null if both are
+   * not sets of the same type
+   */
+  private static AttributeValue setDifference(AttributeValue a, AttributeValue b) {
+    if (a.hasSs() && b.hasSs()) {
+      return AttributeValue.builder().ss(minus(a.ss(), b.ss())).build();
+    }
+    if (a.hasNs() && b.hasNs()) {
+      return AttributeValue.builder().ns(minus(a.ns(), b.ns())).build();
+    }
+    if (a.hasBs() && b.hasBs()) {
+      return AttributeValue.builder().bs(minus(a.bs(), b.bs())).build();
+    }
+    return null;
+  }
+
+  private static <T> List<T> minus(List<T> a, List<T> b) {
+    Set<T> members = new LinkedHashSet<>(a);
+    b.forEach(members::remove);
+    return new ArrayList<>(members);
+  }
+
+  private static boolean isEmptySet(AttributeValue set) {
+    return set.ss().isEmpty() && set.ns().isEmpty() && set.bs().isEmpty();
+  }
+
+  /**
+   * @return estimated size of an item as counted by DynamoDB: attribute names plus values
+   */
+  public static long sizeOf(Map<String, AttributeValue> item) {
+    long size = 0;
+    for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+      size += utf8Length(attribute.getKey()) + sizeOf(attribute.getValue());
+    }
+    return size;
+  }
+
+  private static long sizeOf(AttributeValue value) {
+    if (value.s() != null) {
+      return utf8Length(value.s());
+    }
+    if (value.n() != null) {
+      return numberSize(value.n());
+    }
+    if (value.b() != null) {
+      return value.b().asByteArrayUnsafe().length;
+    }
+    if (value.bool() != null || value.nul() != null) {
+      return 1;
+    }
+    long size = 0;
+    if (value.hasSs()) {
+      for (String member : value.ss()) {
+        size += utf8Length(member);
+      }
+    } else if (value.hasNs()) {
+      for (String member : value.ns()) {
+        size += numberSize(member);
+      }
+    } else if (value.hasBs()) {
+      for (SdkBytes member : value.bs()) {
+        size += member.asByteArrayUnsafe().length;
+      }
+    } else if (value.hasL()) {
+      size = 3;
+      for (AttributeValue element : value.l()) {
+        size += 1 + sizeOf(element);
+      }
+    } else if (value.hasM()) {
+      size = 3;
+      for (Map.Entry<String, AttributeValue> entry : value.m().entrySet()) {
+        size += 1 + utf8Length(entry.getKey()) + sizeOf(entry.getValue());
+      }
+    }
+    return size;
+  }
+
+  private static long numberSize(String number) {
+    return number.length() / 2 + 1;
+  }
+
+  private static long utf8Length(String value) {
+    return value.getBytes(StandardCharsets.UTF_8).length;
+  }
+}
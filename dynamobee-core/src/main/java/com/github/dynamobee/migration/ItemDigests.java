@@ -0,0 +1,56 @@
+package com.github.dynamobee.migration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Content hashes of items, independent of attribute order and number formatting
+ */
+public final class ItemDigests {
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  private ItemDigests() {
+  }
+
+  /**
+   * @param item item (or key) to hash
+   * @return SHA-256 of the canonical encoding of the item
+   */
+  public static byte[] sha256(Map<String, AttributeValue> item) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      AttributeValueCodec.writeItem(out, item, true);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    MessageDigest digest = SHA_256.get();
+    digest.reset();
+    return digest.digest(bytes.toByteArray());
+  }
+
+  /**
+   * @param item item (or key) to hash
+   * @return first 64 bits of {@link #sha256(Map)}
+   */
+  public static long hash64(Map<String, AttributeValue> item) {
+    byte[] sha = sha256(item);
+    long hash = 0;
+    for (int i = 0; i < Long.BYTES; i++) {
+      hash = (hash << 8) | (sha[i] & 0xff);
+    }
+    return hash;
+  }
+}
@@ -0,0 +1,18 @@
+package com.github.dynamobee.migration;
+
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Transforms one item of a migrated table
+ */
+@FunctionalInterface
+public interface ItemTransformer {
+
+  /**
+   * @param item item as read from the table; must not be modified
+   * @return the transformed item, or null to leave the item untouched
+   */
+  Map<String, AttributeValue> transform(Map<String, AttributeValue> item);
+}
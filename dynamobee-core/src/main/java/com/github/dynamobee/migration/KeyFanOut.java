@@ -0,0 +1,336 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+
+/**
+ * Reads the items of known partitions or keys with concurrent Query and BatchGetItem calls,
+ * so targeted migrations read the affected items only instead of scanning the whole table.
+ * <p>
+ * Partition key values and keys are consumed lazily from a stream; at most {@link #setThreads} requests
+ * run at a time. Query results are paged, unprocessed BatchGetItem keys are retried with backoff.
+ * Secondary index partitions are queried for the table keys only, and the full items are then read
+ * from the table, so the index projection does not matter.
+ * <pre>
+ *   new KeyFanOut(db).queryPartitions("orders", customerIds.stream().map(id -&gt; AttributeValue.builder().s(id).build()),
+ *       items -&gt; items.forEach(item -&gt; fix(item)));
+ * </pre>
+ * Pages are handed to the {@link PageHandler} on the worker thread that read them. A value or key given twice
+ * may be read twice. An instance can be passed to changeset methods declaring a KeyFanOut parameter.
+ */
+public class KeyFanOut {
+  private static final Logger logger = LoggerFactory.getLogger(KeyFanOut.class);
+
+  public static final int MAX_BATCH_GET_KEYS = 100;
+
+  private static final int DEFAULT_THREADS = 8;
+  private static final int DEFAULT_MAX_RETRIES = 10;
+
+  private final DynamoDbClient dynamoDbClient;
+
+  private int threads = DEFAULT_THREADS;
+  private int threadPriority = Thread.NORM_PRIORITY;
+  private boolean consistentRead;
+  private List<String> projection;
+  private int maxRetries = DEFAULT_MAX_RETRIES;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  private final AtomicLong queryCount = new AtomicLong();
+  private final AtomicLong batchGetCount = new AtomicLong();
+  private final AtomicLong itemCount = new AtomicLong();
+
+  /**
+   * Callback receiving the items read, page by page
+   */
+  @FunctionalInterface
+  public interface PageHandler {
+    void handle(List<Map<String, AttributeValue>> items);
+  }
+
+  public KeyFanOut(DynamoDbClient dynamoDbClient) {
+    this.dynamoDbClient = dynamoDbClient;
+  }
+
+  /**
+   * Queries whole table partitions, one Query per partition key value, and waits for completion.
+   *
+   * @param tableName          table to read
+   * @param partitionKeyValues values of the table's partition key
+   * @param handler            page callback, invoked concurrently from several threads
+   */
+  public void queryPartitions(String tableName, Stream<AttributeValue> partitionKeyValues, PageHandler handler) {
+    String partitionKey = TableKeys.describe(dynamoDbClient, tableName).getPartitionKey();
+    fanOut(tableName, partitionKeyValues.map(value -> (Runnable) () ->
+        query(tableName, null, partitionKey, value, projection, consistentRead, handler)).iterator());
+  }
+
+  /**
+   * Queries partitions of a global or local secondary index and reads the items found from the table.
+   *
+   * @param tableName          table to read
+   * @param indexName          secondary index to query
+   * @param partitionKeyValues values of the index's partition key
+   * @param handler            page callback receiving table items, invoked concurrently from several threads
+   */
+  public void queryIndexPartitions(String tableName, String indexName, Stream<AttributeValue> partitionKeyValues,
+                                   PageHandler handler) {
+    TableDescription table = dynamoDbClient.describeTable(request -> request.tableName(tableName)).table();
+    TableKeys tableKeys = TableKeys.of(table.keySchema());
+    String partitionKey = TableKeys.ofIndex(table, indexName).getPartitionKey();
+    fanOut(tableName, partitionKeyValues.map(value -> (Runnable) () ->
+        query(tableName, indexName, partitionKey, value, tableKeys.names(), false, indexItems -> {
+          List<Map<String, AttributeValue>> keys = indexItems.stream()
+              .map(tableKeys::keyOf)
+              .distinct()
+              .collect(Collectors.toList());
+          for (int from = 0; from < keys.size(); from += MAX_BATCH_GET_KEYS) {
+            batchGet(tableName, keys.subList(from, Math.min(keys.size(), from + MAX_BATCH_GET_KEYS)), handler);
+          }
+        })).iterator());
+  }
+
+  /**
+   * Reads the items with the given keys with BatchGetItem, {@value #MAX_BATCH_GET_KEYS} keys per request,
+   * and waits for completion. Missing items are skipped.
+   *
+   * @param tableName table to read
+   * @param keys      primary keys of the items
+   * @param handler   page callback, invoked concurrently from several threads
+   */
+  public void getItems(String tableName, Stream<Map<String, AttributeValue>> keys, PageHandler handler) {
+    Iterator<Map<String, AttributeValue>> keyIterator = keys.iterator();
+    fanOut(tableName, new Iterator<>() {
+      @Override
+      public boolean hasNext() {
+        return keyIterator.hasNext();
+      }
+
+      @Override
+      public Runnable next() {
+        Set<Map<String, AttributeValue>> chunk = new LinkedHashSet<>();
+        while (chunk.size() < MAX_BATCH_GET_KEYS && keyIterator.hasNext()) {
+          chunk.add(keyIterator.next());
+        }
+        List<Map<String, AttributeValue>> chunkKeys = new ArrayList<>(chunk);
+        return () -> batchGet(tableName, chunkKeys, handler);
+      }
+    });
+  }
+
+  /**
+   * Runs the tasks on the reading threads, taking the next task only when a request slot is free
+   */
+  private void fanOut(String tableName, Iterator<Runnable> tasks) {
+    ExecutorService executor = MigrationExecutors.newPool("dynamobee-fanout-" + tableName, threads, threadPriority);
+    Semaphore slots = new Semaphore(threads * 2);
+    List<Future<?>> futures = new ArrayList<>();
+    try {
+      while (tasks.hasNext()) {
+        Runnable task = tasks.next();
+        slots.acquire();
+        futures.add(executor.submit(() -> {
+          try {
+            task.run();
+          } finally {
+            slots.release();
+          }
+        }));
+        if (futures.size() >= threads * 4) {
+          List<Future<?>> done = futures.stream().filter(Future::isDone).collect(Collectors.toList());
+          MigrationExecutors.awaitAll(done);
+          futures.removeAll(done);
+        }
+      }
+      MigrationExecutors.awaitAll(futures);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while reading " + tableName);
+    } finally {
+      executor.shutdownNow();
+    }
+    logger.debug("Read {} items from {} with {} queries and {} batch gets", itemCount.get(), tableName,
+        queryCount.get(), batchGetCount.get());
+  }
+
+  private void query(String tableName, String indexName, String partitionKey, AttributeValue value,
+                     List<String> attributes, boolean consistent, PageHandler handler) {
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    do {
+      capacityBudget.acquire();
+      if (Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("Query of " + tableName + " interrupted");
+      }
+      QueryResponse response = dynamoDbClient.query(
+          buildQuery(tableName, indexName, partitionKey, value, attributes, consistent, exclusiveStartKey));
+      queryCount.incrementAndGet();
+      capacityBudget.consume(response.consumedCapacity());
+      if (response.hasItems() && !response.items().isEmpty()) {
+        if (indexName == null) {
+          itemCount.addAndGet(response.items().size());
+        }
+        handler.handle(response.items());
+      }
+      exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+          ? response.lastEvaluatedKey()
+          : null;
+    } while (exclusiveStartKey != null);
+  }
+
+  private QueryRequest buildQuery(String tableName, String indexName, String partitionKey, AttributeValue value,
+                                  List<String> attributes, boolean consistent,
+                                  Map<String, AttributeValue> exclusiveStartKey) {
+    Map<String, String> names = new HashMap<>();
+    names.put("#pk", partitionKey);
+    QueryRequest.Builder builder = QueryRequest.builder()
+        .tableName(tableName)
+        .indexName(indexName)
+        .keyConditionExpression("#pk = :pk")
+        .expressionAttributeValues(Map.of(":pk", value))
+        .consistentRead(consistent ? Boolean.TRUE : null)
+        .exclusiveStartKey(exclusiveStartKey)
+        .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL);
+    if (attributes != null) {
+      builder.projectionExpression(project(attributes, names));
+    }
+    return builder.expressionAttributeNames(names).build();
+  }
+
+  private void batchGet(String tableName, List<Map<String, AttributeValue>> keys, PageHandler handler) {
+    KeysAndAttributes.Builder keysAndAttributes = KeysAndAttributes.builder()
+        .keys(keys)
+        .consistentRead(consistentRead ? Boolean.TRUE : null);
+    if (projection != null) {
+      Map<String, String> names = new HashMap<>();
+      keysAndAttributes.projectionExpression(project(projection, names)).expressionAttributeNames(names);
+    }
+    Map<String, KeysAndAttributes> requestItems = Map.of(tableName, keysAndAttributes.build());
+    for (int attempt = 0; !requestItems.isEmpty(); attempt++) {
+      if (attempt > maxRetries) {
+        throw new IllegalStateException(requestItems.get(tableName).keys().size() + " keys of " + tableName
+            + " still unprocessed after " + maxRetries + " retries");
+      }
+      if (attempt > 0) {
+        BatchWriter.backoff(attempt);
+      }
+      Map<String, KeysAndAttributes> pending = requestItems;
+      capacityBudget.acquire();
+      BatchGetItemResponse response = dynamoDbClient.batchGetItem(request -> request
+          .requestItems(pending)
+          .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL));
+      batchGetCount.incrementAndGet();
+      if (response.hasConsumedCapacity()) {
+        response.consumedCapacity().forEach(capacityBudget::consume);
+      }
+      List<Map<String, AttributeValue>> items = response.responses().getOrDefault(tableName, List.of());
+      if (!items.isEmpty()) {
+        itemCount.addAndGet(items.size());
+        handler.handle(items);
+      }
+      requestItems = response.hasUnprocessedKeys() ? response.unprocessedKeys() : Map.of();
+    }
+  }
+
+  private static String project(List<String> attributes, Map<String, String> names) {
+    List<String> placeholders = new ArrayList<>(attributes.size());
+    for (int i = 0; i < attributes.size(); i++) {
+      names.put("#prj" + i, attributes.get(i));
+      placeholders.add("#prj" + i);
+    }
+    return String.join(", ", placeholders);
+  }
+
+  public long getQueryCount() {
+    return queryCount.get();
+  }
+
+  public long getBatchGetCount() {
+    return batchGetCount.get();
+  }
+
+  /**
+   * @return items handed to page handlers so far
+   */
+  public long getItemCount() {
+    return itemCount.get();
+  }
+
+  /**
+   * @param threads maximum number of concurrent requests (default 8)
+   * @return KeyFanOut object for fluent interface
+   */
+  public KeyFanOut setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param threadPriority priority of the reading threads
+   * @return KeyFanOut object for fluent interface
+   */
+  public KeyFanOut setThreadPriority(int threadPriority) {
+    this.threadPriority = threadPriority;
+    return this;
+  }
+
+  /**
+   * @param consistentRead strongly consistent table reads; index queries are always eventually consistent
+   * @return KeyFanOut object for fluent interface
+   */
+  public KeyFanOut setConsistentRead(boolean consistentRead) {
+    this.consistentRead = consistentRead;
+    return this;
+  }
+
+  /**
+   * @param attributes attributes of the table items to read, or none to read whole items (default)
+   * @return KeyFanOut object for fluent interface
+   */
+  public KeyFanOut setProjection(String... attributes) {
+    this.projection = attributes == null || attributes.length == 0 ? null : List.of(attributes);
+    return this;
+  }
+
+  /**
+   * @param maxRetries retries of unprocessed keys before giving up (default 10)
+   * @return KeyFanOut object for fluent interface
+   */
+  public KeyFanOut setMaxRetries(int maxRetries) {
+    this.maxRetries = maxRetries;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by all reading threads
+   * @return KeyFanOut object for fluent interface
+   */
+  public KeyFanOut setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
@@ -0,0 +1,87 @@
+package com.github.dynamobee.migration;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Thread pools used by the migration helpers
+ */
+public final class MigrationExecutors {
+
+  private MigrationExecutors() {
+  }
+
+  /**
+   * @param name     thread name prefix
+   * @param threads  pool size
+   * @param priority thread priority, e.g. {@link Thread#MIN_PRIORITY} for background work
+   * @return fixed pool of daemon threads
+   */
+  public static ExecutorService newPool(String name, int threads, int priority) {
+    return Executors.newFixedThreadPool(threads, threadFactory(name, priority));
+  }
+
+  /**
+   * @param name          thread name prefix
+   * @param threads       pool size
+   * @param priority      thread priority
+   * @param queueCapacity tasks waiting at most; further tasks are rejected with a RejectedExecutionException,
+   *                      for callers which discard work that can be skipped
+   * @return fixed pool of daemon threads with a bounded queue
+   */
+  public static ExecutorService newBoundedPool(String name, int threads, int priority, int queueCapacity) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), threadFactory(name, priority), new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  public static ExecutorService newPool(String name, int threads) {
+    return newPool(name, threads, Thread.NORM_PRIORITY);
+  }
+
+  public static ThreadFactory threadFactory(String name, int priority) {
+    AtomicInteger counter = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(priority);
+      return thread;
+    };
+  }
+
+  /**
+   * Waits for all futures; on the first failure the remaining ones are cancelled and the cause rethrown.
+   *
+   * @param futures futures to wait for
+   */
+  public static void awaitAll(List<? extends Future<?>> futures) {
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for migration workers");
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause.getMessage(), cause);
+    }
+  }
+}
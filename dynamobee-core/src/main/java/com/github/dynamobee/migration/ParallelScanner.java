@@ -0,0 +1,274 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+
+/**
+ * Parallel segmented scan of a table (or index), one worker thread per segment at most.
+ * Pages are handed to a {@link PageHandler} on the worker thread that read them.
+ */
+public class ParallelScanner {
+  private static final Logger logger = LoggerFactory.getLogger(ParallelScanner.class);
+
+  private static final int DEFAULT_TOTAL_SEGMENTS = 8;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  private String indexName;
+  private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+  private int threads = DEFAULT_TOTAL_SEGMENTS;
+  private int threadPriority = Thread.NORM_PRIORITY;
+  private Integer pageSize;
+  private boolean consistentRead;
+  private List<String> projection;
+  private String filterExpression;
+  private final Map<String, String> expressionAttributeNames = new HashMap<>();
+  private final Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+  private BooleanSupplier stopCondition = () -> false;
+
+  /**
+   * Callback receiving the items of a scan, page by page
+   */
+  @FunctionalInterface
+  public interface PageHandler {
+    void handle(ScanSegment segment, List<Map<String, AttributeValue>> items);
+  }
+
+  public ParallelScanner(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * Scans all segments in parallel and waits for completion.
+   *
+   * @param handler page callback, invoked concurrently from several threads
+   */
+  public void scan(PageHandler handler) {
+    scan(IntStream.range(0, totalSegments).boxed().collect(Collectors.toList()), handler);
+  }
+
+  /**
+   * Scans the given segments in parallel and waits for completion.
+   *
+   * @param segments segment numbers, each lower than {@link #getTotalSegments()}
+   * @param handler  page callback, invoked concurrently from several threads
+   */
+  public void scan(Collection<Integer> segments, PageHandler handler) {
+    if (segments.isEmpty()) {
+      return;
+    }
+    ExecutorService executor = MigrationExecutors.newPool("dynamobee-scan-" + tableName,
+        Math.min(threads, segments.size()), threadPriority);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Integer segment : segments) {
+        ScanSegment scanSegment = new ScanSegment(segment, totalSegments);
+        futures.add(executor.submit(() -> scanSegment(scanSegment, handler)));
+      }
+      MigrationExecutors.awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Scans a single segment on the calling thread.
+   *
+   * @param segment segment to scan
+   * @param handler page callback
+   * @throws CancellationException if the stop condition is met or the thread is interrupted before the last page,
+   *                               so a partial scan is never mistaken for a complete one
+   */
+  public void scanSegment(ScanSegment segment, PageHandler handler) {
+    Map<String, AttributeValue> exclusiveStartKey = null;
+    long items = 0;
+    do {
+      capacityBudget.acquire();
+      if (stopCondition.getAsBoolean()) {
+        throw new CancellationException("Scan of " + tableName + " stopped at " + segment);
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("Scan of " + tableName + " interrupted at " + segment);
+      }
+      ScanResponse response = dynamoDbClient.scan(buildRequest(segment, exclusiveStartKey));
+      capacityBudget.consume(response.consumedCapacity());
+      if (response.hasItems() && !response.items().isEmpty()) {
+        items += response.items().size();
+        handler.handle(segment, response.items());
+      }
+      exclusiveStartKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+          ? response.lastEvaluatedKey()
+          : null;
+    } while (exclusiveStartKey != null);
+    logger.debug("Scanned {} items from {} {}", items, tableName, segment);
+  }
+
+  private ScanRequest buildRequest(ScanSegment segment, Map<String, AttributeValue> exclusiveStartKey) {
+    ScanRequest.Builder builder = ScanRequest.builder()
+        .tableName(tableName)
+        .indexName(indexName)
+        .segment(segment.getSegment())
+        .totalSegments(segment.getTotalSegments())
+        .limit(pageSize)
+        .consistentRead(consistentRead ? Boolean.TRUE : null)
+        .exclusiveStartKey(exclusiveStartKey)
+        .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL);
+
+    Map<String, String> names = new HashMap<>(expressionAttributeNames);
+    if (projection != null) {
+      List<String> placeholders = new ArrayList<>();
+      for (int i = 0; i < projection.size(); i++) {
+        names.put("#prj" + i, projection.get(i));
+        placeholders.add("#prj" + i);
+      }
+      builder.projectionExpression(String.join(", ", placeholders));
+    }
+    if (filterExpression != null) {
+      builder.filterExpression(filterExpression);
+    }
+    if (!names.isEmpty()) {
+      builder.expressionAttributeNames(names);
+    }
+    if (!expressionAttributeValues.isEmpty()) {
+      builder.expressionAttributeValues(expressionAttributeValues);
+    }
+    return builder.build();
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public int getTotalSegments() {
+    return totalSegments;
+  }
+
+  /**
+   * @param indexName secondary index to scan instead of the table
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setIndexName(String indexName) {
+    this.indexName = indexName;
+    return this;
+  }
+
+  /**
+   * @param totalSegments number of scan segments, also the default number of threads
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setTotalSegments(int totalSegments) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be positive");
+    }
+    this.totalSegments = totalSegments;
+    this.threads = totalSegments;
+    return this;
+  }
+
+  /**
+   * @param threads maximum number of segments scanned concurrently
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be positive");
+    }
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param threadPriority priority of the scanning threads
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setThreadPriority(int threadPriority) {
+    this.threadPriority = threadPriority;
+    return this;
+  }
+
+  /**
+   * @param pageSize maximum number of items evaluated per Scan call
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setPageSize(Integer pageSize) {
+    this.pageSize = pageSize;
+    return this;
+  }
+
+  public ParallelScanner setConsistentRead(boolean consistentRead) {
+    this.consistentRead = consistentRead;
+    return this;
+  }
+
+  /**
+   * Reads only the given attributes; read units are still charged for the full items
+   * but less data is transferred and processed.
+   *
+   * @param attributes attribute names to project
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setProjection(String... attributes) {
+    this.projection = attributes == null || attributes.length == 0 ? null : List.of(attributes);
+    return this;
+  }
+
+  /**
+   * @param filterExpression filter expression, placeholders must be registered with
+   *                         {@link #putExpressionAttributeName} / {@link #putExpressionAttributeValue}
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setFilterExpression(String filterExpression) {
+    this.filterExpression = filterExpression;
+    return this;
+  }
+
+  public ParallelScanner putExpressionAttributeName(String placeholder, String attributeName) {
+    this.expressionAttributeNames.put(placeholder, attributeName);
+    return this;
+  }
+
+  public ParallelScanner putExpressionAttributeValue(String placeholder, AttributeValue value) {
+    this.expressionAttributeValues.put(placeholder, value);
+    return this;
+  }
+
+  /**
+   * Checked before every page, including after pages the filter emptied, which are not handed to the handler
+   *
+   * @param stopCondition true to stop the scan with a CancellationException
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setStopCondition(BooleanSupplier stopCondition) {
+    this.stopCondition = stopCondition;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by all scanning threads
+   * @return ParallelScanner object for fluent interface
+   */
+  public ParallelScanner setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
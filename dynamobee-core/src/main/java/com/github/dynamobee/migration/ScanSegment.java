@@ -0,0 +1,50 @@
+package com.github.dynamobee.migration;
+
+import java.util.Objects;
+
+
+/**
+ * One segment of a parallel scan, see {@link software.amazon.awssdk.services.dynamodb.model.ScanRequest#segment()}
+ */
+public final class ScanSegment {
+  private final int segment;
+  private final int totalSegments;
+
+  public ScanSegment(int segment, int totalSegments) {
+    if (totalSegments < 1 || segment < 0 || segment >= totalSegments) {
+      throw new IllegalArgumentException("Invalid scan segment " + segment + " of " + totalSegments);
+    }
+    this.segment = segment;
+    this.totalSegments = totalSegments;
+  }
+
+  public int getSegment() {
+    return segment;
+  }
+
+  public int getTotalSegments() {
+    return totalSegments;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ScanSegment)) {
+      return false;
+    }
+    ScanSegment that = (ScanSegment) o;
+    return segment == that.segment && totalSegments == that.totalSegments;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(segment, totalSegments);
+  }
+
+  @Override
+  public String toString() {
+    return "[ScanSegment: " + segment + "/" + totalSegments + "]";
+  }
+}
@@ -0,0 +1,54 @@
+package com.github.dynamobee.migration;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Order-independent digest of a set of items (count, sum and xor of their 64 bit hashes).
+ * Items can be added concurrently and in any order; equal sets give equal digests.
+ */
+public final class SetDigest {
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong xor = new AtomicLong();
+
+  public void add(Map<String, AttributeValue> item) {
+    add(ItemDigests.hash64(item));
+  }
+
+  public void add(long itemHash) {
+    count.increment();
+    sum.add(itemHash);
+    xor.accumulateAndGet(itemHash, (a, b) -> a ^ b);
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SetDigest)) {
+      return false;
+    }
+    SetDigest that = (SetDigest) o;
+    return count.sum() == that.count.sum() && sum.sum() == that.sum.sum() && xor.get() == that.xor.get();
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(sum.sum() ^ xor.get());
+  }
+
+  @Override
+  public String toString() {
+    return "[SetDigest: count=" + count.sum() + ", sum=" + Long.toHexString(sum.sum())
+        + ", xor=" + Long.toHexString(xor.get()) + "]";
+  }
+}
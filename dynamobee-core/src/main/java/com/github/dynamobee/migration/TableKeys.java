@@ -0,0 +1,109 @@
+package com.github.dynamobee.migration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+
+
+/**
+ * Primary key attribute names of a table
+ */
+public final class TableKeys {
+  private final String partitionKey;
+  private final String sortKey;
+
+  public TableKeys(String partitionKey, String sortKey) {
+    this.partitionKey = partitionKey;
+    this.sortKey = sortKey;
+  }
+
+  /**
+   * @param dynamoDbClient client
+   * @param tableName      table to describe
+   * @return key attribute names of the table
+   */
+  public static TableKeys describe(DynamoDbClient dynamoDbClient, String tableName) {
+    return of(dynamoDbClient.describeTable(request -> request.tableName(tableName)).table().keySchema());
+  }
+
+  public static TableKeys of(List<KeySchemaElement> keySchema) {
+    String partitionKey = null;
+    String sortKey = null;
+    for (KeySchemaElement element : keySchema) {
+      if (element.keyType() == KeyType.HASH) {
+        partitionKey = element.attributeName();
+      } else if (element.keyType() == KeyType.RANGE) {
+        sortKey = element.attributeName();
+      }
+    }
+    return new TableKeys(partitionKey, sortKey);
+  }
+
+  /**
+   * @param table     described table
+   * @param indexName global or local secondary index of the table
+   * @return key attribute names of the index
+   */
+  public static TableKeys ofIndex(TableDescription table, String indexName) {
+    if (table.hasGlobalSecondaryIndexes()) {
+      for (GlobalSecondaryIndexDescription index : table.globalSecondaryIndexes()) {
+        if (index.indexName().equals(indexName)) {
+          return of(index.keySchema());
+        }
+      }
+    }
+    if (table.hasLocalSecondaryIndexes()) {
+      for (LocalSecondaryIndexDescription index : table.localSecondaryIndexes()) {
+        if (index.indexName().equals(indexName)) {
+          return of(index.keySchema());
+        }
+      }
+    }
+    throw new IllegalArgumentException("Table " + table.tableName() + " has no index " + indexName);
+  }
+
+  public String getPartitionKey() {
+    return partitionKey;
+  }
+
+  public Optional<String> getSortKey() {
+    return Optional.ofNullable(sortKey);
+  }
+
+  /**
+   * @return the key attribute names, partition key first
+   */
+  public List<String> names() {
+    List<String> names = new ArrayList<>(2);
+    names.add(partitionKey);
+    if (sortKey != null) {
+      names.add(sortKey);
+    }
+    return names;
+  }
+
+  /**
+   * @param item full item, or any map containing the key attributes
+   * @return the primary key of the item
+   */
+  public Map<String, AttributeValue> keyOf(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> key = new HashMap<>(4);
+    for (String name : names()) {
+      AttributeValue value = item.get(name);
+      if (value == null) {
+        throw new IllegalArgumentException("Item has no key attribute " + name);
+      }
+      key.put(name, value);
+    }
+    return key;
+  }
+}
@@ -0,0 +1,384 @@
+package com.github.dynamobee.migration.backfill;
+
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.DeltaWrite;
+import com.github.dynamobee.migration.DeltaWriter;
+import com.github.dynamobee.migration.ItemTransformer;
+import com.github.dynamobee.migration.KeyFanOut;
+import com.github.dynamobee.migration.ParallelScanner;
+import com.github.dynamobee.migration.ScanSegment;
+import com.github.dynamobee.migration.TableKeys;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+
+/**
+ * Rewrites every item of a table through a transformer while the table keeps serving traffic.
+ * <p>
+ * Each rewrite is a conditional UpdateItem which only succeeds if the stored item is still the one that was
+ * transformed: its version attribute is unchanged (see {@link #setVersionAttribute}) or, by default,
+ * all of its attribute values are. Items modified concurrently go on a retry queue; they are re-read
+ * with consistent reads, transformed again and rewritten, up to {@link #setMaxConflictRetries} times.
+ * <pre>
+ *   BackfillResult result = new Backfill(db, "orders")
+ *       .setTransformer(item -&gt; withTotal(item))
+ *       .setVersionAttribute("version")
+ *       .run();
+ * </pre>
+ * The transformer must not change the primary key and may return null to leave an item untouched.
+ * <p>
+ * Rewrites only send the changed attributes (see {@link DeltaWriter}); with {@link #setProjection} the scan
+ * also reads only the attributes the transformer needs.
+ * <p>
+ * When the affected items are known, {@link #runForPartitions}, {@link #runForIndexPartitions} and
+ * {@link #runForKeys} read just those items with a {@link KeyFanOut} instead of scanning the table.
+ */
+public class Backfill {
+  private static final Logger logger = LoggerFactory.getLogger(Backfill.class);
+
+  private static final int DEFAULT_TOTAL_SEGMENTS = 8;
+  private static final int DEFAULT_MAX_CONFLICT_RETRIES = 5;
+  private static final int MAX_BATCH_GET_KEYS = 100;
+  private static final long BASE_BACKOFF_MILLIS = 20;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  private ItemTransformer transformer = item -> null;
+  private String versionAttribute;
+  private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+  private int threads = DEFAULT_TOTAL_SEGMENTS;
+  private int maxConflictRetries = DEFAULT_MAX_CONFLICT_RETRIES;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+  private List<String> projection;
+  private final DeltaWriter deltaWriter;
+
+  private final AtomicLong scanned = new AtomicLong();
+  private final AtomicLong updated = new AtomicLong();
+  private final AtomicLong unchanged = new AtomicLong();
+  private final AtomicLong conflicts = new AtomicLong();
+  private final AtomicLong resolvedConflicts = new AtomicLong();
+  private final AtomicLong deleted = new AtomicLong();
+  private final AtomicLong unresolved = new AtomicLong();
+
+  public Backfill(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+    this.deltaWriter = new DeltaWriter(dynamoDbClient, tableName).setPutFallback(false);
+  }
+
+  /**
+   * Backfills the whole table with a parallel scan.
+   *
+   * @return counters of this run
+   */
+  public BackfillResult run() {
+    logger.info("Backfilling {} with {} segments", tableName, totalSegments);
+    scanner().scan((segment, items) -> process(segment.toString(), items));
+    return result();
+  }
+
+  /**
+   * Backfills one segment on the calling thread, e.g. the segment of a distributed changeset.
+   *
+   * @param segment segment to process
+   * @return counters of this Backfill so far
+   */
+  public BackfillResult run(ScanSegment segment) {
+    new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(segment.getTotalSegments())
+        .setCapacityBudget(capacityBudget)
+        .setProjection(projectedAttributes())
+        .scanSegment(segment, (scanSegment, items) -> process(scanSegment.toString(), items));
+    return result();
+  }
+
+  /**
+   * Backfills the items of the given partitions, queried concurrently.
+   *
+   * @param partitionKeyValues values of the table's partition key
+   * @return counters of this Backfill so far
+   */
+  public BackfillResult runForPartitions(Stream<AttributeValue> partitionKeyValues) {
+    logger.info("Backfilling partitions of {}", tableName);
+    fanOut().queryPartitions(tableName, partitionKeyValues, items -> process("partition", items));
+    return result();
+  }
+
+  /**
+   * Backfills the items found in the given partitions of a secondary index.
+   *
+   * @param indexName          global or local secondary index
+   * @param partitionKeyValues values of the index's partition key
+   * @return counters of this Backfill so far
+   */
+  public BackfillResult runForIndexPartitions(String indexName, Stream<AttributeValue> partitionKeyValues) {
+    logger.info("Backfilling {} partitions of {}", indexName, tableName);
+    fanOut().queryIndexPartitions(tableName, indexName, partitionKeyValues,
+        items -> process(indexName + " partition", items));
+    return result();
+  }
+
+  /**
+   * Backfills the items with the given keys, read with concurrent BatchGetItem calls.
+   *
+   * @param keys primary keys of the items; missing items are skipped
+   * @return counters of this Backfill so far
+   */
+  public BackfillResult runForKeys(Stream<Map<String, AttributeValue>> keys) {
+    logger.info("Backfilling items of {} by key", tableName);
+    fanOut().getItems(tableName, keys, items -> process("batch", items));
+    return result();
+  }
+
+  private BackfillResult result() {
+    BackfillResult result = new BackfillResult(scanned.get(), updated.get(), unchanged.get(), conflicts.get(),
+        resolvedConflicts.get(), deleted.get(), unresolved.get());
+    if (result.isComplete()) {
+      logger.info("Backfill of {}: {}", tableName, result);
+    } else {
+      logger.warn("Backfill of {} left items unresolved: {}", tableName, result);
+    }
+    return result;
+  }
+
+  /**
+   * Rewrites a page of items, then works off the retry queue of items which conflicted
+   */
+  private void process(String origin, List<Map<String, AttributeValue>> items) {
+    scanned.addAndGet(items.size());
+    List<Map<String, AttributeValue>> retryQueue = new ArrayList<>();
+    for (Map<String, AttributeValue> item : items) {
+      if (rewrite(item) == Outcome.CONFLICT) {
+        retryQueue.add(keys().keyOf(item));
+      }
+    }
+
+    for (int attempt = 1; !retryQueue.isEmpty(); attempt++) {
+      if (attempt > maxConflictRetries) {
+        unresolved.addAndGet(retryQueue.size());
+        logger.warn("{} items of {} {} still conflict after {} retries", retryQueue.size(), tableName, origin,
+            maxConflictRetries);
+        return;
+      }
+      backoff(attempt);
+      List<Map<String, AttributeValue>> stillConflicting = new ArrayList<>();
+      List<Map<String, AttributeValue>> current = reread(retryQueue);
+      deleted.addAndGet(retryQueue.size() - current.size());
+      for (Map<String, AttributeValue> item : current) {
+        if (rewrite(item) == Outcome.CONFLICT) {
+          stillConflicting.add(keys().keyOf(item));
+        } else {
+          resolvedConflicts.incrementAndGet();
+        }
+      }
+      retryQueue = stillConflicting;
+    }
+  }
+
+  private enum Outcome { UPDATED, UNCHANGED, CONFLICT }
+
+  private Outcome rewrite(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> transformed = transformer.transform(item);
+    DeltaWrite write = transformed == null
+        ? null
+        : ConditionalUpdate.build(deltaWriter, versionAttribute, item, transformed);
+    if (write == null) {
+      unchanged.incrementAndGet();
+      return Outcome.UNCHANGED;
+    }
+
+    try {
+      deltaWriter.execute(write);
+      updated.incrementAndGet();
+      return Outcome.UPDATED;
+    } catch (ConditionalCheckFailedException e) {
+      capacityBudget.consume(1);
+      conflicts.incrementAndGet();
+      return Outcome.CONFLICT;
+    }
+  }
+
+  /**
+   * @return the current version of the items which still exist
+   */
+  private List<Map<String, AttributeValue>> reread(List<Map<String, AttributeValue>> itemKeys) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>(itemKeys.size());
+    for (int from = 0; from < itemKeys.size(); from += MAX_BATCH_GET_KEYS) {
+      KeysAndAttributes.Builder keysAndAttributes = KeysAndAttributes.builder()
+          .keys(itemKeys.subList(from, Math.min(itemKeys.size(), from + MAX_BATCH_GET_KEYS)))
+          .consistentRead(true);
+      String[] projectedAttributes = projectedAttributes();
+      if (projectedAttributes != null) {
+        Map<String, String> names = new HashMap<>();
+        List<String> placeholders = new ArrayList<>(projectedAttributes.length);
+        for (int i = 0; i < projectedAttributes.length; i++) {
+          names.put("#prj" + i, projectedAttributes[i]);
+          placeholders.add("#prj" + i);
+        }
+        keysAndAttributes.projectionExpression(String.join(", ", placeholders)).expressionAttributeNames(names);
+      }
+      Map<String, KeysAndAttributes> requestItems = Map.of(tableName, keysAndAttributes.build());
+      for (int attempt = 0; !requestItems.isEmpty(); attempt++) {
+        if (attempt > 0) {
+          backoff(attempt);
+        }
+        Map<String, KeysAndAttributes> pending = requestItems;
+        capacityBudget.acquire();
+        BatchGetItemResponse response = dynamoDbClient.batchGetItem(request -> request
+            .requestItems(pending)
+            .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL));
+        if (response.hasConsumedCapacity()) {
+          response.consumedCapacity().forEach(capacityBudget::consume);
+        }
+        items.addAll(response.responses().getOrDefault(tableName, List.of()));
+        requestItems = response.hasUnprocessedKeys() ? response.unprocessedKeys() : Map.of();
+      }
+    }
+    return items;
+  }
+
+  private TableKeys keys() {
+    return deltaWriter.getKeys();
+  }
+
+  /**
+   * @return the projection plus the key and version attributes, or null to read whole items
+   */
+  private String[] projectedAttributes() {
+    if (projection == null) {
+      return null;
+    }
+    Set<String> attributes = new LinkedHashSet<>(keys().names());
+    if (versionAttribute != null) {
+      attributes.add(versionAttribute);
+    }
+    attributes.addAll(projection);
+    return attributes.toArray(new String[0]);
+  }
+
+  private static void backoff(int attempt) {
+    long millis = BASE_BACKOFF_MILLIS << Math.min(attempt, 8);
+    try {
+      Thread.sleep(millis / 2 + (long) (Math.random() * millis / 2));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while retrying conflicting items", e);
+    }
+  }
+
+  private KeyFanOut fanOut() {
+    return new KeyFanOut(dynamoDbClient)
+        .setThreads(threads)
+        .setCapacityBudget(capacityBudget)
+        .setProjection(projectedAttributes());
+  }
+
+  private ParallelScanner scanner() {
+    return new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(totalSegments)
+        .setThreads(threads)
+        .setCapacityBudget(capacityBudget)
+        .setProjection(projectedAttributes());
+  }
+
+  /**
+   * @param transformer computes the new version of an item; null or an equal item leaves it untouched
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setTransformer(ItemTransformer transformer) {
+    this.transformer = transformer;
+    return this;
+  }
+
+  /**
+   * Numeric attribute incremented by every write of the application. Rewrites are then conditioned
+   * on this attribute only and increment it; without it they are conditioned on all original values.
+   *
+   * @param versionAttribute name of the version attribute, or null (default)
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setVersionAttribute(String versionAttribute) {
+    this.versionAttribute = versionAttribute;
+    updatePutFallback();
+    return this;
+  }
+
+  /**
+   * @param totalSegments number of scan segments (default 8)
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setTotalSegments(int totalSegments) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be positive");
+    }
+    this.totalSegments = totalSegments;
+    this.threads = totalSegments;
+    return this;
+  }
+
+  /**
+   * @param threads segments processed in parallel (default: one per segment), or concurrent requests
+   *                of the targeted runs
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param maxConflictRetries how often a conflicting item is re-read and rewritten before giving up (default 5)
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setMaxConflictRetries(int maxConflictRetries) {
+    this.maxConflictRetries = maxConflictRetries;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by the reads, the re-reads and the writes
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    this.deltaWriter.setCapacityBudget(capacityBudget);
+    return this;
+  }
+
+  /**
+   * Reads only the given attributes (plus the key and version attributes) for narrow changes:
+   * the transformer then receives partial items, and attributes outside the projection are left as they are.
+   * Without version attribute, rewrites are conditioned on the projected values only.
+   *
+   * @param attributes attributes read and rewritten, or none to read whole items (default)
+   * @return Backfill object for fluent interface
+   */
+  public Backfill setProjection(String... attributes) {
+    this.projection = attributes == null || attributes.length == 0 ? null : List.of(attributes);
+    updatePutFallback();
+    return this;
+  }
+
+  /**
+   * A put replaces attributes added by concurrent writers, which only a version condition detects;
+   * without version attribute the condition covers the original and transformed attributes only
+   */
+  private void updatePutFallback() {
+    deltaWriter.setPutFallback(projection == null && versionAttribute != null);
+  }
+}
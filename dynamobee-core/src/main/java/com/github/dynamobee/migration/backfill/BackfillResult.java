@@ -0,0 +1,86 @@
+package com.github.dynamobee.migration.backfill;
+
+
+/**
+ * Counters of a {@link Backfill} run
+ */
+public final class BackfillResult {
+  private final long scanned;
+  private final long updated;
+  private final long unchanged;
+  private final long conflicts;
+  private final long resolvedConflicts;
+  private final long deleted;
+  private final long unresolved;
+
+  BackfillResult(long scanned, long updated, long unchanged, long conflicts, long resolvedConflicts, long deleted,
+                 long unresolved) {
+    this.scanned = scanned;
+    this.updated = updated;
+    this.unchanged = unchanged;
+    this.conflicts = conflicts;
+    this.resolvedConflicts = resolvedConflicts;
+    this.deleted = deleted;
+    this.unresolved = unresolved;
+  }
+
+  /**
+   * @return items read by the scan
+   */
+  public long getScanned() {
+    return scanned;
+  }
+
+  /**
+   * @return items rewritten, including those rewritten after a conflict
+   */
+  public long getUpdated() {
+    return updated;
+  }
+
+  /**
+   * @return items the transformer left untouched
+   */
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  /**
+   * @return failed conditional writes, i.e. concurrent modifications detected
+   */
+  public long getConflicts() {
+    return conflicts;
+  }
+
+  /**
+   * @return conflicting items eventually rewritten (or found unchanged) after being re-read
+   */
+  public long getResolvedConflicts() {
+    return resolvedConflicts;
+  }
+
+  /**
+   * @return conflicting items deleted concurrently
+   */
+  public long getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * @return items still conflicting after all retries; they were not rewritten
+   */
+  public long getUnresolved() {
+    return unresolved;
+  }
+
+  public boolean isComplete() {
+    return unresolved == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "[BackfillResult: scanned=" + scanned + ", updated=" + updated + ", unchanged=" + unchanged
+        + ", conflicts=" + conflicts + ", resolvedConflicts=" + resolvedConflicts + ", deleted=" + deleted
+        + ", unresolved=" + unresolved + "]";
+  }
+}
@@ -0,0 +1,76 @@
+package com.github.dynamobee.migration.backfill;
+
+import com.github.dynamobee.migration.DeltaWrite;
+import com.github.dynamobee.migration.DeltaWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Builds the delta write turning the original item into the transformed one, conditioned on the stored item
+ * still being the original: either on an unchanged version attribute (which is incremented)
+ * or, without version attribute, on every original attribute value.
+ */
+final class ConditionalUpdate {
+
+  private ConditionalUpdate() {
+  }
+
+  /**
+   * @return the write, or null if the transformed item does not differ from the original
+   */
+  static DeltaWrite build(DeltaWriter writer, String versionAttribute, Map<String, AttributeValue> original,
+                          Map<String, AttributeValue> transformed) {
+    Map<String, AttributeValue> after = transformed;
+    AttributeValue version = versionAttribute == null ? null : original.get(versionAttribute);
+    if (versionAttribute != null) {
+      after = new HashMap<>(transformed);
+      long next = version == null ? 1 : Long.parseLong(version.n()) + 1;
+      after.put(versionAttribute, AttributeValue.builder().n(Long.toString(next)).build());
+    }
+    DeltaWrite write = writer.prepare(original, after);
+    if (write == null
+        || (versionAttribute != null && write.getDelta().getChangedAttributes().equals(List.of(versionAttribute)))) {
+      return null;
+    }
+
+    Map<String, String> names = new HashMap<>();
+    Map<String, AttributeValue> values = new HashMap<>();
+    List<String> conditions = new ArrayList<>();
+    names.put("#pk", writer.getKeys().getPartitionKey());
+    conditions.add("attribute_exists(#pk)");
+
+    if (versionAttribute != null) {
+      names.put("#ver", versionAttribute);
+      if (version == null) {
+        conditions.add("attribute_not_exists(#ver)");
+      } else {
+        values.put(":ver", version);
+        conditions.add("#ver = :ver");
+      }
+    } else {
+      Set<String> attributes = new LinkedHashSet<>(original.keySet());
+      attributes.addAll(transformed.keySet());
+      attributes.removeAll(writer.getKeys().names());
+      int i = 0;
+      for (String attribute : attributes) {
+        String name = "#c" + i;
+        names.put(name, attribute);
+        AttributeValue before = original.get(attribute);
+        if (before == null) {
+          conditions.add("attribute_not_exists(" + name + ")");
+        } else {
+          values.put(":c" + i, before);
+          conditions.add(name + " = :c" + i);
+        }
+        i++;
+      }
+    }
+    return write.withCondition(String.join(" AND ", conditions), names, values);
+  }
+}
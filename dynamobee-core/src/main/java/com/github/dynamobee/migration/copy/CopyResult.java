@@ -0,0 +1,58 @@
+package com.github.dynamobee.migration.copy;
+
+import java.util.Set;
+
+
+/**
+ * Outcome of a {@link TableCopier} run
+ */
+public final class CopyResult {
+  private final long copiedItems;
+  private final long skippedItems;
+  private final int repairRounds;
+  private final Set<Integer> mismatchedSegments;
+
+  CopyResult(long copiedItems, long skippedItems, int repairRounds, Set<Integer> mismatchedSegments) {
+    this.copiedItems = copiedItems;
+    this.skippedItems = skippedItems;
+    this.repairRounds = repairRounds;
+    this.mismatchedSegments = Set.copyOf(mismatchedSegments);
+  }
+
+  public long getCopiedItems() {
+    return copiedItems;
+  }
+
+  /**
+   * @return source items the mapper returned null for
+   */
+  public long getSkippedItems() {
+    return skippedItems;
+  }
+
+  /**
+   * @return number of re-copy rounds needed until the digests matched (or gave up)
+   */
+  public int getRepairRounds() {
+    return repairRounds;
+  }
+
+  /**
+   * @return digest segments still differing after the last repair round
+   */
+  public Set<Integer> getMismatchedSegments() {
+    return mismatchedSegments;
+  }
+
+  public boolean isVerified() {
+    return mismatchedSegments.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "[CopyResult: copied=" + copiedItems +
+        ", skipped=" + skippedItems +
+        ", repairRounds=" + repairRounds +
+        ", mismatchedSegments=" + mismatchedSegments + "]";
+  }
+}
@@ -0,0 +1,265 @@
+package com.github.dynamobee.migration.copy;
+
+import com.github.dynamobee.migration.BatchWriter;
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.ItemDigests;
+import com.github.dynamobee.migration.ItemTransformer;
+import com.github.dynamobee.migration.MigrationExecutors;
+import com.github.dynamobee.migration.ParallelScanner;
+import com.github.dynamobee.migration.SetDigest;
+import com.github.dynamobee.migration.TableKeys;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Copies (and optionally reshapes) a table into another one and verifies the result.
+ * <p>
+ * The copy is a parallel segmented scan of the source whose pages are mapped and
+ * batch-written to the target by the scanning threads.
+ * Verification scans both tables concurrently and builds an order-independent {@link SetDigest}
+ * per digest segment. Items are assigned to digest segments by the hash of their target key,
+ * so the segments match up even when the mapper changes the key design.
+ * Only mismatching segments are re-copied, after which target items of those segments
+ * that have no source counterpart are deleted.
+ * <p>
+ * The mapper must be deterministic, as it is applied again during verification.
+ */
+public class TableCopier {
+  private static final Logger logger = LoggerFactory.getLogger(TableCopier.class);
+
+  private static final int DEFAULT_TOTAL_SEGMENTS = 16;
+  private static final int DEFAULT_MAX_REPAIR_ROUNDS = 3;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String sourceTableName;
+  private final String targetTableName;
+
+  private ItemTransformer mapper = item -> item;
+  private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+  private int threads = DEFAULT_TOTAL_SEGMENTS;
+  private int maxRepairRounds = DEFAULT_MAX_REPAIR_ROUNDS;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  public TableCopier(DynamoDbClient dynamoDbClient, String sourceTableName, String targetTableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.sourceTableName = sourceTableName;
+    this.targetTableName = targetTableName;
+  }
+
+  /**
+   * Copies all items, verifies and repairs mismatching segments.
+   *
+   * @return copy statistics and verification outcome
+   */
+  public CopyResult copy() {
+    TableKeys targetKeys = TableKeys.describe(dynamoDbClient, targetTableName);
+    BatchWriter writer = new BatchWriter(dynamoDbClient, targetTableName).setCapacityBudget(capacityBudget);
+    AtomicLong skipped = new AtomicLong();
+
+    logger.info("Copying {} to {} with {} segments", sourceTableName, targetTableName, totalSegments);
+    scanner(sourceTableName).scan((segment, items) -> {
+      Map<Map<String, AttributeValue>, Map<String, AttributeValue>> mapped = new LinkedHashMap<>();
+      for (Map<String, AttributeValue> item : items) {
+        Map<String, AttributeValue> targetItem = mapper.transform(item);
+        if (targetItem == null) {
+          skipped.incrementAndGet();
+        } else {
+          mapped.put(targetKeys.keyOf(targetItem), targetItem);
+        }
+      }
+      writer.put(new ArrayList<>(mapped.values()));
+    });
+    logger.info("Copied {} items from {} to {}, verifying", writer.getPutCount(), sourceTableName, targetTableName);
+
+    Set<Integer> mismatched = verify(targetKeys);
+    int rounds = 0;
+    while (!mismatched.isEmpty() && rounds < maxRepairRounds) {
+      rounds++;
+      logger.warn("Segments {} of {} differ from {}, re-copying (round {})", mismatched, targetTableName,
+          sourceTableName, rounds);
+      repair(mismatched, targetKeys, writer);
+      mismatched = verify(targetKeys);
+    }
+
+    CopyResult result = new CopyResult(writer.getPutCount(), skipped.get(), rounds, mismatched);
+    if (result.isVerified()) {
+      logger.info("Copy of {} to {} verified: {}", sourceTableName, targetTableName, result);
+    } else {
+      logger.error("Copy of {} to {} could not be verified: {}", sourceTableName, targetTableName, result);
+    }
+    return result;
+  }
+
+  /**
+   * Compares source and target without writing anything.
+   *
+   * @return digest segments whose content differs
+   */
+  public Set<Integer> verify() {
+    return verify(TableKeys.describe(dynamoDbClient, targetTableName));
+  }
+
+  private Set<Integer> verify(TableKeys targetKeys) {
+    SetDigest[] sourceDigests = newDigests();
+    SetDigest[] targetDigests = newDigests();
+
+    runConcurrently(
+        () -> scanner(sourceTableName).scan((segment, items) -> {
+          for (Map<String, AttributeValue> item : items) {
+            Map<String, AttributeValue> targetItem = mapper.transform(item);
+            if (targetItem != null) {
+              sourceDigests[digestSegment(targetKeys.keyOf(targetItem))].add(targetItem);
+            }
+          }
+        }),
+        () -> scanner(targetTableName).scan((segment, items) -> {
+          for (Map<String, AttributeValue> item : items) {
+            targetDigests[digestSegment(targetKeys.keyOf(item))].add(item);
+          }
+        }));
+
+    Set<Integer> mismatched = new TreeSet<>();
+    for (int i = 0; i < totalSegments; i++) {
+      if (!sourceDigests[i].equals(targetDigests[i])) {
+        logger.debug("Digest segment {}: source {} target {}", i, sourceDigests[i], targetDigests[i]);
+        mismatched.add(i);
+      }
+    }
+    return mismatched;
+  }
+
+  private void repair(Set<Integer> segments, TableKeys targetKeys, BatchWriter writer) {
+    Map<Integer, Set<Long>> sourceKeys = new ConcurrentHashMap<>();
+    segments.forEach(segment -> sourceKeys.put(segment, ConcurrentHashMap.newKeySet()));
+
+    scanner(sourceTableName).scan((segment, items) -> {
+      Map<Map<String, AttributeValue>, Map<String, AttributeValue>> toWrite = new LinkedHashMap<>();
+      for (Map<String, AttributeValue> item : items) {
+        Map<String, AttributeValue> targetItem = mapper.transform(item);
+        if (targetItem == null) {
+          continue;
+        }
+        Map<String, AttributeValue> key = targetKeys.keyOf(targetItem);
+        long keyHash = ItemDigests.hash64(key);
+        Set<Long> keys = sourceKeys.get(digestSegment(keyHash));
+        if (keys != null) {
+          keys.add(keyHash);
+          toWrite.put(key, targetItem);
+        }
+      }
+      writer.put(new ArrayList<>(toWrite.values()));
+    });
+
+    scanner(targetTableName).setProjection(targetKeys.names().toArray(new String[0]))
+        .scan((segment, items) -> {
+          List<Map<String, AttributeValue>> toDelete = new ArrayList<>();
+          for (Map<String, AttributeValue> item : items) {
+            Map<String, AttributeValue> key = targetKeys.keyOf(item);
+            long keyHash = ItemDigests.hash64(key);
+            Set<Long> keys = sourceKeys.get(digestSegment(keyHash));
+            if (keys != null && !keys.contains(keyHash)) {
+              toDelete.add(key);
+            }
+          }
+          writer.delete(toDelete);
+        });
+  }
+
+  private ParallelScanner scanner(String tableName) {
+    return new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(totalSegments)
+        .setThreads(threads)
+        .setCapacityBudget(capacityBudget);
+  }
+
+  private SetDigest[] newDigests() {
+    SetDigest[] digests = new SetDigest[totalSegments];
+    for (int i = 0; i < totalSegments; i++) {
+      digests[i] = new SetDigest();
+    }
+    return digests;
+  }
+
+  private int digestSegment(Map<String, AttributeValue> key) {
+    return digestSegment(ItemDigests.hash64(key));
+  }
+
+  private int digestSegment(long keyHash) {
+    return (int) Math.floorMod(keyHash, (long) totalSegments);
+  }
+
+  private static void runConcurrently(Runnable... tasks) {
+    ExecutorService executor = MigrationExecutors.newPool("dynamobee-copy", tasks.length);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Runnable task : tasks) {
+        futures.add(executor.submit(task));
+      }
+      MigrationExecutors.awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * @param mapper maps a source item to the target item (e.g. with a new key design); null skips the item
+   * @return TableCopier object for fluent interface
+   */
+  public TableCopier setMapper(ItemTransformer mapper) {
+    this.mapper = mapper;
+    return this;
+  }
+
+  /**
+   * @param totalSegments number of scan segments and digest segments (default 16)
+   * @return TableCopier object for fluent interface
+   */
+  public TableCopier setTotalSegments(int totalSegments) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be positive");
+    }
+    this.totalSegments = totalSegments;
+    this.threads = totalSegments;
+    return this;
+  }
+
+  /**
+   * @param threads threads per scanned table (default: one per segment)
+   * @return TableCopier object for fluent interface
+   */
+  public TableCopier setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param maxRepairRounds how often mismatching segments are re-copied before giving up (default 3)
+   * @return TableCopier object for fluent interface
+   */
+  public TableCopier setMaxRepairRounds(int maxRepairRounds) {
+    this.maxRepairRounds = maxRepairRounds;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by reads of both tables and writes to the target
+   * @return TableCopier object for fluent interface
+   */
+  public TableCopier setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
@@ -0,0 +1,373 @@
+package com.github.dynamobee.migration.purge;
+
+import com.github.dynamobee.migration.BatchWriter;
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.KeyFanOut;
+import com.github.dynamobee.migration.ParallelScanner;
+import com.github.dynamobee.migration.ScanSegment;
+import com.github.dynamobee.migration.TableKeys;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveDescription;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveStatus;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+
+/**
+ * Removes the items of a table matching a filter, by key with BatchWriteItem or, if asked, through DynamoDB's
+ * time to live.
+ * <p>
+ * By default the matching items are deleted with BatchWriteItem; the scan reads keys only. With
+ * {@link #setUseTtl} (or {@link #setEnableTtl}), every matching item gets an expired TTL value instead, through an
+ * UpdateItem conditioned on the item still matching the filter, and DynamoDB deletes it in the background. This does
+ * not save write capacity: the UpdateItem is billed on the size of the whole item, like a delete, and takes one
+ * request per item rather than one per 25 items. What it gives is the removal itself happening later, outside of the
+ * changeset. Until then, typically within a few days, the marked items remain readable: readers must filter out items
+ * whose TTL lies in the past.
+ * <pre>
+ *   PurgeResult result = new Purge(db, "sessions")
+ *       .setFilterExpression("#last &lt; :cutoff")
+ *       .putExpressionAttributeName("#last", "lastSeen")
+ *       .putExpressionAttributeValue(":cutoff", AttributeValue.builder().n(cutoff).build())
+ *       .setCapacityBudget(new CapacityBudget(100))
+ *       .run();
+ * </pre>
+ * Afterwards a sample of the purged items is read back: they must be gone, or carry an expired TTL.
+ * Items written again concurrently therefore show up as unverified.
+ * The placeholders {@code #purgeTtl}, {@code #purgePk} and {@code :purgeTtl} are reserved.
+ */
+public class Purge {
+  private static final Logger logger = LoggerFactory.getLogger(Purge.class);
+
+  private static final int DEFAULT_TOTAL_SEGMENTS = 8;
+  private static final int DEFAULT_SAMPLE_SIZE = 100;
+  private static final long PROGRESS_LOG_MILLIS = 30_000L;
+  // DynamoDB ignores TTL values more than five years in the past
+  private static final long MAX_TTL_AGE_SECONDS = 5L * 365 * 24 * 3600;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  private String filterExpression;
+  private final Map<String, String> expressionAttributeNames = new HashMap<>();
+  private final Map<String, AttributeValue> expressionAttributeValues = new HashMap<>();
+  private boolean useTtl;
+  private String enableTtlAttribute;
+  private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+  private int threads = DEFAULT_TOTAL_SEGMENTS;
+  private int sampleSize = DEFAULT_SAMPLE_SIZE;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  private TableKeys keys;
+  private String ttlAttribute;
+  private long expiredAt;
+  private BatchWriter batchWriter;
+  private final List<Map<String, AttributeValue>> sample = new ArrayList<>();
+  private long sampleCandidates;
+
+  private final AtomicLong scanned = new AtomicLong();
+  private final AtomicLong marked = new AtomicLong();
+  private final AtomicLong alreadyExpired = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+  private final AtomicLong lastProgressLog = new AtomicLong(System.currentTimeMillis());
+
+  public Purge(DynamoDbClient dynamoDbClient, String tableName) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  /**
+   * Purges the matching items of the whole table with a parallel scan, then verifies a sample.
+   *
+   * @return counters of this run
+   */
+  public PurgeResult run() {
+    prepare();
+    logger.info("Purging {} by {} with {} segments", tableName, ttlAttribute == null ? "deletes" : "TTL",
+        totalSegments);
+    scanner().setThreads(threads).scan((segment, items) -> process(items));
+    return verify();
+  }
+
+  /**
+   * Purges one segment on the calling thread, e.g. the segment of a distributed changeset, then verifies
+   * a sample of it.
+   *
+   * @param segment segment to process
+   * @return counters of this Purge so far
+   */
+  public PurgeResult run(ScanSegment segment) {
+    prepare();
+    scanner().setTotalSegments(segment.getTotalSegments()).scanSegment(segment, (scanSegment, items) -> process(items));
+    return verify();
+  }
+
+  private void prepare() {
+    if (keys != null) {
+      return;
+    }
+    keys = TableKeys.describe(dynamoDbClient, tableName);
+    ttlAttribute = useTtl ? timeToLiveAttribute() : null;
+    expiredAt = Instant.now().getEpochSecond() - 1;
+    batchWriter = new BatchWriter(dynamoDbClient, tableName).setCapacityBudget(capacityBudget);
+  }
+
+  /**
+   * @return the TTL attribute of the table, enabling TTL if allowed, or null to delete items
+   */
+  private String timeToLiveAttribute() {
+    TimeToLiveDescription timeToLive;
+    try {
+      timeToLive = dynamoDbClient.describeTimeToLive(request -> request.tableName(tableName)).timeToLiveDescription();
+    } catch (DynamoDbException | UnsupportedOperationException e) {
+      logger.warn("Cannot read the time to live of {}, deleting items instead: {}", tableName, e.getMessage());
+      return null;
+    }
+    TimeToLiveStatus status = timeToLive == null ? null : timeToLive.timeToLiveStatus();
+    if (status == TimeToLiveStatus.ENABLED || status == TimeToLiveStatus.ENABLING) {
+      if (enableTtlAttribute != null && !enableTtlAttribute.equals(timeToLive.attributeName())) {
+        logger.warn("Time to live of {} is enabled on {}, not {}", tableName, timeToLive.attributeName(),
+            enableTtlAttribute);
+      }
+      return timeToLive.attributeName();
+    }
+    if (status == TimeToLiveStatus.DISABLED && enableTtlAttribute != null) {
+      logger.info("Enabling time to live of {} on {}", tableName, enableTtlAttribute);
+      dynamoDbClient.updateTimeToLive(request -> request
+          .tableName(tableName)
+          .timeToLiveSpecification(specification -> specification
+              .attributeName(enableTtlAttribute)
+              .enabled(true)));
+      return enableTtlAttribute;
+    }
+    return null;
+  }
+
+  private ParallelScanner scanner() {
+    Set<String> projection = new LinkedHashSet<>(keys.names());
+    if (ttlAttribute != null) {
+      projection.add(ttlAttribute);
+    }
+    ParallelScanner scanner = new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(totalSegments)
+        .setCapacityBudget(capacityBudget)
+        .setProjection(projection.toArray(new String[0]))
+        .setFilterExpression(filterExpression);
+    expressionAttributeNames.forEach(scanner::putExpressionAttributeName);
+    expressionAttributeValues.forEach(scanner::putExpressionAttributeValue);
+    return scanner;
+  }
+
+  private void process(List<Map<String, AttributeValue>> items) {
+    scanned.addAndGet(items.size());
+    if (ttlAttribute == null) {
+      List<Map<String, AttributeValue>> itemKeys = items.stream().map(keys::keyOf).collect(Collectors.toList());
+      batchWriter.delete(itemKeys);
+      itemKeys.forEach(this::sample);
+    } else {
+      for (Map<String, AttributeValue> item : items) {
+        if (isExpired(item)) {
+          alreadyExpired.incrementAndGet();
+        } else if (mark(keys.keyOf(item))) {
+          marked.incrementAndGet();
+          sample(keys.keyOf(item));
+        } else {
+          skipped.incrementAndGet();
+        }
+      }
+    }
+    logProgress();
+  }
+
+  /**
+   * Sets the expired TTL, if the item still exists and matches the filter
+   */
+  private boolean mark(Map<String, AttributeValue> key) {
+    Map<String, String> names = new HashMap<>(expressionAttributeNames);
+    names.put("#purgeTtl", ttlAttribute);
+    names.put("#purgePk", keys.getPartitionKey());
+    Map<String, AttributeValue> values = new HashMap<>(expressionAttributeValues);
+    values.put(":purgeTtl", AttributeValue.builder().n(Long.toString(expiredAt)).build());
+    String condition = "attribute_exists(#purgePk)" + (filterExpression == null ? "" : " AND (" + filterExpression + ")");
+    capacityBudget.acquire();
+    try {
+      UpdateItemResponse response = dynamoDbClient.updateItem(request -> request
+          .tableName(tableName)
+          .key(key)
+          .updateExpression("SET #purgeTtl = :purgeTtl")
+          .conditionExpression(condition)
+          .expressionAttributeNames(names)
+          .expressionAttributeValues(values)
+          .returnConsumedCapacity(capacityBudget.isUnlimited() ? null : ReturnConsumedCapacity.TOTAL));
+      capacityBudget.consume(response.consumedCapacity());
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      capacityBudget.consume(1);
+      return false;
+    }
+  }
+
+  private boolean isExpired(Map<String, AttributeValue> item) {
+    AttributeValue ttl = item.get(ttlAttribute);
+    if (ttl == null || ttl.n() == null) {
+      return false;
+    }
+    try {
+      double expiry = Double.parseDouble(ttl.n());
+      return expiry <= expiredAt && expiry > expiredAt - MAX_TTL_AGE_SECONDS;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Reservoir sample of the purged keys
+   */
+  private synchronized void sample(Map<String, AttributeValue> key) {
+    sampleCandidates++;
+    if (sample.size() < sampleSize) {
+      sample.add(key);
+    } else {
+      long slot = ThreadLocalRandom.current().nextLong(sampleCandidates);
+      if (slot < sampleSize) {
+        sample.set((int) slot, key);
+      }
+    }
+  }
+
+  private void logProgress() {
+    long last = lastProgressLog.get();
+    long now = System.currentTimeMillis();
+    if (now - last >= PROGRESS_LOG_MILLIS && lastProgressLog.compareAndSet(last, now)) {
+      logger.info("Purge of {} in progress: {} scanned, {} marked, {} deleted", tableName, scanned.get(),
+          marked.get(), batchWriter.getDeleteCount());
+    }
+  }
+
+  private synchronized PurgeResult verify() {
+    AtomicLong unverified = new AtomicLong();
+    if (!sample.isEmpty()) {
+      List<String> projection = new ArrayList<>(keys.names());
+      if (ttlAttribute != null) {
+        projection.add(ttlAttribute);
+      }
+      new KeyFanOut(dynamoDbClient)
+          .setThreads(1)
+          .setConsistentRead(true)
+          .setProjection(projection.toArray(new String[0]))
+          .setCapacityBudget(capacityBudget)
+          .getItems(tableName, sample.stream(), items -> items.stream()
+              .filter(item -> ttlAttribute == null || !isExpired(item))
+              .forEach(item -> unverified.incrementAndGet()));
+    }
+    PurgeResult result = new PurgeResult(ttlAttribute == null ? PurgeResult.Mode.DELETE : PurgeResult.Mode.TTL,
+        scanned.get(), marked.get(), batchWriter.getDeleteCount(), alreadyExpired.get(), skipped.get(),
+        sample.size(), unverified.get());
+    if (result.isVerified()) {
+      logger.info("Purge of {}: {}", tableName, result);
+    } else {
+      logger.warn("Purge of {} left sampled items in place: {}", tableName, result);
+    }
+    return result;
+  }
+
+  /**
+   * @param filterExpression filter selecting the items to purge, or null for all items; placeholders must be
+   *                         registered with {@link #putExpressionAttributeName} / {@link #putExpressionAttributeValue}
+   * @return Purge object for fluent interface
+   */
+  public Purge setFilterExpression(String filterExpression) {
+    this.filterExpression = filterExpression;
+    return this;
+  }
+
+  public Purge putExpressionAttributeName(String placeholder, String attributeName) {
+    this.expressionAttributeNames.put(placeholder, attributeName);
+    return this;
+  }
+
+  public Purge putExpressionAttributeValue(String placeholder, AttributeValue value) {
+    this.expressionAttributeValues.put(placeholder, value);
+    return this;
+  }
+
+  /**
+   * Marks the matching items as expired instead of deleting them, if TTL is enabled on the table. The marked items
+   * stay readable until DynamoDB removes them, so readers must check the TTL attribute themselves.
+   *
+   * @param useTtl true to leave the deletion to TTL (default false)
+   * @return Purge object for fluent interface
+   */
+  public Purge setUseTtl(boolean useTtl) {
+    this.useTtl = useTtl;
+    return this;
+  }
+
+  /**
+   * Uses TTL as {@link #setUseTtl} does, and allows enabling it on the table if it is disabled. Items already carrying the attribute then expire as well,
+   * so it must not be used by the application for anything else.
+   *
+   * @param attributeName numeric attribute holding the expiry in epoch seconds
+   * @return Purge object for fluent interface
+   */
+  public Purge setEnableTtl(String attributeName) {
+    this.enableTtlAttribute = attributeName;
+    this.useTtl = attributeName != null;
+    return this;
+  }
+
+  /**
+   * @param totalSegments number of scan segments (default 8)
+   * @return Purge object for fluent interface
+   */
+  public Purge setTotalSegments(int totalSegments) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be positive");
+    }
+    this.totalSegments = totalSegments;
+    this.threads = totalSegments;
+    return this;
+  }
+
+  /**
+   * @param threads segments processed in parallel (default: one per segment)
+   * @return Purge object for fluent interface
+   */
+  public Purge setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param sampleSize purged items read back for verification (default 100)
+   * @return Purge object for fluent interface
+   */
+  public Purge setSampleSize(int sampleSize) {
+    this.sampleSize = sampleSize;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by the scan, the writes and the verification
+   * @return Purge object for fluent interface
+   */
+  public Purge setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.dynamobee.migration.purge;
+
+
+/**
+ * Counters of a {@link Purge} run
+ */
+public final class PurgeResult {
+
+  /**
+   * How matching items were removed
+   */
+  public enum Mode {
+    /** marked with an expired time to live, deleted by DynamoDB */
+    TTL,
+    /** deleted with BatchWriteItem */
+    DELETE
+  }
+
+  private final Mode mode;
+  private final long scanned;
+  private final long marked;
+  private final long deleted;
+  private final long alreadyExpired;
+  private final long skipped;
+  private final long sampled;
+  private final long unverified;
+
+  PurgeResult(Mode mode, long scanned, long marked, long deleted, long alreadyExpired, long skipped, long sampled,
+              long unverified) {
+    this.mode = mode;
+    this.scanned = scanned;
+    this.marked = marked;
+    this.deleted = deleted;
+    this.alreadyExpired = alreadyExpired;
+    this.skipped = skipped;
+    this.sampled = sampled;
+    this.unverified = unverified;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * @return matching items read by the scan
+   */
+  public long getScanned() {
+    return scanned;
+  }
+
+  /**
+   * @return items given an expired time to live
+   */
+  public long getMarked() {
+    return marked;
+  }
+
+  /**
+   * @return items deleted directly
+   */
+  public long getDeleted() {
+    return deleted;
+  }
+
+  /**
+   * @return items which already had an expired time to live
+   */
+  public long getAlreadyExpired() {
+    return alreadyExpired;
+  }
+
+  /**
+   * @return items deleted or no longer matching when they were marked
+   */
+  public long getSkipped() {
+    return skipped;
+  }
+
+  /**
+   * @return purged items read back to verify the purge
+   */
+  public long getSampled() {
+    return sampled;
+  }
+
+  /**
+   * @return sampled items still present (delete mode) or no longer expired (TTL mode)
+   */
+  public long getUnverified() {
+    return unverified;
+  }
+
+  public boolean isVerified() {
+    return unverified == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "[PurgeResult: mode=" + mode + ", scanned=" + scanned + ", marked=" + marked + ", deleted=" + deleted
+        + ", alreadyExpired=" + alreadyExpired + ", skipped=" + skipped + ", sampled=" + sampled
+        + ", unverified=" + unverified + "]";
+  }
+}
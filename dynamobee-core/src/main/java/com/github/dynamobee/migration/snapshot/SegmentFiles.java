@@ -0,0 +1,106 @@
+package com.github.dynamobee.migration.snapshot;
+
+import com.github.dynamobee.migration.AttributeValueCodec;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Snapshot segment files: a gzip stream of length-prefixed items encoded with {@link AttributeValueCodec},
+ * terminated by a length of -1 so that truncated files are detected.
+ */
+final class SegmentFiles {
+  private static final int END_OF_SEGMENT = -1;
+
+  private SegmentFiles() {
+  }
+
+  static final class Writer implements Closeable {
+    private final DataOutputStream out;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private long items;
+
+    Writer(Path file, int bufferSize) throws IOException {
+      FileChannel channel = FileChannel.open(file,
+          StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+      this.out = new DataOutputStream(new BufferedOutputStream(
+          new GZIPOutputStream(Channels.newOutputStream(channel), bufferSize), bufferSize));
+    }
+
+    void write(Map<String, AttributeValue> item) throws IOException {
+      record.reset();
+      AttributeValueCodec.writeItem(recordOut, item, false);
+      out.writeInt(record.size());
+      record.writeTo(out);
+      items++;
+    }
+
+    long getItems() {
+      return items;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try (DataOutputStream closing = out) {
+        closing.writeInt(END_OF_SEGMENT);
+      }
+    }
+  }
+
+  static final class Reader implements Closeable {
+    private final Path file;
+    private final DataInputStream in;
+    private byte[] buffer = new byte[1024];
+
+    Reader(Path file, int bufferSize) throws IOException {
+      this.file = file;
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+      this.in = new DataInputStream(new BufferedInputStream(
+          new GZIPInputStream(Channels.newInputStream(channel), bufferSize), bufferSize));
+    }
+
+    /**
+     * @return the next item, or null at the end of the segment
+     */
+    Map<String, AttributeValue> read() throws IOException {
+      int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException e) {
+        throw new IOException("Snapshot segment " + file + " is truncated", e);
+      }
+      if (length == END_OF_SEGMENT) {
+        return null;
+      }
+      if (length < 0) {
+        throw new IOException("Snapshot segment " + file + " is corrupt");
+      }
+      if (buffer.length < length) {
+        buffer = new byte[Math.max(length, buffer.length * 2)];
+      }
+      in.readFully(buffer, 0, length);
+      return AttributeValueCodec.readItem(new DataInputStream(new ByteArrayInputStream(buffer, 0, length)));
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,49 @@
+package com.github.dynamobee.migration.snapshot;
+
+import java.nio.file.Path;
+
+
+/**
+ * Outcome of {@link TableSnapshot#create()}
+ */
+public final class SnapshotResult {
+  private final String tableName;
+  private final Path directory;
+  private final int totalSegments;
+  private final long items;
+  private final long elapsedMillis;
+
+  SnapshotResult(String tableName, Path directory, int totalSegments, long items, long elapsedMillis) {
+    this.tableName = tableName;
+    this.directory = directory;
+    this.totalSegments = totalSegments;
+    this.items = items;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  public String getTableName() {
+    return tableName;
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public int getTotalSegments() {
+    return totalSegments;
+  }
+
+  public long getItems() {
+    return items;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  @Override
+  public String toString() {
+    return "[SnapshotResult: table=" + tableName + ", items=" + items + ", segments=" + totalSegments
+        + ", elapsedMillis=" + elapsedMillis + ", directory=" + directory + "]";
+  }
+}
@@ -0,0 +1,281 @@
+package com.github.dynamobee.migration.snapshot;
+
+import com.github.dynamobee.migration.BatchWriter;
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.MigrationExecutors;
+import com.github.dynamobee.migration.ParallelScanner;
+import com.github.dynamobee.migration.ScanSegment;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Snapshot of a table in local files, taken with a parallel segmented scan and restored with parallel batch writes.
+ * <p>
+ * Every scan segment is streamed into its own compressed segment file through a bounded buffer,
+ * so memory use does not depend on the table size. A manifest listing the item count of every segment
+ * is written last; a directory without manifest is an incomplete snapshot and cannot be restored.
+ * Throughput of both directions scales with the number of segments and threads.
+ * <pre>
+ *   new TableSnapshot(db, "orders", Paths.get("/var/backups/orders")).setTotalSegments(32).create();
+ *   ...
+ *   new TableSnapshot(db, "orders", Paths.get("/var/backups/orders")).restore();
+ * </pre>
+ */
+public class TableSnapshot {
+  private static final Logger logger = LoggerFactory.getLogger(TableSnapshot.class);
+
+  static final String MANIFEST_FILE = "snapshot.properties";
+  private static final String TABLE_PROPERTY = "table";
+  private static final String CREATED_AT_PROPERTY = "createdAt";
+  private static final String TOTAL_SEGMENTS_PROPERTY = "totalSegments";
+  private static final String ITEMS_PROPERTY_PREFIX = "items.";
+
+  private static final int DEFAULT_TOTAL_SEGMENTS = 8;
+  private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+  private final Path directory;
+
+  private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+  private int threads = DEFAULT_TOTAL_SEGMENTS;
+  private int bufferSize = DEFAULT_BUFFER_SIZE;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  /**
+   * @param dynamoDbClient client
+   * @param tableName      table to snapshot, or to restore into
+   * @param directory      directory holding the segment files and the manifest
+   */
+  public TableSnapshot(DynamoDbClient dynamoDbClient, String tableName, Path directory) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+    this.directory = directory;
+  }
+
+  /**
+   * Writes the snapshot, replacing a previous one in the same directory.
+   *
+   * @return number of items and segments written
+   */
+  public SnapshotResult create() {
+    long started = System.currentTimeMillis();
+    try {
+      Files.createDirectories(directory);
+      Files.deleteIfExists(directory.resolve(MANIFEST_FILE));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not prepare snapshot directory " + directory, e);
+    }
+
+    logger.info("Snapshotting {} into {} with {} segments", tableName, directory, totalSegments);
+    ParallelScanner scanner = new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(totalSegments)
+        .setCapacityBudget(capacityBudget);
+    long[] segmentItems = new long[totalSegments];
+    forEachSegment(segment -> {
+      try (SegmentFiles.Writer writer = new SegmentFiles.Writer(segmentFile(segment), bufferSize)) {
+        scanner.scanSegment(new ScanSegment(segment, totalSegments), (scanSegment, items) -> {
+          try {
+            for (Map<String, AttributeValue> item : items) {
+              writer.write(item);
+            }
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        segmentItems[segment] = writer.getItems();
+      }
+    });
+
+    Properties manifest = new Properties();
+    manifest.setProperty(TABLE_PROPERTY, tableName);
+    manifest.setProperty(CREATED_AT_PROPERTY, Instant.now().toString());
+    manifest.setProperty(TOTAL_SEGMENTS_PROPERTY, Integer.toString(totalSegments));
+    long items = 0;
+    for (int segment = 0; segment < totalSegments; segment++) {
+      manifest.setProperty(ITEMS_PROPERTY_PREFIX + segment, Long.toString(segmentItems[segment]));
+      items += segmentItems[segment];
+    }
+    writeManifest(manifest);
+
+    SnapshotResult result = new SnapshotResult(tableName, directory, totalSegments, items,
+        System.currentTimeMillis() - started);
+    logger.info("Snapshot of {} completed: {}", tableName, result);
+    return result;
+  }
+
+  /**
+   * Writes all items of the snapshot back into the table, overwriting items with the same key.
+   * Items added to the table since the snapshot are not in it and are kept; delete them, or restore into an
+   * empty table, to get the table back as it was.
+   *
+   * @return number of items restored
+   */
+  public long restore() {
+    return restore(tableName);
+  }
+
+  /**
+   * Writes all items of the snapshot into the given table, which must have the same key schema.
+   * Items of the table not in the snapshot are kept.
+   *
+   * @param targetTableName table to restore into
+   * @return number of items restored
+   */
+  public long restore(String targetTableName) {
+    Properties manifest = readManifest();
+    int segments = Integer.parseInt(manifest.getProperty(TOTAL_SEGMENTS_PROPERTY));
+    BatchWriter writer = new BatchWriter(dynamoDbClient, targetTableName).setCapacityBudget(capacityBudget);
+
+    logger.info("Restoring snapshot {} of {} into {}", directory, manifest.getProperty(TABLE_PROPERTY), targetTableName);
+    forEachSegment(segments, segment -> {
+      long expected = Long.parseLong(manifest.getProperty(ITEMS_PROPERTY_PREFIX + segment));
+      long restored = 0;
+      try (SegmentFiles.Reader reader = new SegmentFiles.Reader(segmentFile(segment), bufferSize)) {
+        List<Map<String, AttributeValue>> batch = new ArrayList<>(BatchWriter.MAX_BATCH_SIZE);
+        Map<String, AttributeValue> item;
+        while ((item = reader.read()) != null) {
+          batch.add(item);
+          if (batch.size() == BatchWriter.MAX_BATCH_SIZE) {
+            writer.put(batch);
+            restored += batch.size();
+            batch = new ArrayList<>(BatchWriter.MAX_BATCH_SIZE);
+          }
+        }
+        writer.put(batch);
+        restored += batch.size();
+      }
+      if (restored != expected) {
+        throw new IOException("Snapshot segment " + segmentFile(segment) + " holds " + restored
+            + " items, the manifest lists " + expected);
+      }
+    });
+    logger.info("Restored {} items into {}", writer.getPutCount(), targetTableName);
+    return writer.getPutCount();
+  }
+
+  /**
+   * @return whether the directory holds a complete snapshot
+   */
+  public boolean exists() {
+    return Files.isRegularFile(directory.resolve(MANIFEST_FILE));
+  }
+
+  private interface SegmentTask {
+    void run(int segment) throws IOException;
+  }
+
+  private void forEachSegment(SegmentTask task) {
+    forEachSegment(totalSegments, task);
+  }
+
+  private void forEachSegment(int segments, SegmentTask task) {
+    ExecutorService executor = MigrationExecutors.newPool("dynamobee-snapshot", Math.min(threads, segments));
+    try {
+      List<Future<?>> futures = new ArrayList<>(segments);
+      for (int segment = 0; segment < segments; segment++) {
+        int current = segment;
+        futures.add(executor.submit(() -> {
+          try {
+            task.run(current);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          return null;
+        }));
+      }
+      MigrationExecutors.awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private Path segmentFile(int segment) {
+    return directory.resolve(String.format("segment-%05d.bin.gz", segment));
+  }
+
+  private void writeManifest(Properties manifest) {
+    Path temporary = directory.resolve(MANIFEST_FILE + ".tmp");
+    try {
+      try (Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+        manifest.store(out, "dynamobee table snapshot");
+      }
+      Files.move(temporary, directory.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write snapshot manifest in " + directory, e);
+    }
+  }
+
+  private Properties readManifest() {
+    Path file = directory.resolve(MANIFEST_FILE);
+    if (!Files.isRegularFile(file)) {
+      throw new IllegalStateException("No complete snapshot in " + directory + ": " + MANIFEST_FILE + " is missing");
+    }
+    Properties manifest = new Properties();
+    try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      manifest.load(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read snapshot manifest " + file, e);
+    }
+    return manifest;
+  }
+
+  /**
+   * @param totalSegments number of scan segments and segment files (default 8)
+   * @return TableSnapshot object for fluent interface
+   */
+  public TableSnapshot setTotalSegments(int totalSegments) {
+    if (totalSegments < 1) {
+      throw new IllegalArgumentException("totalSegments must be positive");
+    }
+    this.totalSegments = totalSegments;
+    this.threads = totalSegments;
+    return this;
+  }
+
+  /**
+   * @param threads segments processed in parallel (default: one per segment)
+   * @return TableSnapshot object for fluent interface
+   */
+  public TableSnapshot setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param bufferSize size of the compression and file buffers of each segment, in bytes (default 64 KiB)
+   * @return TableSnapshot object for fluent interface
+   */
+  public TableSnapshot setBufferSize(int bufferSize) {
+    this.bufferSize = bufferSize;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by the scan of a snapshot or the writes of a restore
+   * @return TableSnapshot object for fluent interface
+   */
+  public TableSnapshot setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
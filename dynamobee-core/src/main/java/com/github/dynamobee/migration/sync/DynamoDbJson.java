@@ -0,0 +1,97 @@
+package com.github.dynamobee.migration.sync;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.protocols.jsoncore.JsonNode;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Reads items written in DynamoDB JSON, one per line, as produced by the CLI or by table exports:
+ * {@code {"id": {"S": "EUR"}, "digits": {"N": "2"}}}, optionally wrapped in {@code {"Item": ...}}.
+ * Blank lines and lines starting with {@code #} are ignored.
+ */
+final class DynamoDbJson {
+
+  private DynamoDbJson() {
+  }
+
+  static List<Map<String, AttributeValue>> readItems(String content, String source) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    String[] lines = content.split("\\R");
+    for (int i = 0; i < lines.length; i++) {
+      String line = lines[i].trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      try {
+        JsonNode node = JsonNode.parser().parse(line);
+        JsonNode item = node.field("Item").orElse(node);
+        items.add(readItem(item));
+      } catch (RuntimeException e) {
+        throw new IllegalArgumentException("Invalid DynamoDB JSON item at " + source + ":" + (i + 1) + ": "
+            + e.getMessage(), e);
+      }
+    }
+    return items;
+  }
+
+  private static Map<String, AttributeValue> readItem(JsonNode node) {
+    Map<String, AttributeValue> item = new LinkedHashMap<>();
+    node.asObject().forEach((name, value) -> item.put(name, readValue(value)));
+    return item;
+  }
+
+  private static AttributeValue readValue(JsonNode node) {
+    Map<String, JsonNode> typed = node.asObject();
+    if (typed.size() != 1) {
+      throw new IllegalArgumentException("Attribute value must have exactly one type: " + node);
+    }
+    Map.Entry<String, JsonNode> entry = typed.entrySet().iterator().next();
+    JsonNode value = entry.getValue();
+    switch (entry.getKey()) {
+      case "S":
+        return AttributeValue.builder().s(value.asString()).build();
+      case "N":
+        return AttributeValue.builder().n(value.isNumber() ? value.asNumber() : value.asString()).build();
+      case "B":
+        return AttributeValue.builder().b(bytes(value)).build();
+      case "BOOL":
+        return AttributeValue.builder().bool(value.asBoolean()).build();
+      case "NULL":
+        return AttributeValue.builder().nul(true).build();
+      case "SS":
+        return AttributeValue.builder().ss(strings(value)).build();
+      case "NS":
+        return AttributeValue.builder().ns(strings(value)).build();
+      case "BS": {
+        List<SdkBytes> members = new ArrayList<>();
+        value.asArray().forEach(member -> members.add(bytes(member)));
+        return AttributeValue.builder().bs(members).build();
+      }
+      case "L": {
+        List<AttributeValue> elements = new ArrayList<>();
+        value.asArray().forEach(element -> elements.add(readValue(element)));
+        return AttributeValue.builder().l(elements).build();
+      }
+      case "M":
+        return AttributeValue.builder().m(readItem(value)).build();
+      default:
+        throw new IllegalArgumentException("Unknown attribute type " + entry.getKey());
+    }
+  }
+
+  private static List<String> strings(JsonNode array) {
+    List<String> members = new ArrayList<>();
+    array.asArray().forEach(member -> members.add(member.isNumber() ? member.asNumber() : member.asString()));
+    return members;
+  }
+
+  private static SdkBytes bytes(JsonNode value) {
+    return SdkBytes.fromByteArray(Base64.getDecoder().decode(value.asString()));
+  }
+}
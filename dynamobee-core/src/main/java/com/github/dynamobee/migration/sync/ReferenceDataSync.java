@@ -0,0 +1,323 @@
+package com.github.dynamobee.migration.sync;
+
+import com.github.dynamobee.migration.BatchWriter;
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.ItemDigests;
+import com.github.dynamobee.migration.MigrationExecutors;
+import com.github.dynamobee.migration.ParallelScanner;
+import com.github.dynamobee.migration.TableKeys;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Makes a reference table hold exactly the items shipped with the application, writing only what differs.
+ * <p>
+ * Every written item carries a content hash ({@link #setHashAttribute}), and a manifest item in the manifest table,
+ * normally the changelog table of Dynamobee, records the hash of the whole desired item set.
+ * When the manifest matches, the run costs a single read. Otherwise the table is scanned for keys and item hashes
+ * only, then missing or differing items are put and items no longer desired deleted, in parallel batches.
+ * <pre>
+ *   &#64;ChangeSet(order = "100", id = "currencies", author = "me", runAlways = true)
+ *   public void currencies(DynamoDbClient db) {
+ *     new ReferenceDataSync(db, "currencies", CHANGELOG_TABLE).setItemsFromResource("/refdata/currencies.jsonl").run();
+ *   }
+ * </pre>
+ * Items edited outside the sync keep matching the manifest; use {@link #setAlwaysCompare} to detect such drift.
+ */
+public class ReferenceDataSync {
+  private static final Logger logger = LoggerFactory.getLogger(ReferenceDataSync.class);
+
+  private static final String DEFAULT_HASH_ATTRIBUTE = "refDataHash";
+  private static final String DEFAULT_MANIFEST_KEY = "changeId";
+  private static final String MANIFEST_PREFIX = "REFDATA#";
+  private static final String MANIFEST_HASH = "dataSetHash";
+  private static final String MANIFEST_ITEMS = "items";
+  private static final String MANIFEST_SYNCED_AT = "syncedAt";
+  private static final int DEFAULT_THREADS = 4;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+  private final String manifestTable;
+
+  private List<Map<String, AttributeValue>> items = List.of();
+  private String hashAttribute = DEFAULT_HASH_ATTRIBUTE;
+  private String manifestKeyAttribute = DEFAULT_MANIFEST_KEY;
+  private boolean deleteUndesired = true;
+  private boolean alwaysCompare;
+  private int totalSegments = DEFAULT_THREADS;
+  private int threads = DEFAULT_THREADS;
+  private CapacityBudget capacityBudget = CapacityBudget.unlimited();
+
+  /**
+   * @param dynamoDbClient client
+   * @param tableName      reference table to synchronize
+   * @param manifestTable  table holding the manifest item {@code REFDATA#<table>}, e.g. the changelog table set with
+   *                       {@code Dynamobee.setChangelogTableName}
+   */
+  public ReferenceDataSync(DynamoDbClient dynamoDbClient, String tableName, String manifestTable) {
+    if (manifestTable == null || manifestTable.isEmpty()) {
+      throw new IllegalArgumentException("The manifest table of " + tableName + " is not set");
+    }
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+    this.manifestTable = manifestTable;
+  }
+
+  /**
+   * @return counters of the run
+   */
+  public SyncResult run() {
+    List<String> itemHashes = new ArrayList<>(items.size());
+    for (Map<String, AttributeValue> item : items) {
+      itemHashes.add(hashOf(item));
+    }
+    String dataSetHash = dataSetHash(itemHashes);
+
+    Map<String, AttributeValue> manifestKey = Map.of(manifestKeyAttribute,
+        AttributeValue.builder().s(MANIFEST_PREFIX + tableName).build());
+    if (!alwaysCompare) {
+      Map<String, AttributeValue> manifest = dynamoDbClient.getItem(request -> request
+          .tableName(manifestTable)
+          .key(manifestKey)
+          .consistentRead(true)).item();
+      AttributeValue storedHash = manifest == null ? null : manifest.get(MANIFEST_HASH);
+      if (storedHash != null && dataSetHash.equals(storedHash.s())) {
+        logger.info("Reference data of {} is up to date ({} items)", tableName, items.size());
+        return new SyncResult(true, items.size(), items.size(), 0, 0);
+      }
+    }
+
+    TableKeys keys = TableKeys.describe(dynamoDbClient, tableName);
+    Map<Map<String, AttributeValue>, String> desiredHashes = new HashMap<>(items.size() * 2);
+    Map<Map<String, AttributeValue>, Map<String, AttributeValue>> desired = new HashMap<>(items.size() * 2);
+    for (int i = 0; i < items.size(); i++) {
+      Map<String, AttributeValue> key = keys.keyOf(items.get(i));
+      if (desired.put(key, items.get(i)) != null) {
+        throw new IllegalArgumentException("Reference data of " + tableName + " contains the key " + key + " twice");
+      }
+      desiredHashes.put(key, itemHashes.get(i));
+    }
+
+    Map<Map<String, AttributeValue>, String> storedHashes = readStoredHashes(keys);
+    List<Map<String, AttributeValue>> puts = new ArrayList<>();
+    List<Map<String, AttributeValue>> deletes = new ArrayList<>();
+    for (Map.Entry<Map<String, AttributeValue>, String> entry : desiredHashes.entrySet()) {
+      if (!entry.getValue().equals(storedHashes.get(entry.getKey()))) {
+        puts.add(withHash(desired.get(entry.getKey()), entry.getValue()));
+      }
+    }
+    if (deleteUndesired) {
+      for (Map<String, AttributeValue> key : storedHashes.keySet()) {
+        if (!desired.containsKey(key)) {
+          deletes.add(key);
+        }
+      }
+    }
+    write(puts, deletes);
+
+    Map<String, AttributeValue> manifest = new HashMap<>(manifestKey);
+    manifest.put(MANIFEST_HASH, AttributeValue.builder().s(dataSetHash).build());
+    manifest.put(MANIFEST_ITEMS, AttributeValue.builder().n(Integer.toString(items.size())).build());
+    manifest.put(MANIFEST_SYNCED_AT, AttributeValue.builder().s(Instant.now().toString()).build());
+    dynamoDbClient.putItem(request -> request.tableName(manifestTable).item(manifest));
+
+    SyncResult result = new SyncResult(false, items.size(), items.size() - puts.size(), puts.size(), deletes.size());
+    logger.info("Synchronized reference data of {}: {}", tableName, result);
+    return result;
+  }
+
+  /**
+   * @return content hash of every stored item, by key; read from the hash attribute if there is one
+   */
+  private Map<Map<String, AttributeValue>, String> readStoredHashes(TableKeys keys) {
+    Map<Map<String, AttributeValue>, String> storedHashes = new ConcurrentHashMap<>();
+    ParallelScanner scanner = new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(totalSegments)
+        .setThreads(threads)
+        .setConsistentRead(true)
+        .setCapacityBudget(capacityBudget);
+    if (hashAttribute != null) {
+      List<String> projection = new ArrayList<>(keys.names());
+      projection.add(hashAttribute);
+      scanner.setProjection(projection.toArray(new String[0]));
+    }
+    scanner.scan((segment, page) -> {
+      for (Map<String, AttributeValue> item : page) {
+        String hash;
+        if (hashAttribute == null) {
+          hash = hashOf(item);
+        } else {
+          AttributeValue stored = item.get(hashAttribute);
+          hash = stored == null || stored.s() == null ? "" : stored.s();
+        }
+        storedHashes.put(keys.keyOf(item), hash);
+      }
+    });
+    return storedHashes;
+  }
+
+  private void write(List<Map<String, AttributeValue>> puts, List<Map<String, AttributeValue>> deletes) {
+    if (puts.isEmpty() && deletes.isEmpty()) {
+      return;
+    }
+    BatchWriter writer = new BatchWriter(dynamoDbClient, tableName).setCapacityBudget(capacityBudget);
+    ExecutorService executor = MigrationExecutors.newPool("dynamobee-sync", threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int from = 0; from < puts.size(); from += BatchWriter.MAX_BATCH_SIZE) {
+        List<Map<String, AttributeValue>> batch = puts.subList(from, Math.min(puts.size(), from + BatchWriter.MAX_BATCH_SIZE));
+        futures.add(executor.submit(() -> writer.put(batch)));
+      }
+      for (int from = 0; from < deletes.size(); from += BatchWriter.MAX_BATCH_SIZE) {
+        List<Map<String, AttributeValue>> batch = deletes.subList(from, Math.min(deletes.size(), from + BatchWriter.MAX_BATCH_SIZE));
+        futures.add(executor.submit(() -> writer.delete(batch)));
+      }
+      MigrationExecutors.awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private String hashOf(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> content = item;
+    if (hashAttribute != null && item.containsKey(hashAttribute)) {
+      content = new HashMap<>(item);
+      content.remove(hashAttribute);
+    }
+    return String.format("%016x", ItemDigests.hash64(content));
+  }
+
+  private Map<String, AttributeValue> withHash(Map<String, AttributeValue> item, String hash) {
+    if (hashAttribute == null) {
+      return item;
+    }
+    Map<String, AttributeValue> written = new HashMap<>(item);
+    written.put(hashAttribute, AttributeValue.builder().s(hash).build());
+    return written;
+  }
+
+  /**
+   * @return hash of the whole desired item set, independent of item order
+   */
+  private String dataSetHash(Collection<String> itemHashes) {
+    String[] sorted = itemHashes.toArray(new String[0]);
+    Arrays.sort(sorted);
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      digest.update(String.valueOf(hashAttribute).getBytes(StandardCharsets.UTF_8));
+      for (String hash : sorted) {
+        digest.update(hash.getBytes(StandardCharsets.UTF_8));
+      }
+      StringBuilder hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @param items the items the table must hold
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setItems(Collection<Map<String, AttributeValue>> items) {
+    this.items = List.copyOf(items);
+    return this;
+  }
+
+  /**
+   * Reads the desired items from a classpath resource in DynamoDB JSON, one item per line, e.g.
+   * {@code {"code": {"S": "EUR"}, "digits": {"N": "2"}}}
+   *
+   * @param resource absolute classpath resource name
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setItemsFromResource(String resource) {
+    try (InputStream in = ReferenceDataSync.class.getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalArgumentException("Reference data resource " + resource + " not found");
+      }
+      return setItems(DynamoDbJson.readItems(new String(in.readAllBytes(), StandardCharsets.UTF_8), resource));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read reference data resource " + resource, e);
+    }
+  }
+
+  /**
+   * @param hashAttribute attribute storing the content hash of each item, or null to compare whole items
+   *                      (default refDataHash)
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setHashAttribute(String hashAttribute) {
+    this.hashAttribute = hashAttribute;
+    return this;
+  }
+
+  /**
+   * @param manifestKeyAttribute string partition key of the manifest table (default changeId)
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setManifestKeyAttribute(String manifestKeyAttribute) {
+    this.manifestKeyAttribute = manifestKeyAttribute;
+    return this;
+  }
+
+  /**
+   * @param deleteUndesired delete stored items which are not among the desired ones (default true)
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setDeleteUndesired(boolean deleteUndesired) {
+    this.deleteUndesired = deleteUndesired;
+    return this;
+  }
+
+  /**
+   * @param alwaysCompare compare the stored items even if the manifest matches, repairing changes made
+   *                      outside the sync (default false)
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setAlwaysCompare(boolean alwaysCompare) {
+    this.alwaysCompare = alwaysCompare;
+    return this;
+  }
+
+  /**
+   * @param threads parallel scan segments and write batches (default 4)
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setThreads(int threads) {
+    this.totalSegments = threads;
+    this.threads = threads;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget shared by the scan and the writes
+   * @return ReferenceDataSync object for fluent interface
+   */
+  public ReferenceDataSync setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
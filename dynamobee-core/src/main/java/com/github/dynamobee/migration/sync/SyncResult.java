@@ -0,0 +1,62 @@
+package com.github.dynamobee.migration.sync;
+
+
+/**
+ * Outcome of a {@link ReferenceDataSync} run
+ */
+public final class SyncResult {
+  private final boolean manifestMatched;
+  private final long items;
+  private final long unchanged;
+  private final long written;
+  private final long deleted;
+
+  SyncResult(boolean manifestMatched, long items, long unchanged, long written, long deleted) {
+    this.manifestMatched = manifestMatched;
+    this.items = items;
+    this.unchanged = unchanged;
+    this.written = written;
+    this.deleted = deleted;
+  }
+
+  /**
+   * @return true if the manifest showed the table already in sync, so nothing was compared
+   */
+  public boolean isManifestMatched() {
+    return manifestMatched;
+  }
+
+  /**
+   * @return number of desired items
+   */
+  public long getItems() {
+    return items;
+  }
+
+  /**
+   * @return items found with the desired content, not written
+   */
+  public long getUnchanged() {
+    return unchanged;
+  }
+
+  /**
+   * @return items missing or differing, written
+   */
+  public long getWritten() {
+    return written;
+  }
+
+  /**
+   * @return stored items not among the desired ones, deleted
+   */
+  public long getDeleted() {
+    return deleted;
+  }
+
+  @Override
+  public String toString() {
+    return "[SyncResult: manifestMatched=" + manifestMatched + ", items=" + items + ", unchanged=" + unchanged
+        + ", written=" + written + ", deleted=" + deleted + "]";
+  }
+}
@@ -0,0 +1,116 @@
+package com.github.dynamobee.migration.upgrade;
+
+import com.github.dynamobee.migration.ItemTransformer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Chain of versioned item transformers (v1 to v2, v2 to v3, ...) used for lazy migrations:
+ * instead of backfilling a whole table, items are upgraded when they are read
+ * (see {@link UpgradingTableSchema}) and the rest is finished by an optional {@link UpgradeSweeper}.
+ * <p>
+ * The item version is kept in a numeric attribute; items without it are version 1.
+ * Upgraders are registered per table in a process-wide registry, so a changeset
+ * (usually {@code runAlways = true}) can register its transformer on every start:
+ * <pre>
+ * ItemUpgrader.forTable("orders").register(1, item -&gt; ...);
+ * </pre>
+ */
+public class ItemUpgrader {
+  public static final String DEFAULT_VERSION_ATTRIBUTE = "schemaVersion";
+  public static final int INITIAL_VERSION = 1;
+
+  private static final ConcurrentMap<String, ItemUpgrader> REGISTRY = new ConcurrentHashMap<>();
+
+  private final String versionAttribute;
+  private final ConcurrentSkipListMap<Integer, ItemTransformer> transformers = new ConcurrentSkipListMap<>();
+
+  public ItemUpgrader(String versionAttribute) {
+    this.versionAttribute = versionAttribute;
+  }
+
+  /**
+   * @param tableName table name
+   * @return the registered upgrader of the table, created with {@link #DEFAULT_VERSION_ATTRIBUTE} if missing
+   */
+  public static ItemUpgrader forTable(String tableName) {
+    return forTable(tableName, DEFAULT_VERSION_ATTRIBUTE);
+  }
+
+  /**
+   * @param tableName        table name
+   * @param versionAttribute numeric attribute holding the item version
+   * @return the registered upgrader of the table, created if missing
+   */
+  public static ItemUpgrader forTable(String tableName, String versionAttribute) {
+    ItemUpgrader upgrader = REGISTRY.computeIfAbsent(tableName, name -> new ItemUpgrader(versionAttribute));
+    if (!upgrader.versionAttribute.equals(versionAttribute)) {
+      throw new IllegalStateException("Upgrader of table " + tableName + " already uses version attribute "
+          + upgrader.versionAttribute);
+    }
+    return upgrader;
+  }
+
+  /**
+   * Registers (or replaces) the transformer upgrading items of {@code fromVersion} to {@code fromVersion + 1}.
+   *
+   * @param fromVersion version the transformer reads
+   * @param transformer transformer; returning null keeps the item as is apart from the version
+   * @return ItemUpgrader object for fluent interface
+   */
+  public ItemUpgrader register(int fromVersion, ItemTransformer transformer) {
+    if (fromVersion < INITIAL_VERSION) {
+      throw new IllegalArgumentException("Versions start at " + INITIAL_VERSION);
+    }
+    transformers.put(fromVersion, transformer);
+    return this;
+  }
+
+  public String getVersionAttribute() {
+    return versionAttribute;
+  }
+
+  /**
+   * @return version of items after all registered transformers were applied
+   */
+  public int getTargetVersion() {
+    return transformers.isEmpty() ? INITIAL_VERSION : transformers.lastKey() + 1;
+  }
+
+  public int versionOf(Map<String, AttributeValue> item) {
+    AttributeValue version = item.get(versionAttribute);
+    return version == null || version.n() == null ? INITIAL_VERSION : Integer.parseInt(version.n());
+  }
+
+  public boolean needsUpgrade(Map<String, AttributeValue> item) {
+    return versionOf(item) < getTargetVersion();
+  }
+
+  /**
+   * @param item item of any version
+   * @return a new map holding the item at {@link #getTargetVersion()}
+   */
+  public Map<String, AttributeValue> upgrade(Map<String, AttributeValue> item) {
+    int targetVersion = getTargetVersion();
+    Map<String, AttributeValue> current = item;
+    for (int version = versionOf(item); version < targetVersion; version++) {
+      ItemTransformer transformer = transformers.get(version);
+      if (transformer == null) {
+        throw new IllegalStateException("No item transformer registered for version " + version);
+      }
+      Map<String, AttributeValue> transformed = transformer.transform(current);
+      current = new HashMap<>(transformed != null ? transformed : current);
+      current.put(versionAttribute, versionValue(version + 1));
+    }
+    return current;
+  }
+
+  AttributeValue versionValue(int version) {
+    return AttributeValue.builder().n(Integer.toString(version)).build();
+  }
+}
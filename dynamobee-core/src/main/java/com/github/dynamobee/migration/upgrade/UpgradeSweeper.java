@@ -0,0 +1,139 @@
+package com.github.dynamobee.migration.upgrade;
+
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.DeltaWriter;
+import com.github.dynamobee.migration.MigrationExecutors;
+import com.github.dynamobee.migration.ParallelScanner;
+import com.github.dynamobee.migration.TableKeys;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Low-priority background sweep upgrading the items a lazy migration has not touched yet.
+ * Only items below the target version are returned by the scan, and all reads and writes
+ * are throttled by a {@link CapacityBudget}.
+ */
+public class UpgradeSweeper {
+  private static final Logger logger = LoggerFactory.getLogger(UpgradeSweeper.class);
+
+  private static final double DEFAULT_UNITS_PER_SECOND = 25;
+  private static final int DEFAULT_TOTAL_SEGMENTS = 4;
+
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+  private final ItemUpgrader upgrader;
+
+  private int totalSegments = DEFAULT_TOTAL_SEGMENTS;
+  private CapacityBudget capacityBudget = new CapacityBudget(DEFAULT_UNITS_PER_SECOND);
+
+  private final AtomicBoolean stopped = new AtomicBoolean();
+  private final AtomicLong scanned = new AtomicLong();
+  private final AtomicLong upgraded = new AtomicLong();
+  private final AtomicLong skipped = new AtomicLong();
+
+  public UpgradeSweeper(DynamoDbClient dynamoDbClient, String tableName, ItemUpgrader upgrader) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+    this.upgrader = upgrader;
+  }
+
+  /**
+   * Starts the sweep on background daemon threads of minimum priority.
+   *
+   * @return future completed with the number of upgraded items
+   */
+  public CompletableFuture<Long> start() {
+    return CompletableFuture.supplyAsync(this::run,
+        runnable -> MigrationExecutors.threadFactory("dynamobee-sweeper-" + tableName, Thread.MIN_PRIORITY)
+            .newThread(runnable)
+            .start());
+  }
+
+  /**
+   * Runs the sweep on the calling thread (and the scan workers).
+   *
+   * @return number of upgraded items
+   */
+  public long run() {
+    DeltaWriter writer = UpgradeWriteBack.newWriter(dynamoDbClient, tableName, capacityBudget)
+        .setKeys(TableKeys.describe(dynamoDbClient, tableName));
+    ParallelScanner scanner = new ParallelScanner(dynamoDbClient, tableName)
+        .setTotalSegments(totalSegments)
+        .setThreadPriority(Thread.MIN_PRIORITY)
+        .setCapacityBudget(capacityBudget)
+        .setStopCondition(stopped::get)
+        .setFilterExpression("attribute_not_exists(#ver) OR #ver < :target")
+        .putExpressionAttributeName("#ver", upgrader.getVersionAttribute())
+        .putExpressionAttributeValue(":target", upgrader.versionValue(upgrader.getTargetVersion()));
+
+    logger.info("Sweeping {} for items below version {}", tableName, upgrader.getTargetVersion());
+    try {
+      scanner.scan((segment, items) -> {
+        for (Map<String, AttributeValue> item : items) {
+          if (stopped.get()) {
+            throw new CancellationException("Sweeper stopped");
+          }
+          scanned.incrementAndGet();
+          if (!upgrader.needsUpgrade(item)) {
+            continue;
+          }
+          if (UpgradeWriteBack.write(writer, upgrader, item, upgrader.upgrade(item), capacityBudget)) {
+            upgraded.incrementAndGet();
+          } else {
+            skipped.incrementAndGet();
+          }
+        }
+      });
+      logger.info("Sweep of {} finished: {} items upgraded, {} changed concurrently", tableName,
+          upgraded.get(), skipped.get());
+    } catch (CancellationException e) {
+      logger.info("Sweep of {} stopped after {} upgraded items", tableName, upgraded.get());
+    }
+    return upgraded.get();
+  }
+
+  /**
+   * Stops a running sweep after the current item, or before the next page of a segment
+   */
+  public void stop() {
+    stopped.set(true);
+  }
+
+  public long getScannedCount() {
+    return scanned.get();
+  }
+
+  public long getUpgradedCount() {
+    return upgraded.get();
+  }
+
+  public long getSkippedCount() {
+    return skipped.get();
+  }
+
+  /**
+   * @param totalSegments number of parallel scan segments (default 4)
+   * @return UpgradeSweeper object for fluent interface
+   */
+  public UpgradeSweeper setTotalSegments(int totalSegments) {
+    this.totalSegments = totalSegments;
+    return this;
+  }
+
+  /**
+   * @param capacityBudget budget for the sweep's reads and writes (default 25 units per second)
+   * @return UpgradeSweeper object for fluent interface
+   */
+  public UpgradeSweeper setCapacityBudget(CapacityBudget capacityBudget) {
+    this.capacityBudget = capacityBudget;
+    return this;
+  }
+}
@@ -0,0 +1,66 @@
+package com.github.dynamobee.migration.upgrade;
+
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.DeltaWrite;
+import com.github.dynamobee.migration.DeltaWriter;
+import java.util.HashMap;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+
+/**
+ * Writes the attributes an upgrade changed back, unless the stored item was deleted or changed its version meanwhile.
+ * <p>
+ * Only the delta between the read and the upgraded attributes is sent as an UpdateItem (never a put),
+ * so items read with a projection or from an index with a partial projection keep their other attributes.
+ */
+final class UpgradeWriteBack {
+
+  private UpgradeWriteBack() {
+  }
+
+  /**
+   * @param dynamoDbClient client
+   * @param tableName      table of the item
+   * @param capacityBudget budget of the writes
+   * @return writer for {@link #write}, with the put fallback disabled
+   */
+  static DeltaWriter newWriter(DynamoDbClient dynamoDbClient, String tableName, CapacityBudget capacityBudget) {
+    return new DeltaWriter(dynamoDbClient, tableName)
+        .setPutFallback(false)
+        .setCapacityBudget(capacityBudget);
+  }
+
+  /**
+   * @return true if written, false if the condition failed (item deleted or already upgraded)
+   */
+  static boolean write(DeltaWriter writer, ItemUpgrader upgrader, Map<String, AttributeValue> original,
+                       Map<String, AttributeValue> upgraded, CapacityBudget capacityBudget) {
+    DeltaWrite write = writer.prepare(original, upgraded);
+    if (write == null) {
+      return true;
+    }
+
+    Map<String, String> names = new HashMap<>();
+    names.put("#ver", upgrader.getVersionAttribute());
+    Map<String, AttributeValue> values = new HashMap<>();
+    String condition;
+    if (original.containsKey(upgrader.getVersionAttribute())) {
+      condition = "#ver = :ver";
+      values.put(":ver", original.get(upgrader.getVersionAttribute()));
+    } else {
+      condition = "attribute_exists(#pk) AND attribute_not_exists(#ver)";
+      names.put("#pk", writer.getKeys().getPartitionKey());
+    }
+
+    try {
+      writer.execute(write.withCondition(condition, names, values));
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      capacityBudget.consume(1);
+      return false;
+    }
+  }
+}
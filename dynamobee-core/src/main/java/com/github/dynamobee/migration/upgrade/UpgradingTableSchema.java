@@ -0,0 +1,196 @@
+package com.github.dynamobee.migration.upgrade;
+
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.DeltaWriter;
+import com.github.dynamobee.migration.MigrationExecutors;
+import com.github.dynamobee.migration.TableKeys;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * {@link TableSchema} wrapper for the enhanced client which upgrades outdated items on read.
+ * Items written through the schema are stamped with the current version.
+ * <pre>
+ * TableSchema&lt;Order&gt; schema = new UpgradingTableSchema&lt;&gt;(TableSchema.fromBean(Order.class),
+ *     ItemUpgrader.forTable("orders"), dynamoDbClient, "orders").setWriteBack(true);
+ * DynamoDbTable&lt;Order&gt; orders = enhancedClient.table("orders", schema);
+ * </pre>
+ * With {@link #setWriteBack} enabled, outdated items are upgraded in the table as well, in the background: the whole
+ * item is read again by key with a consistent read, upgraded, and the changed attributes are written with a
+ * version-conditioned UpdateItem. The attributes handed to {@link #mapToItem} are never written back, since a
+ * projection or an index query may have read only some of them and the transformers would miss the others.
+ * Reads which do not contain the primary key are not written back. Write backs queue up to a bound and are skipped
+ * beyond it, and a key is queued once until its write back ran, so hot items do not pile up.
+ *
+ * @param <T> item type
+ */
+public class UpgradingTableSchema<T> implements TableSchema<T> {
+  private static final Logger logger = LoggerFactory.getLogger(UpgradingTableSchema.class);
+
+  private static final int WRITE_BACK_QUEUE_CAPACITY = 1000;
+
+  private final TableSchema<T> delegate;
+  private final ItemUpgrader upgrader;
+  private final DynamoDbClient dynamoDbClient;
+  private final String tableName;
+
+  private boolean writeBack;
+  private Executor writeBackExecutor;
+  private final Set<Map<String, AttributeValue>> queuedKeys = ConcurrentHashMap.newKeySet();
+  private volatile DeltaWriter writer;
+
+  public UpgradingTableSchema(TableSchema<T> delegate, ItemUpgrader upgrader, DynamoDbClient dynamoDbClient,
+                              String tableName) {
+    this.delegate = delegate;
+    this.upgrader = upgrader;
+    this.dynamoDbClient = dynamoDbClient;
+    this.tableName = tableName;
+  }
+
+  @Override
+  public T mapToItem(Map<String, AttributeValue> attributeMap) {
+    if (attributeMap == null || !upgrader.needsUpgrade(attributeMap)) {
+      return delegate.mapToItem(attributeMap);
+    }
+    if (writeBack) {
+      Map<String, AttributeValue> key = keyOf(attributeMap);
+      if (key != null && queuedKeys.add(key)) {
+        try {
+          getWriteBackExecutor().execute(() -> {
+            try {
+              writeBack(key);
+            } finally {
+              queuedKeys.remove(key);
+            }
+          });
+        } catch (RejectedExecutionException e) {
+          // the queue is full: the item is upgraded again on a later read, or by the sweeper
+          queuedKeys.remove(key);
+          logger.debug("Write back queue of {} is full, upgrade not written back", tableName);
+        }
+      }
+    }
+    return delegate.mapToItem(upgrader.upgrade(attributeMap));
+  }
+
+  private Map<String, AttributeValue> keyOf(Map<String, AttributeValue> attributeMap) {
+    TableKeys keys = getWriter().getKeys();
+    for (String name : keys.names()) {
+      if (!attributeMap.containsKey(name)) {
+        return null;
+      }
+    }
+    return keys.keyOf(attributeMap);
+  }
+
+  /**
+   * Upgrades the whole stored item, never the attributes of the read which triggered it
+   */
+  private void writeBack(Map<String, AttributeValue> key) {
+    try {
+      Map<String, AttributeValue> item = dynamoDbClient.getItem(request -> request
+          .tableName(tableName)
+          .key(key)
+          .consistentRead(true)).item();
+      if (item == null || item.isEmpty() || !upgrader.needsUpgrade(item)) {
+        return;
+      }
+      if (!UpgradeWriteBack.write(getWriter(), upgrader, item, upgrader.upgrade(item), CapacityBudget.unlimited())) {
+        logger.debug("Item of {} changed concurrently, upgrade not written back", tableName);
+      }
+    } catch (RuntimeException e) {
+      logger.warn("Failed to write back upgraded item of {}", tableName, e);
+    }
+  }
+
+  private DeltaWriter getWriter() {
+    DeltaWriter deltaWriter = writer;
+    if (deltaWriter == null) {
+      TableMetadata metadata = tableMetadata();
+      deltaWriter = UpgradeWriteBack.newWriter(dynamoDbClient, tableName, CapacityBudget.unlimited())
+          .setKeys(new TableKeys(metadata.primaryPartitionKey(), metadata.primarySortKey().orElse(null)));
+      writer = deltaWriter;
+    }
+    return deltaWriter;
+  }
+
+  private synchronized Executor getWriteBackExecutor() {
+    if (writeBackExecutor == null) {
+      writeBackExecutor = MigrationExecutors.newBoundedPool("dynamobee-upgrade-" + tableName, 1, Thread.MIN_PRIORITY,
+          WRITE_BACK_QUEUE_CAPACITY);
+    }
+    return writeBackExecutor;
+  }
+
+  @Override
+  public Map<String, AttributeValue> itemToMap(T item, boolean ignoreNulls) {
+    Map<String, AttributeValue> map = new HashMap<>(delegate.itemToMap(item, ignoreNulls));
+    map.put(upgrader.getVersionAttribute(), upgrader.versionValue(upgrader.getTargetVersion()));
+    return map;
+  }
+
+  @Override
+  public Map<String, AttributeValue> itemToMap(T item, Collection<String> attributes) {
+    return delegate.itemToMap(item, attributes);
+  }
+
+  @Override
+  public AttributeValue attributeValue(T item, String attributeName) {
+    return delegate.attributeValue(item, attributeName);
+  }
+
+  @Override
+  public EnhancedType<T> itemType() {
+    return delegate.itemType();
+  }
+
+  @Override
+  public TableMetadata tableMetadata() {
+    return delegate.tableMetadata();
+  }
+
+  @Override
+  public boolean isAbstract() {
+    return delegate.isAbstract();
+  }
+
+  @Override
+  public List<String> attributeNames() {
+    return delegate.attributeNames();
+  }
+
+  /**
+   * @param writeBack whether outdated items are upgraded in the table, from a consistent read of the whole item
+   *                  (default false: upgraded on every read)
+   * @return UpgradingTableSchema object for fluent interface
+   */
+  public UpgradingTableSchema<T> setWriteBack(boolean writeBack) {
+    this.writeBack = writeBack;
+    return this;
+  }
+
+  /**
+   * @param writeBackExecutor executor running the conditional write backs; by default a single background thread
+   *                          of minimum priority, so reads do not wait for them, with up to 1000 queued write backs.
+   *                          Write backs it rejects are skipped, as are reads of a key whose write back is queued
+   * @return UpgradingTableSchema object for fluent interface
+   */
+  public synchronized UpgradingTableSchema<T> setWriteBackExecutor(Executor writeBackExecutor) {
+    this.writeBackExecutor = writeBackExecutor;
+    return this;
+  }
+}
@@ -0,0 +1,71 @@
+package com.github.dynamobee.partiql;
+
+import java.util.List;
+
+
+/**
+ * Changeset defined by a {@code .partiql} file instead of a @{@link com.github.dynamobee.changeset.ChangeSet} method.
+ * <p>
+ * Statements run in source order. Groups separated by {@code -- barrier} lines run one after another;
+ * only the statements of a group marked {@code -- parallel} are executed in parallel batches.
+ */
+public final class PartiqlScript {
+  private final String resourceName;
+  private final String id;
+  private final String author;
+  private final String order;
+  private final boolean runAlways;
+  private final List<StatementGroup> statementGroups;
+
+  PartiqlScript(String resourceName, String id, String author, String order, boolean runAlways,
+                List<StatementGroup> statementGroups) {
+    this.resourceName = resourceName;
+    this.id = id;
+    this.author = author;
+    this.order = order;
+    this.runAlways = runAlways;
+    this.statementGroups = statementGroups;
+  }
+
+  /**
+   * @return class path location of the script
+   */
+  public String getResourceName() {
+    return resourceName;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public String getAuthor() {
+    return author;
+  }
+
+  /**
+   * @return order of the script among changelogs, compared like {@link com.github.dynamobee.changeset.ChangeLog#order()}
+   */
+  public String getOrder() {
+    return order;
+  }
+
+  public boolean isRunAlways() {
+    return runAlways;
+  }
+
+  public List<StatementGroup> getStatementGroups() {
+    return statementGroups;
+  }
+
+  public int getStatementCount() {
+    return statementGroups.stream().mapToInt(group -> group.getStatements().size()).sum();
+  }
+
+  @Override
+  public String toString() {
+    return "[PartiqlScript: id=" + id +
+        ", author=" + author +
+        ", order=" + order +
+        ", resource=" + resourceName + "]";
+  }
+}
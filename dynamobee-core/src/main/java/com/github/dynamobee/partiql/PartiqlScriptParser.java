@@ -0,0 +1,132 @@
+package com.github.dynamobee.partiql;
+
+import com.github.dynamobee.exception.DynamobeeChangeSetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Parses {@code .partiql} changeset files:
+ * <pre>
+ * -- id: fixOrderStatus
+ * -- author: jdoe
+ * -- order: 005
+ * -- runAlways: false
+ *
+ * INSERT INTO "orders" VALUE {'pk': 'o#3', 'status': 'NEW'};
+ * UPDATE "orders" SET total = 0 WHERE pk = 'o#3';
+ * -- barrier
+ * -- parallel
+ * UPDATE "orders" SET status = 'NEW' WHERE pk = 'o#1';
+ * UPDATE "orders" SET status = 'NEW' WHERE pk = 'o#2';
+ * </pre>
+ * Header comments must precede the first statement; statements end with {@code ;}.
+ * A {@code -- parallel} line marks the statements up to the next barrier as independent of each other.
+ */
+public final class PartiqlScriptParser {
+  private static final String HEADER_ID = "id";
+  private static final String HEADER_AUTHOR = "author";
+  private static final String HEADER_ORDER = "order";
+  private static final String HEADER_RUN_ALWAYS = "runalways";
+  private static final String BARRIER = "barrier";
+  private static final String PARALLEL = "parallel";
+
+  private PartiqlScriptParser() {
+  }
+
+  public static PartiqlScript parse(String resourceName, String content) throws DynamobeeChangeSetException {
+    Map<String, String> headers = new HashMap<>();
+    List<StatementGroup> groups = new ArrayList<>();
+    List<String> group = new ArrayList<>();
+    boolean parallel = false;
+    StringBuilder statement = new StringBuilder();
+    boolean inHeader = true;
+    boolean inSingleQuotes = false;
+    boolean inDoubleQuotes = false;
+
+    for (String line : content.split("\\R")) {
+      String trimmed = line.trim();
+      boolean insideLiteral = inSingleQuotes || inDoubleQuotes;
+      if (!insideLiteral && trimmed.startsWith("--")) {
+        String comment = trimmed.substring(2).trim();
+        int colon = comment.indexOf(':');
+        if (inHeader && colon > 0) {
+          headers.put(comment.substring(0, colon).trim().toLowerCase(Locale.ROOT), comment.substring(colon + 1).trim());
+        } else if (BARRIER.equalsIgnoreCase(comment)) {
+          if (statement.toString().trim().length() > 0) {
+            throw new DynamobeeChangeSetException("Unterminated statement before barrier in " + resourceName);
+          }
+          if (!group.isEmpty()) {
+            groups.add(new StatementGroup(group, parallel));
+            group.clear();
+          }
+          parallel = false;
+        } else if (PARALLEL.equalsIgnoreCase(comment)) {
+          if (!group.isEmpty() || statement.toString().trim().length() > 0) {
+            throw new DynamobeeChangeSetException("'-- parallel' must start a group, after a barrier, in "
+                + resourceName);
+          }
+          parallel = true;
+        }
+        continue;
+      }
+
+      for (int i = 0; i < line.length(); i++) {
+        char c = line.charAt(i);
+        if (c == '\'' && !inDoubleQuotes) {
+          inSingleQuotes = !inSingleQuotes;
+        } else if (c == '"' && !inSingleQuotes) {
+          inDoubleQuotes = !inDoubleQuotes;
+        } else if (!inSingleQuotes && !inDoubleQuotes) {
+          if (c == '-' && i + 1 < line.length() && line.charAt(i + 1) == '-') {
+            break;
+          }
+          if (c == ';') {
+            addStatement(group, statement);
+            continue;
+          }
+        }
+        statement.append(c);
+      }
+      statement.append('\n');
+      if (trimmed.length() > 0) {
+        inHeader = false;
+      }
+    }
+    if (inSingleQuotes || inDoubleQuotes) {
+      throw new DynamobeeChangeSetException("Unterminated quote in " + resourceName);
+    }
+    addStatement(group, statement);
+    if (!group.isEmpty()) {
+      groups.add(new StatementGroup(group, parallel));
+    }
+
+    return new PartiqlScript(resourceName,
+        requiredHeader(headers, HEADER_ID, resourceName),
+        requiredHeader(headers, HEADER_AUTHOR, resourceName),
+        requiredHeader(headers, HEADER_ORDER, resourceName),
+        Boolean.parseBoolean(headers.getOrDefault(HEADER_RUN_ALWAYS, "false")),
+        List.copyOf(groups));
+  }
+
+  private static void addStatement(List<String> group, StringBuilder statement) {
+    String text = statement.toString().trim();
+    if (text.length() > 0) {
+      group.add(text);
+    }
+    statement.setLength(0);
+  }
+
+  private static String requiredHeader(Map<String, String> headers, String name, String resourceName)
+      throws DynamobeeChangeSetException {
+    String value = headers.get(name);
+    if (value == null || value.isEmpty()) {
+      throw new DynamobeeChangeSetException(String.format("PartiQL script %s has no '-- %s:' header",
+          resourceName, name));
+    }
+    return value;
+  }
+}
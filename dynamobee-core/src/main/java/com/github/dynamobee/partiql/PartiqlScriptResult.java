@@ -0,0 +1,48 @@
+package com.github.dynamobee.partiql;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Outcome of a {@link PartiqlScript} execution
+ */
+public final class PartiqlScriptResult {
+  private final PartiqlScript script;
+  private final List<StatementResult> statementResults;
+
+  PartiqlScriptResult(PartiqlScript script, List<StatementResult> statementResults) {
+    this.script = script;
+    this.statementResults = List.copyOf(statementResults);
+  }
+
+  public PartiqlScript getScript() {
+    return script;
+  }
+
+  /**
+   * @return results of the executed statements; groups after a failing group are not executed
+   */
+  public List<StatementResult> getStatementResults() {
+    return statementResults;
+  }
+
+  public List<StatementResult> getFailures() {
+    return statementResults.stream().filter(result -> !result.isSuccessful()).collect(Collectors.toList());
+  }
+
+  /**
+   * @return true if every statement of the script was executed successfully
+   */
+  public boolean isSuccessful() {
+    return statementResults.size() == script.getStatementCount()
+        && statementResults.stream().allMatch(StatementResult::isSuccessful);
+  }
+
+  @Override
+  public String toString() {
+    return "[PartiqlScriptResult: " + script.getId() +
+        ", executed=" + statementResults.size() + "/" + script.getStatementCount() +
+        ", failed=" + getFailures().size() + "]";
+  }
+}
@@ -0,0 +1,189 @@
+package com.github.dynamobee.partiql;
+
+import com.github.dynamobee.migration.BatchWriter;
+import com.github.dynamobee.migration.MigrationExecutors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.BatchExecuteStatementResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchStatementErrorCodeEnum;
+import software.amazon.awssdk.services.dynamodb.model.BatchStatementRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchStatementResponse;
+
+
+/**
+ * Executes {@link PartiqlScript}s with BatchExecuteStatement, {@value #MAX_BATCH_SIZE} statements per call.
+ * <p>
+ * Statements run in source order: consecutive reads share a batch, every write is sent on its own,
+ * since the statements of a batch are not applied in a guaranteed order. Only groups marked parallel are split
+ * into batches of up to {@value #MAX_BATCH_SIZE} statements running in parallel; reads and writes are never
+ * mixed in a batch. Statements failed by throttling or an internal error are retried with backoff; execution stops
+ * at the first statement failing otherwise, or after the group containing it.
+ */
+public class PartiqlScriptRunner {
+  private static final Logger logger = LoggerFactory.getLogger(PartiqlScriptRunner.class);
+
+  public static final int MAX_BATCH_SIZE = 25;
+
+  /**
+   * Error code of statements the BatchExecuteStatement response has no entry for
+   */
+  public static final String MISSING_RESPONSE = "MissingResponse";
+
+  private static final int MAX_RETRIES = 10;
+  private static final Set<String> RETRYABLE_ERRORS = Set.of(
+      BatchStatementErrorCodeEnum.THROTTLING_ERROR.toString(),
+      BatchStatementErrorCodeEnum.PROVISIONED_THROUGHPUT_EXCEEDED.toString(),
+      BatchStatementErrorCodeEnum.INTERNAL_SERVER_ERROR.toString());
+
+  private final DynamoDbClient dynamoDbClient;
+  private final int threads;
+
+  public PartiqlScriptRunner(DynamoDbClient dynamoDbClient, int threads) {
+    this.dynamoDbClient = dynamoDbClient;
+    this.threads = threads;
+  }
+
+  public PartiqlScriptResult execute(PartiqlScript script) {
+    List<StatementResult> results = new ArrayList<>();
+    int offset = 0;
+    for (StatementGroup group : script.getStatementGroups()) {
+      List<StatementResult> groupResults = group.isParallel()
+          ? executeParallel(group.getStatements(), offset)
+          : executeInOrder(group.getStatements(), offset);
+      groupResults.stream()
+          .filter(result -> !result.isSuccessful())
+          .forEach(result -> logger.error("{} statement {} failed: {} - {} {}", script.getResourceName(),
+              result.getIndex(), result.getErrorCode(), result.getErrorMessage(), result.getStatement()));
+      results.addAll(groupResults);
+      offset += group.getStatements().size();
+      if (groupResults.stream().anyMatch(result -> !result.isSuccessful())) {
+        break;
+      }
+    }
+
+    PartiqlScriptResult result = new PartiqlScriptResult(script, results);
+    logger.info("{} executed: {}", script.getResourceName(), result);
+    return result;
+  }
+
+  /**
+   * Runs the statements one after another, batching only consecutive reads, until one fails
+   */
+  private List<StatementResult> executeInOrder(List<String> statements, int offset) {
+    StatementResult[] results = new StatementResult[statements.size()];
+    int executed = 0;
+    while (executed < statements.size()) {
+      List<Integer> batch = new ArrayList<>();
+      batch.add(offset + executed);
+      if (isRead(statements.get(executed))) {
+        while (batch.size() < MAX_BATCH_SIZE && executed + batch.size() < statements.size()
+            && isRead(statements.get(executed + batch.size()))) {
+          batch.add(offset + executed + batch.size());
+        }
+      }
+      executeBatch(statements, offset, batch, results);
+      executed += batch.size();
+      for (Integer index : batch) {
+        if (!results[index - offset].isSuccessful()) {
+          return List.of(Arrays.copyOf(results, executed));
+        }
+      }
+    }
+    return List.of(results);
+  }
+
+  private List<StatementResult> executeParallel(List<String> statements, int offset) {
+    List<List<Integer>> batches = new ArrayList<>();
+    batches.addAll(batch(statements, offset, true));
+    batches.addAll(batch(statements, offset, false));
+
+    StatementResult[] results = new StatementResult[statements.size()];
+    ExecutorService executor = MigrationExecutors.newPool("dynamobee-partiql", Math.max(1, Math.min(threads, batches.size())));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (List<Integer> batch : batches) {
+        futures.add(executor.submit(() -> executeBatch(statements, offset, batch, results)));
+      }
+      MigrationExecutors.awaitAll(futures);
+    } finally {
+      executor.shutdownNow();
+    }
+    return List.of(results);
+  }
+
+  /**
+   * Executes one batch, retrying statements failed by throttling or an internal error with backoff
+   */
+  private void executeBatch(List<String> statements, int offset, List<Integer> batch, StatementResult[] results) {
+    List<Integer> pending = batch;
+    for (int attempt = 0; !pending.isEmpty(); attempt++) {
+      if (attempt > 0) {
+        BatchWriter.backoff(attempt);
+      }
+      List<BatchStatementRequest> requests = new ArrayList<>(pending.size());
+      for (Integer index : pending) {
+        requests.add(BatchStatementRequest.builder().statement(statements.get(index - offset)).build());
+      }
+      BatchExecuteStatementResponse response = dynamoDbClient.batchExecuteStatement(request -> request
+          .statements(requests));
+      List<BatchStatementResponse> responses = response.responses();
+      List<Integer> retries = new ArrayList<>();
+      for (int i = 0; i < pending.size(); i++) {
+        int index = pending.get(i);
+        String statement = statements.get(index - offset);
+        StatementResult result;
+        if (i >= responses.size()) {
+          result = new StatementResult(index, statement, MISSING_RESPONSE, "No response returned for the statement");
+        } else if (responses.get(i).error() != null) {
+          String errorCode = responses.get(i).error().codeAsString();
+          if (attempt < MAX_RETRIES && RETRYABLE_ERRORS.contains(errorCode)) {
+            retries.add(index);
+            continue;
+          }
+          result = new StatementResult(index, statement, errorCode, responses.get(i).error().message());
+        } else {
+          result = new StatementResult(index, statement, null, null);
+        }
+        if (result.isSuccessful()) {
+          logger.info("{} {}", result, statement);
+        }
+        results[index - offset] = result;
+      }
+      if (!retries.isEmpty()) {
+        logger.debug("Retrying {} throttled statements, attempt {}", retries.size(), attempt + 1);
+      }
+      pending = retries;
+    }
+  }
+
+  private static List<List<Integer>> batch(List<String> statements, int offset, boolean reads) {
+    List<List<Integer>> batches = new ArrayList<>();
+    List<Integer> current = new ArrayList<>();
+    for (int i = 0; i < statements.size(); i++) {
+      if (isRead(statements.get(i)) != reads) {
+        continue;
+      }
+      current.add(offset + i);
+      if (current.size() == MAX_BATCH_SIZE) {
+        batches.add(current);
+        current = new ArrayList<>();
+      }
+    }
+    if (!current.isEmpty()) {
+      batches.add(current);
+    }
+    return batches;
+  }
+
+  private static boolean isRead(String statement) {
+    return statement.toUpperCase(Locale.ROOT).startsWith("SELECT");
+  }
+}
@@ -0,0 +1,31 @@
+package com.github.dynamobee.partiql;
+
+import java.util.List;
+
+
+/**
+ * Statements of a {@link PartiqlScript} between two {@code -- barrier} lines.
+ * <p>
+ * Statements run one after another in source order, unless the group starts with {@code -- parallel}:
+ * its statements are then declared independent of each other and executed in parallel batches.
+ */
+public final class StatementGroup {
+  private final List<String> statements;
+  private final boolean parallel;
+
+  StatementGroup(List<String> statements, boolean parallel) {
+    this.statements = List.copyOf(statements);
+    this.parallel = parallel;
+  }
+
+  public List<String> getStatements() {
+    return statements;
+  }
+
+  /**
+   * @return true if the statements may run in any order
+   */
+  public boolean isParallel() {
+    return parallel;
+  }
+}
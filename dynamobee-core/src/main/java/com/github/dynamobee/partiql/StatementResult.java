@@ -0,0 +1,50 @@
+package com.github.dynamobee.partiql;
+
+
+/**
+ * Outcome of one statement of a {@link PartiqlScript}
+ */
+public final class StatementResult {
+  private final int index;
+  private final String statement;
+  private final String errorCode;
+  private final String errorMessage;
+
+  StatementResult(int index, String statement, String errorCode, String errorMessage) {
+    this.index = index;
+    this.statement = statement;
+    this.errorCode = errorCode;
+    this.errorMessage = errorMessage;
+  }
+
+  /**
+   * @return zero-based position of the statement in the script
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  public String getStatement() {
+    return statement;
+  }
+
+  public boolean isSuccessful() {
+    return errorCode == null;
+  }
+
+  /**
+   * @return BatchStatementError code, e.g. ConditionalCheckFailed, or null on success
+   */
+  public String getErrorCode() {
+    return errorCode;
+  }
+
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  @Override
+  public String toString() {
+    return "[Statement " + index + ": " + (isSuccessful() ? "OK" : errorCode + " - " + errorMessage) + "]";
+  }
+}
@@ -1,7 +1,5 @@
 package com.github.dynamobee.utils;
 
-import static org.springframework.util.StringUtils.hasText;
-
 import com.github.dynamobee.changeset.ChangeLog;
 import java.io.Serializable;
 import java.util.Comparator;
@@ -13,11 +11,8 @@ import java.util.Comparator;
 public class ChangeLogComparator implements Comparator<Class<?>>, Serializable {
 	@Override
 	public int compare(Class<?> o1, Class<?> o2) {
-		ChangeLog c1 = o1.getAnnotation(ChangeLog.class);
-		ChangeLog c2 = o2.getAnnotation(ChangeLog.class);
-
-		String val1 = !(hasText(c1.order())) ? o1.getCanonicalName() : c1.order();
-		String val2 = !(hasText(c2.order())) ? o2.getCanonicalName() : c2.order();
+		String val1 = orderOf(o1);
+		String val2 = orderOf(o2);
 
 		if (val1 == null && val2 == null) {
 			return 0;
@@ -29,4 +24,17 @@ public class ChangeLogComparator implements Comparator<Class<?>>, Serializable {
 
 		return val1.compareTo(val2);
 	}
+
+	/**
+	 * @param changeLogClass class annotated with @{@link ChangeLog}
+	 * @return the 'order' value, or the class name if no 'order' is set
+	 */
+	public static String orderOf(Class<?> changeLogClass) {
+		ChangeLog changeLog = changeLogClass.getAnnotation(ChangeLog.class);
+		return !(hasText(changeLog.order())) ? changeLogClass.getCanonicalName() : changeLog.order();
+	}
+
+	private static boolean hasText(String value) {
+		return value != null && !value.trim().isEmpty();
+	}
 }
@@ -0,0 +1,38 @@
+package com.github.dynamobee.utils;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Finds @{@link com.github.dynamobee.changeset.ChangeLog}-annotated classes.
+ * Headless runners may supply a fixed list of classes to skip classpath scanning entirely.
+ */
+@FunctionalInterface
+public interface ChangeLogDiscovery {
+
+  /**
+   * @param basePackage package (including sub-packages) to search, may be null for custom implementations
+   * @return changelog classes, in any order
+   */
+  List<Class<?>> findChangeLogs(String basePackage);
+
+  /**
+   * @param basePackage package (including sub-packages) to search, may be null for custom implementations
+   * @return locations of {@code .partiql} changeset files by resource name relative to the class path root,
+   * which identifies the script in the dynamobee table, in any order
+   */
+  default Map<String, URL> findPartiqlScripts(String basePackage) {
+    return Map.of();
+  }
+
+  /**
+   * @param changeLogClasses the changelog classes to run
+   * @return discovery which returns the given classes without scanning
+   */
+  static ChangeLogDiscovery of(Class<?>... changeLogClasses) {
+    List<Class<?>> classes = List.of(changeLogClasses);
+    return basePackage -> classes;
+  }
+}
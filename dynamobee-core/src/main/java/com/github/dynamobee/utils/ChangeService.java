@@ -3,56 +3,62 @@ package com.github.dynamobee.utils;
 import static java.util.Arrays.asList;
 
 import com.github.dynamobee.changeset.ChangeEntry;
-import com.github.dynamobee.changeset.ChangeLog;
 import com.github.dynamobee.changeset.ChangeSet;
 import com.github.dynamobee.exception.DynamobeeChangeSetException;
-import java.lang.annotation.Annotation;
+import com.github.dynamobee.jfr.ChangeLogScanEvent;
+import com.github.dynamobee.jfr.FlightRecorderEvents;
+import com.github.dynamobee.partiql.PartiqlScript;
+import com.github.dynamobee.partiql.PartiqlScriptParser;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
-import org.reflections.Reflections;
-import org.springframework.context.annotation.Profile;
-import org.springframework.core.env.Environment;
 
 
 /**
  * Utilities to deal with reflections and annotations
  */
 public class ChangeService {
-  private static final String DEFAULT_PROFILE = "default";
 
   private final String changeLogsBasePackage;
-  private final List<String> activeProfiles;
+  private final ChangeLogDiscovery changeLogDiscovery;
+  private final ProfileResolver profileResolver;
 
   public ChangeService(String changeLogsBasePackage) {
-    this(changeLogsBasePackage, null);
+    this(changeLogsBasePackage, new ClasspathChangeLogDiscovery(), ProfileResolver.DEFAULT_PROFILE_ACTIVE);
   }
 
-  public ChangeService(String changeLogsBasePackage, Environment environment) {
+  public ChangeService(String changeLogsBasePackage, ChangeLogDiscovery changeLogDiscovery,
+                       ProfileResolver profileResolver) {
     this.changeLogsBasePackage = changeLogsBasePackage;
-
-    if (environment != null && environment.getActiveProfiles() != null && environment.getActiveProfiles().length > 0) {
-      this.activeProfiles = asList(environment.getActiveProfiles());
-    } else {
-      this.activeProfiles = asList(DEFAULT_PROFILE);
-    }
+    this.changeLogDiscovery = changeLogDiscovery;
+    this.profileResolver = profileResolver;
   }
 
   public List<Class<?>> fetchChangeLogs() {
-    Reflections reflections = new Reflections(changeLogsBasePackage);
-    Set<Class<?>> changeLogs = reflections.getTypesAnnotatedWith(ChangeLog.class); // TODO remove dependency, do own method
+    ChangeLogScanEvent event = FlightRecorderEvents.isInitialized() ? new ChangeLogScanEvent() : null;
+    if (event != null) {
+      event.begin();
+    }
+    List<Class<?>> changeLogs = changeLogDiscovery.findChangeLogs(changeLogsBasePackage);
     List<Class<?>> filteredChangeLogs = (List<Class<?>>) filterByActiveProfiles(changeLogs);
 
     Collections.sort(filteredChangeLogs, new ChangeLogComparator());
 
+    if (event != null) {
+      event.end(changeLogsBasePackage, filteredChangeLogs.size());
+    }
     return filteredChangeLogs;
   }
 
@@ -65,6 +71,22 @@ public class ChangeService {
     return filteredChangeSets;
   }
 
+  public List<PartiqlScript> fetchPartiqlScripts() throws DynamobeeChangeSetException {
+    final Set<String> scriptIds = new HashSet<>();
+    final List<PartiqlScript> scripts = new ArrayList<>();
+    for (Map.Entry<String, URL> location : changeLogDiscovery.findPartiqlScripts(changeLogsBasePackage).entrySet()) {
+      PartiqlScript script = PartiqlScriptParser.parse(location.getKey(), read(location.getValue()));
+      if (!scriptIds.add(script.getId())) {
+        throw new DynamobeeChangeSetException(String.format("Duplicated changeset id found: '%s'", script.getId()));
+      }
+      scripts.add(script);
+    }
+
+    scripts.sort(Comparator.comparing(PartiqlScript::getOrder));
+
+    return scripts;
+  }
+
   public boolean isRunAlwaysChangeSet(Method changesetMethod) {
     if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
       ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
@@ -74,6 +96,11 @@ public class ChangeService {
     }
   }
 
+  public boolean isDeferredChangeSet(Method changesetMethod) {
+    return changesetMethod.isAnnotationPresent(ChangeSet.class)
+        && changesetMethod.getAnnotation(ChangeSet.class).deferred();
+  }
+
   public ChangeEntry createChangeEntry(Method changesetMethod) {
     if (changesetMethod.isAnnotationPresent(ChangeSet.class)) {
       ChangeSet annotation = changesetMethod.getAnnotation(ChangeSet.class);
@@ -90,36 +117,27 @@ public class ChangeService {
     }
   }
 
-  private boolean matchesActiveSpringProfile(AnnotatedElement element) {
-    if (!ClassUtils.isPresent("org.springframework.context.annotation.Profile", null)) {
-      return true;
-    }
-
-    List<String> profiles = profileAnnotations(element).stream().
-        map(Profile::value).
-        flatMap(Stream::of).
-        collect(Collectors.toList());
+  public ChangeEntry createChangeEntry(PartiqlScript script) {
+    return ChangeEntry.builder()
+        .setChangeId(script.getId())
+        .setAuthor(script.getAuthor())
+        .setTimestamp(new Date())
+        .setChangeLogClass(script.getResourceName())
+        .build();
+  }
 
-    if (profiles.isEmpty()) {
-      return true; // no-profiled changeset always matches
+  private String read(URL location) throws DynamobeeChangeSetException {
+    try (InputStream in = location.openStream()) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new DynamobeeChangeSetException("Could not read PartiQL script " + location + ": " + e.getMessage());
     }
-
-    for (String profile : profiles) {
-      if (profile != null && profile.length() > 0 && profile.charAt(0) == '!') {
-        if (!activeProfiles.contains(profile.substring(1))) {
-          return true;
-        }
-      } else if (activeProfiles.contains(profile)) {
-        return true;
-      }
-    }
-    return false;
   }
 
   private List<?> filterByActiveProfiles(Collection<? extends AnnotatedElement> annotated) {
     List<AnnotatedElement> filtered = new ArrayList<>();
     for (AnnotatedElement element : annotated) {
-      if (matchesActiveSpringProfile(element)) {
+      if (profileResolver.isActive(element)) {
         filtered.add(element);
       }
     }
@@ -141,28 +159,4 @@ public class ChangeService {
     }
     return changesetMethods;
   }
-
-  private List<Profile> profileAnnotations(AnnotatedElement element) {
-    return Stream.of(element.getAnnotations()).
-        map(this::getProfile).
-        filter((p) -> p != null).
-        collect(Collectors.toList());
-  }
-
-  private Profile getProfile(Annotation annotation) {
-    if (isProfileAnnotation(annotation)) {
-      return (Profile) (annotation);
-    } else {
-      return Stream.of(annotation.annotationType().getAnnotations()).
-          filter(this::isProfileAnnotation). //  Does only allow one level of meta-annotation
-              map(this::getProfile).
-          filter(p -> p != null).
-          findFirst().
-          orElse(null);
-    }
-  }
-
-  private boolean isProfileAnnotation(Annotation annotation) {
-    return annotation.annotationType().equals(Profile.class);
-  }
 }
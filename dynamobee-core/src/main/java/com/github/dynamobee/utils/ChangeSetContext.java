@@ -0,0 +1,29 @@
+package com.github.dynamobee.utils;
+
+import com.github.dynamobee.migration.ScanSegment;
+
+
+/**
+ * Execution of a changeset whose arguments are being supplied: the changeset id and, for distributed changesets,
+ * the segment to process
+ */
+public final class ChangeSetContext {
+  private final String changeId;
+  private final ScanSegment segment;
+
+  public ChangeSetContext(String changeId, ScanSegment segment) {
+    this.changeId = changeId;
+    this.segment = segment;
+  }
+
+  public String getChangeId() {
+    return changeId;
+  }
+
+  /**
+   * @return the segment to process, or null if the changeset is not distributed
+   */
+  public ScanSegment getSegment() {
+    return segment;
+  }
+}
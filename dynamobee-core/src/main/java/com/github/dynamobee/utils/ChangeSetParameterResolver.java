@@ -0,0 +1,29 @@
+package com.github.dynamobee.utils;
+
+import java.lang.reflect.Parameter;
+
+
+/**
+ * Supplies the arguments of changeset methods, by parameter.
+ * <p>
+ * Parameters are resolved once per changeset method, before its first execution; the returned supplier is then
+ * called for every execution. Dynamobee resolves the DynamoDbClient, DynamoDbEnhancedClient, TableSchemaRegistry,
+ * KeyFanOut, IncrementalQuery and ScanSegment parameters itself, after the resolvers added to it.
+ */
+@FunctionalInterface
+public interface ChangeSetParameterResolver {
+
+  /**
+   * Supplies the argument of one parameter
+   */
+  @FunctionalInterface
+  interface ArgumentSupplier {
+    Object get(ChangeSetContext context);
+  }
+
+  /**
+   * @param parameter parameter of a changeset method
+   * @return the supplier of its argument, or null if this resolver does not handle the parameter
+   */
+  ArgumentSupplier resolve(Parameter parameter);
+}
@@ -0,0 +1,160 @@
+package com.github.dynamobee.utils;
+
+import com.github.dynamobee.changeset.ChangeLog;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Default {@link ChangeLogDiscovery} walking directories and jars of the class loader.
+ * <p>
+ * Class files are pre-filtered by looking for the @{@link ChangeLog} descriptor in their bytes,
+ * so only actual changelogs get loaded (without being initialized).
+ */
+public class ClasspathChangeLogDiscovery implements ChangeLogDiscovery {
+  private static final Logger logger = LoggerFactory.getLogger(ClasspathChangeLogDiscovery.class);
+
+  private static final String CLASS_SUFFIX = ".class";
+  private static final String PARTIQL_SUFFIX = ".partiql";
+  private static final byte[] CHANGELOG_DESCRIPTOR =
+      ("L" + ChangeLog.class.getName().replace('.', '/') + ";").getBytes(StandardCharsets.UTF_8);
+
+  private final ClassLoader classLoader;
+
+  public ClasspathChangeLogDiscovery() {
+    this(Thread.currentThread().getContextClassLoader() != null
+        ? Thread.currentThread().getContextClassLoader()
+        : ClasspathChangeLogDiscovery.class.getClassLoader());
+  }
+
+  public ClasspathChangeLogDiscovery(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+  }
+
+  @Override
+  public List<Class<?>> findChangeLogs(String basePackage) {
+    List<Class<?>> changeLogs = new ArrayList<>();
+    for (String resourceName : findResources(basePackage, CLASS_SUFFIX)) {
+      if (!hasChangeLogDescriptor(resourceName)) {
+        continue;
+      }
+      String className = resourceName
+          .substring(0, resourceName.length() - CLASS_SUFFIX.length())
+          .replace('/', '.');
+      try {
+        Class<?> type = Class.forName(className, false, classLoader);
+        if (type.isAnnotationPresent(ChangeLog.class)) {
+          changeLogs.add(type);
+        }
+      } catch (ClassNotFoundException | LinkageError e) {
+        logger.warn("Could not load class {}: {}", className, e.toString());
+      }
+    }
+    return changeLogs;
+  }
+
+  @Override
+  public Map<String, URL> findPartiqlScripts(String basePackage) {
+    Map<String, URL> scripts = new LinkedHashMap<>();
+    for (String resourceName : findResources(basePackage, PARTIQL_SUFFIX)) {
+      scripts.put(resourceName, classLoader.getResource(resourceName));
+    }
+    return scripts;
+  }
+
+  /**
+   * Lists resource names (relative to the class path root) below the given package.
+   *
+   * @param basePackage package to search, including sub-packages
+   * @param suffix      file name suffix to match, e.g. ".class"
+   * @return matching resource names, loadable via {@link ClassLoader#getResource(String)}
+   */
+  public List<String> findResources(String basePackage, String suffix) {
+    String basePath = basePackage.replace('.', '/');
+    List<String> resources = new ArrayList<>();
+    try {
+      Enumeration<URL> roots = classLoader.getResources(basePath);
+      while (roots.hasMoreElements()) {
+        URL root = roots.nextElement();
+        if ("file".equals(root.getProtocol())) {
+          resources.addAll(findInDirectory(Paths.get(root.toURI()), basePath, suffix));
+        } else if (root.openConnection() instanceof JarURLConnection) {
+          resources.addAll(findInJar((JarURLConnection) root.openConnection(), suffix));
+        } else {
+          logger.warn("Unsupported class path location {}, skipped", root);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to scan package " + basePackage, e);
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Failed to scan package " + basePackage, e);
+    }
+    return resources;
+  }
+
+  private List<String> findInDirectory(Path directory, String basePath, String suffix) throws IOException {
+    try (Stream<Path> files = Files.walk(directory)) {
+      return files
+          .filter(file -> file.getFileName().toString().endsWith(suffix))
+          .map(file -> basePath + "/" + directory.relativize(file).toString().replace('\\', '/'))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private List<String> findInJar(JarURLConnection connection, String suffix) throws IOException {
+    connection.setUseCaches(false);
+    String prefix = connection.getEntryName() == null ? "" : connection.getEntryName() + "/";
+    List<String> resources = new ArrayList<>();
+    try (JarFile jarFile = connection.getJarFile()) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        String name = entries.nextElement().getName();
+        if (name.startsWith(prefix) && name.endsWith(suffix)) {
+          resources.add(name);
+        }
+      }
+    }
+    return resources;
+  }
+
+  private boolean hasChangeLogDescriptor(String resourceName) {
+    try (InputStream in = classLoader.getResourceAsStream(resourceName)) {
+      return in != null && indexOf(in.readAllBytes(), CHANGELOG_DESCRIPTOR) >= 0;
+    } catch (IOException e) {
+      logger.warn("Could not read {}: {}", resourceName, e.toString());
+      return false;
+    }
+  }
+
+  private static int indexOf(byte[] data, byte[] pattern) {
+    outer:
+    for (int i = 0; i <= data.length - pattern.length; i++) {
+      for (int j = 0; j < pattern.length; j++) {
+        if (data[i + j] != pattern[j]) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+}
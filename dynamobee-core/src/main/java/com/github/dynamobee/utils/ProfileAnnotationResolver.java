@@ -0,0 +1,72 @@
+package com.github.dynamobee.utils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Matches Spring's {@code @Profile} annotations against a fixed set of active profiles, without depending on Spring:
+ * the annotation is recognized by its class name and its {@code value()} read reflectively.
+ * <p>
+ * Elements without {@code @Profile} are always active. A profile prefixed with {@code !} matches if it is not active.
+ * As in Spring, one level of meta-annotation is supported.
+ */
+public class ProfileAnnotationResolver implements ProfileResolver {
+  static final String PROFILE_ANNOTATION = "org.springframework.context.annotation.Profile";
+
+  private final Set<String> activeProfiles;
+
+  /**
+   * @param activeProfiles active profiles, e.g. {@code "default"}
+   */
+  public ProfileAnnotationResolver(String... activeProfiles) {
+    this.activeProfiles = Set.of(activeProfiles);
+  }
+
+  @Override
+  public boolean isActive(AnnotatedElement element) {
+    List<String> profiles = new ArrayList<>();
+    for (Annotation annotation : element.getAnnotations()) {
+      if (isProfile(annotation)) {
+        profiles.addAll(List.of(valueOf(annotation)));
+      } else {
+        for (Annotation meta : annotation.annotationType().getAnnotations()) {
+          if (isProfile(meta)) {
+            profiles.addAll(List.of(valueOf(meta)));
+            break;
+          }
+        }
+      }
+    }
+
+    if (profiles.isEmpty()) {
+      return true;
+    }
+    for (String profile : profiles) {
+      if (profile != null && profile.startsWith("!")) {
+        if (!activeProfiles.contains(profile.substring(1))) {
+          return true;
+        }
+      } else if (activeProfiles.contains(profile)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean isProfile(Annotation annotation) {
+    return annotation.annotationType().getName().equals(PROFILE_ANNOTATION);
+  }
+
+  private static String[] valueOf(Annotation annotation) {
+    try {
+      return (String[]) annotation.annotationType().getMethod("value").invoke(annotation);
+    } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | ClassCastException e) {
+      throw new IllegalStateException("Cannot read the profiles of " + annotation, e);
+    }
+  }
+}
@@ -0,0 +1,30 @@
+package com.github.dynamobee.utils;
+
+import java.lang.reflect.AnnotatedElement;
+
+
+/**
+ * Decides whether a changelog class or changeset method is active for the current environment.
+ * The core runner only activates the {@code default} profile; the Spring adapter resolves the profiles of the
+ * Spring environment.
+ */
+@FunctionalInterface
+public interface ProfileResolver {
+
+  /**
+   * Resolver which treats every changelog and changeset as active
+   */
+  ProfileResolver ALL_ACTIVE = element -> true;
+
+  /**
+   * Resolver of the core runner: {@code @Profile} annotations are matched against the {@code default} profile
+   * only, as Spring does without active profiles, so e.g. {@code @Profile("dev")} changesets are skipped
+   */
+  ProfileResolver DEFAULT_PROFILE_ACTIVE = new ProfileAnnotationResolver("default");
+
+  /**
+   * @param element changelog class or changeset method
+   * @return true if the element should be executed
+   */
+  boolean isActive(AnnotatedElement element);
+}
@@ -0,0 +1,52 @@
+package com.github.dynamobee.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+
+/**
+ * Process-wide cache of enhanced client table schemas.
+ * <p>
+ * Building a schema from an annotated bean or immutable class introspects it reflectively, which is slow;
+ * changesets asking the registry share one schema per class instead of building their own.
+ * <pre>
+ *   DynamoDbTable&lt;Order&gt; orders = enhancedClient.table("orders", schemas.schemaFor(Order.class));
+ * </pre>
+ */
+public final class TableSchemaRegistry {
+  private static final TableSchemaRegistry SHARED = new TableSchemaRegistry();
+
+  private final ConcurrentMap<Class<?>, TableSchema<?>> schemas = new ConcurrentHashMap<>();
+
+  private TableSchemaRegistry() {
+  }
+
+  /**
+   * @return the registry of this process, also passed to changeset methods declaring a TableSchemaRegistry parameter
+   */
+  public static TableSchemaRegistry shared() {
+    return SHARED;
+  }
+
+  /**
+   * @param itemClass class annotated with {@code @DynamoDbBean} or {@code @DynamoDbImmutable}
+   * @param <T>       item type
+   * @return the schema of the class, built on first use
+   */
+  @SuppressWarnings("unchecked")
+  public <T> TableSchema<T> schemaFor(Class<T> itemClass) {
+    return (TableSchema<T>) schemas.computeIfAbsent(itemClass, TableSchema::fromClass);
+  }
+
+  /**
+   * Registers a schema built by other means, e.g. a static schema
+   *
+   * @param itemClass item class
+   * @param schema    schema of the class
+   * @param <T>       item type
+   */
+  public <T> void register(Class<T> itemClass, TableSchema<T> schema) {
+    schemas.put(itemClass, schema);
+  }
+}
@@ -0,0 +1,96 @@
+package com.github.dynamobee;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.dynamobee.dao.SegmentPlan;
+import com.github.dynamobee.dao.SegmentPlanDao;
+import com.github.dynamobee.dao.SegmentPlanStatus;
+import com.github.dynamobee.migration.ScanSegment;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputExceededException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class SegmentWorkerTest {
+  private static final String TABLE = "dynamobee";
+  private static final long LEASE_MILLIS = 60;
+
+  private InMemoryDynamoDbClient client;
+  private SegmentPlan plan;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(TABLE)
+        .keySchema(KeySchemaElement.builder().attributeName("changeId").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("changeId")
+            .attributeType(ScalarAttributeType.S).build()));
+    plan = new SegmentPlan("backfillTotals", 1, "com.example.ChangeLog", "backfillTotals");
+  }
+
+  @Test
+  public void shouldKeepRenewingAfterTransientError() throws Exception {
+    AtomicInteger renewals = new AtomicInteger();
+    SegmentPlanDao dao = new SegmentPlanDao(client, TABLE) {
+      @Override
+      public boolean renewLease(SegmentPlan plan, ScanSegment segment, String owner, long leaseMillis) {
+        if (renewals.incrementAndGet() == 1) {
+          throw ProvisionedThroughputExceededException.builder().message("throttled").build();
+        }
+        return super.renewLease(plan, segment, owner, leaseMillis);
+      }
+    };
+    dao.publishPlan(plan);
+
+    int completed = new SegmentWorker(dao, LEASE_MILLIS, 3).work(plan, segment -> Thread.sleep(5 * LEASE_MILLIS));
+
+    assertEquals(1, completed);
+    assertTrue("lease renewed " + renewals.get() + " times", renewals.get() > 3);
+    assertTrue(dao.getStatus(plan).isComplete());
+  }
+
+  @Test
+  public void shouldInterruptTaskOnceLeaseIsLost() throws Exception {
+    AtomicInteger claims = new AtomicInteger();
+    SegmentPlanDao dao = new SegmentPlanDao(client, TABLE) {
+      @Override
+      public ScanSegment claimSegment(SegmentPlan plan, String owner, long leaseMillis) {
+        // the segment is taken over by another instance, which this worker does not compete with
+        return claims.incrementAndGet() == 1 ? super.claimSegment(plan, owner, leaseMillis) : null;
+      }
+
+      @Override
+      public boolean renewLease(SegmentPlan plan, ScanSegment segment, String owner, long leaseMillis) {
+        return false;
+      }
+    };
+    dao.publishPlan(plan);
+    AtomicBoolean interrupted = new AtomicBoolean();
+
+    int completed = new SegmentWorker(dao, LEASE_MILLIS, 3).work(plan, segment -> {
+      try {
+        Thread.sleep(100 * LEASE_MILLIS);
+      } catch (InterruptedException e) {
+        interrupted.set(true);
+        throw e;
+      }
+    });
+
+    assertEquals(0, completed);
+    assertTrue(interrupted.get());
+    assertFalse(Thread.currentThread().isInterrupted());
+    SegmentPlanStatus status = dao.getStatus(plan);
+    assertEquals("a lost segment is left to its new owner", 1, status.getInProgress());
+    assertEquals(0, status.getFailed());
+  }
+}
@@ -0,0 +1,103 @@
+package com.github.dynamobee.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class DeferredLeaseDaoTest {
+  private static final String TABLE = "dynamobee";
+  private static final long LEASE_MILLIS = 60_000L;
+
+  private DeferredLeaseDao dao;
+
+  @Before
+  public void setUp() {
+    InMemoryDynamoDbClient client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(TABLE)
+        .keySchema(KeySchemaElement.builder().attributeName("changeId").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("changeId")
+            .attributeType(ScalarAttributeType.S).build()));
+    dao = new DeferredLeaseDao(client, TABLE);
+  }
+
+  @Test
+  public void shouldHoldLeaseUntilReleased() {
+    assertEquals(DeferredLeaseDao.Lease.HELD, dao.acquire("a", LEASE_MILLIS));
+    assertEquals(DeferredLeaseDao.Lease.HELD, dao.acquire("a", LEASE_MILLIS));
+    assertEquals(DeferredLeaseDao.Lease.NOT_HELD, dao.acquire("b", LEASE_MILLIS));
+
+    dao.release("a");
+
+    assertEquals(DeferredLeaseDao.Lease.HELD, dao.acquire("b", LEASE_MILLIS));
+  }
+
+  @Test
+  public void shouldTakeOverExpiredLease() throws Exception {
+    dao.acquire("a", 1);
+    Thread.sleep(5);
+
+    assertEquals(DeferredLeaseDao.Lease.HELD, dao.acquire("b", LEASE_MILLIS));
+    assertEquals(DeferredLeaseDao.Lease.NOT_HELD, dao.acquire("a", LEASE_MILLIS));
+  }
+
+  @Test
+  public void shouldReportPauseToLeaseHolder() {
+    dao.setPaused(true);
+
+    assertTrue(dao.isPaused());
+    assertEquals(DeferredLeaseDao.Lease.PAUSED, dao.acquire("a", LEASE_MILLIS));
+
+    dao.setPaused(false);
+
+    assertFalse(dao.isPaused());
+    assertEquals(DeferredLeaseDao.Lease.HELD, dao.acquire("a", LEASE_MILLIS));
+  }
+
+  @Test
+  public void shouldKeepPendingMarkerSetAgainMeanwhile() throws Exception {
+    assertNull(dao.findPending());
+    long first = dao.markPending();
+    Thread.sleep(2);
+    long second = dao.markPending();
+
+    dao.clearPending(first);
+    assertEquals(Long.valueOf(second), dao.findPending());
+
+    dao.clearPending(second);
+    assertNull(dao.findPending());
+  }
+
+  @Test
+  public void shouldTrackRunningChangeSetOfLeaseHolder() throws Exception {
+    assertFalse(dao.markRunning("a", "rebuildIndex"));
+
+    dao.acquire("a", LEASE_MILLIS);
+    assertTrue(dao.markRunning("a", "rebuildIndex"));
+    assertEquals("rebuildIndex", dao.findRunning());
+
+    dao.clearRunning("b");
+    assertEquals("rebuildIndex", dao.findRunning());
+    dao.clearRunning("a");
+    assertNull(dao.findRunning());
+  }
+
+  @Test
+  public void shouldIgnoreRunningChangeSetOfExpiredLease() throws Exception {
+    dao.acquire("a", 1);
+    dao.markRunning("a", "rebuildIndex");
+    Thread.sleep(5);
+
+    assertNull(dao.findRunning());
+  }
+}
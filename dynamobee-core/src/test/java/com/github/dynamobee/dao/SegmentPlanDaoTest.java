@@ -0,0 +1,99 @@
+package com.github.dynamobee.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.github.dynamobee.migration.ScanSegment;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class SegmentPlanDaoTest {
+  private static final String TABLE = "dynamobee";
+  private static final long LEASE_MILLIS = 60_000L;
+
+  private SegmentPlanDao dao;
+  private SegmentPlan plan;
+
+  @Before
+  public void setUp() throws Exception {
+    InMemoryDynamoDbClient client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(TABLE)
+        .keySchema(KeySchemaElement.builder().attributeName("changeId").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("changeId")
+            .attributeType(ScalarAttributeType.S).build()));
+    dao = new SegmentPlanDao(client, TABLE);
+    plan = new SegmentPlan("backfillTotals", 3, "com.example.ChangeLog", "backfillTotals");
+    dao.publishPlan(plan);
+  }
+
+  @Test
+  public void shouldClaimEverySegmentOnce() {
+    Set<ScanSegment> claimed = new HashSet<>();
+    for (int i = 0; i < 3; i++) {
+      ScanSegment segment = dao.claimSegment(plan, "a", LEASE_MILLIS);
+      assertNotNull(segment);
+      assertTrue("segment claimed twice: " + segment, claimed.add(segment));
+    }
+
+    assertNull(dao.claimSegment(plan, "b", LEASE_MILLIS));
+    assertEquals(3, dao.getStatus(plan).getInProgress());
+  }
+
+  @Test
+  public void shouldRenewAndCompleteOnlyAsOwner() {
+    ScanSegment segment = dao.claimSegment(plan, "a", LEASE_MILLIS);
+
+    assertTrue(dao.renewLease(plan, segment, "a", LEASE_MILLIS));
+    assertFalse(dao.renewLease(plan, segment, "b", LEASE_MILLIS));
+    assertFalse(dao.completeSegment(plan, segment, "b"));
+    assertTrue(dao.completeSegment(plan, segment, "a"));
+    assertFalse(dao.renewLease(plan, segment, "a", LEASE_MILLIS));
+    assertEquals(1, dao.getStatus(plan).getDone());
+  }
+
+  @Test
+  public void shouldTakeOverExpiredLease() throws Exception {
+    plan = new SegmentPlan("single", 1, "com.example.ChangeLog", "single");
+    dao.publishPlan(plan);
+    ScanSegment first = dao.claimSegment(plan, "a", 1);
+    Thread.sleep(5);
+
+    ScanSegment takenOver = dao.claimSegment(plan, "b", LEASE_MILLIS);
+
+    assertEquals(first, takenOver);
+    assertFalse(dao.renewLease(plan, first, "a", LEASE_MILLIS));
+    assertFalse(dao.completeSegment(plan, first, "a"));
+    assertTrue(dao.completeSegment(plan, takenOver, "b"));
+  }
+
+  @Test
+  public void shouldFailSegmentAfterMaxAttempts() throws Exception {
+    plan = new SegmentPlan("single", 1, "com.example.ChangeLog", "single");
+    dao.publishPlan(plan);
+
+    ScanSegment segment = dao.claimSegment(plan, "a", LEASE_MILLIS);
+    dao.releaseSegment(plan, segment, "a", "boom", 2);
+    assertEquals(1, dao.getStatus(plan).getPending());
+
+    segment = dao.claimSegment(plan, "a", LEASE_MILLIS);
+    dao.releaseSegment(plan, segment, "a", "boom", 2);
+    assertEquals(1, dao.getStatus(plan).getFailed());
+    assertNull(dao.claimSegment(plan, "a", LEASE_MILLIS));
+
+    // publishing again resumes the plan with its failed segments pending
+    dao.publishPlan(plan);
+    assertEquals(1, dao.getStatus(plan).getPending());
+  }
+}
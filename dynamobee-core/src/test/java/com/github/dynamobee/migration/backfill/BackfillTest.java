@@ -0,0 +1,131 @@
+package com.github.dynamobee.migration.backfill;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.dynamobee.migration.ItemTransformer;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class BackfillTest {
+  private static final String ORDERS = "orders";
+
+  private InMemoryDynamoDbClient client;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(ORDERS)
+        .keySchema(KeySchemaElement.builder().attributeName("pk").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("pk").attributeType(ScalarAttributeType.S)
+            .build()));
+    client.putItem(request -> request.tableName(ORDERS).item(Map.of("pk", s("o1"), "price", n("5"), "version", n("1"))));
+  }
+
+  @Test
+  public void shouldRetryItemChangedConcurrently() {
+    AtomicInteger calls = new AtomicInteger();
+    BackfillResult result = backfill(item -> {
+      if (calls.incrementAndGet() == 1) {
+        // the application raises the price between the read and the rewrite
+        client.putItem(request -> request.tableName(ORDERS)
+            .item(Map.of("pk", s("o1"), "price", n("7"), "version", n("2"))));
+      }
+      return withTotal(item);
+    }, 3);
+
+    assertEquals(1, result.getConflicts());
+    assertEquals(1, result.getResolvedConflicts());
+    assertEquals(1, result.getUpdated());
+    assertTrue(result.isComplete());
+    assertEquals(n("7"), item("o1").get("total"));
+    assertEquals(n("3"), item("o1").get("version"));
+  }
+
+  @Test
+  public void shouldConditionOnOriginalValuesWithoutVersion() {
+    AtomicInteger calls = new AtomicInteger();
+    BackfillResult result = new Backfill(client, ORDERS)
+        .setTotalSegments(1)
+        .setTransformer(item -> {
+          if (calls.incrementAndGet() == 1) {
+            client.putItem(request -> request.tableName(ORDERS)
+                .item(Map.of("pk", s("o1"), "price", n("7"), "version", n("1"))));
+          }
+          return withTotal(item);
+        })
+        .run();
+
+    assertEquals(1, result.getConflicts());
+    assertEquals(1, result.getResolvedConflicts());
+    assertEquals(n("7"), item("o1").get("total"));
+  }
+
+  @Test
+  public void shouldCountItemDeletedConcurrently() {
+    BackfillResult result = backfill(item -> {
+      client.deleteItem(request -> request.tableName(ORDERS).key(Map.of("pk", s("o1"))));
+      return withTotal(item);
+    }, 3);
+
+    assertEquals(1, result.getConflicts());
+    assertEquals(1, result.getDeleted());
+    assertEquals(0, result.getUpdated());
+    assertTrue(client.getItem(request -> request.tableName(ORDERS).key(Map.of("pk", s("o1")))).item().isEmpty());
+  }
+
+  @Test
+  public void shouldGiveUpAfterMaxConflictRetries() {
+    AtomicInteger version = new AtomicInteger(1);
+    BackfillResult result = backfill(item -> {
+      String next = Integer.toString(version.incrementAndGet());
+      client.putItem(request -> request.tableName(ORDERS)
+          .item(Map.of("pk", s("o1"), "price", n("5"), "version", n(next))));
+      return withTotal(item);
+    }, 2);
+
+    assertEquals(3, result.getConflicts());
+    assertEquals(1, result.getUnresolved());
+    assertFalse(result.isComplete());
+    assertFalse(item("o1").containsKey("total"));
+  }
+
+  private BackfillResult backfill(ItemTransformer transformer, int maxConflictRetries) {
+    return new Backfill(client, ORDERS)
+        .setTotalSegments(1)
+        .setVersionAttribute("version")
+        .setMaxConflictRetries(maxConflictRetries)
+        .setTransformer(transformer)
+        .run();
+  }
+
+  private static Map<String, AttributeValue> withTotal(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> transformed = new HashMap<>(item);
+    transformed.put("total", item.get("price"));
+    return transformed;
+  }
+
+  private Map<String, AttributeValue> item(String pk) {
+    return client.getItem(request -> request.tableName(ORDERS).key(Map.of("pk", s(pk)))).item();
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+
+  private static AttributeValue n(String value) {
+    return AttributeValue.builder().n(value).build();
+  }
+}
@@ -0,0 +1,102 @@
+package com.github.dynamobee.migration.upgrade;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.dynamobee.migration.CapacityBudget;
+import com.github.dynamobee.migration.DeltaWriter;
+import com.github.dynamobee.test.InMemoryDynamoDbClient;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class UpgradeWriteBackTest {
+  private static final String ORDERS = "orders";
+
+  private InMemoryDynamoDbClient client;
+  private ItemUpgrader upgrader;
+  private DeltaWriter writer;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(ORDERS)
+        .keySchema(KeySchemaElement.builder().attributeName("pk").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("pk").attributeType(ScalarAttributeType.S)
+            .build()));
+    upgrader = new ItemUpgrader(ItemUpgrader.DEFAULT_VERSION_ATTRIBUTE).register(1, item -> {
+      Map<String, AttributeValue> upgraded = new HashMap<>(item);
+      upgraded.put("status", s("NEW"));
+      return upgraded;
+    });
+    writer = UpgradeWriteBack.newWriter(client, ORDERS, CapacityBudget.unlimited());
+  }
+
+  @Test
+  public void shouldWriteUpgradedAttributesOnly() {
+    put(Map.of("pk", s("o1"), "price", n("5")));
+    Map<String, AttributeValue> read = item("o1");
+    // written after the read, kept since only the changed attributes are sent
+    client.updateItem(request -> request.tableName(ORDERS).key(Map.of("pk", s("o1")))
+        .updateExpression("SET note = :note").expressionAttributeValues(Map.of(":note", s("gift"))));
+
+    assertTrue(write(read));
+
+    Map<String, AttributeValue> stored = item("o1");
+    assertEquals(s("NEW"), stored.get("status"));
+    assertEquals(n("2"), stored.get(ItemUpgrader.DEFAULT_VERSION_ATTRIBUTE));
+    assertEquals(s("gift"), stored.get("note"));
+  }
+
+  @Test
+  public void shouldSkipItemUpgradedMeanwhile() {
+    put(Map.of("pk", s("o1"), "price", n("5"), ItemUpgrader.DEFAULT_VERSION_ATTRIBUTE, n("1")));
+    Map<String, AttributeValue> read = item("o1");
+    put(Map.of("pk", s("o1"), "price", n("6"), ItemUpgrader.DEFAULT_VERSION_ATTRIBUTE, n("2")));
+
+    assertFalse(write(read));
+
+    assertEquals(n("6"), item("o1").get("price"));
+    assertFalse(item("o1").containsKey("status"));
+  }
+
+  @Test
+  public void shouldNotRecreateDeletedItem() {
+    put(Map.of("pk", s("o1"), "price", n("5")));
+    Map<String, AttributeValue> read = item("o1");
+    client.deleteItem(request -> request.tableName(ORDERS).key(Map.of("pk", s("o1"))));
+
+    assertFalse(write(read));
+
+    assertTrue(item("o1").isEmpty());
+  }
+
+  private boolean write(Map<String, AttributeValue> read) {
+    return UpgradeWriteBack.write(writer, upgrader, read, upgrader.upgrade(read), CapacityBudget.unlimited());
+  }
+
+  private void put(Map<String, AttributeValue> item) {
+    client.putItem(request -> request.tableName(ORDERS).item(item));
+  }
+
+  private Map<String, AttributeValue> item(String pk) {
+    return client.getItem(request -> request.tableName(ORDERS).key(Map.of("pk", s(pk)))).item();
+  }
+
+  private static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+
+  private static AttributeValue n(String value) {
+    return AttributeValue.builder().n(value).build();
+  }
+}
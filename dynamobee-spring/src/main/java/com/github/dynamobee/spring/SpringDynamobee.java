@@ -0,0 +1,63 @@
+package com.github.dynamobee.spring;
+
+import com.github.dynamobee.Dynamobee;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.env.Environment;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+
+/**
+ * Dynamobee runner for Spring: executes the migration on bean initialization and
+ * honours {@code @Profile} annotations on changelogs and changesets. Changeset methods may declare
+ * an {@link Environment} parameter. Deferred changesets still running are stopped when the context closes.
+ */
+public class SpringDynamobee extends Dynamobee implements InitializingBean, DisposableBean {
+
+  private Environment environment;
+
+  /**
+   * <p>
+   * Constructor takes software.amazon.awssdk.services.dynamodb.DynamoDbClient as a parameter.
+   * </p>
+   *
+   * @param dynamoDbClient database connection client
+   */
+  public SpringDynamobee(DynamoDbClient dynamoDbClient) {
+    super(dynamoDbClient);
+    setProfileResolver(new SpringProfileResolver(null));
+    addChangeSetParameterResolver(parameter -> parameter.getType().equals(Environment.class)
+        ? context -> this.environment
+        : null);
+  }
+
+  /**
+   * For Spring users: executing dynamobee after bean is created in the Spring context
+   *
+   * @throws Exception exception
+   */
+  @Override
+  public void afterPropertiesSet() throws Exception {
+    execute();
+  }
+
+  /**
+   * Stops the deferred changesets of this instance when the Spring context closes
+   */
+  @Override
+  public void destroy() {
+    shutdown();
+  }
+
+  /**
+   * Set Environment object for Spring Profiles (@Profile) integration and Environment changeset parameters
+   *
+   * @param environment org.springframework.core.env.Environment object to inject
+   * @return SpringDynamobee object for fluent interface
+   */
+  public SpringDynamobee setSpringEnvironment(Environment environment) {
+    this.environment = environment;
+    setProfileResolver(new SpringProfileResolver(environment));
+    return this;
+  }
+}
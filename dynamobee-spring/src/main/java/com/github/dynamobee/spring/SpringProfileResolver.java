@@ -0,0 +1,77 @@
+package com.github.dynamobee.spring;
+
+import static java.util.Arrays.asList;
+
+import com.github.dynamobee.utils.ProfileResolver;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+
+
+/**
+ * Matches {@link Profile} annotations against the active profiles of a Spring {@link Environment}
+ */
+public class SpringProfileResolver implements ProfileResolver {
+  private static final String DEFAULT_PROFILE = "default";
+
+  private final List<String> activeProfiles;
+
+  public SpringProfileResolver(Environment environment) {
+    if (environment != null && environment.getActiveProfiles() != null && environment.getActiveProfiles().length > 0) {
+      this.activeProfiles = asList(environment.getActiveProfiles());
+    } else {
+      this.activeProfiles = asList(DEFAULT_PROFILE);
+    }
+  }
+
+  @Override
+  public boolean isActive(AnnotatedElement element) {
+    List<String> profiles = profileAnnotations(element).stream().
+        map(Profile::value).
+        flatMap(Stream::of).
+        collect(Collectors.toList());
+
+    if (profiles.isEmpty()) {
+      return true; // no-profiled changeset always matches
+    }
+
+    for (String profile : profiles) {
+      if (profile != null && profile.length() > 0 && profile.charAt(0) == '!') {
+        if (!activeProfiles.contains(profile.substring(1))) {
+          return true;
+        }
+      } else if (activeProfiles.contains(profile)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<Profile> profileAnnotations(AnnotatedElement element) {
+    return Stream.of(element.getAnnotations()).
+        map(this::getProfile).
+        filter((p) -> p != null).
+        collect(Collectors.toList());
+  }
+
+  private Profile getProfile(Annotation annotation) {
+    if (isProfileAnnotation(annotation)) {
+      return (Profile) (annotation);
+    } else {
+      return Stream.of(annotation.annotationType().getAnnotations()).
+          filter(this::isProfileAnnotation). //  Does only allow one level of meta-annotation
+              map(this::getProfile).
+          filter(p -> p != null).
+          findFirst().
+          orElse(null);
+    }
+  }
+
+  private boolean isProfileAnnotation(Annotation annotation) {
+    return annotation.annotationType().equals(Profile.class);
+  }
+}
@@ -0,0 +1,180 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Type checks, comparison and size estimation of {@link AttributeValue}s following DynamoDB semantics
+ */
+final class AttributeValues {
+
+  private AttributeValues() {
+  }
+
+  /**
+   * @return the DynamoDB type name of the value (S, N, B, BOOL, NULL, SS, NS, BS, L, M)
+   */
+  static String type(AttributeValue value) {
+    if (value.s() != null) {
+      return "S";
+    } else if (value.n() != null) {
+      return "N";
+    } else if (value.b() != null) {
+      return "B";
+    } else if (value.bool() != null) {
+      return "BOOL";
+    } else if (Boolean.TRUE.equals(value.nul())) {
+      return "NULL";
+    } else if (value.hasSs()) {
+      return "SS";
+    } else if (value.hasNs()) {
+      return "NS";
+    } else if (value.hasBs()) {
+      return "BS";
+    } else if (value.hasL()) {
+      return "L";
+    } else if (value.hasM()) {
+      return "M";
+    }
+    throw Errors.validation("Supplied AttributeValue is empty, must contain exactly one of the supported datatypes");
+  }
+
+  static boolean isScalarKeyType(String type) {
+    return "S".equals(type) || "N".equals(type) || "B".equals(type);
+  }
+
+  /**
+   * Orders S, N and B values of the same type; values of different types are ordered by type.
+   */
+  static int compare(AttributeValue a, AttributeValue b) {
+    String typeA = type(a);
+    String typeB = type(b);
+    if (!typeA.equals(typeB)) {
+      return typeA.compareTo(typeB);
+    }
+    switch (typeA) {
+      case "S":
+        return Arrays.compareUnsigned(a.s().getBytes(StandardCharsets.UTF_8), b.s().getBytes(StandardCharsets.UTF_8));
+      case "N":
+        return new BigDecimal(a.n()).compareTo(new BigDecimal(b.n()));
+      case "B":
+        return Arrays.compareUnsigned(a.b().asByteArrayUnsafe(), b.b().asByteArrayUnsafe());
+      default:
+        throw Errors.validation("Values of type " + typeA + " cannot be ordered");
+    }
+  }
+
+  static boolean isOrderable(AttributeValue a, AttributeValue b) {
+    String type = type(a);
+    return type.equals(type(b)) && isScalarKeyType(type);
+  }
+
+  /**
+   * Deep equality: numbers by value, sets regardless of member order.
+   */
+  static boolean equal(AttributeValue a, AttributeValue b) {
+    String type = type(a);
+    if (!type.equals(type(b))) {
+      return false;
+    }
+    switch (type) {
+      case "S":
+      case "B":
+        return compare(a, b) == 0;
+      case "N":
+        return new BigDecimal(a.n()).compareTo(new BigDecimal(b.n())) == 0;
+      case "BOOL":
+        return a.bool().equals(b.bool());
+      case "NULL":
+        return true;
+      case "SS":
+        return new HashSet<>(a.ss()).equals(new HashSet<>(b.ss()));
+      case "NS":
+        return numberSet(a.ns()).equals(numberSet(b.ns()));
+      case "BS":
+        return a.bs().stream().map(SdkBytes::asByteBuffer).collect(Collectors.toSet())
+            .equals(b.bs().stream().map(SdkBytes::asByteBuffer).collect(Collectors.toSet()));
+      case "L":
+        if (a.l().size() != b.l().size()) {
+          return false;
+        }
+        for (int i = 0; i < a.l().size(); i++) {
+          if (!equal(a.l().get(i), b.l().get(i))) {
+            return false;
+          }
+        }
+        return true;
+      case "M":
+        return equalItems(a.m(), b.m());
+      default:
+        return false;
+    }
+  }
+
+  static boolean equalItems(Map<String, AttributeValue> a, Map<String, AttributeValue> b) {
+    if (a.size() != b.size()) {
+      return false;
+    }
+    for (Map.Entry<String, AttributeValue> entry : a.entrySet()) {
+      AttributeValue other = b.get(entry.getKey());
+      if (other == null || !equal(entry.getValue(), other)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static Set<BigDecimal> numberSet(List<String> numbers) {
+    return numbers.stream().map(n -> new BigDecimal(n).stripTrailingZeros()).collect(Collectors.toSet());
+  }
+
+  /**
+   * @return approximate stored size in bytes, as used for capacity and page size limits
+   */
+  static long size(Map<String, AttributeValue> item) {
+    long size = 0;
+    for (Map.Entry<String, AttributeValue> entry : item.entrySet()) {
+      size += entry.getKey().getBytes(StandardCharsets.UTF_8).length + size(entry.getValue());
+    }
+    return size;
+  }
+
+  static long size(AttributeValue value) {
+    switch (type(value)) {
+      case "S":
+        return value.s().getBytes(StandardCharsets.UTF_8).length;
+      case "N":
+        return (value.n().length() + 1) / 2 + 1;
+      case "B":
+        return value.b().asByteArrayUnsafe().length;
+      case "BOOL":
+      case "NULL":
+        return 1;
+      case "SS":
+        return value.ss().stream().mapToLong(s -> s.getBytes(StandardCharsets.UTF_8).length).sum();
+      case "NS":
+        return value.ns().stream().mapToLong(n -> (n.length() + 1) / 2 + 1).sum();
+      case "BS":
+        return value.bs().stream().mapToLong(b -> b.asByteArrayUnsafe().length).sum();
+      case "L":
+        return 3 + value.l().stream().mapToLong(element -> 1 + size(element)).sum();
+      case "M":
+        return 3 + value.m().size() + size(value.m());
+      default:
+        return 0;
+    }
+  }
+
+  static AttributeValue number(BigDecimal number) {
+    return AttributeValue.builder().n(number.toPlainString()).build();
+  }
+}
@@ -0,0 +1,273 @@
+package com.github.dynamobee.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Node of a condition, filter or key condition expression
+ */
+interface Condition {
+
+  boolean evaluate(Map<String, AttributeValue> item);
+
+  final class Comparison implements Condition {
+    final String comparator;
+    final Operand left;
+    final Operand right;
+
+    Comparison(String comparator, Operand left, Operand right) {
+      this.comparator = comparator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      AttributeValue a = left.evaluate(item);
+      AttributeValue b = right.evaluate(item);
+      if (a == null || b == null) {
+        return "<>".equals(comparator);
+      }
+      switch (comparator) {
+        case "=":
+          return AttributeValues.equal(a, b);
+        case "<>":
+          return !AttributeValues.equal(a, b);
+        default:
+          if (!AttributeValues.isOrderable(a, b)) {
+            return false;
+          }
+          int result = AttributeValues.compare(a, b);
+          switch (comparator) {
+            case "<":
+              return result < 0;
+            case "<=":
+              return result <= 0;
+            case ">":
+              return result > 0;
+            default:
+              return result >= 0;
+          }
+      }
+    }
+  }
+
+  final class Between implements Condition {
+    private final Operand operand;
+    private final Operand lower;
+    private final Operand upper;
+
+    Between(Operand operand, Operand lower, Operand upper) {
+      this.operand = operand;
+      this.lower = lower;
+      this.upper = upper;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = operand.evaluate(item);
+      AttributeValue low = lower.evaluate(item);
+      AttributeValue high = upper.evaluate(item);
+      return value != null && low != null && high != null
+          && AttributeValues.isOrderable(value, low) && AttributeValues.isOrderable(value, high)
+          && AttributeValues.compare(value, low) >= 0 && AttributeValues.compare(value, high) <= 0;
+    }
+  }
+
+  final class In implements Condition {
+    private final Operand operand;
+    private final List<Operand> candidates;
+
+    In(Operand operand, List<Operand> candidates) {
+      this.operand = operand;
+      this.candidates = candidates;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = operand.evaluate(item);
+      if (value == null) {
+        return false;
+      }
+      for (Operand candidate : candidates) {
+        AttributeValue other = candidate.evaluate(item);
+        if (other != null && AttributeValues.equal(value, other)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  final class AttributeExists implements Condition {
+    private final DocumentPath path;
+    private final boolean exists;
+
+    AttributeExists(DocumentPath path, boolean exists) {
+      this.path = path;
+      this.exists = exists;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      return (path.resolve(item) != null) == exists;
+    }
+  }
+
+  final class AttributeType implements Condition {
+    private final DocumentPath path;
+    private final Operand type;
+
+    AttributeType(DocumentPath path, Operand type) {
+      this.path = path;
+      this.type = type;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = path.resolve(item);
+      AttributeValue expected = type.evaluate(item);
+      return value != null && expected != null && AttributeValues.type(value).equals(expected.s());
+    }
+  }
+
+  final class BeginsWith implements Condition {
+    private final Operand operand;
+    private final Operand prefix;
+
+    BeginsWith(Operand operand, Operand prefix) {
+      this.operand = operand;
+      this.prefix = prefix;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = operand.evaluate(item);
+      AttributeValue start = prefix.evaluate(item);
+      if (value == null || start == null) {
+        return false;
+      }
+      if (value.s() != null && start.s() != null) {
+        return value.s().startsWith(start.s());
+      }
+      if (value.b() != null && start.b() != null) {
+        byte[] bytes = value.b().asByteArrayUnsafe();
+        byte[] head = start.b().asByteArrayUnsafe();
+        return bytes.length >= head.length && Arrays.equals(bytes, 0, head.length, head, 0, head.length);
+      }
+      return false;
+    }
+  }
+
+  final class Contains implements Condition {
+    private final Operand operand;
+    private final Operand member;
+
+    Contains(Operand operand, Operand member) {
+      this.operand = operand;
+      this.member = member;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = operand.evaluate(item);
+      AttributeValue candidate = member.evaluate(item);
+      if (value == null || candidate == null) {
+        return false;
+      }
+      switch (AttributeValues.type(value)) {
+        case "S":
+          return candidate.s() != null && value.s().contains(candidate.s());
+        case "B":
+          return candidate.b() != null && new String(value.b().asByteArrayUnsafe(), StandardCharsets.ISO_8859_1)
+              .contains(new String(candidate.b().asByteArrayUnsafe(), StandardCharsets.ISO_8859_1));
+        case "SS":
+          return candidate.s() != null && value.ss().contains(candidate.s());
+        case "NS":
+          return candidate.n() != null
+              && AttributeValues.numberSet(value.ns()).containsAll(AttributeValues.numberSet(List.of(candidate.n())));
+        case "BS":
+          return candidate.b() != null && value.bs().contains(candidate.b());
+        case "L":
+          return value.l().stream().anyMatch(element -> AttributeValues.equal(element, candidate));
+        default:
+          return false;
+      }
+    }
+  }
+
+  final class And implements Condition {
+    final Condition left;
+    final Condition right;
+
+    And(Condition left, Condition right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      return left.evaluate(item) && right.evaluate(item);
+    }
+  }
+
+  final class Or implements Condition {
+    private final Condition left;
+    private final Condition right;
+
+    Or(Condition left, Condition right) {
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      return left.evaluate(item) || right.evaluate(item);
+    }
+  }
+
+  final class Not implements Condition {
+    private final Condition condition;
+
+    Not(Condition condition) {
+      this.condition = condition;
+    }
+
+    @Override
+    public boolean evaluate(Map<String, AttributeValue> item) {
+      return !condition.evaluate(item);
+    }
+  }
+
+  /**
+   * Finds the {@code attribute = :value} term of a key condition.
+   *
+   * @return the value compared for equality with the attribute, or null
+   */
+  static AttributeValue findEquality(Condition condition, String attributeName) {
+    if (condition instanceof And) {
+      AttributeValue left = findEquality(((And) condition).left, attributeName);
+      return left != null ? left : findEquality(((And) condition).right, attributeName);
+    }
+    if (condition instanceof Comparison && "=".equals(((Comparison) condition).comparator)) {
+      Comparison comparison = (Comparison) condition;
+      if (isAttribute(comparison.left, attributeName) && comparison.right instanceof Operand.Value) {
+        return ((Operand.Value) comparison.right).value;
+      }
+      if (isAttribute(comparison.right, attributeName) && comparison.left instanceof Operand.Value) {
+        return ((Operand.Value) comparison.left).value;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isAttribute(Operand operand, String attributeName) {
+    return operand instanceof Operand.Path
+        && ((Operand.Path) operand).path.isTopLevel()
+        && ((Operand.Path) operand).path.topLevelName().equals(attributeName);
+  }
+}
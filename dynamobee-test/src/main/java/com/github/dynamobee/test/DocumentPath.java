@@ -0,0 +1,210 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Document path such as {@code a.b[2].c}; elements are attribute names (String) or list indexes (Integer)
+ */
+final class DocumentPath {
+  private final List<Object> elements;
+
+  DocumentPath(List<Object> elements) {
+    this.elements = List.copyOf(elements);
+  }
+
+  static DocumentPath of(String attributeName) {
+    return new DocumentPath(List.of(attributeName));
+  }
+
+  String topLevelName() {
+    return (String) elements.get(0);
+  }
+
+  boolean isTopLevel() {
+    return elements.size() == 1;
+  }
+
+  List<Object> elements() {
+    return elements;
+  }
+
+  /**
+   * @return true if either path is a prefix of the other, so an update may not touch both
+   */
+  boolean overlaps(DocumentPath other) {
+    int common = Math.min(elements.size(), other.elements.size());
+    return elements.subList(0, common).equals(other.elements.subList(0, common));
+  }
+
+  AttributeValue resolve(Map<String, AttributeValue> item) {
+    AttributeValue current = item.get(topLevelName());
+    for (int i = 1; i < elements.size() && current != null; i++) {
+      Object element = elements.get(i);
+      if (element instanceof String) {
+        current = current.hasM() ? current.m().get(element) : null;
+      } else {
+        int index = (Integer) element;
+        current = current.hasL() && index < current.l().size() ? current.l().get(index) : null;
+      }
+    }
+    return current;
+  }
+
+  /**
+   * @return a copy of the item with the value set at this path
+   */
+  Map<String, AttributeValue> set(Map<String, AttributeValue> item, AttributeValue value) {
+    Map<String, AttributeValue> result = new LinkedHashMap<>(item);
+    if (isTopLevel()) {
+      result.put(topLevelName(), value);
+    } else {
+      AttributeValue child = item.get(topLevelName());
+      if (child == null) {
+        throw invalidPath();
+      }
+      result.put(topLevelName(), setIn(child, 1, value));
+    }
+    return result;
+  }
+
+  private AttributeValue setIn(AttributeValue container, int position, AttributeValue value) {
+    Object element = elements.get(position);
+    boolean last = position == elements.size() - 1;
+    if (element instanceof String) {
+      if (!container.hasM()) {
+        throw invalidPath();
+      }
+      Map<String, AttributeValue> map = new LinkedHashMap<>(container.m());
+      if (last) {
+        map.put((String) element, value);
+      } else {
+        AttributeValue child = map.get(element);
+        if (child == null) {
+          throw invalidPath();
+        }
+        map.put((String) element, setIn(child, position + 1, value));
+      }
+      return AttributeValue.builder().m(map).build();
+    }
+    if (!container.hasL()) {
+      throw invalidPath();
+    }
+    int index = (Integer) element;
+    List<AttributeValue> list = new ArrayList<>(container.l());
+    if (last) {
+      if (index >= list.size()) {
+        list.add(value);
+      } else {
+        list.set(index, value);
+      }
+    } else {
+      if (index >= list.size()) {
+        throw invalidPath();
+      }
+      list.set(index, setIn(list.get(index), position + 1, value));
+    }
+    return AttributeValue.builder().l(list).build();
+  }
+
+  /**
+   * @return a copy of the item without the value at this path
+   */
+  Map<String, AttributeValue> remove(Map<String, AttributeValue> item) {
+    Map<String, AttributeValue> result = new LinkedHashMap<>(item);
+    if (isTopLevel()) {
+      result.remove(topLevelName());
+    } else {
+      AttributeValue child = item.get(topLevelName());
+      if (child != null) {
+        result.put(topLevelName(), removeIn(child, 1));
+      }
+    }
+    return result;
+  }
+
+  private AttributeValue removeIn(AttributeValue container, int position) {
+    Object element = elements.get(position);
+    boolean last = position == elements.size() - 1;
+    if (element instanceof String) {
+      if (!container.hasM() || !container.m().containsKey(element)) {
+        return container;
+      }
+      Map<String, AttributeValue> map = new LinkedHashMap<>(container.m());
+      if (last) {
+        map.remove(element);
+      } else {
+        map.put((String) element, removeIn(map.get(element), position + 1));
+      }
+      return AttributeValue.builder().m(map).build();
+    }
+    int index = (Integer) element;
+    if (!container.hasL() || index >= container.l().size()) {
+      return container;
+    }
+    List<AttributeValue> list = new ArrayList<>(container.l());
+    if (last) {
+      list.remove(index);
+    } else {
+      list.set(index, removeIn(list.get(index), position + 1));
+    }
+    return AttributeValue.builder().l(list).build();
+  }
+
+  /**
+   * Copies the value at this path into a projection result, creating the enclosing maps and lists.
+   */
+  void project(Map<String, AttributeValue> item, Map<String, AttributeValue> projection) {
+    AttributeValue value = resolve(item);
+    if (value == null) {
+      return;
+    }
+    if (isTopLevel()) {
+      projection.put(topLevelName(), value);
+      return;
+    }
+    AttributeValue existing = projection.get(topLevelName());
+    projection.put(topLevelName(), projectInto(existing, 1, value));
+  }
+
+  private AttributeValue projectInto(AttributeValue existing, int position, AttributeValue value) {
+    if (position == elements.size()) {
+      return value;
+    }
+    Object element = elements.get(position);
+    if (element instanceof String) {
+      Map<String, AttributeValue> map = existing != null && existing.hasM()
+          ? new LinkedHashMap<>(existing.m())
+          : new LinkedHashMap<>();
+      map.put((String) element, projectInto(map.get(element), position + 1, value));
+      return AttributeValue.builder().m(map).build();
+    }
+    List<AttributeValue> list = existing != null && existing.hasL() ? new ArrayList<>(existing.l()) : new ArrayList<>();
+    list.add(projectInto(null, position + 1, value));
+    return AttributeValue.builder().l(list).build();
+  }
+
+  private static RuntimeException invalidPath() {
+    return Errors.validation("The document path provided in the update expression is invalid for update");
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder text = new StringBuilder();
+    for (Object element : elements) {
+      if (element instanceof String) {
+        if (text.length() > 0) {
+          text.append('.');
+        }
+        text.append(element);
+      } else {
+        text.append('[').append(element).append(']');
+      }
+    }
+    return text.toString();
+  }
+}
@@ -0,0 +1,61 @@
+package com.github.dynamobee.test;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+
+/**
+ * Exceptions shaped like the ones returned by the DynamoDB service
+ */
+final class Errors {
+  private static final String SERVICE_NAME = "DynamoDb";
+
+  private Errors() {
+  }
+
+  static DynamoDbException validation(String message) {
+    return (DynamoDbException) DynamoDbException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(details("ValidationException", message))
+        .build();
+  }
+
+  static ConditionalCheckFailedException conditionalCheckFailed() {
+    String message = "The conditional request failed";
+    return ConditionalCheckFailedException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(details("ConditionalCheckFailedException", message))
+        .build();
+  }
+
+  static ResourceNotFoundException resourceNotFound(String tableName) {
+    String message = "Requested resource not found: Table: " + tableName + " not found";
+    return ResourceNotFoundException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(details("ResourceNotFoundException", message))
+        .build();
+  }
+
+  static ResourceInUseException resourceInUse(String tableName) {
+    String message = "Table already exists: " + tableName;
+    return ResourceInUseException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(details("ResourceInUseException", message))
+        .build();
+  }
+
+  static AwsErrorDetails details(String errorCode, String message) {
+    return AwsErrorDetails.builder()
+        .errorCode(errorCode)
+        .errorMessage(message)
+        .serviceName(SERVICE_NAME)
+        .build();
+  }
+}
@@ -0,0 +1,371 @@
+package com.github.dynamobee.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Recursive descent parser for condition, key condition, filter, update and projection expressions
+ */
+final class ExpressionParser {
+  private static final Set<String> COMPARATORS = Set.of("=", "<>", "<", "<=", ">", ">=");
+  private static final Set<String> UPDATE_CLAUSES = Set.of("SET", "REMOVE", "ADD", "DELETE");
+
+  private enum TokenType { NAME, PLACEHOLDER_NAME, VALUE, NUMBER, SYMBOL }
+
+  private static final class Token {
+    final TokenType type;
+    final String text;
+
+    Token(TokenType type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+
+    boolean isKeyword(String keyword) {
+      return type == TokenType.NAME && text.equalsIgnoreCase(keyword);
+    }
+
+    boolean isSymbol(String symbol) {
+      return type == TokenType.SYMBOL && text.equals(symbol);
+    }
+  }
+
+  private final String expression;
+  private final Map<String, String> names;
+  private final Map<String, AttributeValue> values;
+  private final List<Token> tokens;
+  private int position;
+
+  private ExpressionParser(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+    this.expression = expression;
+    this.names = names == null ? Map.of() : names;
+    this.values = values == null ? Map.of() : values;
+    this.tokens = tokenize(expression);
+  }
+
+  static Condition parseCondition(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+    ExpressionParser parser = new ExpressionParser(expression, names, values);
+    Condition condition = parser.orCondition();
+    parser.expectEnd();
+    return condition;
+  }
+
+  static UpdateExpression parseUpdate(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+    ExpressionParser parser = new ExpressionParser(expression, names, values);
+    List<UpdateExpression.Action> actions = new ArrayList<>();
+    while (!parser.atEnd()) {
+      Token clause = parser.next();
+      if (clause.type != TokenType.NAME || !UPDATE_CLAUSES.contains(clause.text.toUpperCase(Locale.ROOT))) {
+        throw parser.syntaxError(clause);
+      }
+      UpdateExpression.ActionType type = UpdateExpression.ActionType.valueOf(clause.text.toUpperCase(Locale.ROOT));
+      do {
+        DocumentPath path = parser.path();
+        Operand operand = null;
+        if (type == UpdateExpression.ActionType.SET) {
+          parser.expectSymbol("=");
+          operand = parser.setValue();
+        } else if (type != UpdateExpression.ActionType.REMOVE) {
+          operand = parser.operand();
+        }
+        for (UpdateExpression.Action action : actions) {
+          if (action.path.overlaps(path)) {
+            throw Errors.validation("Invalid UpdateExpression: Two document paths overlap with each other; "
+                + "must remove or rewrite one of these paths; path one: " + action.path + ", path two: " + path);
+          }
+        }
+        actions.add(new UpdateExpression.Action(type, path, operand));
+      } while (parser.acceptSymbol(","));
+    }
+    if (actions.isEmpty()) {
+      throw Errors.validation("Invalid UpdateExpression: The expression can not be empty");
+    }
+    return new UpdateExpression(actions);
+  }
+
+  static List<DocumentPath> parseProjection(String expression, Map<String, String> names) {
+    ExpressionParser parser = new ExpressionParser(expression, names, null);
+    List<DocumentPath> paths = new ArrayList<>();
+    do {
+      paths.add(parser.path());
+    } while (parser.acceptSymbol(","));
+    parser.expectEnd();
+    return paths;
+  }
+
+  private Condition orCondition() {
+    Condition condition = andCondition();
+    while (acceptKeyword("OR")) {
+      condition = new Condition.Or(condition, andCondition());
+    }
+    return condition;
+  }
+
+  private Condition andCondition() {
+    Condition condition = notCondition();
+    while (acceptKeyword("AND")) {
+      condition = new Condition.And(condition, notCondition());
+    }
+    return condition;
+  }
+
+  private Condition notCondition() {
+    if (acceptKeyword("NOT")) {
+      return new Condition.Not(notCondition());
+    }
+    return primaryCondition();
+  }
+
+  private Condition primaryCondition() {
+    if (acceptSymbol("(")) {
+      Condition condition = orCondition();
+      expectSymbol(")");
+      return condition;
+    }
+    Token token = peek();
+    if (token != null && token.type == TokenType.NAME && peekSymbol(1, "(")) {
+      String function = token.text.toLowerCase(Locale.ROOT);
+      switch (function) {
+        case "attribute_exists":
+        case "attribute_not_exists": {
+          position += 2;
+          DocumentPath path = path();
+          expectSymbol(")");
+          return new Condition.AttributeExists(path, "attribute_exists".equals(function));
+        }
+        case "attribute_type": {
+          position += 2;
+          DocumentPath path = path();
+          expectSymbol(",");
+          Operand type = operand();
+          expectSymbol(")");
+          return new Condition.AttributeType(path, type);
+        }
+        case "begins_with":
+        case "contains": {
+          position += 2;
+          Operand first = operand();
+          expectSymbol(",");
+          Operand second = operand();
+          expectSymbol(")");
+          return "contains".equals(function) ? new Condition.Contains(first, second) : new Condition.BeginsWith(first, second);
+        }
+        default:
+          break;
+      }
+    }
+
+    Operand left = operand();
+    if (acceptKeyword("BETWEEN")) {
+      Operand lower = operand();
+      expectKeyword("AND");
+      return new Condition.Between(left, lower, operand());
+    }
+    if (acceptKeyword("IN")) {
+      expectSymbol("(");
+      List<Operand> candidates = new ArrayList<>();
+      do {
+        candidates.add(operand());
+      } while (acceptSymbol(","));
+      expectSymbol(")");
+      return new Condition.In(left, candidates);
+    }
+    Token comparator = next();
+    if (comparator.type != TokenType.SYMBOL || !COMPARATORS.contains(comparator.text)) {
+      throw syntaxError(comparator);
+    }
+    return new Condition.Comparison(comparator.text, left, operand());
+  }
+
+  private Operand setValue() {
+    Operand left = operand();
+    if (acceptSymbol("+")) {
+      return new Operand.Arithmetic(left, operand(), false);
+    }
+    if (acceptSymbol("-")) {
+      return new Operand.Arithmetic(left, operand(), true);
+    }
+    return left;
+  }
+
+  private Operand operand() {
+    Token token = peek();
+    if (token == null) {
+      throw syntaxError(null);
+    }
+    if (token.type == TokenType.VALUE) {
+      position++;
+      AttributeValue value = values.get(token.text);
+      if (value == null) {
+        throw Errors.validation("An expression attribute value used in expression is not defined; attribute value: "
+            + token.text);
+      }
+      return new Operand.Value(value);
+    }
+    if (token.type == TokenType.NAME && peekSymbol(1, "(")) {
+      String function = token.text.toLowerCase(Locale.ROOT);
+      position += 2;
+      Operand operand;
+      switch (function) {
+        case "size":
+          operand = new Operand.Size(path());
+          break;
+        case "if_not_exists": {
+          DocumentPath path = path();
+          expectSymbol(",");
+          operand = new Operand.IfNotExists(path, operand());
+          break;
+        }
+        case "list_append": {
+          Operand first = operand();
+          expectSymbol(",");
+          operand = new Operand.ListAppend(first, operand());
+          break;
+        }
+        default:
+          throw Errors.validation("Invalid function name; function: " + token.text);
+      }
+      expectSymbol(")");
+      return operand;
+    }
+    return new Operand.Path(path());
+  }
+
+  private DocumentPath path() {
+    List<Object> elements = new ArrayList<>();
+    elements.add(name(next()));
+    while (true) {
+      if (acceptSymbol(".")) {
+        elements.add(name(next()));
+      } else if (acceptSymbol("[")) {
+        Token index = next();
+        if (index.type != TokenType.NUMBER) {
+          throw syntaxError(index);
+        }
+        elements.add(Integer.parseInt(index.text));
+        expectSymbol("]");
+      } else {
+        return new DocumentPath(elements);
+      }
+    }
+  }
+
+  private String name(Token token) {
+    if (token.type == TokenType.PLACEHOLDER_NAME) {
+      String name = names.get(token.text);
+      if (name == null) {
+        throw Errors.validation("An expression attribute name used in the document path is not defined; attribute name: "
+            + token.text);
+      }
+      return name;
+    }
+    if (token.type != TokenType.NAME) {
+      throw syntaxError(token);
+    }
+    return token.text;
+  }
+
+  private Token peek() {
+    return position < tokens.size() ? tokens.get(position) : null;
+  }
+
+  private boolean peekSymbol(int offset, String symbol) {
+    return position + offset < tokens.size() && tokens.get(position + offset).isSymbol(symbol);
+  }
+
+  private Token next() {
+    if (atEnd()) {
+      throw syntaxError(null);
+    }
+    return tokens.get(position++);
+  }
+
+  private boolean atEnd() {
+    return position >= tokens.size();
+  }
+
+  private boolean acceptSymbol(String symbol) {
+    if (!atEnd() && tokens.get(position).isSymbol(symbol)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean acceptKeyword(String keyword) {
+    if (!atEnd() && tokens.get(position).isKeyword(keyword)) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private void expectSymbol(String symbol) {
+    Token token = next();
+    if (!token.isSymbol(symbol)) {
+      throw syntaxError(token);
+    }
+  }
+
+  private void expectKeyword(String keyword) {
+    Token token = next();
+    if (!token.isKeyword(keyword)) {
+      throw syntaxError(token);
+    }
+  }
+
+  private void expectEnd() {
+    if (!atEnd()) {
+      throw syntaxError(peek());
+    }
+  }
+
+  private RuntimeException syntaxError(Token token) {
+    return Errors.validation("Invalid expression: Syntax error; token: \""
+        + (token == null ? "<EOF>" : token.text) + "\", expression: " + expression);
+  }
+
+  private static List<Token> tokenize(String expression) {
+    if (expression == null || expression.trim().isEmpty()) {
+      throw Errors.validation("Invalid expression: The expression can not be empty");
+    }
+    List<Token> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < expression.length()) {
+      char c = expression.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '#' || c == ':' || Character.isLetter(c) || c == '_') {
+        int start = i++;
+        while (i < expression.length()
+            && (Character.isLetterOrDigit(expression.charAt(i)) || expression.charAt(i) == '_')) {
+          i++;
+        }
+        String text = expression.substring(start, i);
+        TokenType type = c == '#' ? TokenType.PLACEHOLDER_NAME : c == ':' ? TokenType.VALUE : TokenType.NAME;
+        tokens.add(new Token(type, text));
+      } else if (Character.isDigit(c)) {
+        int start = i;
+        while (i < expression.length() && Character.isDigit(expression.charAt(i))) {
+          i++;
+        }
+        tokens.add(new Token(TokenType.NUMBER, expression.substring(start, i)));
+      } else if ((c == '<' || c == '>') && i + 1 < expression.length()
+          && (expression.charAt(i + 1) == '=' || c == '<' && expression.charAt(i + 1) == '>')) {
+        tokens.add(new Token(TokenType.SYMBOL, expression.substring(i, i + 2)));
+        i += 2;
+      } else if ("=<>(),.[]+-".indexOf(c) >= 0) {
+        tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c)));
+        i++;
+      } else {
+        throw Errors.validation("Invalid expression: Syntax error; token: \"" + c + "\", expression: " + expression);
+      }
+    }
+    return tokens;
+  }
+}
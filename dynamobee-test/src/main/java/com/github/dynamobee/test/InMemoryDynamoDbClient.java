@@ -0,0 +1,914 @@
+package com.github.dynamobee.test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.BillingModeSummary;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.CreateTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTimeToLiveRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTimeToLiveResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.ItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ListTablesRequest;
+import software.amazon.awssdk.services.dynamodb.model.ListTablesResponse;
+import software.amazon.awssdk.services.dynamodb.model.LocalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveDescription;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveSpecification;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveStatus;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTimeToLiveRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTimeToLiveResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+import software.amazon.awssdk.services.dynamodb.paginators.ListTablesIterable;
+import software.amazon.awssdk.services.dynamodb.paginators.QueryIterable;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbWaiter;
+
+
+/**
+ * {@link DynamoDbClient} keeping its tables in memory, for running changelogs in unit tests
+ * without DynamoDB Local or a network.
+ * <p>
+ * Supported: table create/describe/delete/list, get/put/update/delete item with condition expressions
+ * and return values, query and (parallel) scan over tables and secondary indexes with filter and projection
+ * expressions and pagination, batch get/write, transactional get/write, describe/update time to live,
+ * waiters and paginators. Tables become ACTIVE immediately and writes are strongly consistent.
+ * Expired items are only deleted when {@link #expireItems} is called.
+ * Any other operation (PartiQL included) throws {@link UnsupportedOperationException}.
+ * <p>
+ * Usage:
+ * <pre>
+ *   DynamoDbClient client = new InMemoryDynamoDbClient();
+ *   new Dynamobee(client).setChangeLogsScanPackage("com.example.changelogs").execute();
+ * </pre>
+ */
+public class InMemoryDynamoDbClient implements DynamoDbClient {
+  private static final String TABLE_ARN_PREFIX = "arn:aws:dynamodb:local:000000000000:table/";
+  private static final int MAX_PAGE_BYTES = 1024 * 1024;
+  private static final int MAX_BATCH_GET_KEYS = 100;
+  private static final int MAX_BATCH_WRITE_REQUESTS = 25;
+  private static final int MAX_TRANSACT_ITEMS = 100;
+  private static final int MAX_SCAN_SEGMENTS = 1000000;
+
+  private final ConcurrentMap<String, InMemoryTable> tables = new ConcurrentHashMap<>();
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public CreateTableResponse createTable(CreateTableRequest request) {
+    String keyHash = keyName(request.keySchema(), KeyType.HASH);
+    if (keyHash == null) {
+      throw Errors.validation("No Hash Key specified in schema. All Dynamo DB tables must have exactly one hash key");
+    }
+    Set<String> definedAttributes = new HashSet<>();
+    for (AttributeDefinition definition : request.attributeDefinitions()) {
+      definedAttributes.add(definition.attributeName());
+    }
+    for (KeySchemaElement element : request.keySchema()) {
+      if (!definedAttributes.contains(element.attributeName())) {
+        throw Errors.validation("One or more parameter values were invalid: Some index key attributes are not defined "
+            + "in AttributeDefinitions. Keys: [" + element.attributeName() + "]");
+      }
+    }
+
+    TableDescription.Builder description = TableDescription.builder()
+        .tableName(request.tableName())
+        .tableArn(TABLE_ARN_PREFIX + request.tableName())
+        .tableStatus(TableStatus.ACTIVE)
+        .creationDateTime(Instant.now())
+        .keySchema(request.keySchema())
+        .attributeDefinitions(request.attributeDefinitions())
+        .billingModeSummary(BillingModeSummary.builder()
+            .billingMode(request.billingMode() == null ? BillingMode.PROVISIONED : request.billingMode())
+            .build());
+    if (request.provisionedThroughput() != null) {
+      description.provisionedThroughput(ProvisionedThroughputDescription.builder()
+          .readCapacityUnits(request.provisionedThroughput().readCapacityUnits())
+          .writeCapacityUnits(request.provisionedThroughput().writeCapacityUnits())
+          .build());
+    }
+    if (request.hasGlobalSecondaryIndexes()) {
+      List<GlobalSecondaryIndexDescription> indexes = new ArrayList<>();
+      request.globalSecondaryIndexes().forEach(index -> indexes.add(GlobalSecondaryIndexDescription.builder()
+          .indexName(index.indexName())
+          .indexArn(TABLE_ARN_PREFIX + request.tableName() + "/index/" + index.indexName())
+          .keySchema(index.keySchema())
+          .projection(index.projection())
+          .indexStatus(IndexStatus.ACTIVE)
+          .build()));
+      description.globalSecondaryIndexes(indexes);
+    }
+    if (request.hasLocalSecondaryIndexes()) {
+      List<LocalSecondaryIndexDescription> indexes = new ArrayList<>();
+      request.localSecondaryIndexes().forEach(index -> indexes.add(LocalSecondaryIndexDescription.builder()
+          .indexName(index.indexName())
+          .indexArn(TABLE_ARN_PREFIX + request.tableName() + "/index/" + index.indexName())
+          .keySchema(index.keySchema())
+          .projection(index.projection())
+          .build()));
+      description.localSecondaryIndexes(indexes);
+    }
+
+    InMemoryTable table = new InMemoryTable(description.build());
+    if (tables.putIfAbsent(request.tableName(), table) != null) {
+      throw Errors.resourceInUse(request.tableName());
+    }
+    return CreateTableResponse.builder().tableDescription(table.description()).build();
+  }
+
+  @Override
+  public DescribeTableResponse describeTable(DescribeTableRequest request) {
+    return DescribeTableResponse.builder().table(table(request.tableName()).description()).build();
+  }
+
+  @Override
+  public DescribeTimeToLiveResponse describeTimeToLive(DescribeTimeToLiveRequest request) {
+    return DescribeTimeToLiveResponse.builder().timeToLiveDescription(table(request.tableName()).timeToLive).build();
+  }
+
+  @Override
+  public UpdateTimeToLiveResponse updateTimeToLive(UpdateTimeToLiveRequest request) {
+    InMemoryTable table = table(request.tableName());
+    TimeToLiveSpecification specification = request.timeToLiveSpecification();
+    if (specification == null || specification.enabled() == null || specification.attributeName() == null) {
+      throw Errors.validation("TimeToLiveSpecification requires Enabled and AttributeName");
+    }
+    boolean enabled = table.timeToLive.timeToLiveStatus() == TimeToLiveStatus.ENABLED;
+    if (enabled == specification.enabled()) {
+      throw Errors.validation(enabled ? "TimeToLive is already enabled" : "TimeToLive is already disabled");
+    }
+    table.timeToLive = TimeToLiveDescription.builder()
+        .timeToLiveStatus(specification.enabled() ? TimeToLiveStatus.ENABLED : TimeToLiveStatus.DISABLED)
+        .attributeName(specification.enabled() ? specification.attributeName() : null)
+        .build();
+    return UpdateTimeToLiveResponse.builder().timeToLiveSpecification(specification).build();
+  }
+
+  /**
+   * Deletes the items whose time to live attribute, in epoch seconds, is not after the given time,
+   * as the TTL process of DynamoDB eventually does.
+   *
+   * @param tableName table with time to live enabled
+   * @param now       expiry time
+   * @return number of deleted items
+   */
+  public int expireItems(String tableName, Instant now) {
+    InMemoryTable table = table(tableName);
+    TimeToLiveDescription timeToLive = table.timeToLive;
+    if (timeToLive.timeToLiveStatus() != TimeToLiveStatus.ENABLED) {
+      return 0;
+    }
+    int expired = 0;
+    for (Map.Entry<ItemKey, Map<String, AttributeValue>> entry : table.items.entrySet()) {
+      AttributeValue expiry = entry.getValue().get(timeToLive.attributeName());
+      if (expiry == null || expiry.n() == null || Double.parseDouble(expiry.n()) > now.getEpochSecond()) {
+        continue;
+      }
+      table.lock.lock();
+      try {
+        if (table.get(entry.getKey()) == entry.getValue()) {
+          table.delete(entry.getKey());
+          expired++;
+        }
+      } finally {
+        table.lock.unlock();
+      }
+    }
+    return expired;
+  }
+
+  @Override
+  public DeleteTableResponse deleteTable(DeleteTableRequest request) {
+    InMemoryTable table = tables.remove(request.tableName());
+    if (table == null) {
+      throw Errors.resourceNotFound(request.tableName());
+    }
+    return DeleteTableResponse.builder()
+        .tableDescription(table.description().toBuilder().tableStatus(TableStatus.DELETING).build())
+        .build();
+  }
+
+  @Override
+  public ListTablesResponse listTables(ListTablesRequest request) {
+    int limit = request.limit() == null ? 100 : request.limit();
+    NavigableMap<String, InMemoryTable> sorted = new TreeMap<>(tables);
+    if (request.exclusiveStartTableName() != null) {
+      sorted = sorted.tailMap(request.exclusiveStartTableName(), false);
+    }
+    List<String> names = new ArrayList<>(sorted.keySet());
+    ListTablesResponse.Builder response = ListTablesResponse.builder();
+    if (names.size() > limit) {
+      names = names.subList(0, limit);
+      response.lastEvaluatedTableName(names.get(limit - 1));
+    }
+    return response.tableNames(names).build();
+  }
+
+  @Override
+  public ListTablesResponse listTables() {
+    return listTables(ListTablesRequest.builder().build());
+  }
+
+  @Override
+  public GetItemResponse getItem(GetItemRequest request) {
+    InMemoryTable table = table(request.tableName());
+    Map<String, AttributeValue> item = table.get(table.keyOf(request.key()));
+    GetItemResponse.Builder response = GetItemResponse.builder()
+        .consumedCapacity(readCapacity(table.name, item == null ? 0 : AttributeValues.size(item),
+            request.consistentRead(), request.returnConsumedCapacity()));
+    if (item != null) {
+      response.item(project(item, request.projectionExpression(), request.expressionAttributeNames()));
+    }
+    return response.build();
+  }
+
+  @Override
+  public PutItemResponse putItem(PutItemRequest request) {
+    InMemoryTable table = table(request.tableName());
+    if (request.item() == null || request.item().isEmpty()) {
+      throw Errors.validation("One or more parameter values were invalid: Missing the key in the item");
+    }
+    Map<String, AttributeValue> previous;
+    table.lock.lock();
+    try {
+      Map<String, AttributeValue> current = table.get(table.primaryKey(request.item()));
+      checkCondition(request.conditionExpression(), request.expressionAttributeNames(),
+          request.expressionAttributeValues(), current);
+      previous = table.put(request.item());
+    } finally {
+      table.lock.unlock();
+    }
+    PutItemResponse.Builder response = PutItemResponse.builder()
+        .consumedCapacity(writeCapacity(table.name, previous, request.item(), request.returnConsumedCapacity()));
+    if (request.returnValues() == ReturnValue.ALL_OLD && previous != null) {
+      response.attributes(previous);
+    } else if (request.returnValues() != null && request.returnValues() != ReturnValue.NONE
+        && request.returnValues() != ReturnValue.ALL_OLD) {
+      throw Errors.validation("ReturnValues can only be ALL_OLD or NONE");
+    }
+    return response.build();
+  }
+
+  @Override
+  public DeleteItemResponse deleteItem(DeleteItemRequest request) {
+    InMemoryTable table = table(request.tableName());
+    ItemKey key = table.keyOf(request.key());
+    Map<String, AttributeValue> previous;
+    table.lock.lock();
+    try {
+      checkCondition(request.conditionExpression(), request.expressionAttributeNames(),
+          request.expressionAttributeValues(), table.get(key));
+      previous = table.delete(key);
+    } finally {
+      table.lock.unlock();
+    }
+    DeleteItemResponse.Builder response = DeleteItemResponse.builder()
+        .consumedCapacity(writeCapacity(table.name, previous, null, request.returnConsumedCapacity()));
+    if (request.returnValues() == ReturnValue.ALL_OLD && previous != null) {
+      response.attributes(previous);
+    }
+    return response.build();
+  }
+
+  @Override
+  public UpdateItemResponse updateItem(UpdateItemRequest request) {
+    InMemoryTable table = table(request.tableName());
+    ItemKey key = table.keyOf(request.key());
+    UpdateExpression update = parseUpdate(table, request.updateExpression(), request.expressionAttributeNames(),
+        request.expressionAttributeValues(), request.hasAttributeUpdates());
+    Map<String, AttributeValue> previous;
+    Map<String, AttributeValue> updated;
+    table.lock.lock();
+    try {
+      previous = table.get(key);
+      checkCondition(request.conditionExpression(), request.expressionAttributeNames(),
+          request.expressionAttributeValues(), previous);
+      updated = applyUpdate(update, previous, request.key());
+      table.put(updated);
+    } finally {
+      table.lock.unlock();
+    }
+
+    UpdateItemResponse.Builder response = UpdateItemResponse.builder()
+        .consumedCapacity(writeCapacity(table.name, previous, updated, request.returnConsumedCapacity()));
+    ReturnValue returnValues = request.returnValues() == null ? ReturnValue.NONE : request.returnValues();
+    switch (returnValues) {
+      case ALL_OLD:
+        if (previous != null) {
+          response.attributes(previous);
+        }
+        break;
+      case ALL_NEW:
+        response.attributes(updated);
+        break;
+      case UPDATED_OLD:
+        if (previous != null) {
+          response.attributes(select(previous, update.updatedAttributes()));
+        }
+        break;
+      case UPDATED_NEW:
+        response.attributes(select(updated, update.updatedAttributes()));
+        break;
+      default:
+        break;
+    }
+    return response.build();
+  }
+
+  @Override
+  public QueryResponse query(QueryRequest request) {
+    InMemoryTable table = table(request.tableName());
+    if (request.keyConditionExpression() == null) {
+      throw Errors.validation("Either the KeyConditions or KeyConditionExpression parameter must be specified");
+    }
+    Condition keyCondition = ExpressionParser.parseCondition(request.keyConditionExpression(),
+        request.expressionAttributeNames(), request.expressionAttributeValues());
+    String partitionKey = request.indexName() == null ? table.partitionKey : table.index(request.indexName()).partitionKey;
+    AttributeValue partition = Condition.findEquality(keyCondition, partitionKey);
+    if (partition == null) {
+      throw Errors.validation("Query condition missed key schema element: " + partitionKey);
+    }
+    Condition filter = request.filterExpression() == null ? null : ExpressionParser.parseCondition(
+        request.filterExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+
+    NavigableMap<ItemKey, Map<String, AttributeValue>> entries = table.entries(request.indexName())
+        .subMap(ItemKey.lowerBound(partition), true, ItemKey.upperBound(partition), true);
+    if (Boolean.FALSE.equals(request.scanIndexForward())) {
+      entries = entries.descendingMap();
+    }
+    if (request.hasExclusiveStartKey()) {
+      entries = entries.tailMap(startKey(table, request.indexName(), request.exclusiveStartKey()), false);
+    }
+
+    Page page = new Page(request.limit());
+    for (Map<String, AttributeValue> item : entries.values()) {
+      if (page.isFull()) {
+        page.truncated = true;
+        break;
+      }
+      if (keyCondition.evaluate(item)) {
+        page.add(table, request.indexName(), item, filter);
+      }
+    }
+    List<Map<String, AttributeValue>> items = page.render(table, request.indexName(), request.select(),
+        request.projectionExpression(), request.expressionAttributeNames());
+
+    QueryResponse.Builder response = QueryResponse.builder()
+        .count(page.count)
+        .scannedCount(page.scannedCount)
+        .consumedCapacity(readCapacity(table.name, page.bytes, request.consistentRead(),
+            request.returnConsumedCapacity()));
+    if (items != null) {
+      response.items(items);
+    }
+    if (page.truncated) {
+      response.lastEvaluatedKey(select(page.last, table.lastEvaluatedKeyAttributes(request.indexName())));
+    }
+    return response.build();
+  }
+
+  @Override
+  public ScanResponse scan(ScanRequest request) {
+    InMemoryTable table = table(request.tableName());
+    if ((request.segment() == null) != (request.totalSegments() == null)) {
+      throw Errors.validation("The TotalSegments parameter is required but was not present in the request "
+          + "when Segment parameter is present");
+    }
+    int totalSegments = request.totalSegments() == null ? 1 : request.totalSegments();
+    int segment = request.segment() == null ? 0 : request.segment();
+    if (totalSegments < 1 || totalSegments > MAX_SCAN_SEGMENTS || segment < 0 || segment >= totalSegments) {
+      throw Errors.validation("The Segment parameter is zero-based and must be less than parameter TotalSegments: "
+          + "Segment: " + segment + " is out of bounds for TotalSegments: " + totalSegments);
+    }
+    Condition filter = request.filterExpression() == null ? null : ExpressionParser.parseCondition(
+        request.filterExpression(), request.expressionAttributeNames(), request.expressionAttributeValues());
+
+    NavigableMap<ItemKey, Map<String, AttributeValue>> entries = table.entries(request.indexName());
+    if (request.hasExclusiveStartKey()) {
+      entries = entries.tailMap(startKey(table, request.indexName(), request.exclusiveStartKey()), false);
+    }
+
+    Page page = new Page(request.limit());
+    for (Map.Entry<ItemKey, Map<String, AttributeValue>> entry : entries.entrySet()) {
+      if (totalSegments > 1 && InMemoryTable.segmentOf(entry.getKey(), totalSegments) != segment) {
+        continue;
+      }
+      if (page.isFull()) {
+        page.truncated = true;
+        break;
+      }
+      page.add(table, request.indexName(), entry.getValue(), filter);
+    }
+    List<Map<String, AttributeValue>> items = page.render(table, request.indexName(), request.select(),
+        request.projectionExpression(), request.expressionAttributeNames());
+
+    ScanResponse.Builder response = ScanResponse.builder()
+        .count(page.count)
+        .scannedCount(page.scannedCount)
+        .consumedCapacity(readCapacity(table.name, page.bytes, request.consistentRead(),
+            request.returnConsumedCapacity()));
+    if (items != null) {
+      response.items(items);
+    }
+    if (page.truncated) {
+      response.lastEvaluatedKey(select(page.last, table.lastEvaluatedKeyAttributes(request.indexName())));
+    }
+    return response.build();
+  }
+
+  @Override
+  public BatchGetItemResponse batchGetItem(BatchGetItemRequest request) {
+    int keys = request.requestItems().values().stream().mapToInt(keysAndAttributes -> keysAndAttributes.keys().size()).sum();
+    if (keys == 0 || keys > MAX_BATCH_GET_KEYS) {
+      throw Errors.validation("Too many items requested for the BatchGetItem call");
+    }
+    Map<String, List<Map<String, AttributeValue>>> responses = new LinkedHashMap<>();
+    List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+    for (Map.Entry<String, KeysAndAttributes> entry : request.requestItems().entrySet()) {
+      InMemoryTable table = table(entry.getKey());
+      KeysAndAttributes keysAndAttributes = entry.getValue();
+      List<Map<String, AttributeValue>> items = new ArrayList<>();
+      Set<ItemKey> seen = new HashSet<>();
+      long bytes = 0;
+      for (Map<String, AttributeValue> key : keysAndAttributes.keys()) {
+        ItemKey itemKey = table.keyOf(key);
+        if (!seen.add(itemKey)) {
+          throw Errors.validation("Provided list of item keys contains duplicates");
+        }
+        Map<String, AttributeValue> item = table.get(itemKey);
+        if (item != null) {
+          bytes += AttributeValues.size(item);
+          items.add(project(item, keysAndAttributes.projectionExpression(),
+              keysAndAttributes.expressionAttributeNames()));
+        }
+      }
+      responses.put(table.name, items);
+      ConsumedCapacity capacity = readCapacity(table.name, bytes, keysAndAttributes.consistentRead(),
+          request.returnConsumedCapacity());
+      if (capacity != null) {
+        consumedCapacity.add(capacity);
+      }
+    }
+    BatchGetItemResponse.Builder response = BatchGetItemResponse.builder()
+        .responses(responses)
+        .unprocessedKeys(Map.of());
+    if (!consumedCapacity.isEmpty()) {
+      response.consumedCapacity(consumedCapacity);
+    }
+    return response.build();
+  }
+
+  @Override
+  public BatchWriteItemResponse batchWriteItem(BatchWriteItemRequest request) {
+    int requests = request.requestItems().values().stream().mapToInt(List::size).sum();
+    if (requests == 0 || requests > MAX_BATCH_WRITE_REQUESTS) {
+      throw Errors.validation("Too many items requested for the BatchWriteItem call");
+    }
+    for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+      InMemoryTable table = table(entry.getKey());
+      Set<ItemKey> seen = new HashSet<>();
+      for (WriteRequest writeRequest : entry.getValue()) {
+        ItemKey key = writeRequest.putRequest() != null
+            ? table.primaryKey(writeRequest.putRequest().item())
+            : table.keyOf(writeRequest.deleteRequest().key());
+        if (!seen.add(key)) {
+          throw Errors.validation("Provided list of item keys contains duplicates");
+        }
+      }
+    }
+
+    List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+    for (Map.Entry<String, List<WriteRequest>> entry : request.requestItems().entrySet()) {
+      InMemoryTable table = table(entry.getKey());
+      double units = 0;
+      table.lock.lock();
+      try {
+        for (WriteRequest writeRequest : entry.getValue()) {
+          if (writeRequest.putRequest() != null) {
+            Map<String, AttributeValue> previous = table.put(writeRequest.putRequest().item());
+            units += writeUnits(previous, writeRequest.putRequest().item());
+          } else {
+            units += writeUnits(table.delete(table.keyOf(writeRequest.deleteRequest().key())), null);
+          }
+        }
+      } finally {
+        table.lock.unlock();
+      }
+      ConsumedCapacity capacity = capacity(table.name, units, request.returnConsumedCapacity());
+      if (capacity != null) {
+        consumedCapacity.add(capacity);
+      }
+    }
+    BatchWriteItemResponse.Builder response = BatchWriteItemResponse.builder().unprocessedItems(Map.of());
+    if (!consumedCapacity.isEmpty()) {
+      response.consumedCapacity(consumedCapacity);
+    }
+    return response.build();
+  }
+
+  @Override
+  public TransactWriteItemsResponse transactWriteItems(TransactWriteItemsRequest request) {
+    List<TransactWriteItem> transactItems = request.transactItems();
+    if (transactItems.isEmpty() || transactItems.size() > MAX_TRANSACT_ITEMS) {
+      throw Errors.validation("Member must have length less than or equal to " + MAX_TRANSACT_ITEMS);
+    }
+    List<PendingWrite> writes = new ArrayList<>();
+    Map<String, InMemoryTable> lockOrder = new TreeMap<>();
+    Set<String> targets = new HashSet<>();
+    for (TransactWriteItem transactItem : transactItems) {
+      PendingWrite write = PendingWrite.of(this, transactItem);
+      if (!targets.add(write.table.name + "/" + write.key)) {
+        throw Errors.validation("Transaction request cannot include multiple operations on one item");
+      }
+      writes.add(write);
+      lockOrder.put(write.table.name, write.table);
+    }
+
+    List<ReentrantLock> held = new ArrayList<>();
+    try {
+      for (InMemoryTable table : lockOrder.values()) {
+        table.lock.lock();
+        held.add(table.lock);
+      }
+      List<CancellationReason> reasons = new ArrayList<>();
+      boolean cancelled = false;
+      for (PendingWrite write : writes) {
+        Map<String, AttributeValue> current = write.table.get(write.key);
+        if (write.conditionHolds(current)) {
+          reasons.add(CancellationReason.builder().code("None").build());
+        } else {
+          cancelled = true;
+          reasons.add(CancellationReason.builder()
+              .code("ConditionalCheckFailed")
+              .message("The conditional request failed")
+              .build());
+        }
+      }
+      if (cancelled) {
+        throw transactionCanceled(reasons);
+      }
+      for (PendingWrite write : writes) {
+        write.apply(write.table.get(write.key));
+      }
+    } finally {
+      for (ReentrantLock lock : held) {
+        lock.unlock();
+      }
+    }
+    return TransactWriteItemsResponse.builder().build();
+  }
+
+  @Override
+  public TransactGetItemsResponse transactGetItems(TransactGetItemsRequest request) {
+    List<TransactGetItem> transactItems = request.transactItems();
+    if (transactItems.isEmpty() || transactItems.size() > MAX_TRANSACT_ITEMS) {
+      throw Errors.validation("Member must have length less than or equal to " + MAX_TRANSACT_ITEMS);
+    }
+    List<ItemResponse> responses = new ArrayList<>();
+    for (TransactGetItem transactItem : transactItems) {
+      InMemoryTable table = table(transactItem.get().tableName());
+      Map<String, AttributeValue> item = table.get(table.keyOf(transactItem.get().key()));
+      responses.add(item == null
+          ? ItemResponse.builder().build()
+          : ItemResponse.builder()
+              .item(project(item, transactItem.get().projectionExpression(),
+                  transactItem.get().expressionAttributeNames()))
+              .build());
+    }
+    return TransactGetItemsResponse.builder().responses(responses).build();
+  }
+
+  @Override
+  public DynamoDbWaiter waiter() {
+    return DynamoDbWaiter.builder().client(this).build();
+  }
+
+  @Override
+  public QueryIterable queryPaginator(QueryRequest request) {
+    return new QueryIterable(this, request);
+  }
+
+  @Override
+  public ScanIterable scanPaginator(ScanRequest request) {
+    return new ScanIterable(this, request);
+  }
+
+  @Override
+  public ListTablesIterable listTablesPaginator(ListTablesRequest request) {
+    return new ListTablesIterable(this, request);
+  }
+
+  @Override
+  public ListTablesIterable listTablesPaginator() {
+    return listTablesPaginator(ListTablesRequest.builder().build());
+  }
+
+  InMemoryTable table(String tableName) {
+    InMemoryTable table = tableName == null ? null : tables.get(tableName);
+    if (table == null) {
+      throw Errors.resourceNotFound(tableName);
+    }
+    return table;
+  }
+
+  /**
+   * Write of a transaction, resolved before any lock is taken
+   */
+  private static final class PendingWrite {
+    private InMemoryTable table;
+    private ItemKey key;
+    private Map<String, AttributeValue> keyAttributes;
+    private Map<String, AttributeValue> putItem;
+    private UpdateExpression update;
+    private boolean delete;
+    private String conditionExpression;
+    private Map<String, String> names;
+    private Map<String, AttributeValue> values;
+
+    static PendingWrite of(InMemoryDynamoDbClient client, TransactWriteItem transactItem) {
+      PendingWrite write = new PendingWrite();
+      if (transactItem.put() != null) {
+        write.table = client.table(transactItem.put().tableName());
+        write.putItem = transactItem.put().item();
+        write.key = write.table.primaryKey(write.putItem);
+        write.conditionExpression = transactItem.put().conditionExpression();
+        write.names = transactItem.put().expressionAttributeNames();
+        write.values = transactItem.put().expressionAttributeValues();
+      } else if (transactItem.update() != null) {
+        write.table = client.table(transactItem.update().tableName());
+        write.keyAttributes = transactItem.update().key();
+        write.key = write.table.keyOf(write.keyAttributes);
+        write.names = transactItem.update().expressionAttributeNames();
+        write.values = transactItem.update().expressionAttributeValues();
+        write.update = parseUpdate(write.table, transactItem.update().updateExpression(), write.names, write.values,
+            false);
+        write.conditionExpression = transactItem.update().conditionExpression();
+      } else if (transactItem.delete() != null) {
+        write.table = client.table(transactItem.delete().tableName());
+        write.key = write.table.keyOf(transactItem.delete().key());
+        write.delete = true;
+        write.conditionExpression = transactItem.delete().conditionExpression();
+        write.names = transactItem.delete().expressionAttributeNames();
+        write.values = transactItem.delete().expressionAttributeValues();
+      } else if (transactItem.conditionCheck() != null) {
+        write.table = client.table(transactItem.conditionCheck().tableName());
+        write.key = write.table.keyOf(transactItem.conditionCheck().key());
+        write.conditionExpression = transactItem.conditionCheck().conditionExpression();
+        write.names = transactItem.conditionCheck().expressionAttributeNames();
+        write.values = transactItem.conditionCheck().expressionAttributeValues();
+        if (write.conditionExpression == null) {
+          throw Errors.validation("ConditionCheck requires a ConditionExpression");
+        }
+      } else {
+        throw Errors.validation("TransactItems can only contain one of Check, Put, Update or Delete");
+      }
+      return write;
+    }
+
+    boolean conditionHolds(Map<String, AttributeValue> current) {
+      return conditionExpression == null
+          || ExpressionParser.parseCondition(conditionExpression, names, values).evaluate(current == null ? Map.of() : current);
+    }
+
+    void apply(Map<String, AttributeValue> current) {
+      if (putItem != null) {
+        table.put(putItem);
+      } else if (update != null) {
+        table.put(applyUpdate(update, current, keyAttributes));
+      } else if (delete) {
+        table.delete(key);
+      }
+    }
+  }
+
+  /**
+   * Items evaluated by one query or scan call, bounded by Limit and the 1 MB page size
+   */
+  private static final class Page {
+    private final Integer limit;
+    private final List<Map<String, AttributeValue>> matched = new ArrayList<>();
+    private Map<String, AttributeValue> last;
+    private int scannedCount;
+    private int count;
+    private long bytes;
+    private boolean truncated;
+
+    Page(Integer limit) {
+      if (limit != null && limit < 1) {
+        throw Errors.validation("Limit must be greater than or equal to 1");
+      }
+      this.limit = limit;
+    }
+
+    boolean isFull() {
+      return limit != null && scannedCount >= limit || bytes >= MAX_PAGE_BYTES;
+    }
+
+    void add(InMemoryTable table, String indexName, Map<String, AttributeValue> item, Condition filter) {
+      Map<String, AttributeValue> visible = table.projectIndex(indexName, item);
+      scannedCount++;
+      bytes += AttributeValues.size(visible);
+      last = item;
+      if (filter == null || filter.evaluate(visible)) {
+        count++;
+        matched.add(visible);
+      }
+    }
+
+    /**
+     * @return items to return, or null for {@link Select#COUNT}
+     */
+    List<Map<String, AttributeValue>> render(InMemoryTable table, String indexName, Select select,
+                                             String projectionExpression, Map<String, String> names) {
+      if (select == Select.COUNT) {
+        if (projectionExpression != null) {
+          throw Errors.validation("Cannot specify the AttributesToGet or ProjectionExpression when choosing to get "
+              + "only the Count");
+        }
+        return null;
+      }
+      if (select == Select.ALL_ATTRIBUTES && indexName != null) {
+        throw Errors.validation("One or more parameter values were invalid: Select type ALL_ATTRIBUTES is not "
+            + "supported for global secondary index " + indexName);
+      }
+      List<Map<String, AttributeValue>> items = new ArrayList<>(matched.size());
+      for (Map<String, AttributeValue> item : matched) {
+        items.add(project(item, projectionExpression, names));
+      }
+      return items;
+    }
+  }
+
+  private static UpdateExpression parseUpdate(InMemoryTable table, String updateExpression, Map<String, String> names,
+                                              Map<String, AttributeValue> values, boolean hasAttributeUpdates) {
+    if (hasAttributeUpdates) {
+      throw new UnsupportedOperationException("AttributeUpdates is not supported, use UpdateExpression");
+    }
+    if (updateExpression == null) {
+      return null;
+    }
+    UpdateExpression update = ExpressionParser.parseUpdate(updateExpression, names, values);
+    for (String attribute : update.updatedAttributes()) {
+      if (attribute.equals(table.partitionKey) || attribute.equals(table.sortKey)) {
+        throw Errors.validation("One or more parameter values were invalid: Cannot update attribute " + attribute
+            + ". This attribute is part of the key");
+      }
+    }
+    return update;
+  }
+
+  private static Map<String, AttributeValue> applyUpdate(UpdateExpression update, Map<String, AttributeValue> current,
+                                                         Map<String, AttributeValue> key) {
+    Map<String, AttributeValue> original = current != null ? current : key;
+    return update == null ? original : update.apply(original);
+  }
+
+  private static void checkCondition(String conditionExpression, Map<String, String> names,
+                                     Map<String, AttributeValue> values, Map<String, AttributeValue> current) {
+    if (conditionExpression != null
+        && !ExpressionParser.parseCondition(conditionExpression, names, values).evaluate(current == null ? Map.of() : current)) {
+      throw Errors.conditionalCheckFailed();
+    }
+  }
+
+  private static ItemKey startKey(InMemoryTable table, String indexName, Map<String, AttributeValue> exclusiveStartKey) {
+    if (indexName == null) {
+      return table.keyOf(exclusiveStartKey);
+    }
+    ItemKey key = table.indexKey(table.index(indexName), exclusiveStartKey);
+    if (key == null) {
+      throw Errors.validation("The provided starting key is invalid");
+    }
+    return key;
+  }
+
+  private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, String projectionExpression,
+                                                     Map<String, String> names) {
+    if (projectionExpression == null) {
+      return item;
+    }
+    Map<String, AttributeValue> projection = new LinkedHashMap<>();
+    for (DocumentPath path : ExpressionParser.parseProjection(projectionExpression, names)) {
+      path.project(item, projection);
+    }
+    return projection;
+  }
+
+  private static Map<String, AttributeValue> select(Map<String, AttributeValue> item, Iterable<String> attributes) {
+    Map<String, AttributeValue> selected = new LinkedHashMap<>();
+    for (String attribute : attributes) {
+      AttributeValue value = item.get(attribute);
+      if (value != null) {
+        selected.put(attribute, value);
+      }
+    }
+    return selected;
+  }
+
+  private static TransactionCanceledException transactionCanceled(List<CancellationReason> reasons) {
+    StringBuilder codes = new StringBuilder();
+    for (CancellationReason reason : reasons) {
+      codes.append(codes.length() == 0 ? "" : ", ").append(reason.code());
+    }
+    String message = "Transaction cancelled, please refer cancellation reasons for specific reasons [" + codes + "]";
+    return TransactionCanceledException.builder()
+        .message(message)
+        .statusCode(400)
+        .awsErrorDetails(Errors.details("TransactionCanceledException", message))
+        .cancellationReasons(reasons)
+        .build();
+  }
+
+  private static ConsumedCapacity readCapacity(String tableName, long bytes, Boolean consistentRead,
+                                               ReturnConsumedCapacity returnConsumedCapacity) {
+    double units = Math.max(1, Math.ceil(bytes / 4096.0));
+    return capacity(tableName, Boolean.TRUE.equals(consistentRead) ? units : units / 2, returnConsumedCapacity);
+  }
+
+  private static ConsumedCapacity writeCapacity(String tableName, Map<String, AttributeValue> previous,
+                                                Map<String, AttributeValue> item,
+                                                ReturnConsumedCapacity returnConsumedCapacity) {
+    return capacity(tableName, writeUnits(previous, item), returnConsumedCapacity);
+  }
+
+  private static double writeUnits(Map<String, AttributeValue> previous, Map<String, AttributeValue> item) {
+    long bytes = Math.max(previous == null ? 0 : AttributeValues.size(previous), item == null ? 0 : AttributeValues.size(item));
+    return Math.max(1, Math.ceil(bytes / 1024.0));
+  }
+
+  private static ConsumedCapacity capacity(String tableName, double units,
+                                           ReturnConsumedCapacity returnConsumedCapacity) {
+    if (returnConsumedCapacity == null || returnConsumedCapacity == ReturnConsumedCapacity.NONE) {
+      return null;
+    }
+    return ConsumedCapacity.builder().tableName(tableName).capacityUnits(units).build();
+  }
+
+  private static String keyName(List<KeySchemaElement> keySchema, KeyType keyType) {
+    for (KeySchemaElement element : keySchema) {
+      if (element.keyType() == keyType) {
+        return element.attributeName();
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,281 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveDescription;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveStatus;
+
+
+/**
+ * Items of one table in a concurrent sorted map, plus one sorted map per secondary index.
+ * Reads are lock-free; writes (including condition checks) hold the table lock.
+ */
+final class InMemoryTable {
+
+  static final class Index {
+    final String name;
+    final String partitionKey;
+    final String sortKey;
+    final Projection projection;
+    final ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> entries = new ConcurrentSkipListMap<>();
+
+    Index(String name, List<KeySchemaElement> keySchema, Projection projection) {
+      this.name = name;
+      this.partitionKey = keyName(keySchema, KeyType.HASH);
+      this.sortKey = keyName(keySchema, KeyType.RANGE);
+      this.projection = projection;
+    }
+  }
+
+  final String name;
+  final String partitionKey;
+  final String sortKey;
+  final ConcurrentSkipListMap<ItemKey, Map<String, AttributeValue>> items = new ConcurrentSkipListMap<>();
+  final Map<String, Index> indexes = new LinkedHashMap<>();
+  final ReentrantLock lock = new ReentrantLock();
+
+  private final Map<String, String> attributeTypes = new LinkedHashMap<>();
+  private volatile TableDescription description;
+  volatile TimeToLiveDescription timeToLive = TimeToLiveDescription.builder()
+      .timeToLiveStatus(TimeToLiveStatus.DISABLED)
+      .build();
+
+  InMemoryTable(TableDescription description) {
+    this.name = description.tableName();
+    this.description = description;
+    this.partitionKey = keyName(description.keySchema(), KeyType.HASH);
+    this.sortKey = keyName(description.keySchema(), KeyType.RANGE);
+    for (AttributeDefinition definition : description.attributeDefinitions()) {
+      attributeTypes.put(definition.attributeName(), definition.attributeTypeAsString());
+    }
+    if (description.hasGlobalSecondaryIndexes()) {
+      description.globalSecondaryIndexes().forEach(index ->
+          indexes.put(index.indexName(), new Index(index.indexName(), index.keySchema(), index.projection())));
+    }
+    if (description.hasLocalSecondaryIndexes()) {
+      description.localSecondaryIndexes().forEach(index ->
+          indexes.put(index.indexName(), new Index(index.indexName(), index.keySchema(), index.projection())));
+    }
+  }
+
+  TableDescription description() {
+    long size = items.values().stream().mapToLong(AttributeValues::size).sum();
+    return description.toBuilder().itemCount((long) items.size()).tableSizeBytes(size).build();
+  }
+
+  void updateDescription(TableDescription description) {
+    this.description = description;
+  }
+
+  Index index(String indexName) {
+    Index index = indexes.get(indexName);
+    if (index == null) {
+      throw Errors.validation("The table does not have the specified index: " + indexName);
+    }
+    return index;
+  }
+
+  /**
+   * @param key map holding exactly the primary key attributes
+   */
+  ItemKey keyOf(Map<String, AttributeValue> key) {
+    int expected = sortKey == null ? 1 : 2;
+    if (key == null || key.size() != expected) {
+      throw Errors.validation("The provided key element does not match the schema");
+    }
+    return primaryKey(key);
+  }
+
+  /**
+   * @param item item containing the primary key attributes
+   */
+  ItemKey primaryKey(Map<String, AttributeValue> item) {
+    AttributeValue partition = keyValue(item, partitionKey);
+    return sortKey == null ? ItemKey.of(partition) : ItemKey.of(partition, keyValue(item, sortKey));
+  }
+
+  /**
+   * @return index entry key, or null if the item lacks the index key attributes (sparse index)
+   */
+  ItemKey indexKey(Index index, Map<String, AttributeValue> item) {
+    AttributeValue partition = item.get(index.partitionKey);
+    AttributeValue sort = index.sortKey == null ? null : item.get(index.sortKey);
+    if (partition == null || index.sortKey != null && sort == null) {
+      return null;
+    }
+    AttributeValue tablePartition = item.get(partitionKey);
+    AttributeValue tableSort = sortKey == null ? null : item.get(sortKey);
+    if (sort == null) {
+      return tableSort == null ? ItemKey.of(partition, tablePartition) : ItemKey.of(partition, tablePartition, tableSort);
+    }
+    return tableSort == null
+        ? ItemKey.of(partition, sort, tablePartition)
+        : ItemKey.of(partition, sort, tablePartition, tableSort);
+  }
+
+  private AttributeValue keyValue(Map<String, AttributeValue> item, String attributeName) {
+    AttributeValue value = item.get(attributeName);
+    if (value == null) {
+      throw Errors.validation("One of the required keys was not given a value");
+    }
+    String expectedType = attributeTypes.get(attributeName);
+    if (expectedType != null && !expectedType.equals(AttributeValues.type(value))) {
+      throw Errors.validation("One or more parameter values were invalid: Type mismatch for key " + attributeName
+          + " expected: " + expectedType + " actual: " + AttributeValues.type(value));
+    }
+    if (value.s() != null && value.s().isEmpty() || value.b() != null && value.b().asByteArrayUnsafe().length == 0) {
+      throw Errors.validation("One or more parameter values are not valid. The AttributeValue for a key attribute "
+          + "cannot contain an empty string value. Key: " + attributeName);
+    }
+    return value;
+  }
+
+  Map<String, AttributeValue> get(ItemKey key) {
+    return items.get(key);
+  }
+
+  /**
+   * Stores or replaces an item; the caller must hold {@link #lock}.
+   */
+  Map<String, AttributeValue> put(Map<String, AttributeValue> item) {
+    validateIndexKeys(item);
+    ItemKey key = primaryKey(item);
+    Map<String, AttributeValue> stored = Map.copyOf(item);
+    Map<String, AttributeValue> previous = items.put(key, stored);
+    for (Index index : indexes.values()) {
+      if (previous != null) {
+        ItemKey previousIndexKey = indexKey(index, previous);
+        if (previousIndexKey != null) {
+          index.entries.remove(previousIndexKey);
+        }
+      }
+      ItemKey indexKey = indexKey(index, stored);
+      if (indexKey != null) {
+        index.entries.put(indexKey, stored);
+      }
+    }
+    return previous;
+  }
+
+  /**
+   * Deletes an item; the caller must hold {@link #lock}.
+   */
+  Map<String, AttributeValue> delete(ItemKey key) {
+    Map<String, AttributeValue> previous = items.remove(key);
+    if (previous != null) {
+      for (Index index : indexes.values()) {
+        ItemKey indexKey = indexKey(index, previous);
+        if (indexKey != null) {
+          index.entries.remove(indexKey);
+        }
+      }
+    }
+    return previous;
+  }
+
+  private void validateIndexKeys(Map<String, AttributeValue> item) {
+    for (Index index : indexes.values()) {
+      for (String attribute : new String[] {index.partitionKey, index.sortKey}) {
+        AttributeValue value = attribute == null ? null : item.get(attribute);
+        String expectedType = attribute == null ? null : attributeTypes.get(attribute);
+        if (value != null && expectedType != null && !expectedType.equals(AttributeValues.type(value))) {
+          throw Errors.validation("One or more parameter values were invalid: Type mismatch for Index Key "
+              + attribute + " Expected: " + expectedType + " Actual: " + AttributeValues.type(value)
+              + " IndexName: " + index.name);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the sorted map backing the table or the given index
+   */
+  NavigableMap<ItemKey, Map<String, AttributeValue>> entries(String indexName) {
+    return indexName == null ? items : index(indexName).entries;
+  }
+
+  /**
+   * @return the attribute names making up the LastEvaluatedKey of the table or index
+   */
+  Collection<String> lastEvaluatedKeyAttributes(String indexName) {
+    Set<String> names = new LinkedHashSet<>();
+    if (indexName != null) {
+      Index index = index(indexName);
+      names.add(index.partitionKey);
+      if (index.sortKey != null) {
+        names.add(index.sortKey);
+      }
+    }
+    names.add(partitionKey);
+    if (sortKey != null) {
+      names.add(sortKey);
+    }
+    return names;
+  }
+
+  /**
+   * Applies the projection of an index to an item read from it
+   */
+  Map<String, AttributeValue> projectIndex(String indexName, Map<String, AttributeValue> item) {
+    if (indexName == null) {
+      return item;
+    }
+    Index index = index(indexName);
+    if (index.projection == null || index.projection.projectionType() == ProjectionType.ALL) {
+      return item;
+    }
+    Map<String, AttributeValue> projected = new LinkedHashMap<>();
+    for (String attribute : lastEvaluatedKeyAttributes(indexName)) {
+      projected.put(attribute, item.get(attribute));
+    }
+    if (index.projection.projectionType() == ProjectionType.INCLUDE && index.projection.hasNonKeyAttributes()) {
+      for (String attribute : index.projection.nonKeyAttributes()) {
+        if (item.containsKey(attribute)) {
+          projected.put(attribute, item.get(attribute));
+        }
+      }
+    }
+    return projected;
+  }
+
+  /**
+   * @return scan segment of the entry, derived from its partition key value
+   */
+  static int segmentOf(ItemKey key, int totalSegments) {
+    AttributeValue partition = key.partition();
+    String canonical;
+    if (partition.n() != null) {
+      canonical = "N" + new BigDecimal(partition.n()).stripTrailingZeros().toPlainString();
+    } else if (partition.b() != null) {
+      canonical = "B" + Base64.getEncoder().encodeToString(partition.b().asByteArrayUnsafe());
+    } else {
+      canonical = "S" + partition.s();
+    }
+    return Math.floorMod(canonical.hashCode() * 0x9E3779B9, totalSegments);
+  }
+
+  private static String keyName(List<KeySchemaElement> keySchema, KeyType keyType) {
+    for (KeySchemaElement element : keySchema) {
+      if (element.keyType() == keyType) {
+        return element.attributeName();
+      }
+    }
+    return null;
+  }
+}
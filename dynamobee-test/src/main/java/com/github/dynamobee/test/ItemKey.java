@@ -0,0 +1,68 @@
+package com.github.dynamobee.test;
+
+import java.util.Arrays;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Sort key of the in-memory skip lists: key attribute values compared component by component.
+ * A bound is a prefix which sorts before ({@code upper == false}) or after all keys starting with it.
+ */
+final class ItemKey implements Comparable<ItemKey> {
+  private final AttributeValue[] parts;
+  private final boolean upper;
+
+  private ItemKey(AttributeValue[] parts, boolean upper) {
+    this.parts = parts;
+    this.upper = upper;
+  }
+
+  static ItemKey of(AttributeValue... parts) {
+    return new ItemKey(parts, false);
+  }
+
+  static ItemKey lowerBound(AttributeValue... prefix) {
+    return new ItemKey(prefix, false);
+  }
+
+  static ItemKey upperBound(AttributeValue... prefix) {
+    return new ItemKey(prefix, true);
+  }
+
+  AttributeValue partition() {
+    return parts[0];
+  }
+
+  @Override
+  public int compareTo(ItemKey other) {
+    int common = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < common; i++) {
+      int result = AttributeValues.compare(parts[i], other.parts[i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    if (parts.length == other.parts.length) {
+      return Boolean.compare(upper, other.upper);
+    }
+    if (parts.length < other.parts.length) {
+      return upper ? 1 : -1;
+    }
+    return other.upper ? -1 : 1;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof ItemKey && compareTo((ItemKey) o) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.stream(parts).mapToInt(part -> AttributeValues.type(part).hashCode()).sum() + parts.length;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
@@ -0,0 +1,154 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Value-producing part of a condition or update expression; evaluates to null for missing attributes
+ */
+interface Operand {
+
+  AttributeValue evaluate(Map<String, AttributeValue> item);
+
+  final class Path implements Operand {
+    final DocumentPath path;
+
+    Path(DocumentPath path) {
+      this.path = path;
+    }
+
+    @Override
+    public AttributeValue evaluate(Map<String, AttributeValue> item) {
+      return path.resolve(item);
+    }
+  }
+
+  final class Value implements Operand {
+    final AttributeValue value;
+
+    Value(AttributeValue value) {
+      this.value = value;
+    }
+
+    @Override
+    public AttributeValue evaluate(Map<String, AttributeValue> item) {
+      return value;
+    }
+  }
+
+  final class Size implements Operand {
+    private final DocumentPath path;
+
+    Size(DocumentPath path) {
+      this.path = path;
+    }
+
+    @Override
+    public AttributeValue evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = path.resolve(item);
+      if (value == null) {
+        return null;
+      }
+      long size;
+      switch (AttributeValues.type(value)) {
+        case "S":
+          size = value.s().length();
+          break;
+        case "B":
+          size = value.b().asByteArrayUnsafe().length;
+          break;
+        case "SS":
+          size = value.ss().size();
+          break;
+        case "NS":
+          size = value.ns().size();
+          break;
+        case "BS":
+          size = value.bs().size();
+          break;
+        case "L":
+          size = value.l().size();
+          break;
+        case "M":
+          size = value.m().size();
+          break;
+        default:
+          return null;
+      }
+      return AttributeValue.builder().n(Long.toString(size)).build();
+    }
+  }
+
+  final class IfNotExists implements Operand {
+    private final DocumentPath path;
+    private final Operand fallback;
+
+    IfNotExists(DocumentPath path, Operand fallback) {
+      this.path = path;
+      this.fallback = fallback;
+    }
+
+    @Override
+    public AttributeValue evaluate(Map<String, AttributeValue> item) {
+      AttributeValue value = path.resolve(item);
+      return value != null ? value : fallback.evaluate(item);
+    }
+  }
+
+  final class ListAppend implements Operand {
+    private final Operand first;
+    private final Operand second;
+
+    ListAppend(Operand first, Operand second) {
+      this.first = first;
+      this.second = second;
+    }
+
+    @Override
+    public AttributeValue evaluate(Map<String, AttributeValue> item) {
+      AttributeValue a = required(first.evaluate(item));
+      AttributeValue b = required(second.evaluate(item));
+      if (!a.hasL() || !b.hasL()) {
+        throw Errors.validation("Incorrect operand type for operator or function; operator or function: list_append");
+      }
+      List<AttributeValue> list = new ArrayList<>(a.l());
+      list.addAll(b.l());
+      return AttributeValue.builder().l(list).build();
+    }
+  }
+
+  final class Arithmetic implements Operand {
+    private final Operand left;
+    private final Operand right;
+    private final boolean subtract;
+
+    Arithmetic(Operand left, Operand right, boolean subtract) {
+      this.left = left;
+      this.right = right;
+      this.subtract = subtract;
+    }
+
+    @Override
+    public AttributeValue evaluate(Map<String, AttributeValue> item) {
+      AttributeValue a = required(left.evaluate(item));
+      AttributeValue b = required(right.evaluate(item));
+      if (a.n() == null || b.n() == null) {
+        throw Errors.validation("An operand in the update expression has an incorrect data type");
+      }
+      BigDecimal x = new BigDecimal(a.n());
+      BigDecimal y = new BigDecimal(b.n());
+      return AttributeValues.number(subtract ? x.subtract(y) : x.add(y));
+    }
+  }
+
+  static AttributeValue required(AttributeValue value) {
+    if (value == null) {
+      throw Errors.validation("The provided expression refers to an attribute that does not exist in the item");
+    }
+    return value;
+  }
+}
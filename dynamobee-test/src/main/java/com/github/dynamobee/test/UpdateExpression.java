@@ -0,0 +1,130 @@
+package com.github.dynamobee.test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+
+/**
+ * Parsed update expression: SET, REMOVE, ADD and DELETE actions.
+ * All operands are evaluated against the item as it was before the update.
+ */
+final class UpdateExpression {
+
+  enum ActionType { SET, REMOVE, ADD, DELETE }
+
+  static final class Action {
+    final ActionType type;
+    final DocumentPath path;
+    final Operand operand;
+
+    Action(ActionType type, DocumentPath path, Operand operand) {
+      this.type = type;
+      this.path = path;
+      this.operand = operand;
+    }
+  }
+
+  private final List<Action> actions;
+
+  UpdateExpression(List<Action> actions) {
+    this.actions = List.copyOf(actions);
+  }
+
+  /**
+   * @return top-level attribute names touched by the update
+   */
+  Set<String> updatedAttributes() {
+    return actions.stream().map(action -> action.path.topLevelName()).collect(Collectors.toCollection(LinkedHashSet::new));
+  }
+
+  Map<String, AttributeValue> apply(Map<String, AttributeValue> original) {
+    List<AttributeValue> values = new ArrayList<>(actions.size());
+    for (Action action : actions) {
+      values.add(action.operand == null ? null : action.operand.evaluate(original));
+    }
+
+    Map<String, AttributeValue> item = original;
+    for (int i = 0; i < actions.size(); i++) {
+      Action action = actions.get(i);
+      AttributeValue value = values.get(i);
+      switch (action.type) {
+        case SET:
+          item = action.path.set(item, Operand.required(value));
+          break;
+        case REMOVE:
+          item = action.path.remove(item);
+          break;
+        case ADD:
+          item = action.path.set(item, add(action.path.resolve(original), Operand.required(value)));
+          break;
+        case DELETE:
+          AttributeValue remaining = delete(action.path.resolve(original), Operand.required(value));
+          item = remaining == null ? action.path.remove(item) : action.path.set(item, remaining);
+          break;
+        default:
+          throw new IllegalStateException(action.type.name());
+      }
+    }
+    return item;
+  }
+
+  private static AttributeValue add(AttributeValue current, AttributeValue value) {
+    String type = AttributeValues.type(value);
+    if (current != null && !AttributeValues.type(current).equals(type)) {
+      throw Errors.validation("An operand in the update expression has an incorrect data type");
+    }
+    switch (type) {
+      case "N":
+        return current == null ? value : AttributeValues.number(new BigDecimal(current.n()).add(new BigDecimal(value.n())));
+      case "SS":
+        return current == null ? value : AttributeValue.builder().ss(union(current.ss(), value.ss())).build();
+      case "NS":
+        return current == null ? value : AttributeValue.builder().ns(union(current.ns(), value.ns())).build();
+      case "BS":
+        return current == null ? value : AttributeValue.builder().bs(union(current.bs(), value.bs())).build();
+      default:
+        throw Errors.validation("Incorrect operand type for operator or function; operator: ADD, operand type: " + type);
+    }
+  }
+
+  private static AttributeValue delete(AttributeValue current, AttributeValue value) {
+    if (current == null) {
+      return null;
+    }
+    String type = AttributeValues.type(value);
+    if (!AttributeValues.type(current).equals(type)) {
+      throw Errors.validation("An operand in the update expression has an incorrect data type");
+    }
+    switch (type) {
+      case "SS":
+        List<String> strings = new ArrayList<>(current.ss());
+        strings.removeAll(value.ss());
+        return strings.isEmpty() ? null : AttributeValue.builder().ss(strings).build();
+      case "NS":
+        Set<BigDecimal> removed = AttributeValues.numberSet(value.ns());
+        List<String> numbers = current.ns().stream()
+            .filter(n -> !removed.contains(new BigDecimal(n).stripTrailingZeros()))
+            .collect(Collectors.toList());
+        return numbers.isEmpty() ? null : AttributeValue.builder().ns(numbers).build();
+      case "BS":
+        List<SdkBytes> bytes = new ArrayList<>(current.bs());
+        bytes.removeAll(value.bs());
+        return bytes.isEmpty() ? null : AttributeValue.builder().bs(bytes).build();
+      default:
+        throw Errors.validation("Incorrect operand type for operator or function; operator: DELETE, operand type: " + type);
+    }
+  }
+
+  private static <T> List<T> union(List<T> a, List<T> b) {
+    Set<T> union = new LinkedHashSet<>(a);
+    union.addAll(b);
+    return new ArrayList<>(union);
+  }
+}
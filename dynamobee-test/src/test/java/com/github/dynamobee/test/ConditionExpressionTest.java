@@ -0,0 +1,158 @@
+package com.github.dynamobee.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class ConditionExpressionTest {
+  private static final String TABLE = "orders";
+
+  private InMemoryDynamoDbClient client;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(TABLE)
+        .keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("id").attributeType(ScalarAttributeType.S)
+            .build()));
+    Map<String, AttributeValue> item = new HashMap<>();
+    item.put("id", s("o#1"));
+    item.put("status", s("NEW"));
+    item.put("total", n("42"));
+    item.put("tags", AttributeValue.builder().ss("red", "blue").build());
+    item.put("lines", AttributeValue.builder().l(s("first"), s("second")).build());
+    item.put("customer", AttributeValue.builder().m(Map.of("name", s("Ada"), "vip", bool(true))).build());
+    client.putItem(request -> request.tableName(TABLE).item(item));
+  }
+
+  @Test
+  public void shouldEvaluateAttributeFunctions() {
+    assertTrue(holds("attribute_exists(#a)", Map.of("#a", "status"), Map.of()));
+    assertFalse(holds("attribute_exists(#a)", Map.of("#a", "missing"), Map.of()));
+    assertTrue(holds("attribute_not_exists(#a)", Map.of("#a", "missing"), Map.of()));
+    assertTrue(holds("attribute_type(#a, :type)", Map.of("#a", "total"), Map.of(":type", s("N"))));
+    assertTrue(holds("begins_with(#a, :prefix)", Map.of("#a", "status"), Map.of(":prefix", s("NE"))));
+    assertTrue(holds("contains(#a, :tag)", Map.of("#a", "tags"), Map.of(":tag", s("red"))));
+    assertFalse(holds("contains(#a, :tag)", Map.of("#a", "tags"), Map.of(":tag", s("green"))));
+    assertTrue(holds("size(#a) = :two", Map.of("#a", "lines"), Map.of(":two", n("2"))));
+  }
+
+  @Test
+  public void shouldCompareNumbersNumerically() {
+    assertTrue(holds("#a > :v", Map.of("#a", "total"), Map.of(":v", n("9"))));
+    assertTrue(holds("#a BETWEEN :low AND :high", Map.of("#a", "total"), Map.of(":low", n("40"), ":high", n("42"))));
+    assertTrue(holds("#a IN (:x, :y)", Map.of("#a", "total"), Map.of(":x", n("1"), ":y", n("42.0"))));
+    assertFalse(holds("#a <> :v", Map.of("#a", "total"), Map.of(":v", n("42"))));
+  }
+
+  @Test
+  public void shouldCombineConditionsWithPrecedence() {
+    Map<String, String> names = Map.of("#s", "status", "#t", "total");
+    // AND binds tighter than OR
+    assertTrue(holds("#s = :done AND #t = :zero OR #t = :total", names,
+        Map.of(":done", s("DONE"), ":zero", n("0"), ":total", n("42"))));
+    assertFalse(holds("#s = :done AND (#t = :zero OR #t = :total)", names,
+        Map.of(":done", s("DONE"), ":zero", n("0"), ":total", n("42"))));
+    assertTrue(holds("NOT #s = :done", names, Map.of(":done", s("DONE"))));
+  }
+
+  @Test
+  public void shouldResolveNestedPaths() {
+    assertTrue(holds("#c.#n = :name", Map.of("#c", "customer", "#n", "name"), Map.of(":name", s("Ada"))));
+    assertTrue(holds("#c.vip = :yes", Map.of("#c", "customer"), Map.of(":yes", bool(true))));
+    assertTrue(holds("#l[1] = :second", Map.of("#l", "lines"), Map.of(":second", s("second"))));
+    assertTrue(holds("attribute_not_exists(#l[2])", Map.of("#l", "lines"), Map.of()));
+  }
+
+  @Test
+  public void shouldLeaveItemUnchangedWhenConditionFails() {
+    try {
+      client.putItem(request -> request
+          .tableName(TABLE)
+          .item(Map.of("id", s("o#1"), "status", s("OVERWRITTEN")))
+          .conditionExpression("attribute_not_exists(id)"));
+      fail("condition should have failed");
+    } catch (ConditionalCheckFailedException e) {
+      assertEquals(400, e.statusCode());
+    }
+    assertEquals(s("NEW"), item().get("status"));
+  }
+
+  @Test
+  public void shouldRejectUndefinedPlaceholders() {
+    try {
+      holds("#a = :missing", Map.of("#a", "status"), Map.of(":other", s("x")));
+      fail("undefined placeholder should be rejected");
+    } catch (ConditionalCheckFailedException e) {
+      fail("undefined placeholder must be a validation error");
+    } catch (DynamoDbException e) {
+      assertEquals(400, e.statusCode());
+    }
+  }
+
+  @Test
+  public void shouldRejectSyntaxErrors() {
+    try {
+      holds("#a = = :v", Map.of("#a", "status"), Map.of(":v", s("NEW")));
+      fail("syntax error should be rejected");
+    } catch (ConditionalCheckFailedException e) {
+      fail("syntax error must be a validation error");
+    } catch (DynamoDbException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Syntax error"));
+    }
+  }
+
+  /**
+   * @return true if a delete conditioned on the expression succeeds; the item is put back afterwards
+   */
+  private boolean holds(String condition, Map<String, String> names, Map<String, AttributeValue> values) {
+    Map<String, AttributeValue> item = item();
+    try {
+      client.deleteItem(request -> {
+        request.tableName(TABLE).key(Map.of("id", s("o#1"))).conditionExpression(condition);
+        if (!names.isEmpty()) {
+          request.expressionAttributeNames(names);
+        }
+        if (!values.isEmpty()) {
+          request.expressionAttributeValues(values);
+        }
+      });
+      client.putItem(request -> request.tableName(TABLE).item(item));
+      return true;
+    } catch (ConditionalCheckFailedException e) {
+      return false;
+    }
+  }
+
+  private Map<String, AttributeValue> item() {
+    return client.getItem(request -> request.tableName(TABLE).key(Map.of("id", s("o#1")))).item();
+  }
+
+  static AttributeValue s(String value) {
+    return AttributeValue.builder().s(value).build();
+  }
+
+  static AttributeValue n(String value) {
+    return AttributeValue.builder().n(value).build();
+  }
+
+  static AttributeValue bool(boolean value) {
+    return AttributeValue.builder().bool(value).build();
+  }
+}
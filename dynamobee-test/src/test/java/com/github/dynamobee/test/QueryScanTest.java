@@ -0,0 +1,229 @@
+package com.github.dynamobee.test;
+
+import static com.github.dynamobee.test.ConditionExpressionTest.n;
+import static com.github.dynamobee.test.ConditionExpressionTest.s;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+
+
+public class QueryScanTest {
+  private static final String TABLE = "orders";
+  private static final String INDEX = "byStatus";
+  private static final int CUSTOMERS = 5;
+  private static final int ORDERS_PER_CUSTOMER = 20;
+
+  private InMemoryDynamoDbClient client;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(TABLE)
+        .keySchema(
+            KeySchemaElement.builder().attributeName("customer").keyType(KeyType.HASH).build(),
+            KeySchemaElement.builder().attributeName("orderNo").keyType(KeyType.RANGE).build())
+        .attributeDefinitions(
+            AttributeDefinition.builder().attributeName("customer").attributeType(ScalarAttributeType.S).build(),
+            AttributeDefinition.builder().attributeName("orderNo").attributeType(ScalarAttributeType.N).build(),
+            AttributeDefinition.builder().attributeName("status").attributeType(ScalarAttributeType.S).build())
+        .globalSecondaryIndexes(GlobalSecondaryIndex.builder()
+            .indexName(INDEX)
+            .keySchema(
+                KeySchemaElement.builder().attributeName("status").keyType(KeyType.HASH).build(),
+                KeySchemaElement.builder().attributeName("orderNo").keyType(KeyType.RANGE).build())
+            .projection(Projection.builder().projectionType(ProjectionType.KEYS_ONLY).build())
+            .build()));
+    for (int customer = 0; customer < CUSTOMERS; customer++) {
+      for (int orderNo = 0; orderNo < ORDERS_PER_CUSTOMER; orderNo++) {
+        String id = "c" + customer;
+        int number = orderNo;
+        client.putItem(request -> request.tableName(TABLE).item(Map.of(
+            "customer", s(id),
+            "orderNo", n(Integer.toString(number)),
+            "status", s(number % 4 == 0 ? "OPEN" : "CLOSED"),
+            "total", n(Integer.toString(number * 10)))));
+      }
+    }
+  }
+
+  @Test
+  public void shouldQueryInSortKeyOrderAcrossPages() {
+    List<Map<String, AttributeValue>> items = queryAll(QueryRequest.builder()
+        .tableName(TABLE)
+        .keyConditionExpression("#c = :c AND #o >= :from")
+        .expressionAttributeNames(Map.of("#c", "customer", "#o", "orderNo"))
+        .expressionAttributeValues(Map.of(":c", s("c1"), ":from", n("5")))
+        .limit(4)
+        .build());
+
+    assertEquals(ORDERS_PER_CUSTOMER - 5, items.size());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(n(Integer.toString(i + 5)), items.get(i).get("orderNo"));
+    }
+  }
+
+  @Test
+  public void shouldQueryBackwards() {
+    QueryResponse response = client.query(request -> request
+        .tableName(TABLE)
+        .keyConditionExpression("#c = :c")
+        .expressionAttributeNames(Map.of("#c", "customer"))
+        .expressionAttributeValues(Map.of(":c", s("c2")))
+        .scanIndexForward(false)
+        .limit(1));
+
+    assertEquals(n(Integer.toString(ORDERS_PER_CUSTOMER - 1)), response.items().get(0).get("orderNo"));
+    assertTrue(response.hasLastEvaluatedKey());
+  }
+
+  @Test
+  public void shouldApplyLimitBeforeFilter() {
+    QueryResponse response = client.query(request -> request
+        .tableName(TABLE)
+        .keyConditionExpression("#c = :c")
+        .filterExpression("#s = :open")
+        .expressionAttributeNames(Map.of("#c", "customer", "#s", "status"))
+        .expressionAttributeValues(Map.of(":c", s("c0"), ":open", s("OPEN")))
+        .limit(3));
+
+    // orders 0, 1 and 2 are evaluated, only order 0 is open
+    assertEquals(3, response.scannedCount().intValue());
+    assertEquals(1, response.count().intValue());
+    assertTrue(response.hasLastEvaluatedKey());
+  }
+
+  @Test
+  public void shouldQueryKeysOnlyIndex() {
+    List<Map<String, AttributeValue>> items = queryAll(QueryRequest.builder()
+        .tableName(TABLE)
+        .indexName(INDEX)
+        .keyConditionExpression("#s = :open")
+        .expressionAttributeNames(Map.of("#s", "status"))
+        .expressionAttributeValues(Map.of(":open", s("OPEN")))
+        .limit(2)
+        .build());
+
+    assertEquals(CUSTOMERS * ORDERS_PER_CUSTOMER / 4, items.size());
+    for (Map<String, AttributeValue> item : items) {
+      assertEquals(Set.of("customer", "orderNo", "status"), item.keySet());
+    }
+  }
+
+  @Test
+  public void shouldProjectAttributes() {
+    ScanResponse response = client.scan(request -> request
+        .tableName(TABLE)
+        .projectionExpression("#t")
+        .expressionAttributeNames(Map.of("#t", "total"))
+        .limit(1));
+
+    assertEquals(Set.of("total"), response.items().get(0).keySet());
+  }
+
+  @Test
+  public void shouldScanEveryItemOnceAcrossPages() {
+    List<Map<String, AttributeValue>> items = scanAll(ScanRequest.builder().tableName(TABLE).limit(7).build());
+
+    assertEquals(CUSTOMERS * ORDERS_PER_CUSTOMER, items.size());
+    assertEquals(items.size(), keysOf(items).size());
+  }
+
+  @Test
+  public void shouldSplitScanIntoDisjointSegments() {
+    int totalSegments = 4;
+    Set<String> keys = new HashSet<>();
+    int scanned = 0;
+    for (int segment = 0; segment < totalSegments; segment++) {
+      List<Map<String, AttributeValue>> items = scanAll(ScanRequest.builder()
+          .tableName(TABLE)
+          .segment(segment)
+          .totalSegments(totalSegments)
+          .limit(5)
+          .build());
+      scanned += items.size();
+      keys.addAll(keysOf(items));
+    }
+
+    assertEquals(CUSTOMERS * ORDERS_PER_CUSTOMER, scanned);
+    assertEquals(scanned, keys.size());
+  }
+
+  @Test
+  public void shouldKeepItemsOfAPartitionInOneSegment() {
+    int totalSegments = 3;
+    for (int segment = 0; segment < totalSegments; segment++) {
+      List<Map<String, AttributeValue>> items = scanAll(ScanRequest.builder()
+          .tableName(TABLE)
+          .segment(segment)
+          .totalSegments(totalSegments)
+          .build());
+      Set<String> customers = items.stream().map(item -> item.get("customer").s()).collect(Collectors.toSet());
+      for (String customer : customers) {
+        long orders = items.stream().filter(item -> item.get("customer").s().equals(customer)).count();
+        assertEquals(customer, ORDERS_PER_CUSTOMER, orders);
+      }
+    }
+  }
+
+  @Test
+  public void shouldEndPaginationWithoutLastEvaluatedKey() {
+    ScanResponse response = client.scan(request -> request.tableName(TABLE));
+
+    assertEquals(CUSTOMERS * ORDERS_PER_CUSTOMER, response.count().intValue());
+    assertFalse(response.hasLastEvaluatedKey());
+  }
+
+  private List<Map<String, AttributeValue>> queryAll(QueryRequest request) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    QueryRequest page = request;
+    while (true) {
+      QueryResponse response = client.query(page);
+      items.addAll(response.items());
+      if (!response.hasLastEvaluatedKey() || response.lastEvaluatedKey().isEmpty()) {
+        return items;
+      }
+      page = page.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build();
+    }
+  }
+
+  private List<Map<String, AttributeValue>> scanAll(ScanRequest request) {
+    List<Map<String, AttributeValue>> items = new ArrayList<>();
+    ScanRequest page = request;
+    while (true) {
+      ScanResponse response = client.scan(page);
+      items.addAll(response.items());
+      if (!response.hasLastEvaluatedKey() || response.lastEvaluatedKey().isEmpty()) {
+        return items;
+      }
+      page = page.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build();
+    }
+  }
+
+  private static Set<String> keysOf(List<Map<String, AttributeValue>> items) {
+    return items.stream()
+        .map(item -> item.get("customer").s() + "/" + item.get("orderNo").n())
+        .collect(Collectors.toSet());
+  }
+}
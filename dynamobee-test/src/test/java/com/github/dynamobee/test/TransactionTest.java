@@ -0,0 +1,155 @@
+package com.github.dynamobee.test;
+
+import static com.github.dynamobee.test.ConditionExpressionTest.n;
+import static com.github.dynamobee.test.ConditionExpressionTest.s;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.CancellationReason;
+import software.amazon.awssdk.services.dynamodb.model.ConditionCheck;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.Get;
+import software.amazon.awssdk.services.dynamodb.model.ItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+
+
+public class TransactionTest {
+  private static final String ACCOUNTS = "accounts";
+
+  private InMemoryDynamoDbClient client;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(ACCOUNTS)
+        .keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("id").attributeType(ScalarAttributeType.S)
+            .build()));
+    client.putItem(request -> request.tableName(ACCOUNTS).item(Map.of("id", s("a"), "balance", n("100"))));
+    client.putItem(request -> request.tableName(ACCOUNTS).item(Map.of("id", s("b"), "balance", n("0"))));
+  }
+
+  @Test
+  public void shouldApplyAllWritesWhenEveryConditionHolds() {
+    client.transactWriteItems(request -> request.transactItems(
+        transfer("a", "-60"),
+        transfer("b", "60"),
+        TransactWriteItem.builder().put(Put.builder()
+            .tableName(ACCOUNTS)
+            .item(Map.of("id", s("c"), "balance", n("0")))
+            .conditionExpression("attribute_not_exists(id)")
+            .build()).build()));
+
+    assertEquals(n("40"), balance("a"));
+    assertEquals(n("60"), balance("b"));
+    assertEquals(n("0"), balance("c"));
+  }
+
+  @Test
+  public void shouldCancelWithReasonsInRequestOrder() {
+    try {
+      client.transactWriteItems(request -> request.transactItems(
+          transfer("a", "-150"),
+          transfer("b", "150"),
+          TransactWriteItem.builder().conditionCheck(ConditionCheck.builder()
+              .tableName(ACCOUNTS)
+              .key(Map.of("id", s("missing")))
+              .conditionExpression("attribute_exists(id)")
+              .build()).build()));
+      fail("transaction should have been cancelled");
+    } catch (TransactionCanceledException e) {
+      List<String> codes = e.cancellationReasons().stream().map(CancellationReason::code).collect(Collectors.toList());
+      assertEquals(List.of("ConditionalCheckFailed", "None", "ConditionalCheckFailed"), codes);
+      assertEquals(400, e.statusCode());
+    }
+
+    assertEquals("no write of a cancelled transaction is applied", n("100"), balance("a"));
+    assertEquals(n("0"), balance("b"));
+  }
+
+  @Test
+  public void shouldNotDeleteWhenCancelled() {
+    try {
+      client.transactWriteItems(request -> request.transactItems(
+          TransactWriteItem.builder().delete(Delete.builder()
+              .tableName(ACCOUNTS)
+              .key(Map.of("id", s("b")))
+              .build()).build(),
+          transfer("a", "-101")));
+      fail("transaction should have been cancelled");
+    } catch (TransactionCanceledException e) {
+      assertEquals(2, e.cancellationReasons().size());
+    }
+
+    assertEquals(n("0"), balance("b"));
+  }
+
+  @Test
+  public void shouldRejectTwoOperationsOnOneItem() {
+    try {
+      client.transactWriteItems(request -> request.transactItems(transfer("a", "-1"), transfer("a", "-2")));
+      fail("two operations on one item should be rejected");
+    } catch (TransactionCanceledException e) {
+      fail("two operations on one item must be a validation error");
+    } catch (DynamoDbException e) {
+      assertEquals(400, e.statusCode());
+    }
+
+    assertEquals(n("100"), balance("a"));
+  }
+
+  @Test
+  public void shouldGetItemsInRequestOrder() {
+    List<Map<String, AttributeValue>> items = client.transactGetItems(request -> request.transactItems(
+        get("a"), get("missing"), get("b")))
+        .responses().stream()
+        .map(ItemResponse::item)
+        .collect(Collectors.toList());
+
+    assertEquals(n("100"), items.get(0).get("balance"));
+    assertTrue(items.get(1) == null || items.get(1).isEmpty());
+    assertEquals(n("0"), items.get(2).get("balance"));
+  }
+
+  private static TransactGetItem get(String account) {
+    return TransactGetItem.builder()
+        .get(Get.builder().tableName(ACCOUNTS).key(Map.of("id", s(account))).build())
+        .build();
+  }
+
+  /**
+   * @return update adding the amount to the balance, unless the balance would become negative
+   */
+  private static TransactWriteItem transfer(String account, String amount) {
+    return TransactWriteItem.builder().update(Update.builder()
+        .tableName(ACCOUNTS)
+        .key(Map.of("id", s(account)))
+        .updateExpression("SET #b = #b + :amount")
+        .conditionExpression("#b >= :minimum")
+        .expressionAttributeNames(Map.of("#b", "balance"))
+        .expressionAttributeValues(Map.of(":amount", n(amount),
+            ":minimum", n(amount.startsWith("-") ? amount.substring(1) : "0")))
+        .build()).build();
+  }
+
+  private AttributeValue balance(String account) {
+    return client.getItem(request -> request.tableName(ACCOUNTS).key(Map.of("id", s(account)))).item().get("balance");
+  }
+}
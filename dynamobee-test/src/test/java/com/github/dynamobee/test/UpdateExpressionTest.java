@@ -0,0 +1,171 @@
+package com.github.dynamobee.test;
+
+import static com.github.dynamobee.test.ConditionExpressionTest.n;
+import static com.github.dynamobee.test.ConditionExpressionTest.s;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+
+public class UpdateExpressionTest {
+  private static final String TABLE = "orders";
+  private static final Map<String, AttributeValue> KEY = Map.of("id", s("o#1"));
+
+  private InMemoryDynamoDbClient client;
+
+  @Before
+  public void setUp() {
+    client = new InMemoryDynamoDbClient();
+    client.createTable(request -> request
+        .tableName(TABLE)
+        .keySchema(KeySchemaElement.builder().attributeName("id").keyType(KeyType.HASH).build())
+        .attributeDefinitions(AttributeDefinition.builder().attributeName("id").attributeType(ScalarAttributeType.S)
+            .build()));
+    client.putItem(request -> request.tableName(TABLE).item(Map.of(
+        "id", s("o#1"),
+        "total", n("10"),
+        "status", s("NEW"),
+        "tags", AttributeValue.builder().ss("red", "blue").build(),
+        "lines", AttributeValue.builder().l(s("first")).build())));
+  }
+
+  @Test
+  public void shouldSetWithArithmeticAndFunctions() {
+    update("SET #t = #t + :five, #c = if_not_exists(#c, :zero), #l = list_append(#l, :more)",
+        Map.of("#t", "total", "#c", "count", "#l", "lines"),
+        Map.of(":five", n("5"), ":zero", n("0"), ":more", AttributeValue.builder().l(s("second")).build()));
+
+    Map<String, AttributeValue> item = item();
+    assertEquals(n("15"), item.get("total"));
+    assertEquals(n("0"), item.get("count"));
+    assertEquals(List.of(s("first"), s("second")), item.get("lines").l());
+
+    update("SET #c = if_not_exists(#c, :one)", Map.of("#c", "count"), Map.of(":one", n("1")));
+    assertEquals(n("0"), item().get("count"));
+  }
+
+  @Test
+  public void shouldRemoveAttributesAndListElements() {
+    update("SET #l = list_append(#l, :more)", Map.of("#l", "lines"),
+        Map.of(":more", AttributeValue.builder().l(s("second")).build()));
+    update("REMOVE #s, #l[0]", Map.of("#s", "status", "#l", "lines"), Map.of());
+
+    Map<String, AttributeValue> item = item();
+    assertFalse(item.containsKey("status"));
+    assertEquals(List.of(s("second")), item.get("lines").l());
+  }
+
+  @Test
+  public void shouldApplyAddAndDeleteOnSets() {
+    update("ADD #t :two, #tags :green, #n :one", Map.of("#t", "total", "#tags", "tags", "#n", "visits"),
+        Map.of(":two", n("2"), ":green", AttributeValue.builder().ss("green").build(), ":one", n("1")));
+    Map<String, AttributeValue> item = item();
+    assertEquals(n("12"), item.get("total"));
+    assertEquals(n("1"), item.get("visits"));
+    assertEquals(Set.of("red", "blue", "green"), Set.copyOf(item.get("tags").ss()));
+
+    update("DELETE #tags :colors", Map.of("#tags", "tags"),
+        Map.of(":colors", AttributeValue.builder().ss("red", "blue", "green").build()));
+    assertFalse("an emptied set is removed", item().containsKey("tags"));
+  }
+
+  @Test
+  public void shouldCreateMissingItemsOnUpdate() {
+    client.updateItem(request -> request
+        .tableName(TABLE)
+        .key(Map.of("id", s("o#2")))
+        .updateExpression("SET #s = :s")
+        .expressionAttributeNames(Map.of("#s", "status"))
+        .expressionAttributeValues(Map.of(":s", s("NEW"))));
+
+    Map<String, AttributeValue> item = client.getItem(request -> request.tableName(TABLE)
+        .key(Map.of("id", s("o#2")))).item();
+    assertEquals(Map.of("id", s("o#2"), "status", s("NEW")), item);
+  }
+
+  @Test
+  public void shouldReturnRequestedValues() {
+    Map<String, AttributeValue> updatedNew = client.updateItem(request -> request
+        .tableName(TABLE)
+        .key(KEY)
+        .updateExpression("SET #t = :t")
+        .expressionAttributeNames(Map.of("#t", "total"))
+        .expressionAttributeValues(Map.of(":t", n("11")))
+        .returnValues(ReturnValue.UPDATED_NEW)).attributes();
+    assertEquals(Map.of("total", n("11")), updatedNew);
+
+    Map<String, AttributeValue> allOld = client.updateItem(request -> request
+        .tableName(TABLE)
+        .key(KEY)
+        .updateExpression("SET #t = :t")
+        .expressionAttributeNames(Map.of("#t", "total"))
+        .expressionAttributeValues(Map.of(":t", n("12")))
+        .returnValues(ReturnValue.ALL_OLD)).attributes();
+    assertEquals(n("11"), allOld.get("total"));
+    assertEquals(s("NEW"), allOld.get("status"));
+  }
+
+  @Test
+  public void shouldApplyConditionBeforeUpdating() {
+    try {
+      client.updateItem(request -> request
+          .tableName(TABLE)
+          .key(KEY)
+          .updateExpression("SET #t = :t")
+          .conditionExpression("#s = :done")
+          .expressionAttributeNames(Map.of("#t", "total", "#s", "status"))
+          .expressionAttributeValues(Map.of(":t", n("0"), ":done", s("DONE"))));
+      fail("condition should have failed");
+    } catch (ConditionalCheckFailedException e) {
+      assertEquals(n("10"), item().get("total"));
+    }
+  }
+
+  @Test
+  public void shouldRejectInvalidUpdates() {
+    assertValidationError("SET #k = :v", Map.of("#k", "id"), Map.of(":v", s("o#9")));
+    assertValidationError("SET #t = :v REMOVE #t", Map.of("#t", "total"), Map.of(":v", n("1")));
+    assertValidationError("ADD #s :one", Map.of("#s", "status"), Map.of(":one", n("1")));
+    assertValidationError("SET #t = #s + :one", Map.of("#t", "total", "#s", "status"), Map.of(":one", n("1")));
+    assertEquals(n("10"), item().get("total"));
+  }
+
+  private void assertValidationError(String expression, Map<String, String> names,
+                                     Map<String, AttributeValue> values) {
+    try {
+      update(expression, names, values);
+      fail(expression + " should be rejected");
+    } catch (ConditionalCheckFailedException e) {
+      fail(expression + " must be a validation error");
+    } catch (DynamoDbException e) {
+      assertEquals(e.getMessage(), 400, e.statusCode());
+    }
+  }
+
+  private void update(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+    client.updateItem(request -> {
+      request.tableName(TABLE).key(KEY).updateExpression(expression).expressionAttributeNames(names);
+      if (!values.isEmpty()) {
+        request.expressionAttributeValues(values);
+      }
+    });
+  }
+
+  private Map<String, AttributeValue> item() {
+    return client.getItem(request -> request.tableName(TABLE).key(KEY)).item();
+  }
+}